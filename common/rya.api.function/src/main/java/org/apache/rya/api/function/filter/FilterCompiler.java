@@ -0,0 +1,473 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.function.filter;
+
+import static java.util.Objects.requireNonNull;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.And;
+import org.eclipse.rdf4j.query.algebra.Bound;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.Not;
+import org.eclipse.rdf4j.query.algebra.Or;
+import org.eclipse.rdf4j.query.algebra.Regex;
+import org.eclipse.rdf4j.query.algebra.Str;
+import org.eclipse.rdf4j.query.algebra.ValueConstant;
+import org.eclipse.rdf4j.query.algebra.ValueExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Compiles the condition of a {@link Filter} into a tree of {@link Condition}s once, so that each
+ * binding set that is filtered does not have to be run through a {@link StrictEvaluationStrategy}.
+ * <p>
+ * The compiled conditions cover the shapes filters most often take: {@code &&}, {@code ||} and {@code !},
+ * comparisons, {@code bound}, and {@code regex} with a constant pattern, whose {@link Pattern} is compiled
+ * up front. Comparisons of a value against a numeric or {@code xsd:dateTime} constant parse the constant
+ * once. Any other expression is evaluated by the {@link StrictEvaluationStrategy}, so a compiled condition
+ * always agrees with the interpreter.
+ * <p>
+ * Errors are returned as {@link Truth#ERROR} instead of being thrown, following the SPARQL rules for
+ * how {@code &&} and {@code ||} treat errors. A {@link QueryEvaluationException} that is not a
+ * {@link ValueExprEvaluationException}, such as for a call to an unknown function, is thrown.
+ */
+@DefaultAnnotation(NonNull.class)
+final class FilterCompiler {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    /**
+     * Is used to evaluate the parts of a condition that are not compiled.
+     */
+    private static final StrictEvaluationStrategy EVALUATOR = new StrictEvaluationStrategy(
+            new TripleSource() {
+                @Override
+                public ValueFactory getValueFactory() {
+                    return VF;
+                }
+
+                @Override
+                public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(
+                        final Resource arg0,
+                        final IRI arg1,
+                        final Value arg2,
+                        final Resource... arg3) throws QueryEvaluationException {
+                    throw new UnsupportedOperationException();
+                }
+            },
+            null);
+
+    /**
+     * The result of evaluating a {@link Condition}.
+     */
+    enum Truth {
+        TRUE,
+        FALSE,
+        /**
+         * The condition could not be evaluated, for example because a variable is not bound.
+         */
+        ERROR;
+
+        static Truth of(final boolean value) {
+            return value ? TRUE : FALSE;
+        }
+    }
+
+    /**
+     * A compiled condition of a {@link Filter}.
+     */
+    interface Condition {
+        /**
+         * @param bs - The binding set the condition is evaluated against. (not null)
+         * @return The effective boolean value of the condition for the binding set.
+         */
+        Truth evaluate(BindingSet bs);
+    }
+
+    /**
+     * A compiled expression that a {@link Condition} is evaluated over.
+     */
+    private interface Operand {
+        /**
+         * @param bs - The binding set the expression is evaluated against. (not null)
+         * @return The value of the expression, or {@code null} if it could not be evaluated.
+         */
+        @Nullable Value evaluate(BindingSet bs);
+    }
+
+    private FilterCompiler() { }
+
+    /**
+     * Compiles the condition of a {@link Filter}.
+     *
+     * @param condition - The condition to compile. (not null)
+     * @return A {@link Condition} that evaluates the same way as the interpreter does.
+     */
+    static Condition compile(final ValueExpr condition) {
+        requireNonNull(condition);
+
+        if(condition instanceof And) {
+            final And and = (And) condition;
+            return and(compile(and.getLeftArg()), compile(and.getRightArg()));
+        } else if(condition instanceof Or) {
+            final Or or = (Or) condition;
+            return or(compile(or.getLeftArg()), compile(or.getRightArg()));
+        } else if(condition instanceof Not) {
+            return not(compile(((Not) condition).getArg()));
+        } else if(condition instanceof Bound) {
+            return bound(((Bound) condition).getArg());
+        } else if(condition instanceof Compare) {
+            return compare((Compare) condition);
+        } else if(condition instanceof Regex) {
+            final Condition regex = regex((Regex) condition);
+            if(regex != null) {
+                return regex;
+            }
+        }
+        return interpreted(condition);
+    }
+
+    private static Condition and(final Condition left, final Condition right) {
+        return bs -> {
+            final Truth leftTruth = left.evaluate(bs);
+            if(leftTruth == Truth.FALSE) {
+                return Truth.FALSE;
+            }
+            final Truth rightTruth = right.evaluate(bs);
+            if(leftTruth == Truth.ERROR) {
+                return rightTruth == Truth.FALSE ? Truth.FALSE : Truth.ERROR;
+            }
+            return rightTruth;
+        };
+    }
+
+    private static Condition or(final Condition left, final Condition right) {
+        return bs -> {
+            final Truth leftTruth = left.evaluate(bs);
+            if(leftTruth == Truth.TRUE) {
+                return Truth.TRUE;
+            }
+            final Truth rightTruth = right.evaluate(bs);
+            if(leftTruth == Truth.ERROR) {
+                return rightTruth == Truth.TRUE ? Truth.TRUE : Truth.ERROR;
+            }
+            return rightTruth;
+        };
+    }
+
+    private static Condition not(final Condition arg) {
+        return bs -> {
+            switch(arg.evaluate(bs)) {
+                case TRUE:
+                    return Truth.FALSE;
+                case FALSE:
+                    return Truth.TRUE;
+                default:
+                    return Truth.ERROR;
+            }
+        };
+    }
+
+    private static Condition bound(final Var var) {
+        if(var.hasValue()) {
+            return bs -> Truth.TRUE;
+        }
+        final String name = var.getName();
+        return bs -> Truth.of(bs.getValue(name) != null);
+    }
+
+    private static Condition compare(final Compare compare) {
+        final CompareOp op = compare.getOperator();
+        final Operand left = operand(compare.getLeftArg());
+        final Operand right = operand(compare.getRightArg());
+
+        // Parse a numeric or date constant once instead of once per binding set.
+        final Literal leftConstant = literalConstant(compare.getLeftArg());
+        final Literal rightConstant = literalConstant(compare.getRightArg());
+        if(leftConstant == null && rightConstant != null) {
+            final Function<Literal, Integer> comparator = comparatorTo(rightConstant);
+            if(comparator != null) {
+                return constantComparison(left, rightConstant, comparator, op, false);
+            }
+        } else if(leftConstant != null && rightConstant == null) {
+            final Function<Literal, Integer> comparator = comparatorTo(leftConstant);
+            if(comparator != null) {
+                return constantComparison(right, leftConstant, comparator, op, true);
+            }
+        }
+
+        return bs -> {
+            final Value leftValue = left.evaluate(bs);
+            if(leftValue == null) {
+                return Truth.ERROR;
+            }
+            final Value rightValue = right.evaluate(bs);
+            if(rightValue == null) {
+                return Truth.ERROR;
+            }
+            return compare(leftValue, rightValue, op);
+        };
+    }
+
+    /**
+     * @param operand - Evaluates the value that is compared to the constant. (not null)
+     * @param constant - The constant it is compared to. (not null)
+     * @param comparator - Compares a literal with the same datatype as the constant to the constant,
+     *   returning {@code null} if it can not. (not null)
+     * @param op - The comparison. (not null)
+     * @param constantOnLeft - {@code true} if the constant is the left argument of the comparison.
+     */
+    private static Condition constantComparison(final Operand operand, final Literal constant,
+            final Function<Literal, Integer> comparator, final CompareOp op, final boolean constantOnLeft) {
+        final IRI datatype = constant.getDatatype();
+        return bs -> {
+            final Value value = operand.evaluate(bs);
+            if(value == null) {
+                return Truth.ERROR;
+            }
+            if(value instanceof Literal && datatype.equals(((Literal) value).getDatatype())) {
+                Integer result;
+                try {
+                    result = comparator.apply((Literal) value);
+                } catch(final IllegalArgumentException e) {
+                    // The label is not valid for its datatype, so let the general comparison report the error.
+                    result = null;
+                }
+                if(result != null) {
+                    return Truth.of(matches(op, constantOnLeft ? -result : result));
+                }
+            }
+            return constantOnLeft ? compare(constant, value, op) : compare(value, constant, op);
+        };
+    }
+
+    /**
+     * @param constant - A constant that values are compared to. (not null)
+     * @return A function that compares a literal with the same datatype as the constant to the constant, or
+     *   {@code null} if the constant's datatype does not have one.
+     */
+    private static @Nullable Function<Literal, Integer> comparatorTo(final Literal constant) {
+        final IRI datatype = constant.getDatatype();
+        try {
+            // QueryEvaluationUtil orders floating point values the same way, so NaN and -0.0 compare as they do there.
+            if(XMLSchema.DOUBLE.equals(datatype)) {
+                final double constantValue = constant.doubleValue();
+                return value -> Double.compare(value.doubleValue(), constantValue);
+            } else if(XMLSchema.FLOAT.equals(datatype)) {
+                final float constantValue = constant.floatValue();
+                return value -> Float.compare(value.floatValue(), constantValue);
+            } else if(XMLSchema.DECIMAL.equals(datatype)) {
+                final BigDecimal constantValue = constant.decimalValue();
+                return value -> value.decimalValue().compareTo(constantValue);
+            } else if(XMLDatatypeUtil.isIntegerDatatype(datatype)) {
+                final BigInteger constantValue = constant.integerValue();
+                return value -> value.integerValue().compareTo(constantValue);
+            } else if(XMLSchema.DATETIME.equals(datatype)) {
+                final XMLGregorianCalendar constantValue = constant.calendarValue();
+                return value -> {
+                    final int result = value.calendarValue().compare(constantValue);
+                    return result == DatatypeConstants.INDETERMINATE ? null : result;
+                };
+            }
+        } catch(final IllegalArgumentException e) {
+            // The constant is not valid for its datatype, so every comparison with it is an error.
+        }
+        return null;
+    }
+
+    private static boolean matches(final CompareOp op, final int result) {
+        switch(op) {
+            case EQ:
+                return result == 0;
+            case NE:
+                return result != 0;
+            case LT:
+                return result < 0;
+            case LE:
+                return result <= 0;
+            case GT:
+                return result > 0;
+            case GE:
+                return result >= 0;
+            default:
+                throw new IllegalArgumentException("Unknown comparison operator: " + op);
+        }
+    }
+
+    private static Truth compare(final Value left, final Value right, final CompareOp op) {
+        try {
+            return Truth.of(QueryEvaluationUtil.compare(left, right, op));
+        } catch(final ValueExprEvaluationException e) {
+            return Truth.ERROR;
+        }
+    }
+
+    /**
+     * @return A condition that uses a precompiled {@link Pattern}, or {@code null} if the pattern or flags
+     *   are not constants.
+     */
+    private static @Nullable Condition regex(final Regex regex) {
+        final Value patternArg = constant(regex.getPatternArg());
+        if(patternArg == null || !QueryEvaluationUtil.isSimpleLiteral(patternArg)) {
+            return null;
+        }
+
+        String flags = "";
+        if(regex.getFlagsArg() != null) {
+            final Value flagsArg = constant(regex.getFlagsArg());
+            if(flagsArg == null || !QueryEvaluationUtil.isSimpleLiteral(flagsArg)) {
+                return null;
+            }
+            flags = ((Literal) flagsArg).getLabel();
+        }
+
+        // These are the flags the interpreter understands.
+        int patternFlags = 0;
+        for(final char flag : flags.toCharArray()) {
+            switch(flag) {
+                case 's':
+                    patternFlags |= Pattern.DOTALL;
+                    break;
+                case 'm':
+                    patternFlags |= Pattern.MULTILINE;
+                    break;
+                case 'i':
+                    patternFlags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                    break;
+                case 'x':
+                    patternFlags |= Pattern.COMMENTS;
+                    break;
+                case 'd':
+                    patternFlags |= Pattern.UNIX_LINES;
+                    break;
+                case 'u':
+                    patternFlags |= Pattern.UNICODE_CASE;
+                    break;
+                default:
+                    return null;
+            }
+        }
+
+        final Pattern pattern;
+        try {
+            pattern = Pattern.compile(((Literal) patternArg).getLabel(), patternFlags);
+        } catch(final PatternSyntaxException e) {
+            return null;
+        }
+
+        final Operand arg = operand(regex.getArg());
+        return bs -> {
+            final Value value = arg.evaluate(bs);
+            if(value == null || !QueryEvaluationUtil.isStringLiteral(value)) {
+                return Truth.ERROR;
+            }
+            return Truth.of(pattern.matcher(((Literal) value).getLabel()).find());
+        };
+    }
+
+    private static Condition interpreted(final ValueExpr condition) {
+        return bs -> {
+            try {
+                return Truth.of(QueryEvaluationUtil.getEffectiveBooleanValue(EVALUATOR.evaluate(condition, bs)));
+            } catch(final ValueExprEvaluationException e) {
+                // Other QueryEvaluationExceptions, such as for a FunctionCall whose Function IRI could
+                // not be found in the FunctionRegistry, are thrown like the interpreter throws them.
+                return Truth.ERROR;
+            }
+        };
+    }
+
+    private static Operand operand(final ValueExpr expr) {
+        if(expr instanceof ValueConstant) {
+            final Value value = ((ValueConstant) expr).getValue();
+            return bs -> value;
+        } else if(expr instanceof Var) {
+            final Var var = (Var) expr;
+            if(var.hasValue()) {
+                final Value value = var.getValue();
+                return bs -> value;
+            }
+            final String name = var.getName();
+            return bs -> bs.getValue(name);
+        } else if(expr instanceof Str) {
+            final Operand arg = operand(((Str) expr).getArg());
+            return bs -> str(arg.evaluate(bs));
+        }
+
+        return bs -> {
+            try {
+                return EVALUATOR.evaluate(expr, bs);
+            } catch(final ValueExprEvaluationException e) {
+                return null;
+            }
+        };
+    }
+
+    private static @Nullable Value str(final @Nullable Value value) {
+        if(value instanceof IRI) {
+            return VF.createLiteral(value.toString());
+        } else if(value instanceof Literal) {
+            final Literal literal = (Literal) value;
+            return QueryEvaluationUtil.isSimpleLiteral(literal) ? literal : VF.createLiteral(literal.getLabel());
+        }
+        return null;
+    }
+
+    private static @Nullable Value constant(final ValueExpr expr) {
+        if(expr instanceof ValueConstant) {
+            return ((ValueConstant) expr).getValue();
+        } else if(expr instanceof Var) {
+            return ((Var) expr).getValue();
+        }
+        return null;
+    }
+
+    private static @Nullable Literal literalConstant(final ValueExpr expr) {
+        final Value value = constant(expr);
+        return value instanceof Literal ? (Literal) value : null;
+    }
+}
@@ -20,57 +20,26 @@ package org.apache.rya.api.function.filter;
 
 import static java.util.Objects.requireNonNull;
 
+import org.apache.rya.api.function.filter.FilterCompiler.Condition;
+import org.apache.rya.api.function.filter.FilterCompiler.Truth;
 import org.apache.rya.api.model.VisibilityBindingSet;
-import org.eclipse.rdf4j.common.iteration.CloseableIteration;
-import org.eclipse.rdf4j.model.IRI;
-import org.eclipse.rdf4j.model.Resource;
-import org.eclipse.rdf4j.model.Statement;
-import org.eclipse.rdf4j.model.Value;
-import org.eclipse.rdf4j.model.ValueFactory;
-import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.Filter;
 import org.eclipse.rdf4j.query.algebra.ValueExpr;
-import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
-import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
-import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.FunctionRegistry;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
  * Processes a {@link Filter} node from a SPARQL query.
+ * <p>
+ * The filter's condition is compiled by {@link FilterCompiler} when the evaluator is constructed, so
+ * an evaluator should be made once per query and reused for each binding set it filters.
  */
 @DefaultAnnotation(NonNull.class)
 public class FilterEvaluator {
-    private static final Logger log = LoggerFactory.getLogger(FilterEvaluator.class);
-
-    /**
-     * Is used to evaluate the conditions of a {@link Filter}.
-     */
-    private static final StrictEvaluationStrategy EVALUATOR = new StrictEvaluationStrategy(
-            new TripleSource() {
-                private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
-
-                @Override
-                public ValueFactory getValueFactory() {
-                    return valueFactory;
-                }
-
-                @Override
-                public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(
-                        final Resource arg0,
-                        final IRI arg1,
-                        final Value arg2,
-                        final Resource... arg3) throws QueryEvaluationException {
-                    throw new UnsupportedOperationException();
-                }
-            },
-            null);
-
-    private final ValueExpr condition;
+    private final Condition condition;
 
     /**
      * Constructs an instance of {@link FilterEvaluator}.
@@ -78,7 +47,7 @@ public class FilterEvaluator {
      * @param condition - The condition that defines what passes the filter function. (not null)
      */
     public FilterEvaluator(final ValueExpr condition) {
-        this.condition = requireNonNull(condition);
+        this.condition = FilterCompiler.compile(requireNonNull(condition));
     }
 
     /**
@@ -99,20 +68,13 @@ public class FilterEvaluator {
      * @param bs - The value that will be evaluated against the filter. (not null)
      * @return {@code true} if the binding set matches the filter and it should be included in the node's results,
      *   otherwise {@code false} and it should be excluded.
+     * @throws QueryEvaluationException The condition could not be evaluated for a reason other than its values,
+     *   for example because it calls a function that is not in the {@link FunctionRegistry}.
      */
-    public boolean filter(final VisibilityBindingSet bs) {
+    public boolean filter(final VisibilityBindingSet bs) throws QueryEvaluationException {
         requireNonNull(bs);
 
-        try {
-            final Value result = EVALUATOR.evaluate(condition, bs);
-            return QueryEvaluationUtil.getEffectiveBooleanValue(result);
-        } catch (final QueryEvaluationException e) {
-            //False returned because for whatever reason, the ValueExpr could not be evaluated.
-            //In the event that the ValueExpr is a FunctionCall, this Exception will be generated if
-            //the Function IRI is a valid IRI that was found in the FunctionRegistry, but the arguments
-            //for that Function could not be parsed.
-            log.error("Could not evaluate a Filter.", e);
-            return false;
-        }
+        // A condition that could not be evaluated does not match.
+        return condition.evaluate(bs) == Truth.TRUE;
     }
 }
\ No newline at end of file
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.function.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.rya.api.function.filter.FilterCompiler.Truth;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Test;
+
+/**
+ * Unit tests the methods of {@link FilterCompiler} by checking that compiled conditions agree with
+ * the {@link StrictEvaluationStrategy} they replace.
+ */
+public class FilterCompilerTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final StrictEvaluationStrategy INTERPRETER = new StrictEvaluationStrategy(
+            new TripleSource() {
+                @Override
+                public ValueFactory getValueFactory() {
+                    return VF;
+                }
+
+                @Override
+                public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(
+                        final Resource subj, final IRI pred, final Value obj, final Resource... contexts) {
+                    throw new UnsupportedOperationException();
+                }
+            },
+            null);
+
+    private static final List<Value> VALUES = Arrays.asList(
+            VF.createLiteral(9),
+            VF.createLiteral(10),
+            VF.createLiteral("010", XMLSchema.INT),
+            VF.createLiteral("11", XMLSchema.INTEGER),
+            VF.createLiteral("ten", XMLSchema.INTEGER),
+            VF.createLiteral("9.5", XMLSchema.DECIMAL),
+            VF.createLiteral(10.0),
+            VF.createLiteral(Double.NaN),
+            VF.createLiteral(-0.0),
+            VF.createLiteral(9.5f),
+            VF.createLiteral("2018-01-01T00:00:00Z", XMLSchema.DATETIME),
+            VF.createLiteral("2018-06-01T00:00:00", XMLSchema.DATETIME),
+            VF.createLiteral("2019-01-01T00:00:00Z", XMLSchema.DATETIME),
+            VF.createLiteral("not a date", XMLSchema.DATETIME),
+            VF.createLiteral("Alice"),
+            VF.createLiteral("alice", "en"),
+            VF.createLiteral(true),
+            VF.createIRI("urn:Alice"),
+            VF.createBNode("alice"));
+
+    private static final List<String> CONDITIONS = Arrays.asList(
+            "?x < 10",
+            "10 >= ?x",
+            "?x = 10",
+            "?x != 10",
+            "?x > 9.75",
+            "?x <= 10.0e0",
+            "?x > \"9.0\"^^<http://www.w3.org/2001/XMLSchema#float>",
+            "?x = 0.0e0",
+            "?x = \"010\"^^<http://www.w3.org/2001/XMLSchema#int>",
+            "?x >= \"2018-06-01T00:00:00Z\"^^<http://www.w3.org/2001/XMLSchema#dateTime>",
+            "?x < \"2018-06-01T00:00:00Z\"^^<http://www.w3.org/2001/XMLSchema#dateTime>",
+            "?x = ?y",
+            "?x < ?y",
+            "?x = <urn:Alice>",
+            "?x = \"Alice\"",
+            "?x > 9 && ?x < 11",
+            "?x < 9 || ?x > 10",
+            "?z < 10 || ?x < 10",
+            "?z < 10 && ?x > 100",
+            "!(?x < 10)",
+            "!(?z < 10)",
+            "bound(?x)",
+            "bound(?z)",
+            "!bound(?z) || ?z > 5",
+            "regex(?x, \"^ali\")",
+            "regex(?x, \"^ali\", \"i\")",
+            "regex(str(?x), \"Alice$\")",
+            "regex(?x, ?y)",
+            "regex(?x, \"a\", \"q\")",
+            "?x",
+            "isLiteral(?x) && ?x != \"Alice\"",
+            "str(?x) = \"urn:Alice\"");
+
+    @Test
+    public void agreesWithInterpreter() throws Exception {
+        for(final String condition : CONDITIONS) {
+            final Filter filter = FilterEvaluatorTest.getFilter("SELECT * WHERE { FILTER(" + condition + ") ?s ?p ?x }");
+            final FilterCompiler.Condition compiled = FilterCompiler.compile(filter.getCondition());
+
+            for(final BindingSet bs : bindingSets()) {
+                assertEquals(condition + " with " + bs, interpret(filter, bs), compiled.evaluate(bs));
+            }
+        }
+    }
+
+    @Test
+    public void unboundVariableIsAnError() throws Exception {
+        final Filter filter = FilterEvaluatorTest.getFilter("SELECT * WHERE { FILTER(?x < 10) ?s ?p ?x }");
+        assertEquals(Truth.ERROR, FilterCompiler.compile(filter.getCondition()).evaluate(new MapBindingSet()));
+    }
+
+    private static Truth interpret(final Filter filter, final BindingSet bs) {
+        try {
+            return Truth.of(QueryEvaluationUtil.getEffectiveBooleanValue(INTERPRETER.evaluate(filter.getCondition(), bs)));
+        } catch(final ValueExprEvaluationException e) {
+            return Truth.ERROR;
+        }
+    }
+
+    private static List<BindingSet> bindingSets() {
+        final List<BindingSet> bindingSets = new ArrayList<>();
+        bindingSets.add(new MapBindingSet());
+        for(final Value x : VALUES) {
+            final MapBindingSet bs = new MapBindingSet();
+            bs.addBinding("x", x);
+            bindingSets.add(bs);
+
+            final MapBindingSet withY = new MapBindingSet();
+            withY.addBinding("x", x);
+            withY.addBinding("y", VF.createLiteral(10));
+            bindingSets.add(withY);
+        }
+        return bindingSets;
+    }
+}
@@ -27,6 +27,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.apache.rya.api.model.VisibilityBindingSet;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.Filter;
 import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
 import org.eclipse.rdf4j.query.impl.MapBindingSet;
@@ -83,6 +84,26 @@ public class FilterEvaluatorTest {
         assertFalse( FilterEvaluator.make(filter).filter(visBs) );
     }
 
+    @Test(expected = QueryEvaluationException.class)
+    public void unknownFunctionIsThrown() throws Exception {
+        // Read the filter object from a SPARQL query.
+        final Filter filter = getFilter(
+                "SELECT * " +
+                "WHERE { " +
+                    "FILTER(<urn:unknownFunction>(?age))" +
+                    "?person <urn:age> ?age " +
+                "}");
+
+        // Create the input binding set.
+        final ValueFactory vf = SimpleValueFactory.getInstance();
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("person", vf.createIRI("urn:Alice"));
+        bs.addBinding("age", vf.createLiteral(9));
+
+        // Test the evaluator.
+        FilterEvaluator.make(filter).filter(new VisibilityBindingSet(bs));
+    }
+
     /**
      * Get the first {@link Filter} node from a SPARQL query.
      *
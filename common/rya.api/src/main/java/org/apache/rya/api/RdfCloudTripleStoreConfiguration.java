@@ -44,10 +44,15 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
     //    public static final String CONF_TIMEINDEXURIS = "query.timeindexuris";
     public static final String CONF_NUM_THREADS = "query.numthreads";
     public static final String CONF_PERFORMANT = "query.performant";
+    public static final String CONF_PARALLEL_JOIN = "query.paralleljoin";
+    public static final String CONF_PARALLEL_JOIN_BUFFER_SIZE = "query.paralleljoin.buffersize";
+    public static final String CONF_MERGE_JOIN = "query.mergejoin";
+    public static final String CONF_STAR_JOIN = "query.starjoin";
     public static final String CONF_INFER = "query.infer";
     public static final String CONF_USE_STATS = "query.usestats";
     public static final String CONF_USE_COMPOSITE = "query.usecompositecard";
     public static final String CONF_USE_SELECTIVITY = "query.useselectivity";
+    public static final String CONF_SELECTIVITY_DP_LIMIT = "query.selectivity.dplimit";
     public static final String CONF_TBL_PREFIX = "query.tblprefix";
     public static final String CONF_BATCH_SIZE = "query.batchsize";
     public static final String CONF_OFFSET = "query.offset";
@@ -62,12 +67,16 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
     public static final String CONF_TBL_NS = "tbl.ns";
     public static final String CONF_TBL_EVAL = "tbl.eval";
     public static final String CONF_PREFIX_ROW_WITH_HASH = "tbl.hashprefix";
+    public static final String CONF_DICTIONARY_ENCODE = "tbl.dictionary";
+    public static final String CONF_DICTIONARY_CACHE_SIZE = "tbl.dictionary.cachesize";
     public static final String CONF_OPTIMIZERS = "query.optimizers";
     public static final String CONF_PCJ_OPTIMIZER = "pcj.query.optimizer";
     public static final String CONF_PCJ_TABLES = "pcj.index.tables";
     public static final String CONF_STATEMENT_METADATA_PROPERTIES = "statement.metadata.properites";
     public static final String CONF_USE_STATEMENT_METADATA = "use.statement.metadata";
     public static final String STATS_PUSH_EMPTY_RDFTYPE_DOWN = "conf.stats.rdftype.down";
+    public static final String STATS_CACHE_SIZE = "conf.stats.cache.size";
+    public static final String STATS_CACHE_REFRESH_MS = "conf.stats.cache.refresh.ms";
     public static final String INFER_INCLUDE_ALL_VALUES_FROM = "infer.include.allvaluesfrom";
     public static final String INFER_INCLUDE_DOMAIN_RANGE = "infer.include.domainrange";
     public static final String INFER_INCLUDE_HAS_SELF = "infer.include.hasself";
@@ -171,6 +180,62 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
         setBoolean(CONF_PERFORMANT, val);
     }
 
+    /**
+     * @return {@code true} if joins that can not be evaluated in batches evaluate
+     *   their right side for several left binding sets at once; otherwise {@code false}.
+     */
+    public Boolean isParallelJoin() {
+        return getBoolean(CONF_PARALLEL_JOIN, false);
+    }
+
+    public void setParallelJoin(final Boolean val) {
+        Preconditions.checkNotNull(val);
+        setBoolean(CONF_PARALLEL_JOIN, val);
+    }
+
+    /**
+     * @return The maximum number of results a parallel join buffers for each
+     *   left binding set before its worker waits for the results to be consumed.
+     */
+    public Integer getParallelJoinBufferSize() {
+        return getInt(CONF_PARALLEL_JOIN_BUFFER_SIZE, 1000);
+    }
+
+    public void setParallelJoinBufferSize(final Integer bufferSize) {
+        Preconditions.checkNotNull(bufferSize);
+        Preconditions.checkArgument(bufferSize > 0, "bufferSize must be greater than 0");
+        setInt(CONF_PARALLEL_JOIN_BUFFER_SIZE, bufferSize);
+    }
+
+    /**
+     * @return {@code true} if joins of two statement patterns whose scans are
+     *   sorted on their shared variable may be evaluated as merge joins; otherwise
+     *   {@code false}. Only enable this for DAOs whose single pattern scans return
+     *   statements in the order of their table's rows.
+     */
+    public Boolean isMergeJoin() {
+        return getBoolean(CONF_MERGE_JOIN, false);
+    }
+
+    public void setMergeJoin(final Boolean val) {
+        Preconditions.checkNotNull(val);
+        setBoolean(CONF_MERGE_JOIN, val);
+    }
+
+    /**
+     * @return {@code true} if joins of statement patterns that share a subject
+     *   may be evaluated as star joins by DAOs whose query engine supports them;
+     *   otherwise {@code false}.
+     */
+    public Boolean isStarJoin() {
+        return getBoolean(CONF_STAR_JOIN, false);
+    }
+
+    public void setStarJoin(final Boolean val) {
+        Preconditions.checkNotNull(val);
+        setBoolean(CONF_STAR_JOIN, val);
+    }
+
     public Boolean isInfer() {
         return getBoolean(CONF_INFER, false);
     }
@@ -198,6 +263,21 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
         setBoolean(CONF_USE_SELECTIVITY, val);
     }
 
+    /**
+     * @return The largest number of join arguments whose order the selectivity
+     *   based join optimizer searches exhaustively. Larger joins are ordered
+     *   greedily. Defaults to 16.
+     */
+    public Integer getSelectivityDpLimit() {
+        return getInt(CONF_SELECTIVITY_DP_LIMIT, 16);
+    }
+
+    public void setSelectivityDpLimit(final Integer limit) {
+        Preconditions.checkNotNull(limit);
+        Preconditions.checkArgument(limit >= 0, "limit must be non negative");
+        setInt(CONF_SELECTIVITY_DP_LIMIT, limit);
+    }
+
     public Boolean isPrefixRowsWithHash() {
         return getBoolean(CONF_PREFIX_ROW_WITH_HASH, false);
     }
@@ -207,6 +287,33 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
         setBoolean(CONF_PREFIX_ROW_WITH_HASH, val);
     }
 
+    /**
+     * @return {@code true} if the terms in the core tables are replaced with
+     *   IDs from a term dictionary; otherwise {@code false}.
+     */
+    public Boolean isDictionaryEncoded() {
+        return getBoolean(CONF_DICTIONARY_ENCODE, false);
+    }
+
+    public void setDictionaryEncoded(final Boolean val) {
+        Preconditions.checkNotNull(val);
+        setBoolean(CONF_DICTIONARY_ENCODE, val);
+    }
+
+    /**
+     * @return The maximum number of terms held by each of the term dictionary's
+     *   client side caches.
+     */
+    public Long getDictionaryCacheSize() {
+        return getLong(CONF_DICTIONARY_CACHE_SIZE, 100000L);
+    }
+
+    public void setDictionaryCacheSize(final Long cacheSize) {
+        Preconditions.checkNotNull(cacheSize);
+        Preconditions.checkArgument(cacheSize >= 0, "cacheSize must be non negative");
+        setLong(CONF_DICTIONARY_CACHE_SIZE, cacheSize);
+    }
+
     public String getTablePrefix() {
         return get(CONF_TBL_PREFIX, RdfCloudTripleStoreConstants.TBL_PRFX_DEF);
     }
@@ -335,6 +442,34 @@ public abstract class RdfCloudTripleStoreConfiguration extends Configuration {
         setBoolean(STATS_PUSH_EMPTY_RDFTYPE_DOWN, val);
     }
 
+    /**
+     * @return The maximum number of cardinalities the store caches for query
+     *   planning. A size of 0 disables the cache. Defaults to 10000.
+     */
+    public Long getStatsCacheSize() {
+        return getLong(STATS_CACHE_SIZE, 10000L);
+    }
+
+    public void setStatsCacheSize(final Long cacheSize) {
+        Preconditions.checkNotNull(cacheSize);
+        Preconditions.checkArgument(cacheSize >= 0, "cacheSize must be non negative");
+        setLong(STATS_CACHE_SIZE, cacheSize);
+    }
+
+    /**
+     * @return How many milliseconds a cached cardinality is used before it is
+     *   refreshed in the background. Defaults to 5 minutes.
+     */
+    public Long getStatsCacheRefreshMs() {
+        return getLong(STATS_CACHE_REFRESH_MS, 5 * 60 * 1000L);
+    }
+
+    public void setStatsCacheRefreshMs(final Long refreshMs) {
+        Preconditions.checkNotNull(refreshMs);
+        Preconditions.checkArgument(refreshMs > 0, "refreshMs must be positive");
+        setLong(STATS_CACHE_REFRESH_MS, refreshMs);
+    }
+
     /**
      * @return {@code true} if owl:allValuesFrom inferencing is enabled.
      * {@code false} otherwise. Defaults to {@code true} if nothing is
@@ -65,6 +65,7 @@ public interface Install {
     public static class InstallConfiguration {
 
         private final boolean enableTableHashPrefix;
+        private final boolean enableDictionaryEncoding;
         private final boolean enableFreeTextIndex;
         private final boolean enableGeoIndex;
         private final boolean enableEntityCentricIndex;
@@ -77,6 +78,7 @@ public interface Install {
          */
         private InstallConfiguration(
                 final boolean enableTableHashPrefix,
+                final boolean enableDictionaryEncoding,
                 final boolean enableFreeTextIndex,
                 final boolean enableGeoIndex,
                 final boolean enableEntityCentricIndex,
@@ -84,6 +86,7 @@ public interface Install {
                 final boolean enablePcjIndex,
                 final Optional<String> fluoPcjAppName) {
             this.enableTableHashPrefix = requireNonNull(enableTableHashPrefix);
+            this.enableDictionaryEncoding = requireNonNull(enableDictionaryEncoding);
             this.enableFreeTextIndex = requireNonNull(enableFreeTextIndex);
             this.enableGeoIndex = requireNonNull(enableGeoIndex);
             this.enableEntityCentricIndex = requireNonNull(enableEntityCentricIndex);
@@ -99,6 +102,13 @@ public interface Install {
             return enableTableHashPrefix;
         }
 
+        /**
+         * @return Whether or not the installed instance of Rya will store dictionary encoded terms in its core tables.
+         */
+        public boolean isDictionaryEncodingEnabled() {
+            return enableDictionaryEncoding;
+        }
+
         /**
          * @return Whether or not the installed instance of Rya will maintain a Free Text index.
          */
@@ -146,6 +156,7 @@ public interface Install {
         public int hashCode() {
             return Objects.hash(
                     enableTableHashPrefix,
+                    enableDictionaryEncoding,
                     enableFreeTextIndex,
                     enableGeoIndex,
                     enableEntityCentricIndex,
@@ -162,6 +173,7 @@ public interface Install {
             if(obj instanceof InstallConfiguration) {
                 final InstallConfiguration config = (InstallConfiguration) obj;
                 return enableTableHashPrefix == config.enableTableHashPrefix &&
+                        enableDictionaryEncoding == config.enableDictionaryEncoding &&
                         enableFreeTextIndex == config.enableFreeTextIndex &&
                         enableGeoIndex == config.enableGeoIndex &&
                         enableEntityCentricIndex == config.enableEntityCentricIndex &&
@@ -185,6 +197,7 @@ public interface Install {
         @DefaultAnnotation(NonNull.class)
         public static class Builder {
             private boolean enableTableHashPrefix = false;
+            private boolean enableDictionaryEncoding = false;
             private boolean enableFreeTextIndex = false;
             private boolean enableGeoIndex = false;
             private boolean enableEntityCentricIndex = false;
@@ -201,6 +214,15 @@ public interface Install {
                 return this;
             }
 
+            /**
+             * @param enabled - Whether or not the installed instance of Rya will store dictionary encoded terms in its core tables.
+             * @return This {@link Builder} so that method invocations may be chained.
+             */
+            public Builder setEnableDictionaryEncoding(final boolean enabled) {
+                enableDictionaryEncoding = enabled;
+                return this;
+            }
+
             /**
              * @param enabled - Whether or not the installed instance of Rya will maintain a Free Text index.
              * @return This {@link Builder} so that method invocations may be chained.
@@ -257,6 +279,7 @@ public interface Install {
             public InstallConfiguration build() {
                 return new InstallConfiguration(
                         enableTableHashPrefix,
+                        enableDictionaryEncoding,
                         enableFreeTextIndex,
                         enableGeoIndex,
                         enableEntityCentricIndex,
@@ -20,6 +20,7 @@ package org.apache.rya.api.domain;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Objects;
 
 /**
  * Date: 7/17/12
@@ -154,34 +155,35 @@ public class RyaStatement {
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        // Compare through the getters so that lazily decoded subclasses are equal to their eager counterparts.
+        if (!(o instanceof RyaStatement)) {
             return false;
         }
 
         final RyaStatement that = (RyaStatement) o;
 
-        if (!Arrays.equals(columnVisibility, that.columnVisibility)) {
+        if (!Arrays.equals(getColumnVisibility(), that.getColumnVisibility())) {
             return false;
         }
-        if (context != null ? !context.equals(that.context) : that.context != null) {
+        if (!Objects.equals(getContext(), that.getContext())) {
             return false;
         }
-        if (object != null ? !object.equals(that.object) : that.object != null) {
+        if (!Objects.equals(getObject(), that.getObject())) {
             return false;
         }
-        if (predicate != null ? !predicate.equals(that.predicate) : that.predicate != null) {
+        if (!Objects.equals(getPredicate(), that.getPredicate())) {
             return false;
         }
-        if (qualifer != null ? !qualifer.equals(that.qualifer) : that.qualifer != null) {
+        if (!Objects.equals(getQualifer(), that.getQualifer())) {
             return false;
         }
-        if (subject != null ? !subject.equals(that.subject) : that.subject != null) {
+        if (!Objects.equals(getSubject(), that.getSubject())) {
             return false;
         }
-        if (timestamp != null ? !timestamp.equals(that.timestamp) : that.timestamp != null) {
+        if (!Objects.equals(getTimestamp(), that.getTimestamp())) {
             return false;
         }
-        if (!Arrays.equals(value, that.value)) {
+        if (!Arrays.equals(getValue(), that.getValue())) {
             return false;
         }
 
@@ -190,6 +192,14 @@ public class RyaStatement {
 
     @Override
     public int hashCode() {
+        final RyaIRI subject = getSubject();
+        final RyaIRI predicate = getPredicate();
+        final RyaType object = getObject();
+        final RyaIRI context = getContext();
+        final String qualifer = getQualifer();
+        final byte[] columnVisibility = getColumnVisibility();
+        final byte[] value = getValue();
+        final Long timestamp = getTimestamp();
         int result = subject != null ? subject.hashCode() : 0;
         result = 31 * result + (predicate != null ? predicate.hashCode() : 0);
         result = 31 * result + (object != null ? object.hashCode() : 0);
@@ -213,9 +223,9 @@ public class RyaStatement {
     public String toString() {
         final StringBuilder sb = new StringBuilder();
         sb.append("RyaStatement");
-        sb.append("{subject=").append(subject);
-        sb.append(", predicate=").append(predicate);
-        sb.append(", object=").append(object);
+        sb.append("{subject=").append(getSubject());
+        sb.append(", predicate=").append(getPredicate());
+        sb.append(", object=").append(getObject());
         sb.append(", context=").append(context);
         sb.append(", qualifier=").append(qualifer);
         sb.append(", columnVisibility=").append(columnVisibility == null ? "null" : new String(columnVisibility, StandardCharsets.UTF_8));
@@ -51,6 +51,9 @@ public class RyaDetails implements Serializable {
     private final String version;
     private final ImmutableList<String> users;
 
+    // Core Table Details. Details serialized before this field existed read it as false.
+    private final boolean dictionaryEncoded;
+
     // Secondary Index Details.
     private final EntityCentricIndexDetails entityCentricDetails;
     /**
@@ -76,6 +79,7 @@ public class RyaDetails implements Serializable {
             final String instanceName,
             final String version,
             final ImmutableList<String> users,
+            final boolean dictionaryEncoded,
             final EntityCentricIndexDetails entityCentricDetails,
 //RYA-215            final GeoIndexDetails geoDetails,
             final PCJIndexDetails pcjDetails,
@@ -87,6 +91,7 @@ public class RyaDetails implements Serializable {
         this.instanceName = requireNonNull(instanceName);
         this.version = requireNonNull(version);
         this.users = requireNonNull(users);
+        this.dictionaryEncoded = dictionaryEncoded;
         this.entityCentricDetails = requireNonNull(entityCentricDetails);
       //RYA-215        this.geoDetails = requireNonNull(geoDetails);
         this.pcjDetails = requireNonNull(pcjDetails);
@@ -119,6 +124,14 @@ public class RyaDetails implements Serializable {
         return users;
     }
 
+    /**
+     * @return Whether or not the instance's core tables store dictionary encoded
+     *   term IDs instead of the terms themselves.
+     */
+    public boolean isDictionaryEncoded() {
+        return dictionaryEncoded;
+    }
+
     /**
      * @return Information about the instance's Entity Centric Index.
      */
@@ -182,6 +195,7 @@ public class RyaDetails implements Serializable {
         return Objects.hash(
                 instanceName,
                 version,
+                dictionaryEncoded,
                 entityCentricDetails,
               //RYA-215                geoDetails,
                 pcjDetails,
@@ -201,6 +215,7 @@ public class RyaDetails implements Serializable {
             final RyaDetails details = (RyaDetails) obj;
             return Objects.equals(instanceName, details.instanceName) &&
                     Objects.equals(version, details.version) &&
+                    dictionaryEncoded == details.dictionaryEncoded &&
                     Objects.equals(entityCentricDetails, details.entityCentricDetails) &&
                   //RYA-215                    Objects.equals(geoDetails, details.geoDetails) &&
                     Objects.equals(pcjDetails, details.pcjDetails) &&
@@ -239,6 +254,9 @@ public class RyaDetails implements Serializable {
         private String version;
         private final List<String> users = new ArrayList<>();
 
+        // Core Table Details.
+        private boolean dictionaryEncoded = false;
+
         // Secondary Index Details.
         private EntityCentricIndexDetails entityCentricDetails;
         private GeoIndexDetails geoDetails;
@@ -269,6 +287,7 @@ public class RyaDetails implements Serializable {
             instanceName = details.instanceName;
             version = details.version;
             users.addAll( details.users );
+            dictionaryEncoded = details.dictionaryEncoded;
             entityCentricDetails = details.entityCentricDetails;
           //RYA-215            geoDetails = details.geoDetails;
             pcjIndexDetailsBuilder = PCJIndexDetails.builder( details.pcjDetails );
@@ -316,6 +335,16 @@ public class RyaDetails implements Serializable {
             return this;
         }
 
+        /**
+         * @param dictionaryEncoded - Whether or not the instance's core tables store dictionary
+         *   encoded term IDs instead of the terms themselves.
+         * @return This {@link Builder} so that method invocations may be chained.
+         */
+        public Builder setDictionaryEncoded(final boolean dictionaryEncoded) {
+            this.dictionaryEncoded = dictionaryEncoded;
+            return this;
+        }
+
         /**
          * @param entityCentricDetails - Information about the instance's Entity Centric Index.
          * @return This {@link Builder} so that method invocations may be chained.
@@ -407,6 +436,7 @@ public class RyaDetails implements Serializable {
                     instanceName,
                     version,
                     ImmutableList.copyOf( users ),
+                    dictionaryEncoded,
                     entityCentricDetails,
                   //RYA-215                    geoDetails,
                     pcjIndexDetailsBuilder.build(),
@@ -49,6 +49,9 @@ public class RyaDetailsToConfiguration {
         requireNonNull(details);
         requireNonNull(conf);
 
+        // The core table layout is fixed when the instance is installed, so it is not up to the client.
+        conf.setBoolean(ConfigurationFields.USE_DICTIONARY, details.isDictionaryEncoded());
+
         checkAndSet(conf, ConfigurationFields.USE_ENTITY, details.getEntityCentricIndexDetails().isEnabled());
         checkAndSet(conf, ConfigurationFields.USE_FREETEXT, details.getFreeTextIndexDetails().isEnabled());
         //RYA-215        checkAndSet(conf, ConfigurationFields.USE_GEO, details.getGeoIndexDetails().isEnabled());
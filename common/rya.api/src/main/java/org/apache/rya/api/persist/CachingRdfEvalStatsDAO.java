@@ -0,0 +1,194 @@
+package org.apache.rya.api.persist;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * An {@link RdfEvalStatsDAO} that caches the cardinalities of another one so
+ * that repeated query plans do not scan the statistics tables again.
+ * <p>
+ * A cached cardinality is used for the configured refresh period. After that,
+ * the next lookup still returns the cached value while it is reloaded in the
+ * background, so query planning never waits on a refresh once a cardinality
+ * has been loaded. Cardinalities are cached separately for each set of query
+ * authorizations, since each may see different counts.
+ */
+public class CachingRdfEvalStatsDAO<C extends RdfCloudTripleStoreConfiguration> implements RdfEvalStatsDAO<C> {
+
+    private final RdfEvalStatsDAO<C> dao;
+    private final ExecutorService refresher;
+    private final LoadingCache<CardinalityKey<C>, Double> cardinalities;
+
+    /**
+     * Constructs an instance of {@link CachingRdfEvalStatsDAO}.
+     *
+     * @param dao - The DAO whose cardinalities are cached. (not null)
+     * @param maxSize - The maximum number of cardinalities that are cached. Must be positive.
+     * @param refreshMs - How many milliseconds a cardinality is used before it is refreshed. Must be positive.
+     */
+    public CachingRdfEvalStatsDAO(final RdfEvalStatsDAO<C> dao, final long maxSize, final long refreshMs) {
+        checkNotNull(dao);
+        checkArgument(maxSize > 0, "maxSize must be positive");
+        checkArgument(refreshMs > 0, "refreshMs must be positive");
+        this.dao = dao;
+        this.refresher = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rya-stats-refresh-%d").build());
+        this.cardinalities = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(refreshMs, TimeUnit.MILLISECONDS)
+                .build(new CacheLoader<CardinalityKey<C>, Double>() {
+                    @Override
+                    public Double load(final CardinalityKey<C> key) throws RdfDAOException {
+                        return dao.getCardinality(key.conf, key.card, key.values, key.context);
+                    }
+
+                    @Override
+                    public ListenableFuture<Double> reload(final CardinalityKey<C> key, final Double oldValue) {
+                        final ListenableFutureTask<Double> task = ListenableFutureTask.create(() -> load(key));
+                        refresher.execute(task);
+                        return task;
+                    }
+                });
+    }
+
+    /**
+     * @return The DAO whose cardinalities are cached.
+     */
+    public RdfEvalStatsDAO<C> getDelegate() {
+        return dao;
+    }
+
+    @Override
+    public void init() throws RdfDAOException {
+        if (!dao.isInitialized()) {
+            dao.init();
+        }
+    }
+
+    @Override
+    public boolean isInitialized() throws RdfDAOException {
+        return dao.isInitialized();
+    }
+
+    @Override
+    public void destroy() throws RdfDAOException {
+        cardinalities.invalidateAll();
+        refresher.shutdownNow();
+        dao.destroy();
+    }
+
+    @Override
+    public double getCardinality(final C conf, final CARDINALITY_OF card, final List<Value> val) throws RdfDAOException {
+        return getCardinality(conf, card, val, null);
+    }
+
+    @Override
+    public double getCardinality(final C conf, final CARDINALITY_OF card, final List<Value> val, final Resource context) throws RdfDAOException {
+        try {
+            return cardinalities.get(new CardinalityKey<>(conf, card, val, context));
+        } catch (final ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RdfDAOException) {
+                throw (RdfDAOException) e.getCause();
+            }
+            throw new RdfDAOException(e.getCause());
+        }
+    }
+
+    /**
+     * Forgets every cached cardinality so that they are loaded again the next
+     * time they are used.
+     */
+    public void invalidateAll() {
+        cardinalities.invalidateAll();
+    }
+
+    @Override
+    public void setConf(final C conf) {
+        dao.setConf(conf);
+    }
+
+    @Override
+    public C getConf() {
+        return dao.getConf();
+    }
+
+    /**
+     * Identifies a cardinality. The configuration is carried along so that the
+     * cardinality may be loaded, but only its authorizations distinguish keys.
+     */
+    private static class CardinalityKey<C extends RdfCloudTripleStoreConfiguration> {
+        private final C conf;
+        private final CARDINALITY_OF card;
+        private final List<Value> values;
+        private final Resource context;
+        private final List<String> auths;
+
+        public CardinalityKey(final C conf, final CARDINALITY_OF card, final List<Value> values, final Resource context) {
+            this.conf = checkNotNull(conf);
+            this.card = checkNotNull(card);
+            this.values = new ArrayList<>(checkNotNull(values));
+            this.context = context;
+            this.auths = conf.getAuths() == null ? null : Arrays.asList(conf.getAuths());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(card, values, context, auths);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o instanceof CardinalityKey) {
+                final CardinalityKey<?> other = (CardinalityKey<?>) o;
+                return card == other.card &&
+                        Objects.equals(values, other.values) &&
+                        Objects.equals(context, other.context) &&
+                        Objects.equals(auths, other.auths);
+            }
+            return false;
+        }
+    }
+}
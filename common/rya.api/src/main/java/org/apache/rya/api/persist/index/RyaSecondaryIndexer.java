@@ -50,6 +50,16 @@ public interface RyaSecondaryIndexer extends Closeable, Flushable, Configurable
 
     public void deleteStatement(RyaStatement stmt) throws IOException;
 
+    /**
+     * Deletes a batch of statements. Indexers that can remove many statements
+     * at once should override this; by default each statement is deleted in turn.
+     */
+    public default void deleteStatements(Collection<RyaStatement> statements) throws IOException {
+        for (final RyaStatement statement : statements) {
+            deleteStatement(statement);
+        }
+    }
+
     public void dropGraph(RyaIRI... graphs);
 
     /**
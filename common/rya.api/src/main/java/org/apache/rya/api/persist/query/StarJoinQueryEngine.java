@@ -0,0 +1,50 @@
+package org.apache.rya.api.persist.query;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collection;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.calrissian.mango.collect.CloseableIterable;
+
+/**
+ * A query engine that evaluates subject-star joins, the joins of patterns that
+ * only share their subject, within the store instead of one pattern at a time.
+ */
+public interface StarJoinQueryEngine<C extends RdfCloudTripleStoreConfiguration> {
+
+    /**
+     * Finds the subjects that match every pattern of a subject-star join.
+     *
+     * @param patterns - The patterns the subjects must match. Each pattern must have a
+     *   predicate and may have an object, but must not have a subject or a context. (not null)
+     * @param subjects - The subjects to check. If empty, the subjects that match one
+     *   of the patterns are checked. (not null)
+     * @param conf - The query configuration. If null, the engine's configuration is used.
+     * @return The statements that match any of the patterns for each subject that
+     *   matches every pattern. The statements of a subject are adjacent.
+     * @throws RyaDAOException The star join could not be evaluated.
+     */
+    public CloseableIterable<RyaStatement> queryStar(Collection<RyaStatement> patterns, Collection<RyaIRI> subjects, C conf)
+            throws RyaDAOException;
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.query.strategy.dictionary;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.RdfCloudTripleStoreUtils;
+import org.apache.rya.api.domain.RyaRange;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.query.strategy.AbstractTriplePatternStrategy;
+import org.apache.rya.api.query.strategy.ByteRange;
+import org.apache.rya.api.resolver.RyaTypeResolverException;
+import org.apache.rya.api.resolver.triple.TripleRowRegex;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionaryException;
+import org.apache.rya.api.resolver.triple.dictionary.TermIds;
+import org.apache.rya.api.resolver.triple.impl.DictionaryEncodedTripleResolver;
+
+/**
+ * Base class of the strategies that scan tables written by the
+ * {@link DictionaryEncodedTripleResolver}.
+ * <p>
+ * Term IDs do not preserve the order of the terms they encode, so range
+ * patterns and row regular expressions can not be evaluated against these
+ * tables. No row regular expression is built, and the query engine filters
+ * the decoded statements with the query's regular expressions instead. The
+ * object's type information is part of its ID, so it never needs to be
+ * filtered with a regular expression.
+ */
+public abstract class AbstractDictionaryTriplePatternStrategy extends AbstractTriplePatternStrategy {
+
+    private final TermDictionary dictionary;
+
+    /**
+     * Constructs an instance of {@link AbstractDictionaryTriplePatternStrategy}.
+     *
+     * @param dictionary - Resolves the IDs of the pattern's terms. (not null)
+     */
+    public AbstractDictionaryTriplePatternStrategy(final TermDictionary dictionary) {
+        this.dictionary = requireNonNull(dictionary);
+    }
+
+    /**
+     * Builds the range that covers every row starting with the IDs of the provided terms.
+     *
+     * @param terms - The bound terms of the pattern, in the table's order. (not null)
+     * @return The range over this strategy's table.
+     * @throws IOException One of the terms is a range or its ID could not be looked up.
+     */
+    protected Map.Entry<TABLE_LAYOUT, ByteRange> prefixRange(final RyaType... terms) throws IOException {
+        final long[] ids = new long[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            ids[i] = lookupId(terms[i]);
+        }
+        final byte[] start = TermIds.encode(ids);
+        final byte[] stop = TermIds.prefixStop(start);
+        return new RdfCloudTripleStoreUtils.CustomEntry<TABLE_LAYOUT, ByteRange>(getLayout(), new ByteRange(start, stop));
+    }
+
+    /**
+     * A term that is not in the dictionary is mapped to {@link TermDictionary#NO_ID},
+     * which never appears in a row, so the resulting range is simply empty.
+     */
+    private long lookupId(final RyaType term) throws IOException {
+        if (term instanceof RyaRange) {
+            throw new IOException("Range patterns are not supported by dictionary encoded tables: " + term);
+        }
+        try {
+            return dictionary.getId(DictionaryEncodedTripleResolver.serializeTerm(term));
+        } catch (final RyaTypeResolverException | TermDictionaryException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @return Always null, since the rows only hold term IDs.
+     */
+    @Override
+    public TripleRowRegex buildRegex(final String subject, final String predicate, final String object, final String context, final byte[] objectTypeInfo) {
+        return null;
+    }
+}
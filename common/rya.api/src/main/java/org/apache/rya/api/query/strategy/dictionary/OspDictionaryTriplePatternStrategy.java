@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.query.strategy.dictionary;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaRange;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.query.strategy.ByteRange;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+
+/**
+ * Scans the dictionary encoded OSP table.
+ */
+public class OspDictionaryTriplePatternStrategy extends AbstractDictionaryTriplePatternStrategy {
+
+    public OspDictionaryTriplePatternStrategy(final TermDictionary dictionary) {
+        super(dictionary);
+    }
+
+    @Override
+    public TABLE_LAYOUT getLayout() {
+        return TABLE_LAYOUT.OSP;
+    }
+
+    @Override
+    public Map.Entry<TABLE_LAYOUT, ByteRange> defineRange(final RyaIRI subject, final RyaIRI predicate, final RyaType object,
+                                                          final RyaIRI context, final RdfCloudTripleStoreConfiguration conf) throws IOException {
+        //os(ng)
+        //o(ng)
+        if (!handles(subject, predicate, object, context)) {
+            return null;
+        }
+        if (subject == null) {
+            return prefixRange(object);
+        }
+        return prefixRange(object, subject);
+    }
+
+    @Override
+    public boolean handles(final RyaIRI subject, final RyaIRI predicate, final RyaType object, final RyaIRI context) {
+        //os(ng)
+        //o(ng)
+        return object != null && (!(object instanceof RyaRange) || predicate == null && subject == null);
+    }
+}
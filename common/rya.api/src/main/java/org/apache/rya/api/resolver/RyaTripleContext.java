@@ -25,6 +25,7 @@ import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreConstants;
 import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
@@ -32,6 +33,9 @@ import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.api.query.strategy.TriplePatternStrategy;
+import org.apache.rya.api.query.strategy.dictionary.OspDictionaryTriplePatternStrategy;
+import org.apache.rya.api.query.strategy.dictionary.PoDictionaryTriplePatternStrategy;
+import org.apache.rya.api.query.strategy.dictionary.SpoDictionaryTriplePatternStrategy;
 import org.apache.rya.api.query.strategy.wholerow.HashedPoWholeRowTriplePatternStrategy;
 import org.apache.rya.api.query.strategy.wholerow.HashedSpoWholeRowTriplePatternStrategy;
 import org.apache.rya.api.query.strategy.wholerow.NullRowTriplePatternStrategy;
@@ -41,6 +45,8 @@ import org.apache.rya.api.query.strategy.wholerow.SpoWholeRowTriplePatternStrate
 import org.apache.rya.api.resolver.triple.TripleRow;
 import org.apache.rya.api.resolver.triple.TripleRowResolver;
 import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+import org.apache.rya.api.resolver.triple.impl.DictionaryEncodedTripleResolver;
 import org.apache.rya.api.resolver.triple.impl.WholeRowHashedTripleResolver;
 import org.apache.rya.api.resolver.triple.impl.WholeRowTripleResolver;
 
@@ -64,6 +70,38 @@ public class RyaTripleContext {
         }
     }
 
+    /**
+     * Constructs a context that stores and scans dictionary encoded triples.
+     * These contexts are bound to the dictionary of a single Rya instance, so
+     * they are not available through {@link #getInstance(RdfCloudTripleStoreConfiguration)}.
+     *
+     * @param dictionary - Assigns and resolves the IDs of the triples' terms. (not null)
+     */
+    public RyaTripleContext(final TermDictionary dictionary) {
+        triplePatternStrategyList.add(new SpoDictionaryTriplePatternStrategy(dictionary));
+        triplePatternStrategyList.add(new PoDictionaryTriplePatternStrategy(dictionary));
+        triplePatternStrategyList.add(new NullRowTriplePatternStrategy());
+        triplePatternStrategyList.add(new OspDictionaryTriplePatternStrategy(dictionary));
+        tripleResolver = new DictionaryEncodedTripleResolver(dictionary);
+    }
+
+
+    /**
+     * Fails fast when a tool that reads or writes the core tables through
+     * {@link #getInstance(RdfCloudTripleStoreConfiguration)} is configured for a
+     * dictionary encoded Rya instance, since it has no access to the instance's
+     * term dictionary.
+     *
+     * @param conf - The tool's configuration. (not null)
+     * @param tool - The name of the tool that is reported in the error. (not null)
+     * @throws IllegalArgumentException The configuration is for a dictionary encoded instance.
+     */
+    public static void checkNotDictionaryEncoded(final Configuration conf, final String tool) {
+        if (conf.getBoolean(RdfCloudTripleStoreConfiguration.CONF_DICTIONARY_ENCODE, false)) {
+            throw new IllegalArgumentException(tool + " does not support dictionary encoded Rya instances ("
+                    + RdfCloudTripleStoreConfiguration.CONF_DICTIONARY_ENCODE + " is true).");
+        }
+    }
 
     private static class RyaTripleContextHolder {
     	// TODO want to be able to support more variability in configuration here
@@ -72,6 +110,9 @@ public class RyaTripleContext {
     }
 
     public synchronized static RyaTripleContext getInstance(final RdfCloudTripleStoreConfiguration conf) {
+        if (conf.isDictionaryEncoded()) {
+            throw new IllegalArgumentException("Dictionary encoded instances must use a RyaTripleContext that is bound to their TermDictionary.");
+        }
     	if (conf.isPrefixRowsWithHash()){
     		return RyaTripleContextHolder.HASHED_INSTANCE;
     	}
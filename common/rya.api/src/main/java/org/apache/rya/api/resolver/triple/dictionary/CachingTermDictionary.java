@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Decorates a {@link TermDictionary} with bounded LRU caches for both the
+ * term to ID (write) and ID to term (read) lookups. Term IDs never change
+ * once they are assigned, so cached entries never need to be invalidated.
+ * <p>
+ * Misses on {@link #getId(byte[])} are not cached because the term may be
+ * assigned an ID by another writer at any time.
+ */
+@DefaultAnnotation(NonNull.class)
+public class CachingTermDictionary implements TermDictionary {
+
+    private final TermDictionary dictionary;
+    private final Cache<ByteBuffer, Long> termToId;
+    private final Cache<Long, byte[]> idToTerm;
+
+    /**
+     * Constructs an instance of {@link CachingTermDictionary}.
+     *
+     * @param dictionary - The dictionary whose lookups will be cached. (not null)
+     * @param maxCacheSize - The maximum number of entries held by each of the caches.
+     */
+    public CachingTermDictionary(final TermDictionary dictionary, final long maxCacheSize) {
+        this.dictionary = requireNonNull(dictionary);
+        termToId = CacheBuilder.newBuilder().maximumSize(maxCacheSize).build();
+        idToTerm = CacheBuilder.newBuilder().maximumSize(maxCacheSize).build();
+    }
+
+    @Override
+    public long getOrCreateId(final byte[] term) throws TermDictionaryException {
+        requireNonNull(term);
+        final ByteBuffer key = ByteBuffer.wrap(term);
+        final Long cached = termToId.getIfPresent(key);
+        if(cached != null) {
+            return cached;
+        }
+
+        final long id = dictionary.getOrCreateId(term);
+        cache(key, id);
+        return id;
+    }
+
+    @Override
+    public long getId(final byte[] term) throws TermDictionaryException {
+        requireNonNull(term);
+        final ByteBuffer key = ByteBuffer.wrap(term);
+        final Long cached = termToId.getIfPresent(key);
+        if(cached != null) {
+            return cached;
+        }
+
+        final long id = dictionary.getId(term);
+        if(id != NO_ID) {
+            cache(key, id);
+        }
+        return id;
+    }
+
+    @Override
+    public byte[] getTerm(final long id) throws TermDictionaryException {
+        final byte[] cached = idToTerm.getIfPresent(id);
+        if(cached != null) {
+            return cached;
+        }
+
+        final byte[] term = dictionary.getTerm(id);
+        if(term != null) {
+            cache(ByteBuffer.wrap(term), id);
+        }
+        return term;
+    }
+
+    private void cache(final ByteBuffer term, final long id) {
+        termToId.put(term, id);
+        idToTerm.put(id, term.array());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+/**
+ * Assigns compact numeric IDs to RDF terms so that the core SPO, PO, and OSP
+ * tables do not have to store every term's full serialized form.
+ * <p>
+ * A term is the serialized form of a {@link org.apache.rya.api.domain.RyaType}
+ * including its type marker, so an IRI and a literal with the same lexical
+ * value are assigned different IDs. IDs are always greater than {@link #NO_ID}
+ * and, once assigned, never change.
+ */
+public interface TermDictionary {
+
+    /**
+     * The value returned by {@link #getId(byte[])} when a term has never been
+     * assigned an ID. No term is ever assigned this value.
+     */
+    public static final long NO_ID = 0L;
+
+    /**
+     * Looks up the ID of a term, assigning a new one if the term has not been seen before.
+     *
+     * @param term - The serialized term. (not null)
+     * @return The ID of the term.
+     * @throws TermDictionaryException The ID could not be looked up or assigned.
+     */
+    public long getOrCreateId(byte[] term) throws TermDictionaryException;
+
+    /**
+     * Looks up the ID of a term without assigning one.
+     *
+     * @param term - The serialized term. (not null)
+     * @return The ID of the term, or {@link #NO_ID} if the term is not in the dictionary.
+     * @throws TermDictionaryException The ID could not be looked up.
+     */
+    public long getId(byte[] term) throws TermDictionaryException;
+
+    /**
+     * Looks up the term that was assigned an ID.
+     *
+     * @param id - The ID of the term.
+     * @return The serialized term, or {@code null} if no term has that ID.
+     * @throws TermDictionaryException The term could not be looked up.
+     */
+    public byte[] getTerm(long id) throws TermDictionaryException;
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+/**
+ * A {@link TermDictionary} could not look up or assign a term's ID.
+ */
+public class TermDictionaryException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public TermDictionaryException(final String message) {
+        super(message);
+    }
+
+    public TermDictionaryException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public TermDictionaryException(final Throwable cause) {
+        super(cause);
+    }
+}
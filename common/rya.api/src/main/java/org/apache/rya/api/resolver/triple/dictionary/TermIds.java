@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Encodes term IDs as unsigned variable length integers (7 bits per byte,
+ * least significant group first, high bit set on every byte but the last).
+ * <p>
+ * The encoding is prefix free: no encoded ID is a prefix of another. Rows
+ * that are made of concatenated IDs therefore need no delimiters, and every
+ * row that starts with a given sequence of IDs falls within a single range.
+ */
+public final class TermIds {
+
+    /**
+     * The maximum number of bytes a single encoded ID may use.
+     */
+    public static final int MAX_ENCODED_LENGTH = 10;
+
+    /**
+     * The maximum number of bytes a row of three encoded IDs may use.
+     */
+    public static final int MAX_ROW_LENGTH = 3 * MAX_ENCODED_LENGTH;
+
+    private TermIds() { }
+
+    /**
+     * @param id - The ID whose encoded length will be computed. (positive)
+     * @return The number of bytes {@code id} is encoded with.
+     */
+    public static int encodedLength(final long id) {
+        int length = 1;
+        long remaining = id >>> 7;
+        while(remaining != 0) {
+            length++;
+            remaining >>>= 7;
+        }
+        return length;
+    }
+
+    /**
+     * Encodes a sequence of IDs into a single byte array.
+     *
+     * @param ids - The IDs that will be encoded, in order. (not null)
+     * @return The concatenated encoded IDs.
+     */
+    public static byte[] encode(final long... ids) {
+        requireNonNull(ids);
+        int length = 0;
+        for(final long id : ids) {
+            length += encodedLength(id);
+        }
+
+        final byte[] bytes = new byte[length];
+        int offset = 0;
+        for(final long id : ids) {
+            offset = write(id, bytes, offset);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes an encoded ID into an array.
+     *
+     * @param id - The ID to write.
+     * @param bytes - The array the ID is written to. (not null)
+     * @param offset - The index the first byte of the ID is written to.
+     * @return The index immediately after the last byte that was written.
+     */
+    public static int write(final long id, final byte[] bytes, int offset) {
+        long remaining = id;
+        while((remaining & ~0x7FL) != 0) {
+            bytes[offset++] = (byte) ((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        bytes[offset++] = (byte) remaining;
+        return offset;
+    }
+
+    /**
+     * Creates the inclusive end of a range that covers every row of encoded
+     * IDs that starts with {@code prefix}.
+     *
+     * @param prefix - The encoded IDs every row in the range starts with. (not null)
+     * @return A row that sorts after every row that starts with {@code prefix}.
+     */
+    public static byte[] prefixStop(final byte[] prefix) {
+        requireNonNull(prefix);
+        final byte[] stop = Arrays.copyOf(prefix, prefix.length + MAX_ROW_LENGTH);
+        Arrays.fill(stop, prefix.length, stop.length, (byte) 0xff);
+        return stop;
+    }
+
+    /**
+     * Decodes a fixed number of IDs from the start of an array.
+     *
+     * @param bytes - The encoded IDs. (not null)
+     * @param count - The number of IDs to decode.
+     * @return The decoded IDs, in the order they were encoded.
+     * @throws IllegalArgumentException {@code bytes} does not hold {@code count} complete IDs.
+     */
+    public static long[] decode(final byte[] bytes, final int count) {
+        requireNonNull(bytes);
+        final long[] ids = new long[count];
+        int offset = 0;
+        for(int i = 0; i < count; i++) {
+            long id = 0;
+            int shift = 0;
+            byte current;
+            do {
+                Preconditions.checkArgument(offset < bytes.length && shift < 7 * MAX_ENCODED_LENGTH,
+                        "The bytes do not contain %s encoded term IDs.", count);
+                current = bytes[offset++];
+                id |= (long) (current & 0x7F) << shift;
+                shift += 7;
+            } while((current & 0x80) != 0);
+            ids[i] = id;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.impl;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.EMPTY_BYTES;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.RyaContext;
+import org.apache.rya.api.resolver.RyaTypeResolverException;
+import org.apache.rya.api.resolver.triple.TripleRow;
+import org.apache.rya.api.resolver.triple.TripleRowResolver;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionaryException;
+import org.apache.rya.api.resolver.triple.dictionary.TermIds;
+
+import com.google.common.primitives.Bytes;
+
+/**
+ * Stores triples in spo, po, osp using dictionary encoded terms. Each row is
+ * the concatenation of the {@link TermIds} encoded IDs of the triple's terms
+ * in the table's order, so a long IRI is only stored once, in the
+ * {@link TermDictionary}, no matter how many triples use it.
+ * <p>
+ * The context, qualifier, visibility, timestamp, and value are stored the
+ * same way the {@link WholeRowTripleResolver} stores them.
+ */
+public class DictionaryEncodedTripleResolver implements TripleRowResolver {
+
+    private final TermDictionary dictionary;
+
+    /**
+     * Constructs an instance of {@link DictionaryEncodedTripleResolver}.
+     *
+     * @param dictionary - Assigns and resolves the IDs of the triples' terms. (not null)
+     */
+    public DictionaryEncodedTripleResolver(final TermDictionary dictionary) {
+        this.dictionary = requireNonNull(dictionary);
+    }
+
+    /**
+     * @return The dictionary that assigns and resolves the IDs of the triples' terms.
+     */
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public Map<TABLE_LAYOUT, TripleRow> serialize(final RyaStatement stmt) throws TripleRowResolverException {
+        try {
+            final RyaIRI subject = stmt.getSubject();
+            final RyaIRI predicate = stmt.getPredicate();
+            final RyaType object = stmt.getObject();
+            final RyaIRI context = stmt.getContext();
+            final Long timestamp = stmt.getTimestamp();
+            final byte[] columnVisibility = stmt.getColumnVisibility();
+            final String qualifer = stmt.getQualifer();
+            final byte[] qualBytes = qualifer == null ? EMPTY_BYTES : qualifer.getBytes(StandardCharsets.UTF_8);
+            final byte[] value = stmt.getValue();
+            assert subject != null && predicate != null && object != null;
+            final byte[] cf = (context == null) ? EMPTY_BYTES : context.getData().getBytes(StandardCharsets.UTF_8);
+
+            final long subjId = dictionary.getOrCreateId(serializeTerm(subject));
+            final long predId = dictionary.getOrCreateId(serializeTerm(predicate));
+            final long objId = dictionary.getOrCreateId(serializeTerm(object));
+
+            final Map<TABLE_LAYOUT, TripleRow> tripleRowMap = new HashMap<TABLE_LAYOUT, TripleRow>();
+            tripleRowMap.put(TABLE_LAYOUT.SPO, new TripleRow(TermIds.encode(subjId, predId, objId),
+                    cf, qualBytes, timestamp, columnVisibility, value));
+            tripleRowMap.put(TABLE_LAYOUT.PO, new TripleRow(TermIds.encode(predId, objId, subjId),
+                    cf, qualBytes, timestamp, columnVisibility, value));
+            tripleRowMap.put(TABLE_LAYOUT.OSP, new TripleRow(TermIds.encode(objId, subjId, predId),
+                    cf, qualBytes, timestamp, columnVisibility, value));
+            return tripleRowMap;
+        } catch (final RyaTypeResolverException | TermDictionaryException e) {
+            throw new TripleRowResolverException(e);
+        }
+    }
+
+    @Override
+    public RyaStatement deserialize(final TABLE_LAYOUT table_layout, final TripleRow tripleRow) throws TripleRowResolverException {
+        assert tripleRow != null && table_layout != null;
+        final long[] ids;
+        try {
+            ids = TermIds.decode(tripleRow.getRow(), 3);
+        } catch (final IllegalArgumentException e) {
+            throw new TripleRowResolverException("TripleRow[" + tripleRow + "] is not dictionary encoded", e);
+        }
+
+        final long subjId;
+        final long predId;
+        final long objId;
+        switch (table_layout) {
+            case SPO:
+                subjId = ids[0];
+                predId = ids[1];
+                objId = ids[2];
+                break;
+            case PO:
+                predId = ids[0];
+                objId = ids[1];
+                subjId = ids[2];
+                break;
+            case OSP:
+                objId = ids[0];
+                subjId = ids[1];
+                predId = ids[2];
+                break;
+            default:
+                throw new TripleRowResolverException("TripleRow[" + tripleRow + "] with Table layout[" + table_layout + "] is not deserializable");
+        }
+
+        final byte[] columnFamily = tripleRow.getColumnFamily();
+        final boolean contextExists = columnFamily != null && columnFamily.length > 0;
+        final RyaIRI context = (contextExists) ? (new RyaIRI(new String(columnFamily, StandardCharsets.UTF_8))) : null;
+        final byte[] columnQualifier = tripleRow.getColumnQualifier();
+        final String qualifier = columnQualifier != null && columnQualifier.length > 0 ? new String(columnQualifier, StandardCharsets.UTF_8) : null;
+
+        return new RyaStatement(
+                toIRI(lookupTerm(subjId)),
+                toIRI(lookupTerm(predId)),
+                lookupTerm(objId),
+                context, qualifier, tripleRow.getColumnVisibility(), tripleRow.getValue(), tripleRow.getTimestamp());
+    }
+
+    private RyaType lookupTerm(final long id) throws TripleRowResolverException {
+        try {
+            final byte[] term = dictionary.getTerm(id);
+            if (term == null) {
+                throw new TripleRowResolverException("Term ID[" + id + "] is not in the dictionary");
+            }
+            return RyaContext.getInstance().deserialize(term);
+        } catch (final RyaTypeResolverException | TermDictionaryException e) {
+            throw new TripleRowResolverException(e);
+        }
+    }
+
+    private static RyaIRI toIRI(final RyaType term) {
+        return (term instanceof RyaIRI) ? (RyaIRI) term : new RyaIRI(term.getData());
+    }
+
+    /**
+     * Serializes a term into the form that is stored in a {@link TermDictionary}.
+     *
+     * @param term - The term to serialize. (not null)
+     * @return The term's value followed by its type information.
+     * @throws RyaTypeResolverException The term could not be serialized.
+     */
+    public static byte[] serializeTerm(final RyaType term) throws RyaTypeResolverException {
+        final byte[][] bytes = RyaContext.getInstance().serializeType(term);
+        return Bytes.concat(bytes[0], bytes[1]);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.RyaContext;
+import org.apache.rya.api.resolver.RyaTypeResolverException;
+
+/**
+ * A {@link RyaStatement} that is backed by the row of a whole row table.
+ * The subject and predicate are only decoded the first time they are read,
+ * so callers that only need some of a statement's positions do not pay for
+ * decoding the rest. The object is decoded by {@link #decodeObject} when the
+ * row is resolved, because it is the only term whose decoding can fail.
+ * <p>
+ * The row is shared, not copied, so it must not be modified after this
+ * statement is created.
+ */
+class LazyWholeRowRyaStatement extends RyaStatement {
+
+    private final TABLE_LAYOUT layout;
+    private final byte[] row;
+    private final int firstIndex;
+    private final int secondIndex;
+    private final int typeIndex;
+
+    // volatile so that a term decoded by one thread is seen whole by the others
+    private volatile boolean subjectDecoded = false;
+    private volatile boolean predicateDecoded = false;
+
+    /**
+     * Constructs an instance of {@link LazyWholeRowRyaStatement}.
+     *
+     * @param layout - The layout of the table the row was read from.
+     * @param row - The row the triple's terms are decoded from.
+     * @param firstIndex - The index of the delimiter that ends the row's first term.
+     * @param secondIndex - The index of the delimiter that ends the row's second term.
+     * @param typeIndex - The index of the delimiter that starts the object's type information.
+     * @param object - The object decoded from the row by {@link #decodeObject}.
+     */
+    LazyWholeRowRyaStatement(final TABLE_LAYOUT layout, final byte[] row, final int firstIndex, final int secondIndex, final int typeIndex,
+            final RyaType object, final RyaIRI context, final String qualifier, final byte[] columnVisibility, final byte[] value,
+            final Long timestamp) {
+        super(null, null, object, context, qualifier, columnVisibility, value, timestamp);
+        this.layout = layout;
+        this.row = row;
+        this.firstIndex = firstIndex;
+        this.secondIndex = secondIndex;
+        this.typeIndex = typeIndex;
+    }
+
+    @Override
+    public RyaIRI getSubject() {
+        if (!subjectDecoded) {
+            switch (layout) {
+                case SPO:
+                    super.setSubject(new RyaIRI(first()));
+                    break;
+                case PO:
+                    super.setSubject(new RyaIRI(third()));
+                    break;
+                default:
+                    super.setSubject(new RyaIRI(second()));
+            }
+            subjectDecoded = true;
+        }
+        return super.getSubject();
+    }
+
+    @Override
+    public void setSubject(final RyaIRI subject) {
+        subjectDecoded = true;
+        super.setSubject(subject);
+    }
+
+    @Override
+    public RyaIRI getPredicate() {
+        if (!predicateDecoded) {
+            switch (layout) {
+                case SPO:
+                    super.setPredicate(new RyaIRI(second()));
+                    break;
+                case PO:
+                    super.setPredicate(new RyaIRI(first()));
+                    break;
+                default:
+                    super.setPredicate(new RyaIRI(third()));
+            }
+            predicateDecoded = true;
+        }
+        return super.getPredicate();
+    }
+
+    @Override
+    public void setPredicate(final RyaIRI predicate) {
+        predicateDecoded = true;
+        super.setPredicate(predicate);
+    }
+
+    /**
+     * Decodes the object of a row of a whole row table.
+     *
+     * @param layout - The layout of the table the row was read from.
+     * @param row - The row the object is decoded from.
+     * @param firstIndex - The index of the delimiter that ends the row's first term.
+     * @param secondIndex - The index of the delimiter that ends the row's second term.
+     * @param typeIndex - The index of the delimiter that starts the object's type information.
+     * @return The object of the row.
+     * @throws RyaTypeResolverException The object's value could not be decoded.
+     */
+    static RyaType decodeObject(final TABLE_LAYOUT layout, final byte[] row, final int firstIndex, final int secondIndex,
+            final int typeIndex) throws RyaTypeResolverException {
+        final byte[] obj;
+        switch (layout) {
+            case SPO:
+                // The object and its type are already adjacent at the end of the row.
+                obj = Arrays.copyOfRange(row, secondIndex + 1, row.length);
+                break;
+            case PO:
+                obj = concatWithType(row, firstIndex + 1, secondIndex, typeIndex);
+                break;
+            default:
+                obj = concatWithType(row, 0, firstIndex, typeIndex);
+        }
+        return RyaContext.getInstance().deserialize(obj);
+    }
+
+    private String first() {
+        return new String(row, 0, firstIndex, StandardCharsets.UTF_8);
+    }
+
+    private String second() {
+        return new String(row, firstIndex + 1, secondIndex - firstIndex - 1, StandardCharsets.UTF_8);
+    }
+
+    private String third() {
+        return new String(row, secondIndex + 1, typeIndex - secondIndex - 1, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concatWithType(final byte[] row, final int start, final int end, final int typeIndex) {
+        final int valueLength = end - start;
+        final int typeLength = row.length - typeIndex;
+        final byte[] obj = new byte[valueLength + typeLength];
+        System.arraycopy(row, start, obj, 0, valueLength);
+        System.arraycopy(row, typeIndex, obj, valueLength, typeLength);
+        return obj;
+    }
+}
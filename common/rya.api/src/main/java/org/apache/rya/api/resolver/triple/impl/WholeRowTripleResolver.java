@@ -24,7 +24,6 @@ import static org.apache.rya.api.RdfCloudTripleStoreConstants.EMPTY_BYTES;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.TYPE_DELIM_BYTE;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -86,57 +85,46 @@ public class WholeRowTripleResolver implements TripleRowResolver {
         }
     }
 
+    /**
+     * Decodes a row into a {@link RyaStatement} without copying the row. The row's
+     * structure and object are decoded here, but the subject and predicate are not
+     * decoded until they are read from the returned statement, so the row must not
+     * be modified afterwards.
+     */
     @Override
     public RyaStatement deserialize(final TABLE_LAYOUT table_layout, final TripleRow tripleRow) throws TripleRowResolverException {
-        try {
-            assert tripleRow != null && table_layout != null;
-            final byte[] row = tripleRow.getRow();
-            final int firstIndex = Bytes.indexOf(row, DELIM_BYTE);
-            final int secondIndex = Bytes.lastIndexOf(row, DELIM_BYTE);
-            final int typeIndex = Bytes.indexOf(row, TYPE_DELIM_BYTE);
-            final byte[] first = Arrays.copyOf(row, firstIndex);
-            final byte[] second = Arrays.copyOfRange(row, firstIndex + 1, secondIndex);
-            final byte[] third = Arrays.copyOfRange(row, secondIndex + 1, typeIndex);
-            final byte[] type = Arrays.copyOfRange(row, typeIndex, row.length);
-            final byte[] columnFamily = tripleRow.getColumnFamily();
-            final boolean contextExists = columnFamily != null && columnFamily.length > 0;
-            final RyaIRI context = (contextExists) ? (new RyaIRI(new String(columnFamily, StandardCharsets.UTF_8))) : null;
-            final byte[] columnQualifier = tripleRow.getColumnQualifier();
-            final String qualifier = columnQualifier != null && columnQualifier.length > 0 ? new String(columnQualifier, StandardCharsets.UTF_8) : null;
-            final Long timestamp = tripleRow.getTimestamp();
-            final byte[] columnVisibility = tripleRow.getColumnVisibility();
-            final byte[] value = tripleRow.getValue();
+        assert tripleRow != null && table_layout != null;
+        final byte[] row = tripleRow.getRow();
+        final int firstIndex = Bytes.indexOf(row, DELIM_BYTE);
+        final int secondIndex = Bytes.lastIndexOf(row, DELIM_BYTE);
+        final int typeIndex = Bytes.indexOf(row, TYPE_DELIM_BYTE);
+        if (firstIndex < 0 || secondIndex <= firstIndex || typeIndex <= secondIndex) {
+            throw new TripleRowResolverException("TripleRow[" + tripleRow + "] with Table layout[" + table_layout + "] is not deserializable");
+        }
+        final byte[] columnFamily = tripleRow.getColumnFamily();
+        final boolean contextExists = columnFamily != null && columnFamily.length > 0;
+        final RyaIRI context = (contextExists) ? (new RyaIRI(new String(columnFamily, StandardCharsets.UTF_8))) : null;
+        final byte[] columnQualifier = tripleRow.getColumnQualifier();
+        final String qualifier = columnQualifier != null && columnQualifier.length > 0 ? new String(columnQualifier, StandardCharsets.UTF_8) : null;
+        final Long timestamp = tripleRow.getTimestamp();
+        final byte[] columnVisibility = tripleRow.getColumnVisibility();
+        final byte[] value = tripleRow.getValue();
 
-            switch (table_layout) {
-                case SPO: {
-                    final byte[] obj = Bytes.concat(third, type);
-                    return new RyaStatement(
-                            new RyaIRI(new String(first, StandardCharsets.UTF_8)),
-                            new RyaIRI(new String(second, StandardCharsets.UTF_8)),
-                            RyaContext.getInstance().deserialize(obj),
-                            context, qualifier, columnVisibility, value, timestamp);
-                }
-                case PO: {
-                    final byte[] obj = Bytes.concat(second, type);
-                    return new RyaStatement(
-                            new RyaIRI(new String(third, StandardCharsets.UTF_8)),
-                            new RyaIRI(new String(first, StandardCharsets.UTF_8)),
-                            RyaContext.getInstance().deserialize(obj),
-                            context, qualifier, columnVisibility, value, timestamp);
+        switch (table_layout) {
+            case SPO:
+            case PO:
+            case OSP:
+                final RyaType object;
+                try {
+                    object = LazyWholeRowRyaStatement.decodeObject(table_layout, row, firstIndex, secondIndex, typeIndex);
+                } catch (final RyaTypeResolverException e) {
+                    throw new TripleRowResolverException(e);
                 }
-                case OSP: {
-                    final byte[] obj = Bytes.concat(first, type);
-                    return new RyaStatement(
-                            new RyaIRI(new String(second, StandardCharsets.UTF_8)),
-                            new RyaIRI(new String(third, StandardCharsets.UTF_8)),
-                            RyaContext.getInstance().deserialize(obj),
-                            context, qualifier, columnVisibility, value, timestamp);
-                }
-            }
-        } catch (final RyaTypeResolverException e) {
-            throw new TripleRowResolverException(e);
+                return new LazyWholeRowRyaStatement(table_layout, row, firstIndex, secondIndex, typeIndex,
+                        object, context, qualifier, columnVisibility, value, timestamp);
+            default:
+                throw new TripleRowResolverException("TripleRow[" + tripleRow + "] with Table layout[" + table_layout + "] is not deserializable");
         }
-        throw new TripleRowResolverException("TripleRow[" + tripleRow + "] with Table layout[" + table_layout + "] is not deserializable");
     }
 
 }
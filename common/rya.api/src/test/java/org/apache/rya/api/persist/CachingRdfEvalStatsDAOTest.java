@@ -0,0 +1,91 @@
+package org.apache.rya.api.persist;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the methods of {@link CachingRdfEvalStatsDAO}.
+ */
+public class CachingRdfEvalStatsDAOTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cachesCardinalities() throws Exception {
+        final RdfCloudTripleStoreConfiguration conf = conf("U");
+        final List<Value> talksTo = Lists.newArrayList(VF.createIRI("urn:talksTo"));
+
+        final RdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> dao = mock(RdfEvalStatsDAO.class);
+        when(dao.getCardinality(any(RdfCloudTripleStoreConfiguration.class), eq(CARDINALITY_OF.PREDICATE), eq(talksTo), any(Resource.class)))
+            .thenReturn(42.0);
+
+        final CachingRdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> caching = new CachingRdfEvalStatsDAO<>(dao, 100, 60 * 1000L);
+        assertEquals(42.0, caching.getCardinality(conf, CARDINALITY_OF.PREDICATE, talksTo), 0.0);
+        assertEquals(42.0, caching.getCardinality(conf, CARDINALITY_OF.PREDICATE, Lists.newArrayList(talksTo)), 0.0);
+
+        // The second lookup was served from the cache.
+        verify(dao, times(1)).getCardinality(conf, CARDINALITY_OF.PREDICATE, talksTo, null);
+
+        // Lookups with other authorizations are cached separately.
+        caching.getCardinality(conf("U", "FOUO"), CARDINALITY_OF.PREDICATE, talksTo);
+        verify(dao, times(2)).getCardinality(any(RdfCloudTripleStoreConfiguration.class), eq(CARDINALITY_OF.PREDICATE), eq(talksTo), any(Resource.class));
+
+        // Invalidating the cache loads the cardinality again.
+        caching.invalidateAll();
+        caching.getCardinality(conf, CARDINALITY_OF.PREDICATE, talksTo);
+        verify(dao, times(2)).getCardinality(conf, CARDINALITY_OF.PREDICATE, talksTo, null);
+    }
+
+    @Test(expected = RdfDAOException.class)
+    @SuppressWarnings("unchecked")
+    public void loadFailure() throws Exception {
+        final RdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> dao = mock(RdfEvalStatsDAO.class);
+        when(dao.getCardinality(any(RdfCloudTripleStoreConfiguration.class), any(CARDINALITY_OF.class), any(List.class), any(Resource.class)))
+            .thenThrow(new RdfDAOException("Could not scan."));
+
+        final CachingRdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> caching = new CachingRdfEvalStatsDAO<>(dao, 100, 60 * 1000L);
+        caching.getCardinality(conf("U"), CARDINALITY_OF.SUBJECT, Lists.newArrayList(VF.createIRI("urn:Alice")));
+    }
+
+    private static RdfCloudTripleStoreConfiguration conf(final String... auths) {
+        final RdfCloudTripleStoreConfiguration conf = mock(RdfCloudTripleStoreConfiguration.class);
+        when(conf.getAuths()).thenReturn(auths);
+        return conf;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.dictionary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Comparator;
+
+import org.junit.Test;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Tests the methods of {@link TermIds}.
+ */
+public class TermIdsTest {
+
+    @Test
+    public void roundTrip() {
+        final long[] ids = new long[] { 1L, 127L, 128L, 300L, Long.MAX_VALUE };
+        final byte[] encoded = TermIds.encode(ids);
+        assertArrayEquals(ids, TermIds.decode(encoded, ids.length));
+    }
+
+    @Test
+    public void encodedLength() {
+        assertEquals(1, TermIds.encode(127L).length);
+        assertEquals(2, TermIds.encode(128L).length);
+        assertEquals(TermIds.MAX_ENCODED_LENGTH, TermIds.encode(-1L).length);
+    }
+
+    @Test
+    public void prefixStop_coversLongestRow() {
+        final Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+        final byte[] prefix = TermIds.encode(5L);
+        final byte[] stop = TermIds.prefixStop(prefix);
+
+        assertTrue(comparator.compare(TermIds.encode(5L, -1L, -1L), stop) < 0);
+        assertTrue(comparator.compare(TermIds.encode(6L, 1L, 1L), stop) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_truncated() {
+        final byte[] encoded = TermIds.encode(1L, 300L);
+        TermIds.decode(new byte[] { encoded[0], encoded[1] }, 2);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.api.resolver.triple.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.triple.TripleRow;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+import org.apache.rya.api.resolver.triple.dictionary.TermIds;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.Test;
+
+/**
+ * Tests the methods of {@link DictionaryEncodedTripleResolver}.
+ */
+public class DictionaryEncodedTripleResolverTest {
+
+    private final InMemoryTermDictionary dictionary = new InMemoryTermDictionary();
+    private final DictionaryEncodedTripleResolver tripleResolver = new DictionaryEncodedTripleResolver(dictionary);
+
+    @Test
+    public void roundTrip_allLayouts() throws Exception {
+        final RyaStatement stmt = new RyaStatement(
+                new RyaIRI("urn:test#1234"),
+                new RyaIRI("urn:test#pred"),
+                new RyaType(XMLSchema.INTEGER, "42"),
+                new RyaIRI("urn:test#cntxt"), null, null, null, 100L);
+
+        final Map<TABLE_LAYOUT, TripleRow> serialized = tripleResolver.serialize(stmt);
+        for(final TABLE_LAYOUT layout : new TABLE_LAYOUT[] { TABLE_LAYOUT.SPO, TABLE_LAYOUT.PO, TABLE_LAYOUT.OSP }) {
+            assertEquals(stmt, tripleResolver.deserialize(layout, serialized.get(layout)));
+        }
+    }
+
+    @Test
+    public void sharedTermsShareIds() throws Exception {
+        final RyaIRI alice = new RyaIRI("urn:test#alice");
+        final RyaIRI bob = new RyaIRI("urn:test#bob");
+        final RyaIRI knows = new RyaIRI("urn:test#knows");
+
+        final TripleRow first = tripleResolver.serialize(new RyaStatement(alice, knows, bob)).get(TABLE_LAYOUT.SPO);
+        final TripleRow second = tripleResolver.serialize(new RyaStatement(bob, knows, alice)).get(TABLE_LAYOUT.SPO);
+
+        // alice, bob, and knows are only stored once no matter which position they are used in.
+        assertEquals(3, dictionary.size());
+        final long[] firstIds = TermIds.decode(first.getRow(), 3);
+        final long[] secondIds = TermIds.decode(second.getRow(), 3);
+        assertEquals(firstIds[0], secondIds[2]);
+        assertEquals(firstIds[1], secondIds[1]);
+        assertEquals(firstIds[2], secondIds[0]);
+    }
+
+    @Test
+    public void iriAndLiteralAreDifferentTerms() throws Exception {
+        final long iriId = dictionary.getOrCreateId(DictionaryEncodedTripleResolver.serializeTerm(new RyaIRI("urn:test#value")));
+        final long literalId = dictionary.getOrCreateId(DictionaryEncodedTripleResolver.serializeTerm(new RyaType("urn:test#value")));
+        assertFalse(iriId == literalId);
+    }
+
+    /**
+     * A {@link TermDictionary} that only lives in memory.
+     */
+    private static final class InMemoryTermDictionary implements TermDictionary {
+        private final Map<ByteBuffer, Long> termToId = new HashMap<>();
+        private final Map<Long, byte[]> idToTerm = new HashMap<>();
+
+        @Override
+        public long getOrCreateId(final byte[] term) {
+            final long id = getId(term);
+            if(id != NO_ID) {
+                return id;
+            }
+            final long newId = termToId.size() + 1;
+            termToId.put(ByteBuffer.wrap(term), newId);
+            idToTerm.put(newId, term);
+            return newId;
+        }
+
+        @Override
+        public long getId(final byte[] term) {
+            final Long id = termToId.get(ByteBuffer.wrap(term));
+            return id == null ? NO_ID : id;
+        }
+
+        @Override
+        public byte[] getTerm(final long id) {
+            return idToTerm.get(id);
+        }
+
+        public int size() {
+            return termToId.size();
+        }
+    }
+}
@@ -25,9 +25,15 @@ import junit.framework.TestCase;
 import org.apache.rya.api.RdfCloudTripleStoreConstants;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.resolver.triple.TripleRow;
 import org.apache.rya.api.resolver.triple.TripleRowRegex;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 
+import com.google.common.primitives.Bytes;
+
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -124,4 +130,50 @@ public class WholeRowTripleResolverTest extends TestCase {
         assertEquals(stmtContext, deserialize);
     }
 
+    public void testDeserializeLiteralAllLayouts() throws Exception {
+        final RyaStatement stmt = new RyaStatement(new RyaIRI("urn:test#1234"), new RyaIRI("urn:test#pred"),
+                new RyaType(XMLSchema.INTEGER, "42"), new RyaIRI("urn:test#cntxt"), "qual", null, null, 100l);
+        final Map<RdfCloudTripleStoreConstants.TABLE_LAYOUT, TripleRow> serialize = tripleResolver.serialize(stmt);
+        for (final RdfCloudTripleStoreConstants.TABLE_LAYOUT layout : RdfCloudTripleStoreConstants.TABLE_LAYOUT.values()) {
+            final RyaStatement deserialize = tripleResolver.deserialize(layout, serialize.get(layout));
+            assertEquals(stmt, deserialize);
+            assertEquals(deserialize, stmt);
+            assertEquals(stmt.hashCode(), deserialize.hashCode());
+        }
+    }
+
+    public void testDeserializeSetterOverridesRow() throws Exception {
+        final RyaStatement stmt = new RyaStatement(new RyaIRI("urn:test#1234"), new RyaIRI("urn:test#pred"),
+                new RyaIRI("urn:test#obj"), null, null, null, null, 100l);
+        final TripleRow tripleRow = tripleResolver.serialize(stmt).get(RdfCloudTripleStoreConstants.TABLE_LAYOUT.PO);
+        final RyaStatement deserialize = tripleResolver.deserialize(RdfCloudTripleStoreConstants.TABLE_LAYOUT.PO, tripleRow);
+        deserialize.setObject(new RyaIRI("urn:test#other"));
+        assertEquals(new RyaIRI("urn:test#other"), deserialize.getObject());
+        assertEquals(new RyaIRI("urn:test#1234"), deserialize.getSubject());
+    }
+
+    public void testDeserializeMalformedRow() throws Exception {
+        final TripleRow tripleRow = new TripleRow("urn:test#1234".getBytes(StandardCharsets.UTF_8), null, null, 100l, null, null);
+        try {
+            tripleResolver.deserialize(RdfCloudTripleStoreConstants.TABLE_LAYOUT.SPO, tripleRow);
+            fail("A row without delimiters must not be deserializable.");
+        } catch (final TripleRowResolverException e) {
+            // expected
+        }
+    }
+
+    public void testDeserializeMalformedObject() throws Exception {
+        // no type resolver is registered for the marker, so the default resolver rejects it
+        final byte[] type = new byte[] {RdfCloudTripleStoreConstants.TYPE_DELIM_BYTE, (byte) 0x7e};
+        final byte[] row = Bytes.concat("urn:test#1234".getBytes(StandardCharsets.UTF_8), RdfCloudTripleStoreConstants.DELIM_BYTES,
+                "urn:test#pred".getBytes(StandardCharsets.UTF_8), RdfCloudTripleStoreConstants.DELIM_BYTES,
+                "42".getBytes(StandardCharsets.UTF_8), type);
+        try {
+            tripleResolver.deserialize(RdfCloudTripleStoreConstants.TABLE_LAYOUT.SPO, new TripleRow(row, null, null, 100l, null, null));
+            fail("A row whose object can not be decoded must not be deserializable.");
+        } catch (final TripleRowResolverException e) {
+            // expected
+        }
+    }
+
 }
@@ -49,6 +49,21 @@ public class AccumuloRdfConfiguration extends RdfCloudTripleStoreConfiguration {
 
     public static final String CONF_FLUSH_EACH_UPDATE = "ac.dao.flush";
 
+    public static final String CONF_ASYNC_INDEXING = "ac.dao.async";
+    public static final String CONF_ASYNC_INDEXING_QUEUE_SIZE = "ac.dao.async.queuesize";
+    public static final String CONF_ASYNC_INDEXING_BATCH_SIZE = "ac.dao.async.batchsize";
+
+    public static final String CONF_DELETE_BATCH_SIZE = "ac.dao.delete.batchsize";
+    public static final String CONF_ADD_BATCH_SIZE = "ac.dao.add.batchsize";
+
+    public static final String CONF_MAINTAIN_EVAL_STATS = "ac.dao.evalstats";
+    public static final String CONF_EVAL_STATS_BUFFER_SIZE = "ac.dao.evalstats.buffersize";
+    public static final String CONF_EVAL_STATS_CHECK_EXISTING = "ac.dao.evalstats.checkexisting";
+    public static final String CONF_EVAL_STATS_HEAVY_KEY_DELTAS = "ac.dao.evalstats.heavykeydeltas";
+
+    public static final String CONF_BULK_SORT_BUFFER_SIZE = "ac.bulk.sortbuffer";
+    public static final String CONF_BULK_LOCAL_DIR = "ac.bulk.localdir";
+
     public static final String ITERATOR_SETTINGS_SIZE = "ac.iterators.size";
     public static final String ITERATOR_SETTINGS_BASE = "ac.iterators.%d.";
     public static final String ITERATOR_SETTINGS_NAME = ITERATOR_SETTINGS_BASE + "name";
@@ -330,6 +345,159 @@ public class AccumuloRdfConfiguration extends RdfCloudTripleStoreConfiguration {
         setBoolean(CONF_FLUSH_EACH_UPDATE, flush);
     }
 
+    /**
+     * The core table and secondary index writes only overlap within one call to
+     * {@code add}. While {@link #flushEachUpdate()} is {@code true}, which is the
+     * default, every call waits for all of the stages before it returns, so adding
+     * statements one at a time gains nothing; set {@link #setFlush(boolean)} to
+     * {@code false} to let the stages run behind the caller.
+     *
+     * @return {@code true} if the DAO writes the core tables and each secondary
+     *   indexer on its own worker thread; otherwise {@code false}.
+     */
+    public boolean isAsyncIndexing() {
+        return getBoolean(CONF_ASYNC_INDEXING, false);
+    }
+
+    public void setAsyncIndexing(final boolean async) {
+        setBoolean(CONF_ASYNC_INDEXING, async);
+    }
+
+    /**
+     * @return The number of statements each asynchronous indexing stage holds
+     *   before the ingest thread waits for it to catch up.
+     */
+    public int getAsyncIndexingQueueSize() {
+        return getInt(CONF_ASYNC_INDEXING_QUEUE_SIZE, 10000);
+    }
+
+    public void setAsyncIndexingQueueSize(final int queueSize) {
+        Preconditions.checkArgument(queueSize > 0, "queueSize must be greater than 0");
+        setInt(CONF_ASYNC_INDEXING_QUEUE_SIZE, queueSize);
+    }
+
+    /**
+     * @return The maximum number of statements an asynchronous indexing stage
+     *   writes at once.
+     */
+    public int getAsyncIndexingBatchSize() {
+        return getInt(CONF_ASYNC_INDEXING_BATCH_SIZE, 1000);
+    }
+
+    public void setAsyncIndexingBatchSize(final int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be greater than 0");
+        setInt(CONF_ASYNC_INDEXING_BATCH_SIZE, batchSize);
+    }
+
+    /**
+     * @return The maximum number of statement patterns the DAO looks up with a
+     *   single batch scan when it deletes statements.
+     */
+    public int getDeleteBatchSize() {
+        return getInt(CONF_DELETE_BATCH_SIZE, 1000);
+    }
+
+    public void setDeleteBatchSize(final int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be greater than 0");
+        setInt(CONF_DELETE_BATCH_SIZE, batchSize);
+    }
+
+    /**
+     * @return The maximum number of statements the DAO writes at a time when
+     *   statements are not indexed asynchronously. It is also the number of
+     *   statements that are looked up with a single batch scan when
+     *   {@link #isEvalStatsCheckExisting()} is set.
+     */
+    public int getAddBatchSize() {
+        return getInt(CONF_ADD_BATCH_SIZE, 1000);
+    }
+
+    public void setAddBatchSize(final int batchSize) {
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be greater than 0");
+        setInt(CONF_ADD_BATCH_SIZE, batchSize);
+    }
+
+    /**
+     * @return {@code true} if the DAO keeps the subject, predicate, object, and
+     *   predicate-object counts of the eval table current as statements are
+     *   added and deleted; otherwise {@code false}.
+     */
+    public boolean isMaintainEvalStats() {
+        return getBoolean(CONF_MAINTAIN_EVAL_STATS, false);
+    }
+
+    public void setMaintainEvalStats(final boolean maintain) {
+        setBoolean(CONF_MAINTAIN_EVAL_STATS, maintain);
+    }
+
+    /**
+     * @return The number of distinct counts whose deltas the DAO sums in memory
+     *   before it writes them to the eval table.
+     */
+    public int getEvalStatsBufferSize() {
+        return getInt(CONF_EVAL_STATS_BUFFER_SIZE, 10000);
+    }
+
+    public void setEvalStatsBufferSize(final int bufferSize) {
+        Preconditions.checkArgument(bufferSize > 0, "bufferSize must be greater than 0");
+        setInt(CONF_EVAL_STATS_BUFFER_SIZE, bufferSize);
+    }
+
+    /**
+     * @return {@code true} if the DAO looks up each batch of added statements in
+     *   the core tables so that statements that are already stored are not
+     *   counted again; otherwise {@code false}, in which case every added
+     *   statement is counted and ingest does not read the core tables.
+     */
+    public boolean isEvalStatsCheckExisting() {
+        return getBoolean(CONF_EVAL_STATS_CHECK_EXISTING, false);
+    }
+
+    public void setEvalStatsCheckExisting(final boolean checkExisting) {
+        setBoolean(CONF_EVAL_STATS_CHECK_EXISTING, checkExisting);
+    }
+
+    /**
+     * @return The number of deltas a heavy count, such as the count of
+     *   {@code rdf:type}, collects before it is written to the eval table. A
+     *   count becomes heavy once it has been written this many times, and until
+     *   then every delta is written. 1 writes every delta of every count.
+     */
+    public int getEvalStatsHeavyKeyDeltas() {
+        return getInt(CONF_EVAL_STATS_HEAVY_KEY_DELTAS, 100);
+    }
+
+    public void setEvalStatsHeavyKeyDeltas(final int deltas) {
+        Preconditions.checkArgument(deltas > 0, "deltas must be greater than 0");
+        setInt(CONF_EVAL_STATS_HEAVY_KEY_DELTAS, deltas);
+    }
+
+    /**
+     * @return The number of bytes of serialized rows a bulk load sorts in memory
+     *   for each table before it spills them to local disk.
+     */
+    public long getBulkSortBufferSize() {
+        return getLong(CONF_BULK_SORT_BUFFER_SIZE, 64L * 1024L * 1024L);
+    }
+
+    public void setBulkSortBufferSize(final long bufferSize) {
+        Preconditions.checkArgument(bufferSize > 0, "bufferSize must be greater than 0");
+        setLong(CONF_BULK_SORT_BUFFER_SIZE, bufferSize);
+    }
+
+    /**
+     * @return The local directory a bulk load spills sorted rows to. Defaults to
+     *   the JVM's temporary directory.
+     */
+    public String getBulkLocalDir() {
+        return get(CONF_BULK_LOCAL_DIR, System.getProperty("java.io.tmpdir"));
+    }
+
+    public void setBulkLocalDir(final String localDir) {
+        Preconditions.checkNotNull(localDir);
+        set(CONF_BULK_LOCAL_DIR, localDir);
+    }
+
     public void setAdditionalIterators(final IteratorSetting... additionalIterators){
         //TODO do we need to worry about cleaning up
         this.set(ITERATOR_SETTINGS_SIZE, Integer.toString(additionalIterators.length));
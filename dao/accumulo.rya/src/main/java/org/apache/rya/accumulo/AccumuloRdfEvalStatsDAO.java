@@ -21,6 +21,7 @@ package org.apache.rya.accumulo;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.DELIM;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.EMPTY_TEXT;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.OBJ_CF_TXT;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.PREDOBJECT_CF_TXT;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.PRED_CF_TXT;
 import static org.apache.rya.api.RdfCloudTripleStoreConstants.SUBJECTOBJECT_CF_TXT;
@@ -128,8 +129,11 @@ public class AccumuloRdfEvalStatsDAO implements RdfEvalStatsDAO<AccumuloRdfConfi
             } else if (CARDINALITY_OF.PREDICATE.equals(card)) {
                 cfTxt = PRED_CF_TXT;
             } else if (CARDINALITY_OF.OBJECT.equals(card)) {
-//                cfTxt = OBJ_CF_TXT;     //TODO: How do we do object cardinality
-                return Double.MAX_VALUE;
+                // Object counts are only written when the DAO maintains them at ingest.
+                if (!conf.isMaintainEvalStats()) {
+                    return Double.MAX_VALUE;
+                }
+                cfTxt = OBJ_CF_TXT;
             } else if (CARDINALITY_OF.SUBJECTOBJECT.equals(card)) {
                 cfTxt = SUBJECTOBJECT_CF_TXT;
             } else if (CARDINALITY_OF.SUBJECTPREDICATE.equals(card)) {
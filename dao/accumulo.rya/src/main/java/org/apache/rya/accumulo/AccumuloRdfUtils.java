@@ -27,6 +27,7 @@ import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.TableExistsException;
 import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.commons.logging.Log;
@@ -58,6 +59,28 @@ public class AccumuloRdfUtils {
                 defaultTo(tripleRow.getTimestamp(), Long.MAX_VALUE));
     }
 
+    /**
+     * Converts an entry that was read from a table into a {@link TripleRow}.
+     * The key's byte arrays are shared with the returned row whenever they are
+     * not views of a larger array, so neither the key nor the row may be
+     * modified afterwards.
+     */
+    public static TripleRow toTripleRow(Key key, Value value) {
+        return new TripleRow(bytes(key.getRowData()),
+                bytes(key.getColumnFamilyData()),
+                bytes(key.getColumnQualifierData()),
+                key.getTimestamp(),
+                bytes(key.getColumnVisibilityData()),
+                (value != null) ? value.get() : null);
+    }
+
+    private static byte[] bytes(ByteSequence sequence) {
+        if (sequence.isBackedByArray() && sequence.offset() == 0 && sequence.length() == sequence.getBackingArray().length) {
+            return sequence.getBackingArray();
+        }
+        return sequence.toArray();
+    }
+
     public static Value extractValue(TripleRow tripleRow) {
         return new Value(defaultTo(tripleRow.getValue(), EMPTY_BYTES));
     }
@@ -31,11 +31,14 @@ import static org.apache.rya.api.RdfCloudTripleStoreConstants.VERSION_RYA;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -58,17 +61,21 @@ import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.io.Text;
+import org.apache.rya.accumulo.dictionary.AccumuloTermDictionary;
 import org.apache.rya.accumulo.experimental.AccumuloIndexer;
 import org.apache.rya.accumulo.query.AccumuloRyaQueryEngine;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.persist.query.BatchRyaQuery;
 import org.apache.rya.api.layout.TableLayoutStrategy;
 import org.apache.rya.api.persist.RyaDAO;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.RyaNamespaceManager;
 import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.triple.dictionary.CachingTermDictionary;
+import org.calrissian.mango.collect.CloseableIterable;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.Namespace;
 
@@ -92,13 +99,17 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
 
     private BatchWriter bw_ns;
 
+    private EvalStatsWriter evalStats;
+
     private List<AccumuloIndexer> secondaryIndexers;
+    private IndexingPipeline indexingPipeline;
 
     private AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
     private RyaTableMutationsFactory ryaTableMutationsFactory;
     private TableLayoutStrategy tableLayoutStrategy;
     private AccumuloRyaQueryEngine queryEngine;
     private RyaTripleContext ryaContext;
+    private AccumuloTermDictionary termDictionary;
 
     @Override
     public boolean isInitialized() throws RyaDAOException {
@@ -122,8 +133,6 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
             }
 
             tableLayoutStrategy = conf.getTableLayoutStrategy();
-            ryaContext = RyaTripleContext.getInstance(conf);
-            ryaTableMutationsFactory = new RyaTableMutationsFactory(ryaContext);
 
             secondaryIndexers = conf.getAdditionalIndexers();
 
@@ -135,6 +144,16 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
             AccumuloRdfUtils.createTableIfNotExist(tableOperations, tableLayoutStrategy.getOsp());
             AccumuloRdfUtils.createTableIfNotExist(tableOperations, tableLayoutStrategy.getNs());
 
+            if (conf.isDictionaryEncoded()) {
+                final String dictionaryTable = AccumuloTermDictionary.makeTableName(conf.getTablePrefix());
+                AccumuloRdfUtils.createTableIfNotExist(tableOperations, dictionaryTable);
+                termDictionary = new AccumuloTermDictionary(connector, dictionaryTable, AccumuloTermDictionary.DEFAULT_BLOCK_SIZE);
+                ryaContext = new RyaTripleContext(new CachingTermDictionary(termDictionary, conf.getDictionaryCacheSize()));
+            } else {
+                ryaContext = RyaTripleContext.getInstance(conf);
+            }
+            ryaTableMutationsFactory = new RyaTableMutationsFactory(ryaContext);
+
             for (final AccumuloIndexer index : secondaryIndexers) {
                 index.setConf(conf);
             }
@@ -148,13 +167,34 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
 
             bw_ns = mt_bw.getBatchWriter(tableLayoutStrategy.getNs());
 
+            if (conf.isMaintainEvalStats()) {
+                AccumuloRdfUtils.createTableIfNotExist(tableOperations, tableLayoutStrategy.getEval());
+                EvalStatsWriter.attachCombiner(tableOperations, tableLayoutStrategy.getEval());
+                evalStats = new EvalStatsWriter(mt_bw.getBatchWriter(tableLayoutStrategy.getEval()),
+                        conf.getEvalStatsBufferSize(), conf.getEvalStatsHeavyKeyDeltas());
+            }
+
             for (final AccumuloIndexer index : secondaryIndexers) {
                index.setConnector(connector);
                index.setMultiTableBatchWriter(mt_bw);
                index.init();
             }
 
-            queryEngine = new AccumuloRyaQueryEngine(connector, conf);
+            if (conf.isAsyncIndexing()) {
+                indexingPipeline = new IndexingPipeline(conf.getAsyncIndexingQueueSize(), conf.getAsyncIndexingBatchSize());
+                indexingPipeline.addStage("core", statements -> {
+                    countAdded(statements);
+                    for (final RyaStatement stmt : statements) {
+                        writeCoreTables(stmt);
+                    }
+                });
+                for (final AccumuloIndexer index : secondaryIndexers) {
+                    indexingPipeline.addStage(index.getClass().getSimpleName(), statements -> index.storeStatements(statements));
+                }
+                indexingPipeline.start();
+            }
+
+            queryEngine = new AccumuloRyaQueryEngine(connector, conf, ryaContext);
 
             checkVersion();
 
@@ -193,20 +233,32 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
 
     @Override
     public void delete(final Iterator<RyaStatement> statements, final AccumuloRdfConfiguration conf) throws RyaDAOException {
+        // statements that are still being added must not be written after they are deleted
+        flushIndexingPipeline();
+        final AccumuloRdfConfiguration queryConf = conf != null ? conf : this.conf;
         try {
-            while (statements.hasNext()) {
-                final RyaStatement stmt = statements.next();
-                //query first
-                final CloseableIteration<RyaStatement, RyaDAOException> query = this.queryEngine.query(stmt, conf);
-                while (query.hasNext()) {
-                    deleteSingleRyaStatement(query.next());
+            // The patterns are looked up a batch at a time so that each batch is read by
+            // one batch scan per table layout instead of one scanner per pattern.
+            final Iterator<List<RyaStatement>> batches = Iterators.partition(statements, queryConf.getDeleteBatchSize());
+            while (batches.hasNext()) {
+                final List<RyaStatement> batch = batches.next();
+                final BatchRyaQuery query = BatchRyaQuery.builder(batch).load(queryConf).build();
+                // A statement that matches several patterns of the batch is only deleted and counted once.
+                final Set<List<Object>> deleted = new HashSet<>();
+                try (final CloseableIterable<RyaStatement> matches = queryEngine.query(query)) {
+                    for (final RyaStatement match : matches) {
+                        if (deleted.add(statementKey(match))) {
+                            deleteSingleRyaStatement(match);
+                        }
+                    }
                 }
 
                 for (final AccumuloIndexer index : secondaryIndexers) {
-                    index.deleteStatement(stmt);
+                    index.deleteStatements(batch);
                 }
             }
             if (flushEachUpdate.get()) {
+                flushEvalStats();
                 mt_bw.flush();
             }
         } catch (final Exception e) {
@@ -216,6 +268,7 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
 
     @Override
     public void dropGraph(final AccumuloRdfConfiguration conf, final RyaIRI... graphs) throws RyaDAOException {
+        flushIndexingPipeline();
         BatchDeleter bd_spo = null;
         BatchDeleter bd_po = null;
         BatchDeleter bd_osp = null;
@@ -265,28 +318,38 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
         bw_spo.addMutations(map.get(TABLE_LAYOUT.SPO));
         bw_po.addMutations(map.get(TABLE_LAYOUT.PO));
         bw_osp.addMutations(map.get(TABLE_LAYOUT.OSP));
+        if (evalStats != null) {
+            evalStats.deleted(stmt);
+        }
     }
 
     protected void commit(final Iterator<RyaStatement> commitStatements) throws RyaDAOException {
         try {
             //TODO: Should have a lock here in case we are adding and committing at the same time
-            while (commitStatements.hasNext()) {
-                final RyaStatement stmt = commitStatements.next();
-
-                final Map<TABLE_LAYOUT, Collection<Mutation>> mutationMap = ryaTableMutationsFactory.serialize(stmt);
-                final Collection<Mutation> spo = mutationMap.get(TABLE_LAYOUT.SPO);
-                final Collection<Mutation> po = mutationMap.get(TABLE_LAYOUT.PO);
-                final Collection<Mutation> osp = mutationMap.get(TABLE_LAYOUT.OSP);
-                bw_spo.addMutations(spo);
-                bw_po.addMutations(po);
-                bw_osp.addMutations(osp);
-
-                for (final AccumuloIndexer index : secondaryIndexers) {
-                    index.storeStatement(stmt);
+            if (indexingPipeline != null) {
+                while (commitStatements.hasNext()) {
+                    indexingPipeline.put(commitStatements.next());
+                }
+            } else {
+                // The statements are written a batch at a time so that, when the eval counts
+                // check for statements that are already stored, each batch is one batch scan.
+                final Iterator<List<RyaStatement>> batches = Iterators.partition(commitStatements, conf.getAddBatchSize());
+                while (batches.hasNext()) {
+                    final List<RyaStatement> batch = batches.next();
+                    countAdded(batch);
+                    for (final RyaStatement stmt : batch) {
+                        writeCoreTables(stmt);
+
+                        for (final AccumuloIndexer index : secondaryIndexers) {
+                            index.storeStatement(stmt);
+                        }
+                    }
                 }
             }
 
             if (flushEachUpdate.get()) {
+                flushIndexingPipeline();
+                flushEvalStats();
                 mt_bw.flush();
             }
         } catch (final Exception e) {
@@ -294,6 +357,63 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
         }
     }
 
+    private void writeCoreTables(final RyaStatement stmt) throws IOException, MutationsRejectedException {
+        final Map<TABLE_LAYOUT, Collection<Mutation>> mutationMap = ryaTableMutationsFactory.serialize(stmt);
+        final Collection<Mutation> spo = mutationMap.get(TABLE_LAYOUT.SPO);
+        final Collection<Mutation> po = mutationMap.get(TABLE_LAYOUT.PO);
+        final Collection<Mutation> osp = mutationMap.get(TABLE_LAYOUT.OSP);
+        bw_spo.addMutations(spo);
+        bw_po.addMutations(po);
+        bw_osp.addMutations(osp);
+    }
+
+    /**
+     * Counts the statements of a batch before the batch is written. Unless
+     * {@link AccumuloRdfConfiguration#isEvalStatsCheckExisting()} is set, every
+     * statement is counted, so one that is added again is counted again. Otherwise
+     * the batch is looked up in the core tables first, and a statement that is
+     * already stored, or that is repeated within the batch, is only counted once.
+     * Statements whose writes have not been flushed yet, or that the configured
+     * authorizations cannot read, are not found and are counted again.
+     *
+     * @param statements - The statements that are about to be written. (not null)
+     */
+    private void countAdded(final List<RyaStatement> statements) throws RyaDAOException, MutationsRejectedException {
+        if (evalStats == null || statements.isEmpty()) {
+            return;
+        }
+        if (!conf.isEvalStatsCheckExisting()) {
+            for (final RyaStatement stmt : statements) {
+                evalStats.added(stmt);
+            }
+            return;
+        }
+        final Set<List<Object>> stored = new HashSet<>();
+        final BatchRyaQuery query = BatchRyaQuery.builder(statements).load(conf).build();
+        try (final CloseableIterable<RyaStatement> matches = queryEngine.query(query)) {
+            for (final RyaStatement match : matches) {
+                stored.add(statementKey(match));
+            }
+        } catch (final IOException e) {
+            throw new RyaDAOException(e);
+        }
+        for (final RyaStatement stmt : statements) {
+            if (stored.add(statementKey(stmt))) {
+                evalStats.added(stmt);
+            }
+        }
+    }
+
+    /**
+     * @return The parts of a statement that identify its entries in the core tables,
+     *   ignoring the timestamp that a new write replaces.
+     */
+    private static List<Object> statementKey(final RyaStatement stmt) {
+        final byte[] visibility = stmt.getColumnVisibility();
+        return Arrays.asList(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), stmt.getContext(),
+                visibility == null ? "" : new String(visibility, StandardCharsets.UTF_8));
+    }
+
     @Override
     public void destroy() throws RyaDAOException {
         if (!isInitialized.get()) {
@@ -302,9 +422,19 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
         //TODO: write lock
         try {
             isInitialized.set(false);
+            if (indexingPipeline != null) {
+                indexingPipeline.close();
+            }
+            if (evalStats != null) {
+                // write the deltas that heavy counts are still collecting
+                evalStats.flushAll();
+            }
             mt_bw.flush();
 
             mt_bw.close();
+            if (termDictionary != null) {
+                termDictionary.close();
+            }
         } catch (final Exception e) {
             throw new RyaDAOException(e);
         }
@@ -461,6 +591,13 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
         this.conf = conf;
     }
 
+    /**
+     * @return The context used to serialize and scan the core tables' triples.
+     */
+    public RyaTripleContext getRyaTripleContext() {
+        return ryaContext;
+    }
+
     public RyaTableMutationsFactory getRyaTableMutationsFactory() {
         return ryaTableMutationsFactory;
     }
@@ -478,9 +615,20 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
         this.queryEngine = queryEngine;
     }
 
+    /**
+     * @return The queue depth and lag of the core tables and of each secondary
+     *   indexer when {@link AccumuloRdfConfiguration#isAsyncIndexing()} is set;
+     *   otherwise an empty list.
+     */
+    public List<IndexingPipeline.StageMetrics> getIndexingMetrics() {
+        return indexingPipeline == null ? Collections.<IndexingPipeline.StageMetrics>emptyList() : indexingPipeline.getMetrics();
+    }
+
     @Override
     public void flush() throws RyaDAOException {
+        flushIndexingPipeline();
         try {
+            flushEvalStats();
             mt_bw.flush();
             flushIndexers();
         } catch (final MutationsRejectedException e) {
@@ -488,6 +636,24 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
         }
     }
 
+    /**
+     * Waits until the statements that were added have been handed to the batch writers and indexers.
+     */
+    private void flushIndexingPipeline() throws RyaDAOException {
+        if (indexingPipeline != null) {
+            indexingPipeline.flush();
+        }
+    }
+
+    /**
+     * Hands the count deltas that have been summed in memory to the eval table's batch writer.
+     */
+    private void flushEvalStats() throws MutationsRejectedException {
+        if (evalStats != null) {
+            evalStats.flush();
+        }
+    }
+
     private void flushIndexers() throws RyaDAOException {
         for (final AccumuloIndexer indexer : secondaryIndexers) {
             try {
@@ -506,6 +672,9 @@ public class AccumuloRyaDAO implements RyaDAO<AccumuloRdfConfiguration>, RyaName
                 tableLayoutStrategy.getOsp(),
                 tableLayoutStrategy.getNs(),
                 tableLayoutStrategy.getEval());
+        if (conf.isDictionaryEncoded()) {
+            tableNames.add(AccumuloTermDictionary.makeTableName(conf.getTablePrefix()));
+        }
 
         // Additional Tables
         for (final AccumuloIndexer index : secondaryIndexers) {
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.DELIM;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.EMPTY_TEXT;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.OBJ_CF_TXT;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.PREDOBJECT_CF_TXT;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.PRED_CF_TXT;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.SUBJECT_CF_TXT;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
+import org.apache.hadoop.io.Text;
+import org.apache.rya.api.domain.RyaStatement;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Maintains the counts that {@link AccumuloRdfEvalStatsDAO} reads while statements
+ * are added to and deleted from the core tables, so that query planning sees
+ * current cardinalities without running the Prospector.
+ * <p>
+ * Each statement adds a +1 or -1 delta to the count of its subject, predicate,
+ * object, and predicate-object pair. The count of all statements is kept under an
+ * empty column qualifier and, when the statement has a context, the count within
+ * that context is kept under the context as the column qualifier, which is where
+ * {@link AccumuloRdfEvalStatsDAO} looks for context-scoped cardinalities. Deltas
+ * are summed in memory until
+ * {@link #flush()} is called or the configured number of distinct counts is
+ * buffered, so a frequently used value such as {@code rdf:type} produces one
+ * mutation per flush instead of one per statement. The eval table sums the
+ * written deltas with a {@link SummingCombiner}.
+ * <p>
+ * Flushing after every update would still write such a count once per
+ * statement, so a count that keeps being written becomes heavy: once it has
+ * been written {@code heavyKeyDeltas} times, its deltas are only written after
+ * they add up to {@code heavyKeyDeltas}. A heavy count lags behind by fewer than
+ * that many statements until {@link #flushAll()} is called. Only the most
+ * recently written counts are remembered, so memory stays bounded.
+ */
+public class EvalStatsWriter {
+
+    /**
+     * The name of the combiner that sums the count deltas within the eval table.
+     */
+    public static final String COMBINER_NAME = "evalStatsSum";
+
+    private static final int COMBINER_PRIORITY = 10;
+
+    private final BatchWriter writer;
+    private final int bufferSize;
+    private final int heavyKeyDeltas;
+    private final Map<CountKey, Long> deltas = new HashMap<>();
+    // the number of times each recently written count has been written
+    private final Map<CountKey, Integer> writes;
+
+    /**
+     * Constructs an instance of {@link EvalStatsWriter} that writes the deltas
+     * of every count each time it is flushed.
+     *
+     * @param writer - Writes to the eval table. (not null)
+     * @param bufferSize - The number of distinct counts that are buffered before
+     *   their deltas are written. Must be positive.
+     */
+    public EvalStatsWriter(final BatchWriter writer, final int bufferSize) {
+        this(writer, bufferSize, 1);
+    }
+
+    /**
+     * Constructs an instance of {@link EvalStatsWriter}.
+     *
+     * @param writer - Writes to the eval table. (not null)
+     * @param bufferSize - The number of distinct counts that are buffered before
+     *   their deltas are written. Must be positive.
+     * @param heavyKeyDeltas - The number of times a count is written before it
+     *   is heavy, and the number of deltas a heavy count collects before it is
+     *   written again. 1 writes every delta. Must be positive.
+     */
+    public EvalStatsWriter(final BatchWriter writer, final int bufferSize, final int heavyKeyDeltas) {
+        checkArgument(bufferSize > 0, "bufferSize must be greater than 0");
+        checkArgument(heavyKeyDeltas > 0, "heavyKeyDeltas must be greater than 0");
+        this.writer = checkNotNull(writer);
+        this.bufferSize = bufferSize;
+        this.heavyKeyDeltas = heavyKeyDeltas;
+        // Heavy counts stay in the buffer while they collect deltas, so at most half of it is theirs.
+        final int remembered = Math.max(1, bufferSize / 2);
+        writes = new LinkedHashMap<CountKey, Integer>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<CountKey, Integer> eldest) {
+                return size() > remembered;
+            }
+        };
+    }
+
+    /**
+     * Attaches the combiner that sums count deltas to an eval table if it is not
+     * already attached.
+     *
+     * @param tableOperations - Used to configure the table. (not null)
+     * @param evalTable - The name of the eval table. (not null)
+     */
+    public static void attachCombiner(final TableOperations tableOperations, final String evalTable)
+            throws AccumuloSecurityException, AccumuloException, TableNotFoundException {
+        if (tableOperations.listIterators(evalTable).containsKey(COMBINER_NAME)) {
+            return;
+        }
+        final IteratorSetting setting = new IteratorSetting(COMBINER_PRIORITY, COMBINER_NAME, SummingCombiner.class);
+        SummingCombiner.setEncodingType(setting, LongCombiner.Type.STRING);
+        SummingCombiner.setColumns(setting, Lists.newArrayList(
+                new IteratorSetting.Column(SUBJECT_CF_TXT),
+                new IteratorSetting.Column(PRED_CF_TXT),
+                new IteratorSetting.Column(OBJ_CF_TXT),
+                new IteratorSetting.Column(PREDOBJECT_CF_TXT)));
+        tableOperations.attachIterator(evalTable, setting, EnumSet.allOf(IteratorScope.class));
+    }
+
+    /**
+     * Counts a statement that was added to the core tables.
+     *
+     * @param statement - The added statement. (not null)
+     */
+    public void added(final RyaStatement statement) throws MutationsRejectedException {
+        update(statement, 1L);
+    }
+
+    /**
+     * Counts a statement that was deleted from the core tables.
+     *
+     * @param statement - The deleted statement. (not null)
+     */
+    public void deleted(final RyaStatement statement) throws MutationsRejectedException {
+        update(statement, -1L);
+    }
+
+    private synchronized void update(final RyaStatement statement, final long delta) throws MutationsRejectedException {
+        checkNotNull(statement);
+        final String subject = statement.getSubject().getData();
+        final String predicate = statement.getPredicate().getData();
+        final String object = statement.getObject().getData();
+
+        update(subject, predicate, object, EMPTY_TEXT, delta);
+        if (statement.getContext() != null) {
+            update(subject, predicate, object, new Text(statement.getContext().getData().getBytes(StandardCharsets.UTF_8)), delta);
+        }
+
+        if (deltas.size() >= bufferSize) {
+            flush();
+        }
+    }
+
+    private void update(final String subject, final String predicate, final String object, final Text context, final long delta) {
+        deltas.merge(new CountKey(subject, SUBJECT_CF_TXT, context), delta, Long::sum);
+        deltas.merge(new CountKey(predicate, PRED_CF_TXT, context), delta, Long::sum);
+        deltas.merge(new CountKey(object, OBJ_CF_TXT, context), delta, Long::sum);
+        deltas.merge(new CountKey(predicate + DELIM + object, PREDOBJECT_CF_TXT, context), delta, Long::sum);
+    }
+
+    /**
+     * Hands the buffered deltas to the batch writer, except for those of heavy
+     * counts that have not collected enough deltas yet. They are sent to the
+     * eval table the next time the batch writer is flushed.
+     */
+    public synchronized void flush() throws MutationsRejectedException {
+        flush(false);
+    }
+
+    /**
+     * Hands every buffered delta to the batch writer, including those of heavy
+     * counts. They are sent to the eval table the next time the batch writer is
+     * flushed.
+     */
+    public synchronized void flushAll() throws MutationsRejectedException {
+        flush(true);
+    }
+
+    private void flush(final boolean all) throws MutationsRejectedException {
+        final Iterator<Map.Entry<CountKey, Long>> it = deltas.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<CountKey, Long> delta = it.next();
+            final CountKey key = delta.getKey();
+            final long value = delta.getValue();
+            // Deltas that cancel out do not change the count.
+            if (value != 0L) {
+                final Integer written = writes.get(key);
+                if (!all && written != null && written >= heavyKeyDeltas && Math.abs(value) < heavyKeyDeltas) {
+                    continue;
+                }
+                final Mutation m = new Mutation(new Text(key.row.getBytes(StandardCharsets.UTF_8)));
+                m.put(key.columnFamily, key.columnQualifier, new Value(Long.toString(value).getBytes(StandardCharsets.UTF_8)));
+                writer.addMutation(m);
+                writes.put(key, written == null ? 1 : written + 1);
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * Identifies one of the counts within the eval table.
+     */
+    private static class CountKey {
+        private final String row;
+        private final Text columnFamily;
+        private final Text columnQualifier;
+
+        public CountKey(final String row, final Text columnFamily, final Text columnQualifier) {
+            this.row = row;
+            this.columnFamily = columnFamily;
+            this.columnQualifier = columnQualifier;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(row, columnFamily, columnQualifier);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o instanceof CountKey) {
+                final CountKey other = (CountKey) o;
+                return row.equals(other.row) && columnFamily.equals(other.columnFamily)
+                        && columnQualifier.equals(other.columnQualifier);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.persist.RyaDAOException;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Writes statements through several stages, such as the core tables and each
+ * secondary indexer, that each run on their own worker thread. Every stage has
+ * a bounded queue, so a stage that falls behind makes {@link #put(RyaStatement)}
+ * wait instead of buffering without limit, and writes the statements it has
+ * queued in batches. A stage's thread blocks while its queue is empty, and
+ * {@link #close()} stops it by queueing a marker after the last statement.
+ * <p>
+ * A failure of a stage is reported by the next call to {@link #put(RyaStatement)}
+ * or {@link #flush()}, since the statement that caused it has already been accepted.
+ */
+public class IndexingPipeline implements AutoCloseable {
+    private static final Log logger = LogFactory.getLog(IndexingPipeline.class);
+
+    /**
+     * Writes a batch of statements for one stage of the pipeline.
+     */
+    public interface StageWriter {
+        /**
+         * @param statements - The statements to write, in the order they were put. (not null)
+         * @throws Exception The statements could not be written.
+         */
+        public void write(List<RyaStatement> statements) throws Exception;
+    }
+
+    private final int queueSize;
+    private final int batchSize;
+    private final List<Stage> stages = new ArrayList<>();
+    private ExecutorService workers = null;
+    private volatile boolean closed = false;
+
+    /**
+     * @param queueSize - The number of statements each stage holds before
+     *   {@link #put(RyaStatement)} waits for it.
+     * @param batchSize - The maximum number of statements a stage writes at once.
+     */
+    public IndexingPipeline(final int queueSize, final int batchSize) {
+        checkArgument(queueSize > 0, "queueSize must be greater than 0");
+        checkArgument(batchSize > 0, "batchSize must be greater than 0");
+        this.queueSize = queueSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds a stage. Stages must be added before the pipeline is started.
+     *
+     * @param name - The name the stage's metrics are reported under. (not null)
+     * @param writer - Writes the stage's batches. (not null)
+     */
+    public void addStage(final String name, final StageWriter writer) {
+        checkState(workers == null, "Stages can not be added once the pipeline has started.");
+        stages.add(new Stage(checkNotNull(name), checkNotNull(writer), queueSize));
+    }
+
+    /**
+     * Starts a worker thread for each stage.
+     */
+    public void start() {
+        checkState(workers == null, "The pipeline has already started.");
+        workers = Executors.newFixedThreadPool(Math.max(1, stages.size()),
+                new ThreadFactoryBuilder().setNameFormat("rya-indexing-%d").setDaemon(true).build());
+        for (final Stage stage : stages) {
+            workers.execute(stage);
+        }
+    }
+
+    /**
+     * Queues a statement for every stage.
+     *
+     * @param statement - The statement to write. (not null)
+     * @throws RyaDAOException A stage failed to write earlier statements, a
+     *   stage's thread has stopped, or the thread was interrupted while it
+     *   waited for a stage.
+     */
+    public void put(final RyaStatement statement) throws RyaDAOException {
+        checkNotNull(statement);
+        checkState(workers != null && !closed, "The pipeline is not running.");
+        for (final Stage stage : stages) {
+            stage.throwFailure();
+            try {
+                stage.put(statement);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RyaDAOException("Interrupted while waiting for the " + stage.name + " stage.", e);
+            }
+        }
+    }
+
+    /**
+     * Waits until every stage has written all of the statements that were put
+     * before this call.
+     *
+     * @throws RyaDAOException A stage failed to write some of the statements, a
+     *   stage's thread stopped before it wrote them, or the thread was interrupted
+     *   while it waited.
+     */
+    public void flush() throws RyaDAOException {
+        final long[] targets = new long[stages.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = stages.get(i).enqueued.get();
+        }
+        for (int i = 0; i < targets.length; i++) {
+            final Stage stage = stages.get(i);
+            try {
+                stage.awaitCompleted(targets[i]);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RyaDAOException("Interrupted while flushing the " + stage.name + " stage.", e);
+            }
+            stage.throwFailure();
+        }
+    }
+
+    /**
+     * @return A snapshot of each stage's queue depth and lag, in the order the
+     *   stages were added.
+     */
+    public List<StageMetrics> getMetrics() {
+        final long now = System.nanoTime();
+        final List<StageMetrics> metrics = new ArrayList<>(stages.size());
+        for (final Stage stage : stages) {
+            metrics.add(stage.getMetrics(now));
+        }
+        return metrics;
+    }
+
+    /**
+     * Writes the queued statements and stops the worker threads.
+     *
+     * @throws RyaDAOException A stage failed to write some of the statements.
+     */
+    @Override
+    public void close() throws RyaDAOException {
+        if (workers == null || closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            for (final Stage stage : stages) {
+                stage.stop();
+            }
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    logger.warn("Indexing stages did not stop within a minute.");
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * A snapshot of one stage's progress.
+     */
+    public static class StageMetrics {
+        private final String name;
+        private final int queueDepth;
+        private final long pending;
+        private final long lagMillis;
+        private final long written;
+
+        public StageMetrics(final String name, final int queueDepth, final long pending, final long lagMillis, final long written) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.pending = pending;
+            this.lagMillis = lagMillis;
+            this.written = written;
+        }
+
+        /**
+         * @return The name of the stage.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The number of statements waiting in the stage's queue.
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * @return The number of statements the stage has accepted but not yet
+         *   written, including the batch it is writing.
+         */
+        public long getPending() {
+            return pending;
+        }
+
+        /**
+         * @return How long the oldest statement the stage has not written yet has
+         *   been waiting, in milliseconds, or 0 if the stage is idle.
+         */
+        public long getLagMillis() {
+            return lagMillis;
+        }
+
+        /**
+         * @return The number of statements the stage has finished with.
+         */
+        public long getWritten() {
+            return written;
+        }
+
+        @Override
+        public String toString() {
+            return name + "[queueDepth=" + queueDepth + ", pending=" + pending + ", lagMillis=" + lagMillis + ", written=" + written + "]";
+        }
+    }
+
+    /**
+     * A statement waiting in a stage's queue.
+     */
+    private static final class Pending {
+        // queued by close() to tell a stage's thread that no statements follow it
+        private static final Pending STOP = new Pending(null, 0);
+
+        private final RyaStatement statement;
+        private final long enqueuedNanos;
+
+        private Pending(final RyaStatement statement, final long enqueuedNanos) {
+            this.statement = statement;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final class Stage implements Runnable {
+        private final String name;
+        private final StageWriter writer;
+        private final BlockingQueue<Pending> queue;
+
+        private final AtomicLong enqueued = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final Object progress = new Object();
+        // the time the oldest statement of the batch being written was queued, or -1
+        private volatile long inFlightSince = -1;
+        private volatile Exception failure = null;
+        // set once the stage's thread has returned, for whatever reason
+        private volatile boolean exited = false;
+        // why the thread returned before it was stopped, if it was not stopped
+        private volatile Throwable death = null;
+
+        private Stage(final String name, final StageWriter writer, final int queueSize) {
+            this.name = name;
+            this.writer = writer;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        private void put(final RyaStatement statement) throws InterruptedException, RyaDAOException {
+            final Pending pending = new Pending(statement, System.nanoTime());
+            // Wait in short steps so a stage whose thread has died can not block the caller forever.
+            while (!queue.offer(pending, 100, TimeUnit.MILLISECONDS)) {
+                if (exited) {
+                    throw stopped();
+                }
+            }
+            // a statement queued after the thread died is reported by the next flush
+            enqueued.incrementAndGet();
+        }
+
+        /**
+         * Queues the marker that stops the stage's thread once it has written the
+         * statements queued before it.
+         */
+        private void stop() {
+            try {
+                while (!exited && !queue.offer(Pending.STOP, 100, TimeUnit.MILLISECONDS)) {
+                    // The stage's thread is still draining the queue.
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                writeUntilStopped();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                death = e;
+            } catch (final Throwable t) {
+                logger.error("The " + name + " stage's thread died.", t);
+                death = t;
+            } finally {
+                synchronized (progress) {
+                    exited = true;
+                    progress.notifyAll();
+                }
+            }
+        }
+
+        private void writeUntilStopped() throws InterruptedException {
+            final List<Pending> batch = new ArrayList<>(batchSize);
+            final List<RyaStatement> statements = new ArrayList<>(batchSize);
+            boolean stopped = false;
+            while (!stopped) {
+                final Pending first = queue.take();
+                if (first == Pending.STOP) {
+                    return;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                // Nothing is queued after the marker, so it can only end the batch.
+                if (batch.get(batch.size() - 1) == Pending.STOP) {
+                    batch.remove(batch.size() - 1);
+                    stopped = true;
+                }
+
+                inFlightSince = batch.get(0).enqueuedNanos;
+                for (final Pending pending : batch) {
+                    statements.add(pending.statement);
+                }
+                try {
+                    writer.write(statements);
+                } catch (final Exception e) {
+                    logger.error("The " + name + " stage failed to write " + statements.size() + " statements.", e);
+                    if (failure == null) {
+                        failure = e;
+                    }
+                } finally {
+                    inFlightSince = -1;
+                }
+                // An Error skips this, so the batch is never counted as written.
+                synchronized (progress) {
+                    completed.addAndGet(batch.size());
+                    progress.notifyAll();
+                }
+                batch.clear();
+                statements.clear();
+            }
+        }
+
+        private void awaitCompleted(final long target) throws InterruptedException, RyaDAOException {
+            synchronized (progress) {
+                while (completed.get() < target && !exited) {
+                    progress.wait();
+                }
+            }
+            if (completed.get() < target) {
+                throw stopped();
+            }
+        }
+
+        /**
+         * @return The exception reported once the stage's thread has returned,
+         *   because nothing takes or writes the statements in its queue anymore.
+         */
+        private RyaDAOException stopped() {
+            return new RyaDAOException("The " + name + " stage's thread has stopped.", death);
+        }
+
+        /**
+         * Throws the stage's failure, if it has one, and clears it.
+         */
+        private void throwFailure() throws RyaDAOException {
+            final Exception e = failure;
+            if (e != null) {
+                failure = null;
+                throw new RyaDAOException("The " + name + " stage failed to write statements.", e);
+            }
+        }
+
+        private StageMetrics getMetrics(final long now) {
+            long oldest = inFlightSince;
+            if (oldest == -1) {
+                final Pending head = queue.peek();
+                oldest = head == null ? -1 : head.enqueuedNanos;
+            }
+            final long lagMillis = oldest == -1 ? 0 : TimeUnit.NANOSECONDS.toMillis(now - oldest);
+            final long written = completed.get();
+            // A put counts its statement just after queueing it, so the stage may be ahead for a moment.
+            return new StageMetrics(name, queue.size(), Math.max(0, enqueued.get() - written), lagMillis, written);
+        }
+    }
+}
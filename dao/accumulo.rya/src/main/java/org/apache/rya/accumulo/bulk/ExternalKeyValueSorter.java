@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.bulk;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+/**
+ * Sorts more key/value pairs than fit in memory. Pairs are buffered until the
+ * buffer holds {@code maxBufferBytes} bytes, at which point the buffer is sorted
+ * and spilled to a file in the local directory. {@link #sorted()} merges the
+ * spilled runs with whatever is still buffered.
+ */
+class ExternalKeyValueSorter implements Closeable {
+    private static final Comparator<Map.Entry<Key, Value>> KEY_ORDER = new Comparator<Map.Entry<Key, Value>>() {
+        @Override
+        public int compare(final Map.Entry<Key, Value> left, final Map.Entry<Key, Value> right) {
+            return left.getKey().compareTo(right.getKey());
+        }
+    };
+
+    private final File localDir;
+    private final long maxBufferBytes;
+
+    private final List<Map.Entry<Key, Value>> buffer = new ArrayList<>();
+    private long bufferBytes = 0;
+
+    private final List<Run> runs = new ArrayList<>();
+    private boolean sorted = false;
+
+    /**
+     * @param localDir - The directory sorted runs are spilled to. (not null)
+     * @param maxBufferBytes - The number of bytes of keys and values that are
+     *   held in memory before they are spilled.
+     */
+    ExternalKeyValueSorter(final File localDir, final long maxBufferBytes) {
+        this.localDir = requireNonNull(localDir);
+        Preconditions.checkArgument(maxBufferBytes > 0, "maxBufferBytes must be greater than 0");
+        this.maxBufferBytes = maxBufferBytes;
+    }
+
+    void add(final Key key, final Value value) throws IOException {
+        Preconditions.checkState(!sorted, "Pairs may not be added once they have been sorted.");
+        buffer.add(new SimpleImmutableEntry<>(key, value));
+        bufferBytes += key.getSize() + value.getSize();
+        if (bufferBytes >= maxBufferBytes) {
+            spill();
+        }
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer, KEY_ORDER);
+        final File file = File.createTempFile("rya-bulk-", ".run", localDir);
+        final Run run = new Run(file, buffer.size());
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (final Map.Entry<Key, Value> entry : buffer) {
+                entry.getKey().write(out);
+                entry.getValue().write(out);
+            }
+        }
+        buffer.clear();
+        bufferBytes = 0;
+    }
+
+    /**
+     * @return Every pair that was added, in key order. May only be called once.
+     * @throws IOException A spilled run could not be opened.
+     */
+    Iterator<Map.Entry<Key, Value>> sorted() throws IOException {
+        Preconditions.checkState(!sorted, "The pairs have already been sorted.");
+        sorted = true;
+        Collections.sort(buffer, KEY_ORDER);
+        if (runs.isEmpty()) {
+            return buffer.iterator();
+        }
+
+        final List<Iterator<Map.Entry<Key, Value>>> iterators = new ArrayList<>(runs.size() + 1);
+        for (final Run run : runs) {
+            iterators.add(run.open());
+        }
+        iterators.add(buffer.iterator());
+        return Iterators.mergeSorted(iterators, KEY_ORDER);
+    }
+
+    /**
+     * @return The number of sorted runs that were spilled to disk.
+     */
+    int getSpillCount() {
+        return runs.size();
+    }
+
+    /**
+     * Closes the spilled runs and deletes their files.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (final Run run : runs) {
+            try {
+                run.close();
+            } catch (final IOException e) {
+                failure = e;
+            }
+        }
+        runs.clear();
+        buffer.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A sorted run of pairs that was spilled to a file.
+     */
+    private static class Run implements Closeable {
+        private final File file;
+        private final int size;
+        private DataInputStream in;
+
+        private Run(final File file, final int size) {
+            this.file = file;
+            this.size = size;
+        }
+
+        private Iterator<Map.Entry<Key, Value>> open() throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            return new AbstractIterator<Map.Entry<Key, Value>>() {
+                private int read = 0;
+
+                @Override
+                protected Map.Entry<Key, Value> computeNext() {
+                    if (read == size) {
+                        return endOfData();
+                    }
+                    read++;
+                    try {
+                        final Key key = new Key();
+                        key.readFields(in);
+                        final Value value = new Value();
+                        value.readFields(in);
+                        return new SimpleImmutableEntry<>(key, value);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException("Could not read the sorted run " + file, e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } finally {
+                if (!file.delete() && file.exists()) {
+                    throw new IOException("Could not delete the sorted run " + file);
+                }
+            }
+        }
+    }
+}
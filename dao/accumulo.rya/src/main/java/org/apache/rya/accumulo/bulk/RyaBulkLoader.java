@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.bulk;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.TableExistsException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.admin.TableOperations;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRdfUtils;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.RdfCloudTripleStoreUtils;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.layout.TableLayoutStrategy;
+import org.apache.rya.api.persist.RyaDAOException;
+
+/**
+ * Loads statements into the core tables of a Rya instance by writing them to
+ * sorted RFiles with a {@link RyaBulkWriter} and bulk importing those files.
+ * This is much faster than writing the statements through batch writers, but
+ * the statements are not sent to the secondary indexers, and none of them are
+ * visible until all of them have been imported.
+ */
+public class RyaBulkLoader {
+    private static final Log logger = LogFactory.getLog(RyaBulkLoader.class);
+
+    private static final TABLE_LAYOUT[] LAYOUTS = { TABLE_LAYOUT.SPO, TABLE_LAYOUT.PO, TABLE_LAYOUT.OSP };
+
+    private final Connector connector;
+    private final AccumuloRdfConfiguration conf;
+    private final FileSystem fs;
+    private final Path workDir;
+
+    /**
+     * @param connector - Connects to the Accumulo instance Rya is installed in. (not null)
+     * @param conf - Names the Rya instance and configures the sort. (not null)
+     * @param fs - The file system the RFiles are staged in. It must be reachable
+     *   by the Accumulo tablet servers. (not null)
+     * @param workDir - A directory that does not exist yet, where the RFiles are
+     *   staged. It is deleted once the files have been imported. (not null)
+     */
+    public RyaBulkLoader(final Connector connector, final AccumuloRdfConfiguration conf, final FileSystem fs, final Path workDir) {
+        this.connector = requireNonNull(connector);
+        this.conf = requireNonNull(conf);
+        this.fs = requireNonNull(fs);
+        this.workDir = requireNonNull(workDir);
+    }
+
+    /**
+     * Writes statements to the {@link RyaBulkWriter} of a bulk load, for sources
+     * such as RDF parsers that push statements rather than iterate over them.
+     */
+    public interface StatementSource {
+        /**
+         * @param writer - The writer to write every statement of the source to. (not null)
+         * @throws IOException The statements could not be read or written.
+         */
+        void writeTo(RyaBulkWriter writer) throws IOException;
+    }
+
+    /**
+     * Writes the statements to RFiles and imports them into the core tables.
+     *
+     * @param statements - The statements to load. (not null)
+     * @return The number of statements that were loaded.
+     * @throws RyaDAOException The statements could not be written or imported.
+     */
+    public long load(final Iterator<RyaStatement> statements) throws RyaDAOException {
+        requireNonNull(statements);
+        return load(writer -> {
+            while (statements.hasNext()) {
+                writer.write(statements.next());
+            }
+        });
+    }
+
+    /**
+     * Writes the statements of a source to RFiles and imports them into the core tables.
+     *
+     * @param source - Writes the statements to load. (not null)
+     * @return The number of statements that were loaded.
+     * @throws RyaDAOException The statements could not be written or imported.
+     */
+    public long load(final StatementSource source) throws RyaDAOException {
+        requireNonNull(source);
+        // the DAO creates the tables and serializes rows the same way it would for a normal write
+        final AccumuloRyaDAO dao = new AccumuloRyaDAO();
+        dao.setConnector(connector);
+        dao.setConf(conf);
+        dao.init();
+        try {
+            if (fs.exists(workDir)) {
+                throw new RyaDAOException("The bulk load work directory " + workDir + " already exists.");
+            }
+            final RyaBulkWriter writer = new RyaBulkWriter(dao.getRyaTripleContext(), fs, workDir, "statements",
+                    new File(conf.getBulkLocalDir()), conf.getBulkSortBufferSize());
+            try {
+                source.writeTo(writer);
+            } finally {
+                writer.close();
+            }
+            importDirectory(connector, conf.getTableLayoutStrategy(), fs, workDir);
+            fs.delete(workDir, true);
+            return writer.getWritten();
+        } catch (IOException | AccumuloException | AccumuloSecurityException | TableExistsException | TableNotFoundException e) {
+            throw new RyaDAOException("Could not bulk load the statements.", e);
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    /**
+     * Bulk imports the RFiles that {@link RyaBulkWriter}s wrote under a directory
+     * into the core tables, creating any table that does not exist yet.
+     *
+     * @param connector - Connects to the Accumulo instance Rya is installed in. (not null)
+     * @param tableLayoutStrategy - Names the core tables. (not null)
+     * @param fs - The file system that holds the directory. (not null)
+     * @param outputDir - The directory the writers wrote their RFiles under. (not null)
+     * @throws IOException Some of the files could not be imported.
+     * @throws AccumuloException The files could not be imported.
+     * @throws AccumuloSecurityException The user may not import files into the tables.
+     * @throws TableExistsException A table was created while it was being created here.
+     * @throws TableNotFoundException A table was deleted while the files were imported.
+     */
+    public static void importDirectory(final Connector connector, final TableLayoutStrategy tableLayoutStrategy,
+            final FileSystem fs, final Path outputDir)
+            throws IOException, AccumuloException, AccumuloSecurityException, TableExistsException, TableNotFoundException {
+        final TableOperations tableOperations = connector.tableOperations();
+        for (final TABLE_LAYOUT layout : LAYOUTS) {
+            final Path layoutDir = RyaBulkWriter.getLayoutDir(outputDir, layout);
+            if (!fs.exists(layoutDir)) {
+                continue;
+            }
+            final String table = RdfCloudTripleStoreUtils.layoutToTable(layout, tableLayoutStrategy);
+            AccumuloRdfUtils.createTableIfNotExist(tableOperations, table);
+
+            final Path failuresDir = new Path(outputDir, layoutDir.getName() + "_failures");
+            fs.mkdirs(failuresDir);
+            logger.info("Importing the RFiles in " + layoutDir + " into " + table);
+            tableOperations.importDirectory(table, layoutDir.toString(), failuresDir.toString(), false);
+
+            final FileStatus[] failures = fs.listStatus(failuresDir);
+            if (failures != null && failures.length > 0) {
+                throw new IOException(failures.length + " RFiles could not be imported into " + table
+                        + ". They were moved to " + failuresDir + ".");
+            }
+        }
+    }
+}
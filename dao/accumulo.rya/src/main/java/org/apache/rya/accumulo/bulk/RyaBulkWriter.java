@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.bulk;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.rya.accumulo.AccumuloRdfConstants.EMPTY_CV;
+import static org.apache.rya.accumulo.AccumuloRdfConstants.EMPTY_VALUE;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.EMPTY_TEXT;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.triple.TripleRow;
+import org.apache.rya.api.resolver.triple.TripleRowResolverException;
+
+/**
+ * Writes statements to sorted RFiles that can be bulk imported into the SPO,
+ * PO, and OSP tables of a Rya instance. Each table's rows are sorted with an
+ * external merge sort on local disk, so the number of statements one writer
+ * can handle is bounded by disk space rather than by memory.
+ * <p>
+ * The files are written when the writer is closed. The rows of each table are
+ * written to {@code <outputDir>/<layout>/<fileName>.rf}; see
+ * {@link #getLayoutDir(Path, TABLE_LAYOUT)}.
+ */
+public class RyaBulkWriter implements Closeable {
+    private static final TABLE_LAYOUT[] LAYOUTS = { TABLE_LAYOUT.SPO, TABLE_LAYOUT.PO, TABLE_LAYOUT.OSP };
+
+    private final RyaTripleContext ryaContext;
+    private final FileSystem fs;
+    private final Path outputDir;
+    private final String fileName;
+    private final Map<TABLE_LAYOUT, ExternalKeyValueSorter> sorters = new EnumMap<>(TABLE_LAYOUT.class);
+
+    private long written = 0;
+
+    /**
+     * @param ryaContext - Serializes statements into the rows of each table. (not null)
+     * @param fs - The file system the RFiles are written to. (not null)
+     * @param outputDir - The directory the RFiles are written under. (not null)
+     * @param fileName - The name of the RFile that is written for each table,
+     *   without its extension. (not null)
+     * @param localDir - The local directory sorted rows are spilled to. (not null)
+     * @param sortBufferBytes - The number of bytes of each table's rows that are
+     *   sorted in memory before they are spilled.
+     */
+    public RyaBulkWriter(final RyaTripleContext ryaContext, final FileSystem fs, final Path outputDir, final String fileName,
+            final File localDir, final long sortBufferBytes) {
+        this.ryaContext = requireNonNull(ryaContext);
+        this.fs = requireNonNull(fs);
+        this.outputDir = requireNonNull(outputDir);
+        this.fileName = requireNonNull(fileName);
+        requireNonNull(localDir);
+        for (final TABLE_LAYOUT layout : LAYOUTS) {
+            sorters.put(layout, new ExternalKeyValueSorter(localDir, sortBufferBytes));
+        }
+    }
+
+    /**
+     * @param outputDir - The directory a writer wrote its RFiles under. (not null)
+     * @param layout - The table layout whose RFiles are returned. (not null)
+     * @return The directory that holds the RFiles of the table with the layout.
+     */
+    public static Path getLayoutDir(final Path outputDir, final TABLE_LAYOUT layout) {
+        return new Path(outputDir, layout.name().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Adds a statement's rows to the RFiles.
+     *
+     * @param statement - The statement to write. (not null)
+     * @throws IOException The statement could not be serialized or its rows
+     *   could not be spilled to disk.
+     */
+    public void write(final RyaStatement statement) throws IOException {
+        final Map<TABLE_LAYOUT, TripleRow> rows;
+        try {
+            rows = ryaContext.serializeTriple(statement);
+        } catch (final TripleRowResolverException e) {
+            throw new IOException(e);
+        }
+        for (final TABLE_LAYOUT layout : LAYOUTS) {
+            final TripleRow row = rows.get(layout);
+            sorters.get(layout).add(toKey(row), row.getValue() == null ? EMPTY_VALUE : new Value(row.getValue()));
+        }
+        written++;
+    }
+
+    private static Key toKey(final TripleRow row) {
+        final byte[] columnFamily = row.getColumnFamily();
+        final byte[] columnQualifier = row.getColumnQualifier();
+        final byte[] columnVisibility = row.getColumnVisibility();
+        // bulk imported files keep their timestamps, so every row needs one
+        final Long timestamp = row.getTimestamp();
+        return new Key(new Text(row.getRow()),
+                columnFamily == null ? EMPTY_TEXT : new Text(columnFamily),
+                columnQualifier == null ? EMPTY_TEXT : new Text(columnQualifier),
+                columnVisibility == null ? new Text(EMPTY_CV.getExpression()) : new Text(columnVisibility),
+                timestamp == null ? System.currentTimeMillis() : timestamp);
+    }
+
+    /**
+     * @return The number of statements that have been written.
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Sorts the rows of each table and writes them to its RFile. A table that has
+     * no rows does not get a file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (written > 0) {
+                for (final TABLE_LAYOUT layout : LAYOUTS) {
+                    writeRFile(layout);
+                }
+            }
+        } finally {
+            for (final ExternalKeyValueSorter sorter : sorters.values()) {
+                sorter.close();
+            }
+        }
+    }
+
+    private void writeRFile(final TABLE_LAYOUT layout) throws IOException {
+        final Path file = new Path(getLayoutDir(outputDir, layout), fileName + "." + RFile.EXTENSION);
+        final FileSKVWriter writer = FileOperations.getInstance().openWriter(file.toString(), fs, fs.getConf(),
+                AccumuloConfiguration.getDefaultConfiguration());
+        try {
+            writer.startDefaultLocalityGroup();
+            final Iterator<Map.Entry<Key, Value>> rows = sorters.get(layout).sorted();
+            Key last = null;
+            while (rows.hasNext()) {
+                final Map.Entry<Key, Value> row = rows.next();
+                // a statement that was written more than once only needs one row
+                if (!row.getKey().equals(last)) {
+                    writer.append(row.getKey(), row.getValue());
+                    last = row.getKey();
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.dictionary;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.ConditionalWriter;
+import org.apache.accumulo.core.client.ConditionalWriter.Status;
+import org.apache.accumulo.core.client.ConditionalWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Condition;
+import org.apache.accumulo.core.data.ConditionalMutation;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+import org.apache.rya.api.RdfCloudTripleStoreConstants;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionaryException;
+import org.apache.rya.api.resolver.triple.dictionary.TermIds;
+
+import com.google.common.primitives.Bytes;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A {@link TermDictionary} that is stored in an Accumulo table.
+ * <p>
+ * The table holds three kinds of rows:
+ * <ul>
+ *   <li>Term rows map a serialized term to its {@link TermIds} encoded ID.</li>
+ *   <li>ID rows map an encoded ID back to its serialized term.</li>
+ *   <li>A single counter row holds the highest ID that has been reserved by any writer.</li>
+ * </ul>
+ * Writers reserve blocks of IDs by conditionally incrementing the counter row,
+ * so IDs are handed out without coordinating with other writers for every new
+ * term. A term is assigned an ID with a conditional mutation that only succeeds
+ * if no other writer assigned it one first. The ID row is written before the
+ * term row, so any ID that can be looked up can also be resolved.
+ * <p>
+ * Dictionary rows are not labelled with a visibility, so every user that may
+ * read this table may read every term that has been stored in the Rya instance.
+ */
+@DefaultAnnotation(NonNull.class)
+public class AccumuloTermDictionary implements TermDictionary, AutoCloseable {
+    private static final Logger log = Logger.getLogger(AccumuloTermDictionary.class);
+
+    private static final byte[] TERM_ROW_PREFIX = new byte[] { 't' };
+    private static final byte[] ID_ROW_PREFIX = new byte[] { 'i' };
+    private static final Text COUNTER_ROW = new Text("c");
+    private static final Text COL_FAMILY = new Text("dict");
+    private static final Text COL_QUALIFIER = new Text("");
+
+    /**
+     * The number of IDs a writer reserves each time it runs out.
+     */
+    public static final long DEFAULT_BLOCK_SIZE = 1000L;
+
+    private final Connector connector;
+    private final String tableName;
+    private final long blockSize;
+    private final ConditionalWriter writer;
+
+    // The range of IDs this writer has reserved and not yet handed out.
+    private long nextId = 1L;
+    private long lastReservedId = 0L;
+
+    /**
+     * Constructs an instance of {@link AccumuloTermDictionary}.
+     *
+     * @param connector - Connects to the Accumulo instance that hosts the dictionary. (not null)
+     * @param tableName - The name of the dictionary's table. It must already exist. (not null)
+     * @param blockSize - The number of IDs reserved each time this writer runs out. (positive)
+     * @throws TableNotFoundException The dictionary's table does not exist.
+     */
+    public AccumuloTermDictionary(final Connector connector, final String tableName, final long blockSize) throws TableNotFoundException {
+        this.connector = requireNonNull(connector);
+        this.tableName = requireNonNull(tableName);
+        this.blockSize = blockSize;
+        writer = connector.createConditionalWriter(tableName, new ConditionalWriterConfig());
+    }
+
+    /**
+     * Make the Accumulo table name used by the term dictionary for a specific instance of Rya.
+     *
+     * @param ryaInstanceName - The name of the Rya instance the table name is for. (not null)
+     * @return The Accumulo table name used by the term dictionary for a specific instance of Rya.
+     */
+    public static String makeTableName(final String ryaInstanceName) {
+        requireNonNull(ryaInstanceName);
+        return ryaInstanceName + RdfCloudTripleStoreConstants.TBL_DICT_SUFFIX;
+    }
+
+    @Override
+    public long getOrCreateId(final byte[] term) throws TermDictionaryException {
+        requireNonNull(term);
+        final long existingId = getId(term);
+        if(existingId != NO_ID) {
+            return existingId;
+        }
+
+        try {
+            final long id = nextId();
+            final byte[] encodedId = TermIds.encode(id);
+
+            // Reserved IDs are never handed out twice, so the ID row must not exist yet.
+            final Status idStatus = writeIfAbsent(Bytes.concat(ID_ROW_PREFIX, encodedId), term);
+            if(idStatus != Status.ACCEPTED) {
+                throw new TermDictionaryException("Could not store the term for ID " + id + ". Status: " + idStatus);
+            }
+
+            // Another writer may have assigned the term an ID since it was looked up.
+            final Status termStatus = writeIfAbsent(Bytes.concat(TERM_ROW_PREFIX, term), encodedId);
+            if(termStatus == Status.ACCEPTED) {
+                return id;
+            }
+
+            final long winningId = getId(term);
+            if(winningId == NO_ID) {
+                throw new TermDictionaryException("Could not assign the term an ID. Status: " + termStatus);
+            }
+            log.debug("Term was concurrently assigned ID " + winningId + ", abandoning ID " + id);
+            return winningId;
+        } catch (final AccumuloException | AccumuloSecurityException e) {
+            throw new TermDictionaryException("Could not assign the term an ID.", e);
+        }
+    }
+
+    @Override
+    public long getId(final byte[] term) throws TermDictionaryException {
+        requireNonNull(term);
+        final byte[] value = readValue(Bytes.concat(TERM_ROW_PREFIX, term));
+        return value == null ? NO_ID : TermIds.decode(value, 1)[0];
+    }
+
+    @Override
+    public byte[] getTerm(final long id) throws TermDictionaryException {
+        return readValue(Bytes.concat(ID_ROW_PREFIX, TermIds.encode(id)));
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    private synchronized long nextId() throws AccumuloException, AccumuloSecurityException, TermDictionaryException {
+        if(nextId > lastReservedId) {
+            reserveBlock();
+        }
+        return nextId++;
+    }
+
+    private void reserveBlock() throws AccumuloException, AccumuloSecurityException, TermDictionaryException {
+        while(true) {
+            final byte[] current = readValue(COUNTER_ROW.copyBytes());
+            final long lastId = current == null ? 0L : Long.parseLong(new String(current, StandardCharsets.UTF_8));
+            final long newLastId = lastId + blockSize;
+
+            final Condition condition = new Condition(COL_FAMILY, COL_QUALIFIER);
+            if(current != null) {
+                condition.setValue(current);
+            }
+            final ConditionalMutation mutation = new ConditionalMutation(COUNTER_ROW);
+            mutation.addCondition(condition);
+            mutation.put(COL_FAMILY, COL_QUALIFIER, new Value(Long.toString(newLastId).getBytes(StandardCharsets.UTF_8)));
+
+            final Status status = writer.write(mutation).getStatus();
+            switch(status) {
+                case ACCEPTED:
+                    nextId = lastId + 1;
+                    lastReservedId = newLastId;
+                    return;
+                case REJECTED:
+                case UNKNOWN:
+                    // Another writer reserved a block first, or the write may have been lost. Try again.
+                    break;
+                default:
+                    throw new TermDictionaryException("Could not reserve a block of term IDs. Status: " + status);
+            }
+        }
+    }
+
+    private Status writeIfAbsent(final byte[] row, final byte[] value) throws AccumuloException, AccumuloSecurityException {
+        final ConditionalMutation mutation = new ConditionalMutation(row);
+        mutation.addCondition(new Condition(COL_FAMILY, COL_QUALIFIER));
+        mutation.put(COL_FAMILY, COL_QUALIFIER, new Value(value));
+        return writer.write(mutation).getStatus();
+    }
+
+    private byte[] readValue(final byte[] row) throws TermDictionaryException {
+        try {
+            final Scanner scanner = connector.createScanner(tableName, Authorizations.EMPTY);
+            scanner.setRange(new Range(new Text(row)));
+            scanner.fetchColumn(COL_FAMILY, COL_QUALIFIER);
+            final Iterator<Entry<Key, Value>> it = scanner.iterator();
+            return it.hasNext() ? it.next().getValue().get() : null;
+        } catch (final TableNotFoundException e) {
+            throw new TermDictionaryException("Could not read from the term dictionary table " + tableName, e);
+        }
+    }
+}
@@ -22,17 +22,28 @@ package org.apache.rya.accumulo.query;
 import static org.apache.rya.api.RdfCloudTripleStoreUtils.layoutToTable;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.data.Column;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
@@ -42,6 +53,7 @@ import org.apache.accumulo.core.iterators.user.TimestampFilter;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.io.Text;
 import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.dictionary.AccumuloTermDictionary;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreConstants;
 import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
@@ -54,41 +66,94 @@ import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.query.BatchRyaQuery;
 import org.apache.rya.api.persist.query.RyaQuery;
 import org.apache.rya.api.persist.query.RyaQueryEngine;
+import org.apache.rya.api.persist.query.StarJoinQueryEngine;
 import org.apache.rya.api.query.strategy.ByteRange;
 import org.apache.rya.api.query.strategy.TriplePatternStrategy;
 import org.apache.rya.api.resolver.RyaContext;
 import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.RyaTypeResolverException;
 import org.apache.rya.api.resolver.triple.TripleRowRegex;
+import org.apache.rya.api.resolver.triple.dictionary.CachingTermDictionary;
 import org.apache.rya.api.utils.CloseableIterableIteration;
+import org.calrissian.mango.collect.AbstractCloseableIterable;
 import org.calrissian.mango.collect.CloseableIterable;
 import org.calrissian.mango.collect.CloseableIterables;
 import org.calrissian.mango.collect.FluentCloseableIterable;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.FilterIteration;
+import org.eclipse.rdf4j.common.iteration.LimitIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 
 import com.google.common.base.Function;
+import com.google.common.base.Predicate;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterators;
 
 /**
  * Date: 7/17/12 Time: 9:28 AM
  */
-public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfiguration> {
+public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfiguration>, StarJoinQueryEngine<AccumuloRdfConfiguration> {
+
+    /**
+     * The number of subjects whose rows are read together when the subjects of a star join are not known.
+     */
+    public static final int STAR_JOIN_BATCH_SIZE = 1000;
 
     private AccumuloRdfConfiguration configuration;
     private Connector connector;
     private RyaTripleContext ryaContext;
+    // the term dictionary this engine opened itself, which it closes
+    private AccumuloTermDictionary termDictionary = null;
     private final Map<TABLE_LAYOUT, KeyValueToRyaStatementFunction> keyValueToRyaStatementFunctionMap = new HashMap<TABLE_LAYOUT, KeyValueToRyaStatementFunction>();
 
     public AccumuloRyaQueryEngine(Connector connector) {
         this(connector, new AccumuloRdfConfiguration());
     }
 
+    /**
+     * If the configuration is for a dictionary encoded instance, the engine opens
+     * the instance's term dictionary and closes it when the engine is closed.
+     *
+     * @param connector - Connects to the Accumulo instance that hosts the core tables.
+     * @param conf - Configures the queries.
+     */
     public AccumuloRyaQueryEngine(Connector connector, AccumuloRdfConfiguration conf) {
+        this(connector, conf, openTermDictionary(connector, conf));
+    }
+
+    private AccumuloRyaQueryEngine(Connector connector, AccumuloRdfConfiguration conf, AccumuloTermDictionary termDictionary) {
+        this(connector, conf, termDictionary == null ? RyaTripleContext.getInstance(conf)
+                : new RyaTripleContext(new CachingTermDictionary(termDictionary, conf.getDictionaryCacheSize())));
+        this.termDictionary = termDictionary;
+    }
+
+    /**
+     * @return The term dictionary of a dictionary encoded instance, or null if
+     *   the instance is not dictionary encoded.
+     */
+    private static AccumuloTermDictionary openTermDictionary(Connector connector, AccumuloRdfConfiguration conf) {
+        if (!conf.isDictionaryEncoded()) {
+            return null;
+        }
+        String tableName = AccumuloTermDictionary.makeTableName(conf.getTablePrefix());
+        try {
+            return new AccumuloTermDictionary(connector, tableName, AccumuloTermDictionary.DEFAULT_BLOCK_SIZE);
+        } catch (TableNotFoundException e) {
+            throw new IllegalArgumentException("The term dictionary table " + tableName + " of the dictionary encoded Rya instance does not exist.", e);
+        }
+    }
+
+    /**
+     * @param connector - Connects to the Accumulo instance that hosts the core tables.
+     * @param conf - Configures the queries.
+     * @param ryaContext - Defines how triples are laid out within the core tables.
+     */
+    public AccumuloRyaQueryEngine(Connector connector, AccumuloRdfConfiguration conf, RyaTripleContext ryaContext) {
         this.connector = connector;
         this.configuration = conf;
-        ryaContext = RyaTripleContext.getInstance(conf);
+        this.ryaContext = ryaContext;
         keyValueToRyaStatementFunctionMap.put(TABLE_LAYOUT.SPO, new KeyValueToRyaStatementFunction(TABLE_LAYOUT.SPO, ryaContext));
         keyValueToRyaStatementFunctionMap.put(TABLE_LAYOUT.PO, new KeyValueToRyaStatementFunction(TABLE_LAYOUT.PO, ryaContext));
         keyValueToRyaStatementFunctionMap.put(TABLE_LAYOUT.OSP, new KeyValueToRyaStatementFunction(TABLE_LAYOUT.OSP, ryaContext));
@@ -124,30 +189,14 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
         Integer maxRanges = conf.getMaxRangesForScanner();
         Integer numThreads = conf.getNumThreads();
 
-        // TODO: cannot span multiple tables here
         try {
-            Collection<Range> ranges = new HashSet<Range>();
-            RangeBindingSetEntries rangeMap = new RangeBindingSetEntries();
-            TABLE_LAYOUT layout = null;
-            RyaIRI context = null;
-            TriplePatternStrategy strategy = null;
-            RyaIRI columnFamily = null;
-            boolean columnFamilySet = false;
+            // Each statement is scanned from the table that best fits its pattern, so one batch may span several tables.
+            Map<TABLE_LAYOUT, LayoutScan> scans = new EnumMap<TABLE_LAYOUT, LayoutScan>(TABLE_LAYOUT.class);
             for (Map.Entry<RyaStatement, BindingSet> stmtbs : stmts) {
                 RyaStatement stmt = stmtbs.getKey();
-                context = stmt.getContext();
-                // if all RyaStatements for this query have the same context,
-                // then set the columnFamily to be that value so that Scanner can fetch
-                // only that ColumnFamily. Otherwise set columnFamily to null so that
-                // Scanner will fetch all ColumnFamilies.
-                if (!columnFamilySet) {
-                    columnFamily = context;
-                    columnFamilySet = true;
-                } else if (columnFamily != null && !columnFamily.equals(context)) {
-                    columnFamily = null;
-                }
+                RyaIRI context = stmt.getContext();
                 BindingSet bs = stmtbs.getValue();
-                strategy = ryaContext.retrieveStrategy(stmt);
+                TriplePatternStrategy strategy = ryaContext.retrieveStrategy(stmt);
                 if (strategy == null) {
                     throw new IllegalArgumentException("TriplePattern[" + stmt + "] not supported");
                 }
@@ -157,7 +206,7 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
 
                 // use range to set scanner
                 // populate scanner based on authorizations, ttl
-                layout = entry.getKey();
+                TABLE_LAYOUT layout = entry.getKey();
                 ByteRange byteRange = entry.getValue();
                 Range range = new Range(new Text(byteRange.getStart()), new Text(byteRange.getEnd()));
                 Range rangeMapRange = range;
@@ -190,39 +239,87 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
                 // process to allow for the Statement contexts to be compared
                 // with the BindingSet contexts
                 // See {@link RangeBindingSetEntries#containsKey}.
-                ranges.add(range);
-                rangeMap.put(rangeMapRange, bs);
+                LayoutScan scan = scans.get(layout);
+                if (scan == null) {
+                    scan = new LayoutScan(strategy);
+                    scans.put(layout, scan);
+                }
+                scan.add(range, context);
+                scan.rangeMap.put(rangeMapRange, bs);
             }
-            // no ranges. if strategy alone is null, it would be thrown in the loop above.
-            if (layout == null || strategy == null) {
+            // no ranges. if a strategy is null, it would be thrown in the loop above.
+            if (scans.isEmpty()) {
                 return null;
             }
             String regexSubject = conf.getRegexSubject();
             String regexPredicate = conf.getRegexPredicate();
             String regexObject = conf.getRegexObject();
-            TripleRowRegex tripleRowRegex = strategy.buildRegex(regexSubject, regexPredicate, regexObject, null, null);
-
-            String table = layoutToTable(layout, conf);
-            boolean useBatchScanner = ranges.size() > maxRanges;
-            RyaStatementBindingSetKeyValueIterator iterator = null;
-            if (useBatchScanner) {
-                ScannerBase scanner = connector.createBatchScanner(table, authorizations, numThreads);
-                ((BatchScanner) scanner).setRanges(ranges);
-                fillScanner(scanner, columnFamily, null, ttl, null, tripleRowRegex, conf);
-                iterator = new RyaStatementBindingSetKeyValueIterator(layout, ryaContext, scanner, rangeMap);
-            } else {
-                Scanner scannerBase = null;
-                Iterator<Map.Entry<Key, Value>>[] iters = new Iterator[ranges.size()];
-                int i = 0;
-                for (Range range : ranges) {
-                    scannerBase = connector.createScanner(table, authorizations);
-                    scannerBase.setRange(range);
-                    fillScanner(scannerBase, columnFamily, null, ttl, null, tripleRowRegex, conf);
-                    iters[i] = scannerBase.iterator();
-                    i++;
+            Predicate<RyaStatement> regexFilter = StatementRegexFilter.make(regexSubject, regexPredicate, regexObject);
+            boolean filterOnClient = false;
+
+            // When more than one table is involved, every table is read by a BatchScanner.
+            // Those start fetching as soon as their iterators are created, so the tables are
+            // scanned concurrently while the results of the first one are consumed.
+            boolean spansTables = scans.size() > 1;
+            List<RyaStatementBindingSetKeyValueIterator> iterators = new ArrayList<RyaStatementBindingSetKeyValueIterator>();
+            try {
+                for (Map.Entry<TABLE_LAYOUT, LayoutScan> layoutScan : scans.entrySet()) {
+                    TABLE_LAYOUT layout = layoutScan.getKey();
+                    LayoutScan scan = layoutScan.getValue();
+                    TripleRowRegex tripleRowRegex = scan.strategy.buildRegex(regexSubject, regexPredicate, regexObject, null, null);
+                    filterOnClient |= tripleRowRegex == null && regexFilter != null;
+                    String table = layoutToTable(layout, conf);
+                    boolean useBatchScanner = spansTables || scan.ranges.size() > maxRanges;
+                    if (useBatchScanner) {
+                        ScannerBase scanner = connector.createBatchScanner(table, authorizations, numThreads);
+                        ((BatchScanner) scanner).setRanges(scan.ranges);
+                        fillScanner(scanner, scan.columnFamily, null, ttl, null, tripleRowRegex, conf);
+                        iterators.add(new RyaStatementBindingSetKeyValueIterator(layout, ryaContext, scanner, scan.rangeMap));
+                    } else {
+                        Scanner scannerBase = null;
+                        Iterator<Map.Entry<Key, Value>>[] iters = new Iterator[scan.ranges.size()];
+                        int i = 0;
+                        for (Range range : scan.ranges) {
+                            scannerBase = connector.createScanner(table, authorizations);
+                            scannerBase.setRange(range);
+                            fillScanner(scannerBase, scan.columnFamily, null, ttl, null, tripleRowRegex, conf);
+                            iters[i] = scannerBase.iterator();
+                            i++;
+                        }
+                        iterators.add(new RyaStatementBindingSetKeyValueIterator(layout, Iterators.concat(iters), scan.rangeMap, ryaContext));
+                    }
+                }
+            } catch (Exception e) {
+                for (RyaStatementBindingSetKeyValueIterator iterator : iterators) {
+                    iterator.close();
                 }
-                iterator = new RyaStatementBindingSetKeyValueIterator(layout, Iterators.concat(iters), rangeMap, ryaContext);
+                throw e;
             }
+
+            if (filterOnClient) {
+                // the regular expressions could not be applied on the tablet servers, so the results are filtered before they are limited
+                CloseableIteration<Map.Entry<RyaStatement, BindingSet>, RyaDAOException> iterator = iterators.size() == 1
+                        ? iterators.get(0) : new MultiLayoutBindingSetIterator(iterators);
+                final Predicate<RyaStatement> filter = regexFilter;
+                iterator = new FilterIteration<Map.Entry<RyaStatement, BindingSet>, RyaDAOException>(iterator) {
+                    @Override
+                    protected boolean accept(Map.Entry<RyaStatement, BindingSet> entry) {
+                        return filter.apply(entry.getKey());
+                    }
+                };
+                if (maxResults != null) {
+                    iterator = new LimitIteration<Map.Entry<RyaStatement, BindingSet>, RyaDAOException>(iterator, maxResults);
+                }
+                return iterator;
+            }
+            if (iterators.size() == 1) {
+                RyaStatementBindingSetKeyValueIterator iterator = iterators.get(0);
+                if (maxResults != null) {
+                    iterator.setMaxResults(maxResults);
+                }
+                return iterator;
+            }
+            MultiLayoutBindingSetIterator iterator = new MultiLayoutBindingSetIterator(iterators);
             if (maxResults != null) {
                 iterator.setMaxResults(maxResults);
             }
@@ -313,6 +410,11 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
 
             FluentCloseableIterable<RyaStatement> results = FluentCloseableIterable.from(new ScannerBaseCloseableIterable(scanner))
                     .transform(keyValueToRyaStatementFunctionMap.get(layout));
+            Predicate<RyaStatement> regexFilter = StatementRegexFilter.make(regexSubject, regexPredicate, regexObject);
+            if (tripleRowRegex == null && regexFilter != null) {
+                // the table layout could not apply the regular expressions on the tablet servers
+                results = results.filter(regexFilter);
+            }
             if (maxResults != null) {
                 results = results.limit(maxResults.intValue());
             }
@@ -343,15 +445,15 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
         TableLayoutStrategy tableLayoutStrategy = configuration.getTableLayoutStrategy();
         int maxRanges = ryaQuery.getMaxRanges();
 
-        // TODO: cannot span multiple tables here
         try {
-            Collection<Range> ranges = new HashSet<Range>();
-            TABLE_LAYOUT layout = null;
-            RyaIRI context = null;
-            TriplePatternStrategy strategy = null;
+            // Statements are grouped by the table that best fits their pattern and by their
+            // context, qualifier, and object type, so that each group is filtered the same
+            // way a query for one of its statements would be.
+            Map<TABLE_LAYOUT, Map<ScanKey, LayoutScan>> scans = new EnumMap<TABLE_LAYOUT, Map<ScanKey, LayoutScan>>(TABLE_LAYOUT.class);
             for (RyaStatement stmt : stmts) {
-                context = stmt.getContext(); // TODO: This will be overwritten
-                strategy = ryaContext.retrieveStrategy(stmt);
+                RyaIRI context = stmt.getContext();
+                ScanKey key = new ScanKey(context, stmt.getQualifer(), stmt.getObject());
+                TriplePatternStrategy strategy = ryaContext.retrieveStrategy(stmt);
                 if (strategy == null) {
                     throw new IllegalArgumentException("TriplePattern[" + stmt + "] not supported");
                 }
@@ -361,46 +463,180 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
 
                 // use range to set scanner
                 // populate scanner based on authorizations, ttl
-                layout = entry.getKey();
+                TABLE_LAYOUT layout = entry.getKey();
                 ByteRange byteRange = entry.getValue();
                 Range range = new Range(new Text(byteRange.getStart()), new Text(byteRange.getEnd()));
-                ranges.add(range);
+                Map<ScanKey, LayoutScan> contextScans = scans.get(layout);
+                if (contextScans == null) {
+                    contextScans = new HashMap<ScanKey, LayoutScan>();
+                    scans.put(layout, contextScans);
+                }
+                LayoutScan scan = contextScans.get(key);
+                if (scan == null) {
+                    scan = new LayoutScan(strategy);
+                    contextScans.put(key, scan);
+                }
+                scan.add(range, context);
             }
             // no ranges
-            if (layout == null || strategy == null)
+            if (scans.isEmpty())
                 throw new IllegalArgumentException("No table layout specified, or no statements.");
 
-            final TripleRowRegex tripleRowRegex = strategy.buildRegex(regexSubject, regexPredicate, regexObject, null, null);
-
-            final String table = layoutToTable(layout, tableLayoutStrategy);
-            boolean useBatchScanner = ranges.size() > maxRanges;
-            FluentCloseableIterable<RyaStatement> results = null;
-            if (useBatchScanner) {
-                BatchScanner scanner = connector.createBatchScanner(table, authorizations, numQueryThreads);
-                scanner.setRanges(ranges);
-                fillScanner(scanner, context, null, ttl, null, tripleRowRegex, ryaQuery.getConf());
-                results = FluentCloseableIterable.from(new ScannerBaseCloseableIterable(scanner))
-                        .transform(keyValueToRyaStatementFunctionMap.get(layout));
-            } else {
-                final RyaIRI fcontext = context;
-                final RdfCloudTripleStoreConfiguration fconf = ryaQuery.getConf();
-                FluentIterable<RyaStatement> fluent = FluentIterable.from(ranges)
-                        .transformAndConcat(new Function<Range, Iterable<Map.Entry<Key, Value>>>() {
-                            @Override
-                            public Iterable<Map.Entry<Key, Value>> apply(Range range) {
-                                try {
-                                    Scanner scanner = connector.createScanner(table, authorizations);
-                                    scanner.setRange(range);
-                                    fillScanner(scanner, fcontext, null, ttl, null, tripleRowRegex, fconf);
-                                    return scanner;
-                                } catch (Exception e) {
-                                    throw new RuntimeException(e);
-                                }
+            // Each table is read by at most one scanner. When more than one table is involved,
+            // every table is read by a BatchScanner that is started right away, so the tables
+            // are scanned concurrently while the results of the first one are consumed.
+            boolean concurrent = scans.size() > 1;
+            List<CloseableIterable<RyaStatement>> layoutResults = new ArrayList<CloseableIterable<RyaStatement>>();
+            Predicate<RyaStatement> regexFilter = StatementRegexFilter.make(regexSubject, regexPredicate, regexObject);
+            boolean filterOnClient = false;
+            try {
+                for (Map.Entry<TABLE_LAYOUT, Map<ScanKey, LayoutScan>> layoutScans : scans.entrySet()) {
+                    TABLE_LAYOUT layout = layoutScans.getKey();
+                    String table = layoutToTable(layout, tableLayoutStrategy);
+                    List<ScanGroup> groups = new ArrayList<ScanGroup>();
+                    for (Map.Entry<ScanKey, LayoutScan> keyScan : layoutScans.getValue().entrySet()) {
+                        ScanKey key = keyScan.getKey();
+                        LayoutScan scan = keyScan.getValue();
+                        TripleRowRegex tripleRowRegex = scan.strategy.buildRegex(regexSubject, regexPredicate, regexObject, null,
+                                key.objectTypeInfo);
+                        filterOnClient |= tripleRowRegex == null && regexFilter != null;
+                        groups.add(new ScanGroup(key, scan, tripleRowRegex));
+                    }
+                    if (groups.size() == 1) {
+                        ScanGroup group = groups.get(0);
+                        layoutResults.add(scan(table, layout, group.scan, group.key.qualifier,
+                                concurrent || group.scan.ranges.size() > maxRanges, authorizations, ttl, currentTime,
+                                numQueryThreads, group.tripleRowRegex, ryaQuery.getConf()));
+                    } else {
+                        layoutResults.add(scanGroups(table, layout, groups, concurrent, authorizations, ttl, currentTime,
+                                numQueryThreads, ryaQuery.getConf()));
+                    }
+                }
+            } catch (Exception e) {
+                for (CloseableIterable<RyaStatement> layoutResult : layoutResults) {
+                    layoutResult.closeQuietly();
+                }
+                throw e;
+            }
+
+            FluentCloseableIterable<RyaStatement> results = layoutResults.size() == 1
+                    ? FluentCloseableIterable.from(layoutResults.get(0))
+                    : FluentCloseableIterable.from(CloseableIterables.chain(layoutResults));
+            if (filterOnClient) {
+                // the table layout could not apply the regular expressions on the tablet servers
+                results = results.filter(regexFilter);
+            }
+            if (maxResults != null) {
+                results = results.limit(maxResults.intValue());
+            }
+            return results;
+        } catch (Exception e) {
+            throw new RyaDAOException(e);
+        }
+    }
+
+    private CloseableIterable<RyaStatement> scan(final String table, TABLE_LAYOUT layout, LayoutScan scan, final String qualifier,
+            boolean useBatchScanner, final Authorizations authorizations, final Long ttl, final Long currentTime, Integer numQueryThreads,
+            final TripleRowRegex tripleRowRegex, final RdfCloudTripleStoreConfiguration conf) throws Exception {
+        if (useBatchScanner) {
+            BatchScanner scanner = connector.createBatchScanner(table, authorizations, numQueryThreads);
+            scanner.setRanges(scan.ranges);
+            fillScanner(scanner, scan.columnFamily, qualifier, ttl, currentTime, tripleRowRegex, conf);
+            return FluentCloseableIterable.from(new ScannerBaseCloseableIterable(scanner, true))
+                    .transform(keyValueToRyaStatementFunctionMap.get(layout));
+        }
+        final RyaIRI fcontext = scan.columnFamily;
+        FluentIterable<RyaStatement> fluent = FluentIterable.from(scan.ranges)
+                .transformAndConcat(new Function<Range, Iterable<Map.Entry<Key, Value>>>() {
+                    @Override
+                    public Iterable<Map.Entry<Key, Value>> apply(Range range) {
+                        try {
+                            Scanner scanner = connector.createScanner(table, authorizations);
+                            scanner.setRange(range);
+                            fillScanner(scanner, fcontext, qualifier, ttl, currentTime, tripleRowRegex, conf);
+                            return scanner;
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }).transform(keyValueToRyaStatementFunctionMap.get(layout));
+        return CloseableIterables.wrap(fluent);
+    }
+
+    /**
+     * Reads the ranges of several groups of a batch query from one table with a
+     * single BatchScanner. The groups filter their rows differently, so the tablet
+     * servers return every row within the ranges and the rows are matched against
+     * the groups on the client. A row that several groups match is returned once.
+     */
+    private CloseableIterable<RyaStatement> scanGroups(String table, TABLE_LAYOUT layout, final List<ScanGroup> groups,
+            boolean startScan, Authorizations authorizations, Long ttl, Long currentTime, Integer numQueryThreads,
+            RdfCloudTripleStoreConfiguration conf) throws Exception {
+        List<Range> ranges = new ArrayList<Range>();
+        for (ScanGroup group : groups) {
+            ranges.addAll(group.ranges);
+        }
+        BatchScanner scanner = connector.createBatchScanner(table, authorizations, numQueryThreads);
+        try {
+            scanner.setRanges(Range.mergeOverlapping(ranges));
+            fillScanner(scanner, null, null, ttl, currentTime, null, conf);
+        } catch (Exception e) {
+            scanner.close();
+            throw e;
+        }
+        return FluentCloseableIterable.from(new ScannerBaseCloseableIterable(scanner, startScan))
+                .filter(new Predicate<Map.Entry<Key, Value>>() {
+                    @Override
+                    public boolean apply(Map.Entry<Key, Value> entry) {
+                        for (ScanGroup group : groups) {
+                            if (group.matches(entry.getKey())) {
+                                return true;
                             }
-                        }).transform(keyValueToRyaStatementFunctionMap.get(layout));
+                        }
+                        return false;
+                    }
+                }).transform(keyValueToRyaStatementFunctionMap.get(layout));
+    }
+
+    /**
+     * The rows of a star join are read through a {@link StarJoinIterator} on the
+     * tablet servers, so the rows of subjects that do not join are not returned to
+     * the client. Only the rows of the subjects being checked are read from the SPO
+     * table. If no subjects are given, the subjects are found by reading the range of
+     * the PO table that one of the patterns covers, preferably one with an object,
+     * and they are checked {@value #STAR_JOIN_BATCH_SIZE} at a time.
+     */
+    @Override
+    public CloseableIterable<RyaStatement> queryStar(Collection<RyaStatement> patterns, Collection<RyaIRI> subjects,
+            AccumuloRdfConfiguration conf) throws RyaDAOException {
+        Preconditions.checkNotNull(subjects);
+        if (conf == null) {
+            conf = configuration;
+        }
+        Preconditions.checkArgument(!conf.isPrefixRowsWithHash() && !conf.isDictionaryEncoded(),
+                "Star joins need the SPO table to be sorted on the subjects themselves");
+        final StarJoinConstraints constraints;
+        try {
+            constraints = StarJoinConstraints.fromPatterns(patterns);
+        } catch (RyaTypeResolverException e) {
+            throw new RyaDAOException(e);
+        }
 
-                results = FluentCloseableIterable.from(CloseableIterables.wrap(fluent));
+        try {
+            FluentCloseableIterable<RyaStatement> results;
+            if (!subjects.isEmpty()) {
+                results = FluentCloseableIterable.from(scanStar(constraints, subjects, conf));
+            } else {
+                RyaStatement driver = patterns.iterator().next();
+                for (RyaStatement pattern : patterns) {
+                    if (pattern.getObject() != null) {
+                        driver = pattern;
+                        break;
+                    }
+                }
+                results = FluentCloseableIterable.from(scanStarCandidates(constraints, driver, conf));
             }
+            Long maxResults = conf.getLimit();
             if (maxResults != null) {
                 results = results.limit(maxResults.intValue());
             }
@@ -410,6 +646,95 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
         }
     }
 
+    /**
+     * Checks the subjects that match a pattern of a star join, a batch at a time.
+     */
+    private CloseableIterable<RyaStatement> scanStarCandidates(final StarJoinConstraints constraints, RyaStatement driver,
+            final AccumuloRdfConfiguration conf) throws RyaDAOException {
+        final boolean sortedOnSubject = driver.getObject() != null;
+        final CloseableIterable<RyaStatement> matches = query(RyaQuery.builder(
+                new RyaStatement(null, driver.getPredicate(), driver.getObject())).load(conf).build());
+        return new AbstractCloseableIterable<RyaStatement>() {
+            @Override
+            protected void doClose() throws IOException {
+                matches.close();
+            }
+
+            @Override
+            protected Iterator<RyaStatement> retrieveIterator() {
+                // the PO rows of a predicate and object are sorted on their subjects, so only a
+                // predicate's rows can repeat a subject that is not the previous one
+                final Iterator<RyaIRI> candidates = new AbstractIterator<RyaIRI>() {
+                    private final Iterator<RyaStatement> source = matches.iterator();
+                    private final Set<RyaIRI> seen = new HashSet<RyaIRI>();
+                    private RyaIRI previous = null;
+
+                    @Override
+                    protected RyaIRI computeNext() {
+                        while (source.hasNext()) {
+                            RyaIRI subject = source.next().getSubject();
+                            if (!subject.equals(previous) && (sortedOnSubject || seen.add(subject))) {
+                                previous = subject;
+                                return subject;
+                            }
+                        }
+                        return endOfData();
+                    }
+                };
+                return Iterators.concat(Iterators.transform(Iterators.partition(candidates, STAR_JOIN_BATCH_SIZE),
+                        new Function<List<RyaIRI>, Iterator<RyaStatement>>() {
+                            @Override
+                            public Iterator<RyaStatement> apply(List<RyaIRI> batch) {
+                                try {
+                                    return scanStar(constraints, batch, conf).iterator();
+                                } catch (Exception e) {
+                                    throw new RuntimeException(e);
+                                }
+                            }
+                        }));
+            }
+        };
+    }
+
+    /**
+     * Reads the rows of the subjects of a star join from the SPO table. Every subject
+     * touches the boundary of its range, so the tablet servers only drop the rows that
+     * match no pattern and the subjects are checked on the client.
+     */
+    private CloseableIterable<RyaStatement> scanStar(StarJoinConstraints constraints, Collection<RyaIRI> subjects,
+            AccumuloRdfConfiguration conf) throws Exception {
+        List<Range> ranges = new ArrayList<Range>();
+        for (RyaIRI subject : subjects) {
+            Map.Entry<TABLE_LAYOUT, ByteRange> entry = ryaContext.retrieveStrategy(TABLE_LAYOUT.SPO).defineRange(subject, null, null, null, null);
+            ByteRange byteRange = entry.getValue();
+            ranges.add(new Range(new Text(byteRange.getStart()), new Text(byteRange.getEnd())));
+        }
+
+        String table = layoutToTable(TABLE_LAYOUT.SPO, configuration.getTableLayoutStrategy());
+        BatchScanner scanner = connector.createBatchScanner(table, conf.getAuthorizations(), conf.getNumThreads());
+        List<Map.Entry<Key, Value>> rows = new ArrayList<Map.Entry<Key, Value>>();
+        try {
+            scanner.setRanges(Range.mergeOverlapping(ranges));
+            fillScanner(scanner, null, null, conf.getTtl(), null, null, conf);
+            scanner.addScanIterator(new IteratorSetting(20, "star", StarJoinIterator.class.getName(), constraints.toOptions()));
+            for (Map.Entry<Key, Value> row : scanner) {
+                rows.add(row);
+            }
+        } finally {
+            scanner.close();
+        }
+
+        // a BatchScanner interleaves the rows of its ranges, so they are sorted to bring the rows of each subject together
+        Collections.sort(rows, new Comparator<Map.Entry<Key, Value>>() {
+            @Override
+            public int compare(Map.Entry<Key, Value> a, Map.Entry<Key, Value> b) {
+                return a.getKey().compareTo(b.getKey());
+            }
+        });
+        return FluentCloseableIterable.from(new StarJoinCloseableIterable(CloseableIterables.wrap(rows), constraints))
+                .transform(keyValueToRyaStatementFunctionMap.get(TABLE_LAYOUT.SPO));
+    }
+
     protected void fillScanner(ScannerBase scanner, RyaIRI context, String qualifier, Long ttl, Long currentTime,
             TripleRowRegex tripleRowRegex, RdfCloudTripleStoreConfiguration conf) throws IOException {
         if (context != null && qualifier != null) {
@@ -445,6 +770,183 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
         }
     }
 
+    /**
+     * Matches decoded statements against a query's subject, predicate, and object
+     * regular expressions. It is used when the table layout can not build a
+     * {@link TripleRowRegex} for the tablet servers, such as for dictionary encoded
+     * tables, so those queries are answered by scanning the pattern's range and
+     * filtering the results instead of failing.
+     */
+    private static class StatementRegexFilter implements Predicate<RyaStatement> {
+        private final Pattern subject;
+        private final Pattern predicate;
+        private final Pattern object;
+
+        private StatementRegexFilter(Pattern subject, Pattern predicate, Pattern object) {
+            this.subject = subject;
+            this.predicate = predicate;
+            this.object = object;
+        }
+
+        /**
+         * @return A filter for the regular expressions, or null if none of them are set.
+         */
+        public static StatementRegexFilter make(String subject, String predicate, String object) {
+            if (subject == null && predicate == null && object == null) {
+                return null;
+            }
+            return new StatementRegexFilter(compile(subject), compile(predicate), compile(object));
+        }
+
+        private static Pattern compile(String regex) {
+            return regex == null ? null : Pattern.compile(regex);
+        }
+
+        @Override
+        public boolean apply(RyaStatement statement) {
+            return matches(subject, statement.getSubject()) && matches(predicate, statement.getPredicate())
+                    && matches(object, statement.getObject());
+        }
+
+        private static boolean matches(Pattern pattern, RyaType term) {
+            // like the RegExFilter a TripleRowRegex is applied with, the whole term must match
+            return pattern == null || (term != null && pattern.matcher(term.getData()).matches());
+        }
+    }
+
+    /**
+     * The ranges of a batch query that are scanned from a single table.
+     */
+    private static class LayoutScan {
+        private final TriplePatternStrategy strategy;
+        private final Collection<Range> ranges = new HashSet<Range>();
+        private final RangeBindingSetEntries rangeMap = new RangeBindingSetEntries();
+        // if all RyaStatements scanned from this table have the same context,
+        // then set the columnFamily to be that value so that Scanner can fetch
+        // only that ColumnFamily. Otherwise set columnFamily to null so that
+        // Scanner will fetch all ColumnFamilies.
+        private RyaIRI columnFamily = null;
+        private boolean columnFamilySet = false;
+
+        private LayoutScan(TriplePatternStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        private void add(Range range, RyaIRI context) {
+            if (!columnFamilySet) {
+                columnFamily = context;
+                columnFamilySet = true;
+            } else if (columnFamily != null && !columnFamily.equals(context)) {
+                columnFamily = null;
+            }
+            ranges.add(range);
+        }
+    }
+
+    /**
+     * Matches rows on the client the way {@link #fillScanner} filters the rows of
+     * one group of a batch query on the tablet servers, for groups that share a
+     * scanner with other groups.
+     */
+    private static class ScanGroup {
+        private final ScanKey key;
+        private final LayoutScan scan;
+        private final TripleRowRegex tripleRowRegex;
+        // the group's ranges, sorted and without overlaps
+        private final List<Range> ranges;
+        private final Text context;
+        private final Text qualifier;
+        private final Pattern qualifierPattern;
+        private final Pattern rowPattern;
+
+        private ScanGroup(ScanKey key, LayoutScan scan, TripleRowRegex tripleRowRegex) {
+            this.key = key;
+            this.scan = scan;
+            this.tripleRowRegex = tripleRowRegex;
+            this.ranges = Range.mergeOverlapping(scan.ranges);
+            this.context = scan.columnFamily == null ? null : new Text(scan.columnFamily.getData());
+            // like fillScanner, a qualifier is matched exactly within a context and as a regular expression otherwise
+            this.qualifier = key.qualifier != null && context != null ? new Text(key.qualifier) : null;
+            this.qualifierPattern = key.qualifier != null && context == null ? Pattern.compile(key.qualifier) : null;
+            this.rowPattern = tripleRowRegex == null ? null : Pattern.compile(tripleRowRegex.getRow());
+        }
+
+        private boolean matches(Key row) {
+            if (context != null && row.compareColumnFamily(context) != 0) {
+                return false;
+            }
+            if (qualifier != null && row.compareColumnQualifier(qualifier) != 0) {
+                return false;
+            }
+            if (qualifierPattern != null && !qualifierPattern.matcher(utf8(row.getColumnQualifierData().toArray())).matches()) {
+                return false;
+            }
+            if (rowPattern != null && !rowPattern.matcher(utf8(row.getRowData().toArray())).matches()) {
+                return false;
+            }
+            return inRanges(row);
+        }
+
+        private boolean inRanges(Key row) {
+            int low = 0;
+            int high = ranges.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                Range range = ranges.get(mid);
+                if (range.beforeStartKey(row)) {
+                    high = mid - 1;
+                } else if (range.afterEndKey(row)) {
+                    low = mid + 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String utf8(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The filters a statement of a batch query puts on the rows of its table
+     * besides their range. Statements whose filters are equal are scanned together.
+     */
+    private static class ScanKey {
+        private final RyaIRI context;
+        private final String qualifier;
+        private final byte[] objectTypeInfo;
+
+        private ScanKey(RyaIRI context, String qualifier, RyaType object) throws RyaTypeResolverException {
+            this.context = context;
+            this.qualifier = qualifier;
+            // only the type of the object filters rows that are within the statement's range
+            if (object instanceof RyaRange) {
+                object = ((RyaRange) object).getStart();
+            }
+            this.objectTypeInfo = object == null ? null : RyaContext.getInstance().serializeType(object)[1];
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ScanKey)) {
+                return false;
+            }
+            ScanKey other = (ScanKey) o;
+            return Objects.equals(context, other.context) && Objects.equals(qualifier, other.qualifier)
+                    && Arrays.equals(objectTypeInfo, other.objectTypeInfo);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hash(context, qualifier) + Arrays.hashCode(objectTypeInfo);
+        }
+    }
+
     @Override
     public void setConf(AccumuloRdfConfiguration conf) {
         this.configuration = conf;
@@ -457,5 +959,8 @@ public class AccumuloRyaQueryEngine implements RyaQueryEngine<AccumuloRdfConfigu
 
     @Override
     public void close() throws IOException {
+        if (termDictionary != null) {
+            termDictionary.close();
+        }
     }
 }
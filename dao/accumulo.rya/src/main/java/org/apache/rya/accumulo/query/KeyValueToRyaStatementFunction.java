@@ -24,10 +24,10 @@ import java.util.Map;
 import com.google.common.base.Function;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
+import org.apache.rya.accumulo.AccumuloRdfUtils;
 import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.resolver.RyaTripleContext;
-import org.apache.rya.api.resolver.triple.TripleRow;
 import org.apache.rya.api.resolver.triple.TripleRowResolverException;
 
 /**
@@ -51,13 +51,7 @@ public class KeyValueToRyaStatementFunction implements Function<Map.Entry<Key, V
         RyaStatement statement = null;
         try {
             statement = context.deserializeTriple(tableLayout,
-                    new TripleRow(key.getRowData().toArray(),
-                            key.getColumnFamilyData().toArray(),
-                            key.getColumnQualifierData().toArray(),
-                            key.getTimestamp(),
-                            key.getColumnVisibilityData().toArray(),
-                            (value != null) ? value.get() : null
-                    ));
+                    AccumuloRdfUtils.toTripleRow(key, value));
         } catch (TripleRowResolverException e) {
             throw new RuntimeException(e);
         }
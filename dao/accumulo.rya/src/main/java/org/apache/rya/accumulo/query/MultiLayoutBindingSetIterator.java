@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Joins the results of a batch of binding set queries that were split across
+ * the SPO, PO, and OSP tables. Each table's results are joined with the binding
+ * sets of its own statements by a {@link RyaStatementBindingSetKeyValueIterator};
+ * this iteration returns the results of each of those iterators in turn. The
+ * tables are expected to be scanned by {@link org.apache.accumulo.core.client.BatchScanner}s
+ * that were started when their iterators were created, so they fetch their
+ * results concurrently.
+ */
+public class MultiLayoutBindingSetIterator implements CloseableIteration<Map.Entry<RyaStatement, BindingSet>, RyaDAOException> {
+
+    private final List<RyaStatementBindingSetKeyValueIterator> iterators;
+    private final Iterator<RyaStatementBindingSetKeyValueIterator> remaining;
+    private RyaStatementBindingSetKeyValueIterator current;
+    private Long maxResults = -1L;
+    private boolean closed = false;
+
+    /**
+     * @param iterators - The iterators over each table's results. (not null)
+     */
+    public MultiLayoutBindingSetIterator(List<RyaStatementBindingSetKeyValueIterator> iterators) {
+        Preconditions.checkNotNull(iterators);
+        this.iterators = new ArrayList<>(iterators);
+        this.remaining = this.iterators.iterator();
+    }
+
+    @Override
+    public boolean hasNext() throws RyaDAOException {
+        if (closed || maxResults == 0) {
+            return false;
+        }
+        while (current == null || !current.hasNext()) {
+            if (!remaining.hasNext()) {
+                return false;
+            }
+            current = remaining.next();
+        }
+        return true;
+    }
+
+    @Override
+    public Map.Entry<RyaStatement, BindingSet> next() throws RyaDAOException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        // A table's iterator returns null when its remaining rows did not
+        // match any binding set, so move on to the next table's results.
+        Map.Entry<RyaStatement, BindingSet> next = current.next();
+        while (next == null && hasNext()) {
+            next = current.next();
+        }
+        if (next != null) {
+            maxResults--;
+        }
+        return next;
+    }
+
+    @Override
+    public void remove() throws RyaDAOException {
+        next();
+    }
+
+    @Override
+    public void close() throws RyaDAOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        RyaDAOException failure = null;
+        for (final RyaStatementBindingSetKeyValueIterator iterator : iterators) {
+            try {
+                iterator.close();
+            } catch (final RyaDAOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public Long getMaxResults() {
+        return maxResults;
+    }
+
+    public void setMaxResults(Long maxResults) {
+        this.maxResults = maxResults;
+    }
+}
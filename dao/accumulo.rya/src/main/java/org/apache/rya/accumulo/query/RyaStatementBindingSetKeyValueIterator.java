@@ -28,12 +28,12 @@ import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.ScannerBase;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
+import org.apache.rya.accumulo.AccumuloRdfUtils;
 import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
 import org.apache.rya.api.RdfCloudTripleStoreUtils;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.resolver.RyaTripleContext;
-import org.apache.rya.api.resolver.triple.TripleRow;
 import org.apache.rya.api.resolver.triple.TripleRowResolverException;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
@@ -115,8 +115,7 @@ public class RyaStatementBindingSetKeyValueIterator implements CloseableIteratio
                     Map.Entry<Key, Value> next = dataIterator.next();
                     Key key = next.getKey();
                     statement = ryaContext.deserializeTriple(tableLayout,
-                            new TripleRow(key.getRowData().toArray(), key.getColumnFamilyData().toArray(), key.getColumnQualifierData().toArray(),
-                                    key.getTimestamp(), key.getColumnVisibilityData().toArray(), next.getValue().get()));
+                            AccumuloRdfUtils.toTripleRow(key, next.getValue()));
                     if (next.getValue() != null) {
                         statement.setValue(next.getValue().get());
                     }
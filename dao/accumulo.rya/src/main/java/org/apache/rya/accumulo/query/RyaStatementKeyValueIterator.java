@@ -24,11 +24,11 @@ import java.util.Map;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
+import org.apache.rya.accumulo.AccumuloRdfUtils;
 import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.resolver.RyaTripleContext;
-import org.apache.rya.api.resolver.triple.TripleRow;
 import org.apache.rya.api.resolver.triple.TripleRowResolverException;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 
@@ -75,8 +75,7 @@ public class RyaStatementKeyValueIterator implements CloseableIteration<RyaState
             Map.Entry<Key, Value> next = dataIterator.next();
             Key key = next.getKey();
             RyaStatement statement = context.deserializeTriple(tableLayout,
-                    new TripleRow(key.getRowData().toArray(), key.getColumnFamilyData().toArray(), key.getColumnQualifierData().toArray(),
-                            key.getTimestamp(), key.getColumnVisibilityData().toArray(), next.getValue().get()));
+                    AccumuloRdfUtils.toTripleRow(key, next.getValue()));
             if (next.getValue() != null) {
                 statement.setValue(next.getValue().get());
             }
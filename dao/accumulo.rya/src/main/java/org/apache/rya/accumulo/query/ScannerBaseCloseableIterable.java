@@ -38,10 +38,24 @@ import java.util.Map;
 public class ScannerBaseCloseableIterable extends AbstractCloseableIterable<Map.Entry<Key, Value>> {
 
     protected ScannerBase scanner;
+    private Iterator<Map.Entry<Key, Value>> started;
 
     public ScannerBaseCloseableIterable(ScannerBase scanner) {
+        this(scanner, false);
+    }
+
+    /**
+     * @param scanner - The scanner whose results are iterated over.
+     * @param startScan - If {@code true}, the scan is started now instead of when
+     *   the iterable is first iterated over, so that a {@link org.apache.accumulo.core.client.BatchScanner}
+     *   can fetch results in the background while other scans are consumed.
+     */
+    public ScannerBaseCloseableIterable(ScannerBase scanner, boolean startScan) {
         Preconditions.checkNotNull(scanner);
         this.scanner = scanner;
+        if (startScan) {
+            started = scanner.iterator();
+        }
     }
 
     @Override
@@ -51,6 +65,11 @@ public class ScannerBaseCloseableIterable extends AbstractCloseableIterable<Map.
 
     @Override
     protected Iterator<Map.Entry<Key, Value>> retrieveIterator() {
+        if (started != null) {
+            final Iterator<Map.Entry<Key, Value>> iterator = started;
+            started = null;
+            return iterator;
+        }
         return scanner.iterator();
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.calrissian.mango.collect.AbstractCloseableIterable;
+import org.calrissian.mango.collect.CloseableIterable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * Checks the rows returned by a {@link StarJoinIterator} and drops the subjects
+ * that do not satisfy the join. The rows must be in key order, as they are when
+ * they are read with a {@link org.apache.accumulo.core.client.Scanner}, so that
+ * the rows of a subject that were split between tablets or seeks are adjacent.
+ */
+public class StarJoinCloseableIterable extends AbstractCloseableIterable<Map.Entry<Key, Value>> {
+
+    private final CloseableIterable<Map.Entry<Key, Value>> rows;
+    private final StarJoinConstraints constraints;
+
+    /**
+     * @param rows - The rows returned by a {@link StarJoinIterator}, in key order. (not null)
+     * @param constraints - The constraints the iterator was configured with. (not null)
+     */
+    public StarJoinCloseableIterable(final CloseableIterable<Map.Entry<Key, Value>> rows, final StarJoinConstraints constraints) {
+        this.rows = Preconditions.checkNotNull(rows);
+        this.constraints = Preconditions.checkNotNull(constraints);
+    }
+
+    @Override
+    protected void doClose() throws IOException {
+        rows.close();
+    }
+
+    @Override
+    protected Iterator<Map.Entry<Key, Value>> retrieveIterator() {
+        final PeekingIterator<Map.Entry<Key, Value>> source = Iterators.peekingIterator(rows.iterator());
+        return new AbstractIterator<Map.Entry<Key, Value>>() {
+            private final List<Map.Entry<Key, Value>> group = new ArrayList<Map.Entry<Key, Value>>();
+            private Iterator<Map.Entry<Key, Value>> groupIterator = group.iterator();
+
+            @Override
+            protected Map.Entry<Key, Value> computeNext() {
+                while (!groupIterator.hasNext()) {
+                    if (!source.hasNext()) {
+                        return endOfData();
+                    }
+                    readGroup();
+                }
+                return groupIterator.next();
+            }
+
+            private void readGroup() {
+                group.clear();
+                final ByteSequence subject = StarJoinConstraints.getSubject(source.peek().getKey().getRowData());
+                final BitSet matched = new BitSet(constraints.size());
+                while (source.hasNext()) {
+                    final ByteSequence row = source.peek().getKey().getRowData();
+                    if (!StarJoinConstraints.getSubject(row).equals(subject)) {
+                        break;
+                    }
+                    constraints.match(row, subject.length(), matched);
+                    group.add(source.next());
+                }
+                if (!constraints.isSatisfied(matched)) {
+                    group.clear();
+                }
+                groupIterator = group.iterator();
+            }
+        };
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.query;
+
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.DELIM_BYTE;
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.DELIM_BYTES;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.rya.api.domain.RyaRange;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.RyaContext;
+import org.apache.rya.api.resolver.RyaTypeResolverException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Bytes;
+
+/**
+ * The predicate and object constraints of a subject-star join over the SPO table.
+ * A row of the SPO table is {@code subject \0 predicate \0 object type}, so a
+ * constraint matches a row when the part of the row after the subject either
+ * equals {@code predicate \0 object type}, or starts with {@code predicate \0}
+ * if the constraint has no object.
+ */
+public class StarJoinConstraints {
+    private static final String PREDICATE_OPTION = "predicate.";
+    private static final String OBJECT_OPTION = "object.";
+
+    private final byte[][] predicates;
+    private final byte[][] objects;
+    private final byte[][] tails;
+
+    private StarJoinConstraints(final byte[][] predicates, final byte[][] objects) {
+        this.predicates = predicates;
+        this.objects = objects;
+        tails = new byte[predicates.length][];
+        for (int i = 0; i < predicates.length; i++) {
+            tails[i] = objects[i] == null ? Bytes.concat(predicates[i], DELIM_BYTES) : Bytes.concat(predicates[i], DELIM_BYTES, objects[i]);
+        }
+    }
+
+    /**
+     * @param patterns - The patterns the subjects must match. Each pattern must have
+     *   a predicate and may have an object, but must not have a subject or a context. (not null)
+     * @return The constraints of the patterns.
+     * @throws RyaTypeResolverException An object of the patterns could not be serialized.
+     */
+    public static StarJoinConstraints fromPatterns(final Collection<RyaStatement> patterns) throws RyaTypeResolverException {
+        Preconditions.checkNotNull(patterns);
+        Preconditions.checkArgument(!patterns.isEmpty(), "A star join needs at least one pattern");
+        final byte[][] predicates = new byte[patterns.size()][];
+        final byte[][] objects = new byte[patterns.size()][];
+        int i = 0;
+        for (final RyaStatement pattern : patterns) {
+            Preconditions.checkArgument(pattern.getSubject() == null && pattern.getContext() == null,
+                    "The patterns of a star join must not have a subject or a context: " + pattern);
+            Preconditions.checkArgument(pattern.getPredicate() != null && !(pattern.getPredicate() instanceof RyaRange),
+                    "The patterns of a star join must have a predicate: " + pattern);
+            final RyaType object = pattern.getObject();
+            Preconditions.checkArgument(!(object instanceof RyaRange), "The objects of a star join must not be ranges: " + pattern);
+            predicates[i] = pattern.getPredicate().getData().getBytes(StandardCharsets.UTF_8);
+            if (object != null) {
+                final byte[][] objectBytes = RyaContext.getInstance().serializeType(object);
+                objects[i] = Bytes.concat(objectBytes[0], objectBytes[1]);
+            }
+            i++;
+        }
+        return new StarJoinConstraints(predicates, objects);
+    }
+
+    /**
+     * @param options - The options written by {@link #toOptions()}. (not null)
+     * @return The constraints read from the options.
+     */
+    public static StarJoinConstraints fromOptions(final Map<String, String> options) {
+        Preconditions.checkNotNull(options);
+        final List<byte[]> predicates = new ArrayList<byte[]>();
+        final List<byte[]> objects = new ArrayList<byte[]>();
+        for (int i = 0; options.containsKey(PREDICATE_OPTION + i); i++) {
+            predicates.add(Base64.getDecoder().decode(options.get(PREDICATE_OPTION + i)));
+            final String object = options.get(OBJECT_OPTION + i);
+            objects.add(object == null ? null : Base64.getDecoder().decode(object));
+        }
+        Preconditions.checkArgument(!predicates.isEmpty(), "A star join needs at least one " + PREDICATE_OPTION + "0 option");
+        return new StarJoinConstraints(predicates.toArray(new byte[predicates.size()][]), objects.toArray(new byte[objects.size()][]));
+    }
+
+    /**
+     * @return The options that {@link #fromOptions(Map)} reads the constraints from.
+     */
+    public Map<String, String> toOptions() {
+        final Map<String, String> options = new HashMap<String, String>();
+        for (int i = 0; i < predicates.length; i++) {
+            options.put(PREDICATE_OPTION + i, Base64.getEncoder().encodeToString(predicates[i]));
+            if (objects[i] != null) {
+                options.put(OBJECT_OPTION + i, Base64.getEncoder().encodeToString(objects[i]));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @return The number of constraints.
+     */
+    public int size() {
+        return tails.length;
+    }
+
+    /**
+     * @param row - A row of the SPO table. (not null)
+     * @return The subject of the row.
+     */
+    public static ByteSequence getSubject(final ByteSequence row) {
+        for (int i = 0; i < row.length(); i++) {
+            if (row.byteAt(i) == DELIM_BYTE) {
+                return row.subSequence(0, i);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Marks the constraints that a row matches.
+     *
+     * @param row - A row of the SPO table. (not null)
+     * @param subjectLength - The length of the row's subject.
+     * @param matched - The constraints the row matches are set in this set. (not null)
+     * @return {@code true} if the row matches any constraint; otherwise {@code false}.
+     */
+    public boolean match(final ByteSequence row, final int subjectLength, final BitSet matched) {
+        final int tailOffset = subjectLength + 1;
+        final int tailLength = row.length() - tailOffset;
+        boolean any = false;
+        for (int i = 0; i < tails.length; i++) {
+            final byte[] tail = tails[i];
+            if (objects[i] == null ? tailLength >= tail.length : tailLength == tail.length) {
+                if (regionMatches(row, tailOffset, tail)) {
+                    matched.set(i);
+                    any = true;
+                }
+            }
+        }
+        return any;
+    }
+
+    private static boolean regionMatches(final ByteSequence row, final int offset, final byte[] bytes) {
+        if (row.isBackedByArray()) {
+            final byte[] array = row.getBackingArray();
+            final int start = row.offset() + offset;
+            for (int i = 0; i < bytes.length; i++) {
+                if (array[start + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return row.subSequence(offset, offset + bytes.length).equals(new ArrayByteSequence(bytes));
+    }
+
+    /**
+     * @param matched - The constraints matched by the rows of a subject. (not null)
+     * @return {@code true} if every constraint was matched; otherwise {@code false}.
+     */
+    public boolean isSatisfied(final BitSet matched) {
+        return matched.cardinality() == tails.length;
+    }
+}
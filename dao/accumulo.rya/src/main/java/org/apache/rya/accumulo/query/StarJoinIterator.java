@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.query;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.OptionDescriber;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+
+/**
+ * Evaluates a subject-star join over the SPO table inside the tablet server. The
+ * rows of a subject are read together and only the rows that match one of the
+ * {@link StarJoinConstraints} are kept. They are returned if every constraint
+ * was matched by a row of the subject, so the rows of subjects that do not join
+ * never leave the tablet server. The iterator must be on the tablet servers'
+ * classpath, as it is when the Rya jars are deployed.
+ * <p>
+ * The rows of a subject may be split between tablets, and a scan may be re-seeked
+ * from the middle of a subject. The matching rows of a subject that touches the
+ * start or end of the seeked range are returned whether or not they satisfy the
+ * join, so the client must check the subjects again, as {@link StarJoinCloseableIterable} does.
+ */
+public class StarJoinIterator implements SortedKeyValueIterator<Key, Value>, OptionDescriber {
+
+    private SortedKeyValueIterator<Key, Value> source;
+    private StarJoinConstraints constraints;
+
+    private Range range;
+    private boolean firstGroup;
+    private final List<Key> keys = new ArrayList<Key>();
+    private final List<Value> values = new ArrayList<Value>();
+    private int index = 0;
+
+    @Override
+    public void init(final SortedKeyValueIterator<Key, Value> source, final Map<String, String> options, final IteratorEnvironment env)
+            throws IOException {
+        this.source = source;
+        this.constraints = StarJoinConstraints.fromOptions(options);
+    }
+
+    @Override
+    public boolean hasTop() {
+        return index < keys.size();
+    }
+
+    @Override
+    public void next() throws IOException {
+        index++;
+        if (index >= keys.size()) {
+            findNextGroup();
+        }
+    }
+
+    @Override
+    public void seek(final Range range, final Collection<ByteSequence> columnFamilies, final boolean inclusive) throws IOException {
+        this.range = range;
+        source.seek(range, columnFamilies, inclusive);
+        firstGroup = true;
+        findNextGroup();
+    }
+
+    @Override
+    public Key getTopKey() {
+        return keys.get(index);
+    }
+
+    @Override
+    public Value getTopValue() {
+        return values.get(index);
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key, Value> deepCopy(final IteratorEnvironment env) {
+        final StarJoinIterator copy = new StarJoinIterator();
+        copy.source = source.deepCopy(env);
+        copy.constraints = constraints;
+        return copy;
+    }
+
+    /**
+     * Reads the source until the rows of a subject are kept or the source ends.
+     */
+    private void findNextGroup() throws IOException {
+        keys.clear();
+        values.clear();
+        index = 0;
+        while (keys.isEmpty() && source.hasTop()) {
+            readGroup();
+        }
+    }
+
+    private void readGroup() throws IOException {
+        // copied because the source may reuse the top key's bytes once it moves on
+        final ByteSequence subject = new ArrayByteSequence(StarJoinConstraints.getSubject(source.getTopKey().getRowData()).toArray());
+        boolean boundary = firstGroup && isSubjectOf(range.isInfiniteStartKey() ? null : range.getStartKey(), subject);
+        firstGroup = false;
+
+        final BitSet matched = new BitSet(constraints.size());
+        while (source.hasTop()) {
+            final Key key = source.getTopKey();
+            final ByteSequence row = key.getRowData();
+            if (!isSubjectOf(row, subject)) {
+                break;
+            }
+            if (constraints.match(row, subject.length(), matched)) {
+                keys.add(new Key(key));
+                values.add(new Value(source.getTopValue()));
+            }
+            source.next();
+        }
+
+        boundary |= !source.hasTop() && isSubjectOf(range.isInfiniteStopKey() ? null : range.getEndKey(), subject);
+        if (!boundary && !constraints.isSatisfied(matched)) {
+            keys.clear();
+            values.clear();
+        }
+    }
+
+    private static boolean isSubjectOf(final Key key, final ByteSequence subject) {
+        return key != null && isSubjectOf(key.getRowData(), subject);
+    }
+
+    /**
+     * @return {@code true} if the row starts with the subject followed by a delimiter,
+     *   or is the subject itself; otherwise {@code false}.
+     */
+    private static boolean isSubjectOf(final ByteSequence row, final ByteSequence subject) {
+        return StarJoinConstraints.getSubject(row).equals(subject);
+    }
+
+    @Override
+    public IteratorOptions describeOptions() {
+        return new IteratorOptions("starJoin", "StarJoinIterator returns the rows of the subjects of the SPO table that match "
+                + "every predicate and object constraint", null, null);
+    }
+
+    @Override
+    public boolean validateOptions(final Map<String, String> options) {
+        StarJoinConstraints.fromOptions(options);
+        return true;
+    }
+}
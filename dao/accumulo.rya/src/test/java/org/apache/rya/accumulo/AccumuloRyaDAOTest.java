@@ -25,8 +25,12 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.apache.accumulo.core.client.Connector;
@@ -36,23 +40,30 @@ import org.apache.accumulo.core.client.TableNotFoundException;
 import org.apache.accumulo.core.client.mock.MockInstance;
 import org.apache.accumulo.core.iterators.FirstEntryInRowIterator;
 import org.apache.rya.accumulo.query.AccumuloRyaQueryEngine;
+import org.apache.rya.api.RdfCloudTripleStoreUtils;
 import org.apache.rya.api.domain.RyaStatement;
 import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.domain.RyaIRI;
 import org.apache.rya.api.domain.StatementMetadata;
+import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.query.RyaQuery;
 import org.apache.rya.api.resolver.RdfToRyaConversions;
 import org.apache.rya.api.resolver.RyaContext;
+import org.calrissian.mango.collect.CloseableIterable;
 import org.calrissian.mango.collect.FluentCloseableIterable;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 /**
  * Class AccumuloRdfDAOTest
  * Date: Mar 7, 2012
@@ -206,6 +217,46 @@ public class AccumuloRyaDAOTest {
         assertEquals(0, count);
     }
 
+    @Test
+    public void testDeleteBatchesAcrossLayouts() throws Exception {
+        RyaIRI cpu = new RyaIRI(litdupsNS + "cpu");
+        RyaIRI gpu = new RyaIRI(litdupsNS + "gpu");
+        RyaIRI loadPerc = new RyaIRI(litdupsNS + "loadPerc");
+        RyaIRI temp = new RyaIRI(litdupsNS + "temp");
+        RyaIRI uri1 = new RyaIRI(litdupsNS + "uri1");
+        RyaIRI uri2 = new RyaIRI(litdupsNS + "uri2");
+        RyaIRI uri3 = new RyaIRI(litdupsNS + "uri3");
+        dao.add(new RyaStatement(cpu, loadPerc, uri1));
+        dao.add(new RyaStatement(cpu, temp, uri1));
+        dao.add(new RyaStatement(gpu, loadPerc, uri2));
+        dao.add(new RyaStatement(gpu, temp, uri2));
+        dao.add(new RyaStatement(gpu, temp, uri3));
+
+        // Each pattern is answered by a different table: SPO, PO, and OSP. Two
+        // patterns are looked up at a time, so the deletes span two batches.
+        AccumuloRdfConfiguration deleteConf = new AccumuloRdfConfiguration(conf);
+        deleteConf.setDeleteBatchSize(2);
+        List<RyaStatement> patterns = new ArrayList<>();
+        patterns.add(new RyaStatement(cpu, null, null));
+        patterns.add(new RyaStatement(null, loadPerc, uri2));
+        patterns.add(new RyaStatement(null, null, uri3));
+        dao.delete(patterns.iterator(), deleteConf);
+
+        CloseableIteration<RyaStatement, RyaDAOException> iter = dao.getQueryEngine().query(new RyaStatement(null, temp, null), conf);
+        List<RyaStatement> results = new ArrayList<>();
+        while (iter.hasNext()) {
+            results.add(iter.next());
+        }
+        iter.close();
+        assertEquals(1, results.size());
+        assertEquals(gpu, results.get(0).getSubject());
+        assertEquals(uri2, results.get(0).getObject());
+
+        iter = dao.getQueryEngine().query(new RyaStatement(null, loadPerc, null), conf);
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
     @Test
     public void testAddEmptyString() throws Exception {
         RyaIRI cpu = RdfToRyaConversions.convertIRI(VF.createIRI(litdupsNS, "cpu"));
@@ -407,6 +458,132 @@ public class AccumuloRyaDAOTest {
         assertEquals(4, count);
     }
 
+    @Test
+    public void testBatchQueryAcrossLayouts() throws Exception {
+        RyaIRI cpu = new RyaIRI(litdupsNS + "cpu");
+        RyaIRI gpu = new RyaIRI(litdupsNS + "gpu");
+        RyaIRI loadPerc = new RyaIRI(litdupsNS + "loadPerc");
+        RyaIRI uri1 = new RyaIRI(litdupsNS + "uri1");
+        RyaIRI uri2 = new RyaIRI(litdupsNS + "uri2");
+        RyaIRI uri3 = new RyaIRI(litdupsNS + "uri3");
+        dao.add(new RyaStatement(cpu, loadPerc, uri1));
+        dao.add(new RyaStatement(cpu, loadPerc, uri2));
+        dao.add(new RyaStatement(gpu, loadPerc, uri3));
+
+        AccumuloRyaQueryEngine queryEngine = dao.getQueryEngine();
+
+        // Each statement is answered by a different table: SPO, PO, and OSP.
+        Collection<RyaStatement> coll = new ArrayList<>();
+        coll.add(new RyaStatement(cpu, null, null));
+        coll.add(new RyaStatement(null, loadPerc, uri3));
+        coll.add(new RyaStatement(null, null, uri2));
+        CloseableIteration<RyaStatement, RyaDAOException> iter = queryEngine.batchQuery(coll, conf);
+        List<RyaStatement> results = new ArrayList<>();
+        while (iter.hasNext()) {
+            results.add(iter.next());
+        }
+        iter.close();
+        assertEquals(4, results.size());
+        assertEquals(2, countObjects(results, uri2));
+        assertEquals(1, countObjects(results, uri1));
+        assertEquals(1, countObjects(results, uri3));
+
+        // The limit applies to the results of all of the tables.
+        AccumuloRdfConfiguration queryConf = new AccumuloRdfConfiguration(conf);
+        queryConf.setLimit(3L);
+        iter = queryEngine.batchQuery(coll, queryConf);
+        int count = 0;
+        while (iter.hasNext()) {
+            iter.next();
+            count++;
+        }
+        iter.close();
+        assertEquals(3, count);
+    }
+
+    @Test
+    public void testBatchQueryGroupsShareScanner() throws Exception {
+        RyaIRI cpu = new RyaIRI(litdupsNS + "cpu");
+        RyaIRI gpu = new RyaIRI(litdupsNS + "gpu");
+        RyaIRI loadPerc = new RyaIRI(litdupsNS + "loadPerc");
+        RyaIRI uri1 = new RyaIRI(litdupsNS + "uri1");
+        RyaType five = new RyaType("5");
+        RyaIRI graph = new RyaIRI(litdupsNS + "graph");
+        dao.add(new RyaStatement(cpu, loadPerc, uri1));
+        dao.add(new RyaStatement(cpu, loadPerc, five));
+        dao.add(new RyaStatement(gpu, loadPerc, uri1, graph));
+        dao.add(new RyaStatement(gpu, loadPerc, five));
+
+        AccumuloRyaQueryEngine queryEngine = dao.getQueryEngine();
+
+        // The PO statements differ in their object types and the SPO statements in their
+        // contexts, so each table is read for two groups that are filtered differently.
+        Collection<RyaStatement> coll = new ArrayList<>();
+        coll.add(new RyaStatement(null, loadPerc, uri1));
+        coll.add(new RyaStatement(null, loadPerc, five));
+        coll.add(new RyaStatement(gpu, null, null, graph));
+        coll.add(new RyaStatement(cpu, null, null));
+        CloseableIteration<RyaStatement, RyaDAOException> iter = queryEngine.batchQuery(coll, conf);
+        List<RyaStatement> results = new ArrayList<>();
+        while (iter.hasNext()) {
+            results.add(iter.next());
+        }
+        iter.close();
+        assertEquals(7, results.size());
+        assertEquals(4, countObjects(results, uri1));
+        assertEquals(3, countObjects(results, five));
+    }
+
+    @Test
+    public void testQueryWithBindingSetAcrossLayouts() throws Exception {
+        RyaIRI cpu = new RyaIRI(litdupsNS + "cpu");
+        RyaIRI gpu = new RyaIRI(litdupsNS + "gpu");
+        RyaIRI loadPerc = new RyaIRI(litdupsNS + "loadPerc");
+        RyaIRI uri1 = new RyaIRI(litdupsNS + "uri1");
+        RyaIRI uri2 = new RyaIRI(litdupsNS + "uri2");
+        dao.add(new RyaStatement(cpu, loadPerc, uri1));
+        dao.add(new RyaStatement(gpu, loadPerc, uri2));
+
+        MapBindingSet bs1 = new MapBindingSet();
+        bs1.addBinding("x", VF.createLiteral("1"));
+        MapBindingSet bs2 = new MapBindingSet();
+        bs2.addBinding("x", VF.createLiteral("2"));
+        MapBindingSet bs3 = new MapBindingSet();
+        bs3.addBinding("x", VF.createLiteral("3"));
+
+        Collection<Map.Entry<RyaStatement, BindingSet>> stmts = new ArrayList<>();
+        stmts.add(new RdfCloudTripleStoreUtils.CustomEntry<RyaStatement, BindingSet>(new RyaStatement(cpu, loadPerc, null), bs1));
+        stmts.add(new RdfCloudTripleStoreUtils.CustomEntry<RyaStatement, BindingSet>(new RyaStatement(null, loadPerc, uri2), bs2));
+        stmts.add(new RdfCloudTripleStoreUtils.CustomEntry<RyaStatement, BindingSet>(new RyaStatement(null, null, uri1), bs3));
+
+        CloseableIteration<? extends Map.Entry<RyaStatement, BindingSet>, RyaDAOException> iter =
+                dao.getQueryEngine().queryWithBindingSet(stmts, conf);
+        Map<BindingSet, RyaIRI> results = new HashMap<>();
+        while (iter.hasNext()) {
+            Map.Entry<RyaStatement, BindingSet> next = iter.next();
+            if (next != null) {
+                results.put(next.getValue(), next.getKey().getSubject());
+            }
+        }
+        iter.close();
+
+        Map<BindingSet, RyaIRI> expected = new HashMap<>();
+        expected.put(bs1, cpu);
+        expected.put(bs2, gpu);
+        expected.put(bs3, cpu);
+        assertEquals(expected, results);
+    }
+
+    private static int countObjects(List<RyaStatement> statements, RyaType object) {
+        int count = 0;
+        for (RyaStatement statement : statements) {
+            if (object.equals(statement.getObject())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
 	@Test
 	public void testQueryDates() throws Exception {
 	    RyaIRI cpu = new RyaIRI(litdupsNS + "cpu");
@@ -678,6 +855,203 @@ public class AccumuloRyaDAOTest {
 
     }
 
+    @Test
+    public void testQueryStar() throws Exception {
+        RyaIRI cpu = new RyaIRI(litdupsNS + "cpu");
+        RyaIRI gpu = new RyaIRI(litdupsNS + "gpu");
+        RyaIRI ram = new RyaIRI(litdupsNS + "ram");
+        RyaIRI loadPerc = new RyaIRI(litdupsNS + "loadPerc");
+        RyaIRI type = new RyaIRI(litdupsNS + "type");
+        RyaIRI device = new RyaIRI(litdupsNS + "device");
+        dao.add(new RyaStatement(cpu, type, device));
+        dao.add(new RyaStatement(cpu, loadPerc, new RyaType(XMLSchema.INT, "10")));
+        dao.add(new RyaStatement(cpu, loadPerc, new RyaType(XMLSchema.INT, "20")));
+        dao.add(new RyaStatement(gpu, type, device));
+        dao.add(new RyaStatement(ram, loadPerc, new RyaType(XMLSchema.INT, "30")));
+
+        AccumuloRyaQueryEngine queryEngine = dao.getQueryEngine();
+
+        // Only the cpu is a device with a load.
+        Collection<RyaStatement> patterns = new ArrayList<>();
+        patterns.add(new RyaStatement(null, type, device));
+        patterns.add(new RyaStatement(null, loadPerc, null));
+        CloseableIterable<RyaStatement> results = queryEngine.queryStar(patterns, Collections.<RyaIRI>emptyList(), conf);
+        List<RyaStatement> statements = Lists.newArrayList(results);
+        results.close();
+        assertEquals(3, statements.size());
+        for (RyaStatement statement : statements) {
+            assertEquals(cpu, statement.getSubject());
+        }
+
+        // Only the given subjects are checked.
+        results = queryEngine.queryStar(patterns, Arrays.asList(gpu, ram), conf);
+        assertFalse(results.iterator().hasNext());
+        results.close();
+        results = queryEngine.queryStar(patterns, Arrays.asList(cpu, gpu), conf);
+        assertEquals(statements, Lists.newArrayList(results));
+        results.close();
+
+        // Without an object, the subjects are found from the predicate's rows.
+        patterns.clear();
+        patterns.add(new RyaStatement(null, loadPerc, null));
+        results = queryEngine.queryStar(patterns, Collections.<RyaIRI>emptyList(), conf);
+        assertEquals(3, Lists.newArrayList(results).size());
+        results.close();
+
+        // Nothing has both loads.
+        patterns.add(new RyaStatement(null, loadPerc, new RyaType(XMLSchema.INT, "10")));
+        patterns.add(new RyaStatement(null, loadPerc, new RyaType(XMLSchema.INT, "30")));
+        results = queryEngine.queryStar(patterns, Collections.<RyaIRI>emptyList(), conf);
+        assertFalse(results.iterator().hasNext());
+        results.close();
+    }
+
+    @Test
+    public void testAsyncIndexing() throws Exception {
+        AccumuloRdfConfiguration asyncConf = new AccumuloRdfConfiguration(conf);
+        asyncConf.setAsyncIndexing(true);
+        asyncConf.setFlush(false);
+        AccumuloRyaDAO asyncDao = new AccumuloRyaDAO();
+        asyncDao.setConnector(connector);
+        asyncDao.setConf(asyncConf);
+        asyncDao.init();
+        try {
+            RyaIRI cpu = new RyaIRI(litdupsNS + "cpu");
+            RyaIRI loadPerc = new RyaIRI(litdupsNS + "loadPerc");
+            List<RyaStatement> statements = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                statements.add(new RyaStatement(cpu, loadPerc, new RyaIRI(litdupsNS + "uri" + i)));
+            }
+            asyncDao.add(statements.iterator());
+            asyncDao.flush();
+
+            assertEquals(1, asyncDao.getIndexingMetrics().size());
+            assertEquals(0, asyncDao.getIndexingMetrics().get(0).getPending());
+            assertEquals(100, asyncDao.getIndexingMetrics().get(0).getWritten());
+
+            CloseableIteration<RyaStatement, RyaDAOException> iter = asyncDao.getQueryEngine().query(new RyaStatement(cpu, loadPerc, null), asyncConf);
+            int count = 0;
+            while (iter.hasNext()) {
+                iter.next();
+                count++;
+            }
+            iter.close();
+            assertEquals(100, count);
+        } finally {
+            asyncDao.destroy();
+        }
+    }
+
+    @Test
+    public void testMaintainEvalStats() throws Exception {
+        AccumuloRdfConfiguration statsConf = new AccumuloRdfConfiguration(conf);
+        statsConf.setMaintainEvalStats(true);
+        statsConf.setEvalStatsCheckExisting(true);
+        // A small buffer makes the deltas of one count reach the table in several entries.
+        statsConf.setEvalStatsBufferSize(3);
+        AccumuloRyaDAO statsDao = new AccumuloRyaDAO();
+        statsDao.setConnector(connector);
+        statsDao.setConf(statsConf);
+        statsDao.init();
+
+        AccumuloRdfEvalStatsDAO statsReader = new AccumuloRdfEvalStatsDAO();
+        statsReader.setConnector(connector);
+        statsReader.setConf(statsConf);
+        statsReader.init();
+        try {
+            RyaIRI cpu = new RyaIRI(litdupsNS + "cpu");
+            RyaIRI loadPerc = new RyaIRI(litdupsNS + "loadPerc");
+            RyaIRI uri1 = new RyaIRI(litdupsNS + "uri1");
+            List<RyaStatement> statements = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                statements.add(new RyaStatement(new RyaIRI(litdupsNS + "cpu" + i), loadPerc, uri1));
+            }
+            statements.add(new RyaStatement(cpu, loadPerc, new RyaIRI(litdupsNS + "uri2")));
+            statsDao.add(statements.iterator());
+
+            assertEquals(11, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATE, Lists.newArrayList(VF.createIRI(loadPerc.getData()))), 0.0);
+            assertEquals(10, statsReader.getCardinality(statsConf, CARDINALITY_OF.OBJECT, Lists.newArrayList(VF.createIRI(uri1.getData()))), 0.0);
+            assertEquals(1, statsReader.getCardinality(statsConf, CARDINALITY_OF.SUBJECT, Lists.newArrayList(VF.createIRI(cpu.getData()))), 0.0);
+            assertEquals(10, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATEOBJECT,
+                    Lists.newArrayList(VF.createIRI(loadPerc.getData()), VF.createIRI(uri1.getData()))), 0.0);
+
+            // Statements that are already stored, or repeated within a batch, are not counted again.
+            statsDao.add(Lists.newArrayList(statements.get(0), statements.get(0)).iterator());
+            assertEquals(11, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATE, Lists.newArrayList(VF.createIRI(loadPerc.getData()))), 0.0);
+
+            // A statement within a context is counted both in total and within its context.
+            RyaIRI graph = new RyaIRI(litdupsNS + "graph");
+            statsDao.add(new RyaStatement(cpu, loadPerc, uri1, graph));
+            assertEquals(12, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATE, Lists.newArrayList(VF.createIRI(loadPerc.getData()))), 0.0);
+            assertEquals(1, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATE, Lists.newArrayList(VF.createIRI(loadPerc.getData())),
+                    VF.createIRI(graph.getData())), 0.0);
+            statsDao.delete(new RyaStatement(cpu, loadPerc, uri1, graph), statsConf);
+            assertEquals(0, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATE, Lists.newArrayList(VF.createIRI(loadPerc.getData())),
+                    VF.createIRI(graph.getData())), 0.0);
+
+            // Only the statements that were actually deleted are subtracted, once each, even when
+            // several patterns of a batch match the same statement.
+            statsDao.delete(Lists.newArrayList(new RyaStatement(null, loadPerc, uri1), statements.get(0),
+                    new RyaStatement(cpu, loadPerc, uri1)).iterator(), statsConf);
+
+            assertEquals(1, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATE, Lists.newArrayList(VF.createIRI(loadPerc.getData()))), 0.0);
+            assertEquals(0, statsReader.getCardinality(statsConf, CARDINALITY_OF.OBJECT, Lists.newArrayList(VF.createIRI(uri1.getData()))), 0.0);
+            assertEquals(1, statsReader.getCardinality(statsConf, CARDINALITY_OF.SUBJECT, Lists.newArrayList(VF.createIRI(cpu.getData()))), 0.0);
+        } finally {
+            statsReader.destroy();
+            statsDao.destroy();
+        }
+    }
+
+    @Test
+    public void testEvalStatsHeavyKeys() throws Exception {
+        AccumuloRdfConfiguration statsConf = new AccumuloRdfConfiguration(conf);
+        statsConf.setMaintainEvalStats(true);
+        statsConf.setEvalStatsHeavyKeyDeltas(4);
+        AccumuloRyaDAO statsDao = new AccumuloRyaDAO();
+        statsDao.setConnector(connector);
+        statsDao.setConf(statsConf);
+        statsDao.init();
+
+        AccumuloRdfEvalStatsDAO statsReader = new AccumuloRdfEvalStatsDAO();
+        statsReader.setConnector(connector);
+        statsReader.setConf(statsConf);
+        statsReader.init();
+        try {
+            RyaIRI loadPerc = new RyaIRI(litdupsNS + "loadPerc");
+            RyaIRI uri1 = new RyaIRI(litdupsNS + "uri1");
+            RyaStatement first = new RyaStatement(new RyaIRI(litdupsNS + "cpu0"), loadPerc, uri1);
+            // Each add is flushed, so the predicate's count is written by the first four adds and
+            // is heavy after that: the next four deltas are written together, and the last two wait.
+            for (int i = 0; i < 10; i++) {
+                statsDao.add(new RyaStatement(new RyaIRI(litdupsNS + "cpu" + i), loadPerc, uri1));
+            }
+            assertEquals(8, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATE, Lists.newArrayList(VF.createIRI(loadPerc.getData()))), 0.0);
+            // Subjects are only written once each, so they are never heavy.
+            assertEquals(1, statsReader.getCardinality(statsConf, CARDINALITY_OF.SUBJECT,
+                    Lists.newArrayList(VF.createIRI(litdupsNS + "cpu9"))), 0.0);
+
+            // Without the check for stored statements, a statement that is added again is counted again.
+            statsDao.add(first);
+            statsDao.add(first);
+        } finally {
+            statsReader.destroy();
+            statsDao.destroy();
+        }
+
+        // Destroying the DAO writes the deltas the heavy count was still collecting.
+        statsReader = new AccumuloRdfEvalStatsDAO();
+        statsReader.setConnector(connector);
+        statsReader.setConf(statsConf);
+        statsReader.init();
+        try {
+            assertEquals(12, statsReader.getCardinality(statsConf, CARDINALITY_OF.PREDICATE,
+                    Lists.newArrayList(VF.createIRI(litdupsNS + "loadPerc"))), 0.0);
+        } finally {
+            statsReader.destroy();
+        }
+    }
+
     private boolean areTablesEmpty() throws TableNotFoundException {
         for (String table : dao.getTables()) {
             if (tableExists(table)) {
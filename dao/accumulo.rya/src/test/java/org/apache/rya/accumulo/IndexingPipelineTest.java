@@ -0,0 +1,190 @@
+package org.apache.rya.accumulo;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.junit.Test;
+
+public class IndexingPipelineTest {
+
+    private static RyaStatement statement(final int i) {
+        return new RyaStatement(new RyaIRI("urn:s" + i), new RyaIRI("urn:p"), new RyaIRI("urn:o"));
+    }
+
+    @Test
+    public void flushWaitsForEveryStage() throws Exception {
+        final List<RyaStatement> first = Collections.synchronizedList(new ArrayList<RyaStatement>());
+        final List<RyaStatement> second = Collections.synchronizedList(new ArrayList<RyaStatement>());
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        final IndexingPipeline pipeline = new IndexingPipeline(10, 4);
+        pipeline.addStage("first", statements -> {
+            batchSizes.add(statements.size());
+            first.addAll(statements);
+        });
+        pipeline.addStage("second", statements -> {
+            Thread.sleep(5);
+            second.addAll(statements);
+        });
+        pipeline.start();
+        try {
+            for (int i = 0; i < 50; i++) {
+                pipeline.put(statement(i));
+            }
+            pipeline.flush();
+
+            assertEquals(50, first.size());
+            assertEquals(50, second.size());
+            // the statements are written in the order they were put
+            for (int i = 0; i < 50; i++) {
+                assertEquals(statement(i).getSubject(), second.get(i).getSubject());
+            }
+            for (final int size : batchSizes) {
+                assertTrue(size <= 4);
+            }
+            for (final IndexingPipeline.StageMetrics metrics : pipeline.getMetrics()) {
+                assertEquals(0, metrics.getQueueDepth());
+                assertEquals(0, metrics.getPending());
+                assertEquals(0, metrics.getLagMillis());
+                assertEquals(50, metrics.getWritten());
+            }
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void metricsReportStagesThatFallBehind() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final IndexingPipeline pipeline = new IndexingPipeline(100, 1);
+        pipeline.addStage("slow", statements -> release.await());
+        pipeline.start();
+        try {
+            for (int i = 0; i < 5; i++) {
+                pipeline.put(statement(i));
+            }
+            Thread.sleep(50);
+            final IndexingPipeline.StageMetrics metrics = pipeline.getMetrics().get(0);
+            assertEquals("slow", metrics.getName());
+            assertEquals(5, metrics.getPending());
+            assertEquals(4, metrics.getQueueDepth());
+            assertTrue(metrics.getLagMillis() >= 50);
+        } finally {
+            release.countDown();
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void failuresAreReportedByFlush() throws Exception {
+        final IndexingPipeline pipeline = new IndexingPipeline(10, 10);
+        pipeline.addStage("broken", statements -> {
+            throw new IllegalStateException("broken");
+        });
+        pipeline.start();
+        try {
+            pipeline.put(statement(0));
+            try {
+                pipeline.flush();
+                fail("The stage's failure should have been reported.");
+            } catch (final RyaDAOException e) {
+                assertEquals("broken", e.getCause().getMessage());
+            }
+            // the failure is only reported once
+            pipeline.flush();
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void putWaitsForFullQueues() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final IndexingPipeline pipeline = new IndexingPipeline(1, 1);
+        pipeline.addStage("blocked", statements -> release.await());
+        pipeline.start();
+        try {
+            // one statement is being written and one is queued, so the third put waits
+            pipeline.put(statement(0));
+            Thread.sleep(50);
+            pipeline.put(statement(1));
+            final Thread putter = new Thread(() -> {
+                try {
+                    pipeline.put(statement(2));
+                } catch (final RyaDAOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            putter.start();
+            putter.join(100);
+            assertTrue(putter.isAlive());
+
+            release.countDown();
+            putter.join(TimeUnit.SECONDS.toMillis(10));
+            pipeline.flush();
+            assertEquals(3, pipeline.getMetrics().get(0).getWritten());
+        } finally {
+            release.countDown();
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void stageThatDiesFailsInsteadOfBlocking() throws Exception {
+        final IndexingPipeline pipeline = new IndexingPipeline(1, 1);
+        pipeline.addStage("dead", statements -> {
+            throw new AssertionError("dead");
+        });
+        pipeline.start();
+        pipeline.put(statement(0));
+        try {
+            pipeline.flush();
+            fail("The stage's death should have been reported.");
+        } catch (final RyaDAOException e) {
+            assertEquals("dead", e.getCause().getMessage());
+        }
+        try {
+            // enough statements to fill the queue if nothing reported the dead stage
+            for (int i = 1; i < 5; i++) {
+                pipeline.put(statement(i));
+            }
+            fail("The stage's death should have been reported.");
+        } catch (final RyaDAOException e) {
+            assertEquals("dead", e.getCause().getMessage());
+        }
+        try {
+            pipeline.close();
+            fail("The unwritten statement should have been reported.");
+        } catch (final RyaDAOException e) {
+            assertEquals("dead", e.getCause().getMessage());
+        }
+    }
+}
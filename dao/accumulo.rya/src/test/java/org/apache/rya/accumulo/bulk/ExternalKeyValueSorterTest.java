@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.bulk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the methods of {@link ExternalKeyValueSorter}.
+ */
+public class ExternalKeyValueSorterTest {
+
+    @Rule
+    public TemporaryFolder localDir = new TemporaryFolder();
+
+    @Test
+    public void sortsSpilledRuns() throws Exception {
+        final List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(i);
+        }
+        Collections.shuffle(rows);
+
+        // a small buffer forces many runs to be spilled and merged
+        try (final ExternalKeyValueSorter sorter = new ExternalKeyValueSorter(localDir.getRoot(), 1024)) {
+            for (final int row : rows) {
+                sorter.add(new Key(String.format("row%04d", row)), new Value(Integer.toString(row).getBytes()));
+            }
+            assertTrue(sorter.getSpillCount() > 1);
+
+            final Iterator<Map.Entry<Key, Value>> sorted = sorter.sorted();
+            for (int i = 0; i < 1000; i++) {
+                final Map.Entry<Key, Value> entry = sorted.next();
+                assertEquals(String.format("row%04d", i), entry.getKey().getRow().toString());
+                assertArrayEquals(Integer.toString(i).getBytes(), entry.getValue().get());
+            }
+            assertFalse(sorted.hasNext());
+        }
+
+        // the spilled runs are deleted once the sorter is closed
+        final File[] remaining = localDir.getRoot().listFiles();
+        assertEquals(0, remaining.length);
+    }
+
+    @Test
+    public void sortsInMemory() throws Exception {
+        try (final ExternalKeyValueSorter sorter = new ExternalKeyValueSorter(localDir.getRoot(), Long.MAX_VALUE)) {
+            sorter.add(new Key("b"), new Value(new byte[0]));
+            sorter.add(new Key("c"), new Value(new byte[0]));
+            sorter.add(new Key("a"), new Value(new byte[0]));
+            assertEquals(0, sorter.getSpillCount());
+
+            final Iterator<Map.Entry<Key, Value>> sorted = sorter.sorted();
+            assertEquals("a", sorted.next().getKey().getRow().toString());
+            assertEquals("b", sorted.next().getKey().getRow().toString());
+            assertEquals("c", sorted.next().getKey().getRow().toString());
+            assertFalse(sorted.hasNext());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.test.accumulo.AccumuloITBase;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Integration tests the methods of {@link RyaBulkLoader}.
+ */
+public class RyaBulkLoaderIT extends AccumuloITBase {
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void loadAndQuery() throws Exception {
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        conf.setTablePrefix(getRyaInstanceName());
+        conf.setBulkLocalDir(tempDir.newFolder("local").getAbsolutePath());
+        // small enough that every table spills several sorted runs
+        conf.setBulkSortBufferSize(4096);
+
+        final RyaIRI knows = new RyaIRI("urn:knows");
+        final RyaIRI age = new RyaIRI("urn:age");
+        final List<RyaStatement> statements = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            statements.add(new RyaStatement(new RyaIRI("urn:person" + i), knows, new RyaIRI("urn:person" + (i + 1) % 500)));
+            statements.add(new RyaStatement(new RyaIRI("urn:person" + i), age, new RyaType("" + i)));
+        }
+        // statements that are loaded twice are only stored once
+        statements.add(statements.get(0));
+
+        final FileSystem fs = FileSystem.getLocal(new Configuration());
+        final Path workDir = new Path(tempDir.getRoot().getAbsolutePath(), "work");
+        final RyaBulkLoader loader = new RyaBulkLoader(getConnector(), conf, fs, workDir);
+        assertEquals(1001, loader.load(statements.iterator()));
+        assertFalse(fs.exists(workDir));
+
+        final AccumuloRyaDAO dao = new AccumuloRyaDAO();
+        dao.setConnector(getConnector());
+        dao.setConf(conf);
+        dao.init();
+        try {
+            // each pattern is answered by a different table: SPO, PO, and OSP
+            assertEquals(2, query(dao, new RyaStatement(new RyaIRI("urn:person7"), null, null)).size());
+            assertEquals(500, query(dao, new RyaStatement(null, knows, null)).size());
+            assertEquals(1, query(dao, new RyaStatement(null, null, new RyaType("42"))).size());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    private static List<RyaStatement> query(final AccumuloRyaDAO dao, final RyaStatement pattern) throws RyaDAOException {
+        final List<RyaStatement> results = new ArrayList<>();
+        final CloseableIteration<RyaStatement, RyaDAOException> iter = dao.getQueryEngine().query(pattern, null);
+        try {
+            while (iter.hasNext()) {
+                results.add(iter.next());
+            }
+        } finally {
+            iter.close();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.dictionary;
+
+import static org.apache.rya.api.RdfCloudTripleStoreConstants.RTS_SUBJECT_RYA;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRdfUtils;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.accumulo.query.AccumuloRyaQueryEngine;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.api.persist.query.RyaQuery;
+import org.apache.rya.api.resolver.triple.dictionary.TermDictionary;
+import org.apache.rya.test.accumulo.AccumuloITBase;
+import org.calrissian.mango.collect.CloseableIterable;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Integration tests the methods of {@link AccumuloTermDictionary} and a
+ * dictionary encoded {@link AccumuloRyaDAO}.
+ */
+public class AccumuloTermDictionaryIT extends AccumuloITBase {
+
+    @Test
+    public void assignAndResolve() throws Exception {
+        final Connector connector = getConnector();
+        final String tableName = AccumuloTermDictionary.makeTableName(getRyaInstanceName());
+        AccumuloRdfUtils.createTableIfNotExist(connector.tableOperations(), tableName);
+
+        try(final AccumuloTermDictionary dictionary = new AccumuloTermDictionary(connector, tableName, 2L)) {
+            final byte[] alice = "urn:alice".getBytes(StandardCharsets.UTF_8);
+            assertEquals(TermDictionary.NO_ID, dictionary.getId(alice));
+
+            final long aliceId = dictionary.getOrCreateId(alice);
+            assertEquals(aliceId, dictionary.getOrCreateId(alice));
+            assertEquals(aliceId, dictionary.getId(alice));
+            assertArrayEquals(alice, dictionary.getTerm(aliceId));
+
+            // Assign enough terms to exhaust more than one reserved block.
+            final Set<Long> ids = new HashSet<>();
+            ids.add(aliceId);
+            for(int i = 0; i < 5; i++) {
+                ids.add( dictionary.getOrCreateId(("urn:term" + i).getBytes(StandardCharsets.UTF_8)) );
+            }
+            assertEquals(6, ids.size());
+            assertFalse(ids.contains(TermDictionary.NO_ID));
+
+            assertNull(dictionary.getTerm(1000L));
+        }
+    }
+
+    @Test
+    public void concurrentWritersAgree() throws Exception {
+        final Connector connector = getConnector();
+        final String tableName = AccumuloTermDictionary.makeTableName(getRyaInstanceName());
+        AccumuloRdfUtils.createTableIfNotExist(connector.tableOperations(), tableName);
+
+        try(final AccumuloTermDictionary first = new AccumuloTermDictionary(connector, tableName, 10L);
+                final AccumuloTermDictionary second = new AccumuloTermDictionary(connector, tableName, 10L)) {
+            final long firstBobId = first.getOrCreateId("urn:bob".getBytes(StandardCharsets.UTF_8));
+            final long secondCarolId = second.getOrCreateId("urn:carol".getBytes(StandardCharsets.UTF_8));
+
+            // The writers reserved different blocks, and both see the other's terms.
+            assertFalse(firstBobId == secondCarolId);
+            assertEquals(firstBobId, second.getOrCreateId("urn:bob".getBytes(StandardCharsets.UTF_8)));
+            assertEquals(secondCarolId, first.getId("urn:carol".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void dictionaryEncodedDao() throws Exception {
+        final AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        conf.setTablePrefix(getRyaInstanceName());
+        conf.setDictionaryEncoded(true);
+
+        final AccumuloRyaDAO dao = new AccumuloRyaDAO();
+        dao.setConnector(getConnector());
+        dao.setConf(conf);
+        dao.init();
+        try {
+            final RyaIRI alice = new RyaIRI("urn:alice");
+            final RyaIRI age = new RyaIRI("urn:age");
+            final RyaIRI knows = new RyaIRI("urn:knows");
+            final RyaIRI bob = new RyaIRI("urn:bob");
+            final RyaStatement aliceAge = new RyaStatement(alice, age, new RyaType(XMLSchema.INTEGER, "42"));
+            final RyaStatement aliceKnowsBob = new RyaStatement(alice, knows, bob);
+            dao.add(aliceAge);
+            dao.add(aliceKnowsBob);
+
+            // One query per table layout.
+            assertEquals(2, query(dao, new RyaStatement(alice, null, null)).size());
+            assertEquals(1, query(dao, new RyaStatement(null, knows, null)).size());
+            assertEquals(1, query(dao, new RyaStatement(null, null, new RyaType(XMLSchema.INTEGER, "42"))).size());
+            assertEquals(aliceKnowsBob.getObject(), query(dao, new RyaStatement(alice, knows, null)).get(0).getObject());
+
+            // Terms that were never stored match nothing.
+            assertEquals(0, query(dao, new RyaStatement(new RyaIRI("urn:nobody"), null, null)).size());
+            assertEquals(0, query(dao, new RyaStatement(null, null, new RyaType("42"))).size());
+
+            // Regular expressions are applied to the decoded statements instead of the rows.
+            final RyaQuery regexQuery = RyaQuery.builder(new RyaStatement(alice, null, null)).setRegexObject("urn:b.*").build();
+            try(final CloseableIterable<RyaStatement> matches = dao.getQueryEngine().query(regexQuery)) {
+                assertEquals(Lists.newArrayList(bob), Lists.newArrayList(Iterables.transform(matches, RyaStatement::getObject)));
+            }
+
+            // An engine that is not created by the DAO opens the instance's term dictionary itself.
+            try(final AccumuloRyaQueryEngine engine = new AccumuloRyaQueryEngine(getConnector(), conf)) {
+                final RyaQuery knowsQuery = RyaQuery.builder(new RyaStatement(null, knows, null)).build();
+                try(final CloseableIterable<RyaStatement> matches = engine.query(knowsQuery)) {
+                    assertEquals(Lists.newArrayList(aliceKnowsBob.getObject()),
+                            Lists.newArrayList(Iterables.transform(matches, RyaStatement::getObject)));
+                }
+            }
+
+            dao.delete(aliceKnowsBob, conf);
+            assertEquals(1, query(dao, new RyaStatement(alice, null, null)).size());
+        } finally {
+            dao.destroy();
+        }
+    }
+
+    private static List<RyaStatement> query(final AccumuloRyaDAO dao, final RyaStatement pattern) throws RyaDAOException {
+        final List<RyaStatement> results = Lists.newArrayList();
+        final CloseableIteration<RyaStatement, RyaDAOException> it = dao.getQueryEngine().query(pattern, dao.getConf());
+        try {
+            while(it.hasNext()) {
+                final RyaStatement result = it.next();
+                // Skip the version statement the DAO writes when it is initialized.
+                if(!RTS_SUBJECT_RYA.equals(result.getSubject())) {
+                    results.add(result);
+                }
+            }
+        } finally {
+            it.close();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.accumulo.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.hadoop.io.Text;
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.resolver.triple.TripleRow;
+import org.apache.rya.api.resolver.triple.impl.WholeRowTripleResolver;
+import org.calrissian.mango.collect.CloseableIterables;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class StarJoinIteratorTest {
+    private static final RyaIRI TYPE = new RyaIRI("urn:type");
+    private static final RyaIRI NAME = new RyaIRI("urn:name");
+    private static final RyaIRI PERSON = new RyaIRI("urn:Person");
+
+    private final TreeMap<Key, Value> table = new TreeMap<>();
+    private StarJoinConstraints constraints;
+
+    @Before
+    public void setUp() throws Exception {
+        add("urn:alice", TYPE, PERSON);
+        add("urn:alice", NAME, new RyaIRI("urn:aliceName"));
+        add("urn:alice", new RyaIRI("urn:age"), new RyaIRI("urn:thirty"));
+        add("urn:bob", TYPE, PERSON);
+        add("urn:carol", TYPE, PERSON);
+        add("urn:carol", NAME, new RyaIRI("urn:carolName"));
+        add("urn:dave", NAME, new RyaIRI("urn:daveName"));
+
+        constraints = StarJoinConstraints.fromPatterns(Arrays.asList(
+                new RyaStatement(null, TYPE, PERSON),
+                new RyaStatement(null, NAME, null)));
+    }
+
+    private void add(final String subject, final RyaIRI predicate, final RyaIRI object) throws Exception {
+        final TripleRow row = new WholeRowTripleResolver().serialize(new RyaStatement(new RyaIRI(subject), predicate, object)).get(TABLE_LAYOUT.SPO);
+        table.put(new Key(new Text(row.getRow())), new Value(new byte[0]));
+    }
+
+    @Test
+    public void returnsMatchingRowsOfJoinedSubjects() throws Exception {
+        final List<String> subjects = scan(new Range());
+        assertEquals(Arrays.asList("urn:alice", "urn:alice", "urn:carol", "urn:carol"), subjects);
+    }
+
+    @Test
+    public void returnsSubjectsCutByTheRange() throws Exception {
+        // the range starts after alice's name and ends with carol's name
+        final Range range = new Range(firstKey("urn:alice", NAME), false, firstKey("urn:carol", NAME), true);
+        final List<String> subjects = scan(range);
+        assertEquals(Arrays.asList("urn:alice", "urn:carol"), subjects);
+
+        // the client drops them because it sees that their other rows are missing
+        final List<Map.Entry<Key, Value>> rows = scanRows(range);
+        assertEquals(0, Lists.newArrayList(new StarJoinCloseableIterable(CloseableIterables.wrap(rows), constraints)).size());
+    }
+
+    @Test
+    public void clientKeepsSubjectsSplitBetweenRanges() throws Exception {
+        final Key split = firstKey("urn:alice", NAME);
+        final List<Map.Entry<Key, Value>> rows = new ArrayList<>();
+        rows.addAll(scanRows(new Range((Key) null, true, split, true)));
+        rows.addAll(scanRows(new Range(split, false, (Key) null, true)));
+
+        final List<String> subjects = new ArrayList<>();
+        for (final Map.Entry<Key, Value> entry : new StarJoinCloseableIterable(CloseableIterables.wrap(rows), constraints)) {
+            subjects.add(subject(entry.getKey()));
+        }
+        assertEquals(Arrays.asList("urn:alice", "urn:alice", "urn:carol", "urn:carol"), subjects);
+    }
+
+    private Key firstKey(final String subject, final RyaIRI predicate) {
+        for (final Key key : table.keySet()) {
+            if (key.getRow().toString().startsWith(subject + "\u0000" + predicate.getData() + "\u0000")) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException(subject + " has no " + predicate);
+    }
+
+    private List<String> scan(final Range range) throws Exception {
+        final List<String> subjects = new ArrayList<>();
+        for (final Map.Entry<Key, Value> entry : scanRows(range)) {
+            subjects.add(subject(entry.getKey()));
+        }
+        return subjects;
+    }
+
+    private List<Map.Entry<Key, Value>> scanRows(final Range range) throws Exception {
+        final StarJoinIterator iterator = new StarJoinIterator();
+        iterator.init(new SortedMapIterator(table), constraints.toOptions(), null);
+        iterator.seek(range, Collections.<ByteSequence>emptySet(), false);
+        final List<Map.Entry<Key, Value>> rows = new ArrayList<>();
+        while (iterator.hasTop()) {
+            rows.add(Maps.immutableEntry(new Key(iterator.getTopKey()), new Value(iterator.getTopValue())));
+            iterator.next();
+        }
+        return rows;
+    }
+
+    private static String subject(final Key key) {
+        return StarJoinConstraints.getSubject(key.getRowData()).toString();
+    }
+}
@@ -44,6 +44,7 @@ public abstract class AbstractMongoDBRdfConfigurationBuilder<B extends AbstractM
     private String mongoCollectionPrefix = "rya_";
     private String mongoDBName = "rya";
     private boolean usePipeline = false;
+    private boolean useStatistics = false;
 
     public static final String MONGO_USER = "mongo.user";
     public static final String MONGO_PASSWORD = "mongo.password";
@@ -156,6 +157,18 @@ public abstract class AbstractMongoDBRdfConfigurationBuilder<B extends AbstractM
         return confBuilder();
     }
 
+    /**
+     * Enable or disable counting statements by predicate and by predicate and
+     * object as they are added and deleted. Defaults to false. If true, the
+     * aggregation pipeline starts its joins with the statement pattern that
+     * matches the fewest statements.
+     * @param useStatistics whether to maintain and use the statement counts.
+     */
+    public B setUseStatistics(boolean useStatistics) {
+        this.useStatistics = useStatistics;
+        return confBuilder();
+    }
+
     /**
      * @return extension of {@link MongoDBRdfConfiguration} with specified parameters set
      */
@@ -187,6 +200,7 @@ public abstract class AbstractMongoDBRdfConfigurationBuilder<B extends AbstractM
         conf.setMongoHostname(host);
         conf.setMongoPort(port);
         conf.setUseAggregationPipeline(usePipeline);
+        conf.setUseStatistics(useStatistics);
 
         return conf;
     }
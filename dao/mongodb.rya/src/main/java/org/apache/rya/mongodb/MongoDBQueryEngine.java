@@ -58,7 +58,6 @@ import com.mongodb.client.MongoDatabase;
 public class MongoDBQueryEngine implements RyaQueryEngine<StatefulMongoDBRdfConfiguration> {
 
     private StatefulMongoDBRdfConfiguration configuration;
-    private final MongoDBStorageStrategy<RyaStatement> strategy = new SimpleMongoDBStorageStrategy();
 
     @Override
     public void setConf(final StatefulMongoDBRdfConfiguration conf) {
@@ -101,6 +100,7 @@ public class MongoDBQueryEngine implements RyaQueryEngine<StatefulMongoDBRdfConf
             }
 
             // TODO not sure what to do about regex ranges?
+            final MongoDBStorageStrategy<RyaStatement> strategy = SimpleMongoDBStorageStrategy.fromConfiguration(conf);
             final RyaStatementBindingSetCursorIterator iterator = new RyaStatementBindingSetCursorIterator(
                     getCollection(conf), rangeMap, strategy, conf.getAuthorizations());
 
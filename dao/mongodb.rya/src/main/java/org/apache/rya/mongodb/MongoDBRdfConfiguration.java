@@ -27,6 +27,8 @@ import org.apache.accumulo.core.security.Authorizations;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.mongodb.aggregation.AggregationPipelineQueryOptimizer;
+import org.apache.rya.mongodb.dao.TermHashFormat;
+import org.apache.rya.mongodb.dao.TermHashMigration;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -55,6 +57,9 @@ public class MongoDBRdfConfiguration extends RdfCloudTripleStoreConfiguration {
     public static final String MONGO_GEO_MAXDISTANCE = "mongo.geo.maxdist";
 
     public static final String USE_AGGREGATION_PIPELINE = "rya.mongodb.query.pipeline";
+    public static final String TERM_HASH_FORMAT = "rya.mongodb.hash.format";
+    public static final String PREVIOUS_TERM_HASH_FORMAT = "rya.mongodb.hash.previousformat";
+    public static final String USE_STATISTICS = "rya.mongodb.statistics";
 
     /**
      * Constructs an empty instance of {@link MongoDBRdfConfiguration}.
@@ -222,6 +227,14 @@ public class MongoDBRdfConfiguration extends RdfCloudTripleStoreConfiguration {
         return getRyaInstanceName() + "_ns";
     }
 
+    /**
+     * @return The name of the MongoDB Collection that contains the statement counts
+     *   used to order joins. (default: rya_statistics)
+     */
+    public String getStatisticsCollectionName() {
+        return getRyaInstanceName() + "_statistics";
+    }
+
     /**
      * @return The authorizations that will be used when accessing data. (default: empty)
      */
@@ -278,6 +291,71 @@ public class MongoDBRdfConfiguration extends RdfCloudTripleStoreConfiguration {
         setBoolean(USE_AGGREGATION_PIPELINE, value);
     }
 
+    /**
+     * Whether statements are counted in the statistics collection.
+     * @return true if the counts are maintained as statements are added and
+     *   deleted, and used to order the joins of aggregation pipelines.
+     */
+    public boolean getUseStatistics() {
+        return getBoolean(USE_STATISTICS, false);
+    }
+
+    /**
+     * Enable or disable counting statements by predicate and by predicate and
+     * object as they are added and deleted. The aggregation pipeline uses the
+     * counts to start with the statement pattern that matches the fewest
+     * statements. Statements that were stored before the counts were enabled
+     * are not counted.
+     * @param value whether to maintain and use the statement counts.
+     */
+    public void setUseStatistics(final boolean value) {
+        setBoolean(USE_STATISTICS, value);
+    }
+
+    /**
+     * @return The format the hashes of subjects, predicates, and objects are
+     *   stored in. Defaults to {@link TermHashFormat#SHA256_HEX}.
+     */
+    public TermHashFormat getTermHashFormat() {
+        return TermHashFormat.valueOf(get(TERM_HASH_FORMAT, TermHashFormat.SHA256_HEX.name()));
+    }
+
+    /**
+     * Set the format the hashes of subjects, predicates, and objects are stored
+     * in. Triples that were stored in another format have to be rewritten with a
+     * {@link TermHashMigration} before they can be queried in this format.
+     * @param format - The format hashes are stored in. (not null)
+     */
+    public void setTermHashFormat(final TermHashFormat format) {
+        set(TERM_HASH_FORMAT, requireNonNull(format).name());
+    }
+
+    /**
+     * @return The format the triples that have not been migrated yet store their
+     *   hashes in, or {@code null} if no migration is running.
+     */
+    public @Nullable TermHashFormat getPreviousTermHashFormat() {
+        final String format = get(PREVIOUS_TERM_HASH_FORMAT);
+        return format == null ? null : TermHashFormat.valueOf(format);
+    }
+
+    /**
+     * Set the format the triples that have not been migrated yet store their
+     * hashes in. While it is set, queries match hashes in either format, so the
+     * store can be used while a {@link TermHashMigration} runs. Joins that the
+     * aggregation pipeline evaluates compare the stored hashes directly, so they
+     * only see every result once the migration has finished.
+     * @param format - The format of the triples that have not been migrated, or
+     *   {@code null} if every triple is stored in {@link #getTermHashFormat()}.
+     */
+    public void setPreviousTermHashFormat(final @Nullable TermHashFormat format) {
+        if (format == null) {
+            unset(PREVIOUS_TERM_HASH_FORMAT);
+        } else {
+            set(PREVIOUS_TERM_HASH_FORMAT, format.name());
+        }
+    }
+
     @Override
     public List<Class<QueryOptimizer>> getOptimizers() {
         final List<Class<QueryOptimizer>> optimizers = super.getOptimizers();
@@ -22,6 +22,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -43,16 +44,22 @@ import org.apache.rya.mongodb.batch.MongoDbBatchWriterException;
 import org.apache.rya.mongodb.batch.MongoDbBatchWriterUtils;
 import org.apache.rya.mongodb.batch.collection.MongoCollectionType;
 import org.apache.rya.mongodb.dao.MongoDBNamespaceManager;
+import org.apache.rya.mongodb.dao.MongoDBStatementStatistics;
 import org.apache.rya.mongodb.dao.MongoDBStorageStrategy;
 import org.apache.rya.mongodb.dao.SimpleMongoDBNamespaceManager;
 import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
 import org.apache.rya.mongodb.document.util.DocumentVisibilityUtil;
 import org.bson.Document;
 
+import com.google.common.collect.Iterators;
 import com.mongodb.DuplicateKeyException;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoException;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.WriteModel;
 
 /**
  * Default DAO for mongo backed RYA allowing for CRUD operations.
@@ -60,6 +67,12 @@ import com.mongodb.client.MongoDatabase;
 public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfiguration>{
     private static final Logger log = Logger.getLogger(MongoDBRyaDAO.class);
 
+    /**
+     * The number of statements that are handed to the secondary indexers, and
+     * deleted from the triples collection, at a time.
+     */
+    private static final int WRITE_BATCH_SIZE = 1000;
+
     private final AtomicBoolean isInitialized = new AtomicBoolean();
     private final AtomicBoolean flushEachUpdate = new AtomicBoolean(true);
     private StatefulMongoDBRdfConfiguration conf;
@@ -69,6 +82,7 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
     private MongoDBQueryEngine queryEngine;
     private MongoDBStorageStrategy<RyaStatement> storageStrategy;
     private MongoDBNamespaceManager nameSpaceManager;
+    private MongoDBStatementStatistics statistics;
 
     private List<MongoSecondaryIndex> secondaryIndexers;
     private Authorizations auths;
@@ -112,14 +126,26 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
         nameSpaceManager = new SimpleMongoDBNamespaceManager(db.getCollection(conf.getNameSpacesCollectionName()));
         queryEngine = new MongoDBQueryEngine();
         queryEngine.setConf(conf);
-        storageStrategy = new SimpleMongoDBStorageStrategy();
+        storageStrategy = SimpleMongoDBStorageStrategy.fromConfiguration(conf);
         storageStrategy.createIndices(coll);
+        if (conf.getUseStatistics()) {
+            statistics = new MongoDBStatementStatistics(db.getCollection(conf.getStatisticsCollectionName()));
+        }
         for(final MongoSecondaryIndex index: secondaryIndexers) {
             index.init();
         }
 
         final MongoDbBatchWriterConfig mongoDbBatchWriterConfig = MongoDbBatchWriterUtils.getMongoDbBatchWriterConfig(conf);
-        mongoDbBatchWriter = new MongoDbBatchWriter<>(new MongoCollectionType(coll), mongoDbBatchWriterConfig);
+        // Only count the statements that are really inserted, not the duplicates the writer skips
+        mongoDbBatchWriter = new MongoDbBatchWriter<>(new MongoCollectionType(coll), mongoDbBatchWriterConfig, inserted -> {
+            if (statistics != null) {
+                final List<RyaStatement> statements = new ArrayList<>(inserted.size());
+                for (final Document document : inserted) {
+                    statements.add(storageStrategy.deserializeDocument(document));
+                }
+                statistics.add(statements);
+            }
+        });
         try {
             mongoDbBatchWriter.start();
         } catch (final MongoDbBatchWriterException e) {
@@ -188,32 +214,35 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
 
     @Override
     public void add(final Iterator<RyaStatement> statementIter) throws RyaDAOException {
-        final List<Document> dbInserts = new ArrayList<>();
-        while (statementIter.hasNext()){
-            final RyaStatement ryaStatement = statementIter.next();
-            final boolean canAdd = DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, ryaStatement.getColumnVisibility());
-            if (canAdd) {
-                final Document insert = storageStrategy.serialize(ryaStatement);
-                dbInserts.add(insert);
+        final Iterator<List<RyaStatement>> batches = Iterators.partition(statementIter, WRITE_BATCH_SIZE);
+        while (batches.hasNext()) {
+            final List<RyaStatement> batch = batches.next();
+            final List<Document> dbInserts = new ArrayList<>(batch.size());
+            for (final RyaStatement ryaStatement : batch) {
+                final boolean canAdd = DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, ryaStatement.getColumnVisibility());
+                if (canAdd) {
+                    dbInserts.add(storageStrategy.serialize(ryaStatement));
+                } else {
+                    throw new RyaDAOException("User does not have the required authorizations to add statement");
+                }
+            }
 
+            try {
+                // Blocks while the batch writer's queue is full
+                mongoDbBatchWriter.addObjectsToQueue(dbInserts);
+            } catch (final MongoDbBatchWriterException e) {
+                throw new RyaDAOException("Error adding statements", e);
+            }
+            for (final RyaSecondaryIndexer index : secondaryIndexers) {
                 try {
-                    for (final RyaSecondaryIndexer index : secondaryIndexers) {
-                        index.storeStatement(ryaStatement);
-                    }
+                    index.storeStatements(batch);
                 } catch (final IOException e) {
-                    log.error("Failed to add: " + ryaStatement.toString() + " to the indexer");
+                    log.error("Failed to add " + batch.size() + " statements to the indexer: " + index.getTableName(), e);
                 }
-            } else {
-                throw new RyaDAOException("User does not have the required authorizations to add statement");
             }
         }
-        try {
-            mongoDbBatchWriter.addObjectsToQueue(dbInserts);
-            if (flushEachUpdate.get()) {
-                flush();
-            }
-        } catch (final MongoDbBatchWriterException e) {
-            throw new RyaDAOException("Error adding statements", e);
+        if (flushEachUpdate.get()) {
+            flush();
         }
     }
 
@@ -223,7 +252,10 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
         final boolean canDelete = DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, statement.getColumnVisibility());
         if (canDelete) {
             final Document obj = storageStrategy.getQuery(statement);
-            coll.deleteOne(obj);
+            final long deleted = coll.deleteOne(obj).getDeletedCount();
+            if (statistics != null && deleted > 0) {
+                statistics.delete(Collections.singletonList(statement));
+            }
             for (final RyaSecondaryIndexer index : secondaryIndexers) {
                 try {
                     index.deleteStatement(statement);
@@ -245,23 +277,58 @@ public final class MongoDBRyaDAO implements RyaDAO<StatefulMongoDBRdfConfigurati
     @Override
     public void delete(final Iterator<RyaStatement> statements,
             final StatefulMongoDBRdfConfiguration conf) throws RyaDAOException {
-        while (statements.hasNext()){
-            final RyaStatement ryaStatement = statements.next();
-            final boolean canDelete = DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, ryaStatement.getColumnVisibility());
-            if (canDelete) {
-                final Document obj = storageStrategy.getQuery(ryaStatement);
-                coll.deleteOne(obj);
-                for (final RyaSecondaryIndexer index : secondaryIndexers) {
-                    try {
-                        index.deleteStatement(ryaStatement);
-                    } catch (final IOException e) {
-                        log.error("Unable to remove statement: " + ryaStatement.toString() + " from secondary indexer: " + index.getTableName(), e);
+        final Iterator<List<RyaStatement>> batches = Iterators.partition(statements, WRITE_BATCH_SIZE);
+        while (batches.hasNext()) {
+            final List<RyaStatement> batch = batches.next();
+            final List<Document> queries = new ArrayList<>(batch.size());
+            for (final RyaStatement ryaStatement : batch) {
+                final boolean canDelete = DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, ryaStatement.getColumnVisibility());
+                if (canDelete) {
+                    queries.add(storageStrategy.getQuery(ryaStatement));
+                } else {
+                    throw new RyaDAOException("User does not have the required authorizations to delete statement");
+                }
+            }
+
+            try {
+                if (statistics == null) {
+                    bulkDelete(queries);
+                } else {
+                    // A bulk write only reports how many documents it deleted in total, so each
+                    // statement is deleted on its own to only count the ones that were stored.
+                    final List<RyaStatement> deleted = new ArrayList<>(batch.size());
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (coll.deleteOne(queries.get(i)).getDeletedCount() > 0) {
+                            deleted.add(batch.get(i));
+                        }
                     }
+                    statistics.delete(deleted);
                 }
-            } else {
-                throw new RyaDAOException("User does not have the required authorizations to delete statement");
+            } catch (final MongoException e) {
+                throw new RyaDAOException("Error deleting statements", e);
             }
+            for (final RyaSecondaryIndexer index : secondaryIndexers) {
+                try {
+                    index.deleteStatements(batch);
+                } catch (final IOException e) {
+                    log.error("Unable to remove " + batch.size() + " statements from secondary indexer: " + index.getTableName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes one document matching each of the queries with a single bulk write.
+     *
+     * @param queries - The queries of the statements that will be deleted. (not null)
+     */
+    private void bulkDelete(final List<Document> queries) {
+        final List<WriteModel<Document>> deletes = new ArrayList<>(queries.size());
+        for (final Document query : queries) {
+            deletes.add(new DeleteOneModel<>(query));
         }
+        // The deletes are independent, so the server may apply them in any order
+        coll.bulkWrite(deletes, new BulkWriteOptions().ordered(false));
     }
 
     @Override
@@ -20,6 +20,7 @@ package org.apache.rya.mongodb.aggregation;
 
 import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.CONTEXT;
 import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.DOCUMENT_VISIBILITY;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.DOCUMENT_VISIBILITY_KEYS;
 import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT;
 import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT_HASH;
 import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT_TYPE;
@@ -31,6 +32,7 @@ import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.SUBJECT_HA
 import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.TIMESTAMP;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -48,9 +50,9 @@ import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.domain.StatementMetadata;
 import org.apache.rya.api.resolver.RdfToRyaConversions;
 import org.apache.rya.mongodb.MongoDbRdfConstants;
-import org.apache.rya.mongodb.dao.MongoDBStorageStrategy;
 import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
 import org.apache.rya.mongodb.document.operators.query.ConditionalOperators;
+import org.apache.rya.mongodb.document.util.DocumentVisibilityUtil;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibilityAdapter;
 import org.bson.Document;
 import org.bson.conversions.Bson;
@@ -119,11 +121,11 @@ public class AggregationPipelineQueryNode extends ExternalSet {
     private static final String JOINED_TRIPLE = "<JOINED_TRIPLE>";
     private static final String FIELDS_MATCH = "<JOIN_FIELDS_MATCH>";
 
-    private static final MongoDBStorageStrategy<RyaStatement> strategy = new SimpleMongoDBStorageStrategy();
-
     private static final Bson DEFAULT_TYPE = new Document("$literal", XMLSchema.ANYURI.stringValue());
     private static final Bson DEFAULT_CONTEXT = new Document("$literal", "");
     private static final Bson DEFAULT_DV = DocumentVisibilityAdapter.toDocument(MongoDbRdfConstants.EMPTY_DV);
+    private static final Bson DEFAULT_DV_KEYS = new Document("$literal",
+            DocumentVisibilityUtil.toAuthorizationSetKeys(Collections.emptyList()));
     private static final Bson DEFAULT_METADATA = new Document("$literal",
             StatementMetadata.EMPTY_METADATA.toString());
 
@@ -255,7 +257,7 @@ public class AggregationPipelineQueryNode extends ExternalSet {
      *  "x" followed by "y".
      * @return The argument of a "$match" query
      */
-    private static Document getMatchExpression(final StatementPattern sp, final String ... path) {
+    private Document getMatchExpression(final StatementPattern sp, final String ... path) {
         final Var subjVar = sp.getSubjectVar();
         final Var predVar = sp.getPredicateVar();
         final Var objVar = sp.getObjectVar();
@@ -328,6 +330,7 @@ public class AggregationPipelineQueryNode extends ExternalSet {
     private final Set<String> assuredBindingNames;
     private final Set<String> bindingNames;
     private final BiMap<String, String> varToOriginalName;
+    private final SimpleMongoDBStorageStrategy strategy;
 
     private String replace(final String original) {
         if (varToOriginalName.containsValue(original)) {
@@ -346,7 +349,19 @@ public class AggregationPipelineQueryNode extends ExternalSet {
      * @param baseSP The leaf node in the query tree.
      */
     public AggregationPipelineQueryNode(final MongoCollection<Document> collection, final StatementPattern baseSP) {
+        this(collection, baseSP, new SimpleMongoDBStorageStrategy());
+    }
+
+    /**
+     * Create a pipeline query node based on a StatementPattern.
+     * @param collection The collection of triples to query.
+     * @param baseSP The leaf node in the query tree.
+     * @param strategy Determines the format of the hashes in the collection.
+     */
+    public AggregationPipelineQueryNode(final MongoCollection<Document> collection, final StatementPattern baseSP,
+            final SimpleMongoDBStorageStrategy strategy) {
         this.collection = Preconditions.checkNotNull(collection);
+        this.strategy = Preconditions.checkNotNull(strategy);
         Preconditions.checkNotNull(baseSP);
         this.varToOriginalName = HashBiMap.create();
         final StatementVarMapping mapping = new StatementVarMapping(baseSP, varToOriginalName);
@@ -360,7 +375,16 @@ public class AggregationPipelineQueryNode extends ExternalSet {
     AggregationPipelineQueryNode(final MongoCollection<Document> collection,
             final List<Bson> pipeline, final Set<String> assuredBindingNames,
             final Set<String> bindingNames, final BiMap<String, String> varToOriginalName) {
+        this(collection, pipeline, assuredBindingNames, bindingNames, varToOriginalName,
+                new SimpleMongoDBStorageStrategy());
+    }
+
+    AggregationPipelineQueryNode(final MongoCollection<Document> collection,
+            final List<Bson> pipeline, final Set<String> assuredBindingNames,
+            final Set<String> bindingNames, final BiMap<String, String> varToOriginalName,
+            final SimpleMongoDBStorageStrategy strategy) {
         this.collection = Preconditions.checkNotNull(collection);
+        this.strategy = Preconditions.checkNotNull(strategy);
         this.pipeline = Preconditions.checkNotNull(pipeline);
         this.assuredBindingNames = Preconditions.checkNotNull(assuredBindingNames);
         this.bindingNames = Preconditions.checkNotNull(bindingNames);
@@ -431,7 +455,8 @@ public class AggregationPipelineQueryNode extends ExternalSet {
                 new LinkedList<>(pipeline),
                 new HashSet<>(assuredBindingNames),
                 new HashSet<>(bindingNames),
-                HashBiMap.create(varToOriginalName));
+                HashBiMap.create(varToOriginalName),
+                strategy);
     }
 
     @Override
@@ -499,6 +524,10 @@ public class AggregationPipelineQueryNode extends ExternalSet {
         //   the join key, project all existing fields plus a new field that
         //   tests the equality of those shared variables.
         final Document matchOpts = getMatchExpression(sp, JOINED_TRIPLE);
+        if (strategy.getHashFormat().verifyValues()) {
+            // Two values may share a hash, so the join key has to be checked too
+            sharedVars.add(joinKey);
+        }
         if (!sharedVars.isEmpty()) {
             final List<Bson> eqTests = new LinkedList<>();
             for (final String varName : sharedVars) {
@@ -660,7 +689,7 @@ public class AggregationPipelineQueryNode extends ExternalSet {
             else if (expr instanceof ValueConstant) {
                 final Value val = ((ValueConstant) expr).getValue();
                 valueField = new Document("$literal", val.stringValue());
-                hashField = new Document("$literal", SimpleMongoDBStorageStrategy.hash(val.stringValue()));
+                hashField = new Document("$literal", strategy.getHashFormat().hash(val.stringValue()));
                 if (val instanceof Literal) {
                     typeField = new Document("$literal", ((Literal) val).getDatatype().stringValue());
                 }
@@ -835,6 +864,7 @@ public class AggregationPipelineQueryNode extends ExternalSet {
         fields.add(Projections.computed(CONTEXT, DEFAULT_CONTEXT));
         fields.add(Projections.computed(STATEMENT_METADATA, DEFAULT_METADATA));
         fields.add(DEFAULT_DV);
+        fields.add(Projections.computed(DOCUMENT_VISIBILITY_KEYS, DEFAULT_DV_KEYS));
         fields.add(Projections.computed(TIMESTAMP, new Document("$literal", timestamp)));
         fields.add(Projections.computed(LEVEL, new Document("$add", Arrays.asList("$" + LEVEL, 1))));
         triplePipeline.add(Aggregates.project(Projections.fields(fields)));
@@ -844,10 +874,15 @@ public class AggregationPipelineQueryNode extends ExternalSet {
             final Bson includeAll = Projections.include(SUBJECT, SUBJECT_HASH,
                     PREDICATE, PREDICATE_HASH, OBJECT, OBJECT_HASH,
                     OBJECT_TYPE, CONTEXT, STATEMENT_METADATA,
-                    DOCUMENT_VISIBILITY, TIMESTAMP, LEVEL);
+                    DOCUMENT_VISIBILITY, DOCUMENT_VISIBILITY_KEYS, TIMESTAMP, LEVEL);
             final List<Bson> eqTests = new LinkedList<>();
             eqTests.add(new Document("$eq", Arrays.asList("$$this." + PREDICATE_HASH, "$" + PREDICATE_HASH)));
             eqTests.add(new Document("$eq", Arrays.asList("$$this." + OBJECT_HASH, "$" + OBJECT_HASH)));
+            if (strategy.getHashFormat().verifyValues()) {
+                for (final String field : Arrays.asList(SUBJECT, PREDICATE, OBJECT)) {
+                    eqTests.add(new Document("$eq", Arrays.asList("$$this." + field, "$" + field)));
+                }
+            }
             final Bson redundantFilter = new Document("$filter", new Document("input", "$" + JOINED_TRIPLE)
                     .append("as", "this").append("cond", new Document("$and", eqTests)));
             triplePipeline.add(Aggregates.lookup(collectionName, SUBJECT_HASH,
@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.aggregation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.apache.rya.mongodb.dao.MongoDBStatementStatistics;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Orders the statement patterns of a tree of joins so that the aggregation
+ * pipeline starts with the pattern that matches the fewest statements, and then
+ * joins the remaining patterns one at a time, each time picking the smallest
+ * pattern that shares a variable with the patterns joined so far. Each
+ * {@code $lookup} then runs once per solution of a pipeline that is kept as
+ * small as possible.
+ * <p>
+ * When the cardinality of two patterns is unknown or equal, the pattern with
+ * more constants goes first, and otherwise the query's order is kept.
+ */
+class PipelineJoinOrderer {
+    private final ToLongFunction<StatementPattern> cardinality;
+
+    /**
+     * @param cardinality Estimates the number of statements that match a
+     *  pattern, returning a negative number if it can't, as
+     *  {@link MongoDBStatementStatistics#getCardinality(StatementPattern)} does.
+     */
+    PipelineJoinOrderer(final ToLongFunction<StatementPattern> cardinality) {
+        this.cardinality = Preconditions.checkNotNull(cardinality);
+    }
+
+    /**
+     * Rebuilds a tree of joins as a left-deep tree whose statement patterns are
+     * ordered by {@link #order(List)} and come before its other arguments.
+     * @param join The root of the tree of joins.
+     * @return The root of the reordered tree, or {@code join} if it joins fewer
+     *  than two statement patterns. The caller replaces {@code join} with it.
+     */
+    TupleExpr reorder(final Join join) {
+        final List<TupleExpr> args = new ArrayList<>();
+        flatten(join, args);
+        final List<StatementPattern> patterns = new ArrayList<>();
+        final List<TupleExpr> others = new ArrayList<>();
+        for (final TupleExpr arg : args) {
+            if (arg instanceof StatementPattern) {
+                patterns.add((StatementPattern) arg);
+            } else {
+                others.add(arg);
+            }
+        }
+        if (patterns.size() < 2) {
+            return join;
+        }
+
+        TupleExpr root = null;
+        for (final TupleExpr arg : order(patterns)) {
+            root = root == null ? arg : new Join(root, arg);
+        }
+        for (final TupleExpr arg : others) {
+            root = new Join(root, arg);
+        }
+        return root;
+    }
+
+    /**
+     * @param patterns The statement patterns that are joined.
+     * @return The patterns in the order they should be joined in.
+     */
+    List<StatementPattern> order(final List<StatementPattern> patterns) {
+        final Map<StatementPattern, Long> cardinalities = new IdentityHashMap<>();
+        for (final StatementPattern sp : patterns) {
+            cardinalities.put(sp, cardinality.applyAsLong(sp));
+        }
+
+        final List<StatementPattern> remaining = new ArrayList<>(patterns);
+        final List<StatementPattern> ordered = new ArrayList<>(patterns.size());
+        final Set<String> boundVars = new HashSet<>();
+        while (!remaining.isEmpty()) {
+            int next = -1;
+            for (int i = 0; i < remaining.size(); i++) {
+                final StatementPattern sp = remaining.get(i);
+                if ((ordered.isEmpty() || sharesVariable(sp, boundVars))
+                        && (next < 0 || compare(sp, remaining.get(next), cardinalities) < 0)) {
+                    next = i;
+                }
+            }
+            if (next < 0) {
+                // None of the patterns can be joined on a variable, so start
+                // the next connected group with its smallest pattern.
+                for (int i = 0; i < remaining.size(); i++) {
+                    if (next < 0 || compare(remaining.get(i), remaining.get(next), cardinalities) < 0) {
+                        next = i;
+                    }
+                }
+            }
+            final StatementPattern sp = remaining.remove(next);
+            ordered.add(sp);
+            for (final Var var : sp.getVarList()) {
+                if (!var.hasValue()) {
+                    boundVars.add(var.getName());
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static int compare(final StatementPattern sp1, final StatementPattern sp2,
+            final Map<StatementPattern, Long> cardinalities) {
+        final long cardinality1 = cardinalities.get(sp1);
+        final long cardinality2 = cardinalities.get(sp2);
+        if (cardinality1 >= 0 && cardinality2 >= 0 && cardinality1 != cardinality2) {
+            return Long.compare(cardinality1, cardinality2);
+        }
+        return Integer.compare(constants(sp2), constants(sp1));
+    }
+
+    private static int constants(final StatementPattern sp) {
+        int constants = 0;
+        for (final Var var : sp.getVarList()) {
+            if (var.hasValue()) {
+                constants++;
+            }
+        }
+        return constants;
+    }
+
+    private static boolean sharesVariable(final StatementPattern sp, final Set<String> boundVars) {
+        for (final Var var : sp.getVarList()) {
+            if (!var.hasValue() && boundVars.contains(var.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void flatten(final TupleExpr expr, final List<TupleExpr> args) {
+        if (expr instanceof Join) {
+            flatten(((Join) expr).getLeftArg(), args);
+            flatten(((Join) expr).getRightArg(), args);
+        } else {
+            args.add(expr);
+        }
+    }
+}
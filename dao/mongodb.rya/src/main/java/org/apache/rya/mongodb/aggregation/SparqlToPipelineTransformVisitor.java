@@ -22,6 +22,8 @@ import java.util.Arrays;
 
 import org.apache.rya.mongodb.MongoDBRdfConfiguration;
 import org.apache.rya.mongodb.StatefulMongoDBRdfConfiguration;
+import org.apache.rya.mongodb.dao.MongoDBStatementStatistics;
+import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
 import org.bson.Document;
 import org.eclipse.rdf4j.query.algebra.Distinct;
 import org.eclipse.rdf4j.query.algebra.Extension;
@@ -34,6 +36,8 @@ import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.ValueExpr;
 import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.mongodb.MongoClient;
@@ -75,16 +79,49 @@ import com.mongodb.client.MongoDatabase;
  * is a {@code StatementPattern} and the other is an
  * {@code AggregationPipelineQueryNode}.
  * </ul>
+ * <p>
+ * Before a tree of joins is transformed, its statement patterns are reordered
+ * by a {@link PipelineJoinOrderer}, so that the pipeline starts with the most
+ * selective pattern. When statistics are enabled in the configuration, the
+ * patterns are ordered by the counts in {@link MongoDBStatementStatistics}.
  */
 public class SparqlToPipelineTransformVisitor extends AbstractQueryModelVisitor<Exception> {
+    private static final Logger logger = LoggerFactory.getLogger(SparqlToPipelineTransformVisitor.class);
+
     private final MongoCollection<Document> inputCollection;
+    private final SimpleMongoDBStorageStrategy strategy;
+    private final PipelineJoinOrderer joinOrderer;
 
     /**
      * Instantiate a visitor directly from a {@link MongoCollection}.
      * @param inputCollection Stores triples.
      */
     public SparqlToPipelineTransformVisitor(MongoCollection<Document> inputCollection) {
+        this(inputCollection, new SimpleMongoDBStorageStrategy());
+    }
+
+    /**
+     * Instantiate a visitor directly from a {@link MongoCollection}.
+     * @param inputCollection Stores triples.
+     * @param strategy Determines the format of the hashes in the collection.
+     */
+    public SparqlToPipelineTransformVisitor(MongoCollection<Document> inputCollection,
+            SimpleMongoDBStorageStrategy strategy) {
+        this(inputCollection, strategy, null);
+    }
+
+    /**
+     * Instantiate a visitor directly from a {@link MongoCollection}.
+     * @param inputCollection Stores triples.
+     * @param strategy Determines the format of the hashes in the collection.
+     * @param statistics Counts the triples, to order joins by. May be null, in
+     *  which case joins are ordered by the number of constants in each pattern.
+     */
+    public SparqlToPipelineTransformVisitor(MongoCollection<Document> inputCollection,
+            SimpleMongoDBStorageStrategy strategy, MongoDBStatementStatistics statistics) {
         this.inputCollection = Preconditions.checkNotNull(inputCollection);
+        this.strategy = Preconditions.checkNotNull(strategy);
+        this.joinOrderer = new PipelineJoinOrderer(statistics == null ? sp -> -1 : sp -> getCardinality(statistics, sp));
     }
 
     /**
@@ -96,15 +133,36 @@ public class SparqlToPipelineTransformVisitor extends AbstractQueryModelVisitor<
         MongoClient mongo = conf.getMongoClient();
         MongoDatabase db = mongo.getDatabase(conf.getMongoDBName());
         this.inputCollection = db.getCollection(conf.getTriplesCollectionName());
+        this.strategy = SimpleMongoDBStorageStrategy.fromConfiguration(conf);
+        final MongoDBStatementStatistics statistics = conf.getUseStatistics()
+                ? new MongoDBStatementStatistics(db.getCollection(conf.getStatisticsCollectionName())) : null;
+        this.joinOrderer = new PipelineJoinOrderer(statistics == null ? sp -> -1 : sp -> getCardinality(statistics, sp));
+    }
+
+    private static long getCardinality(MongoDBStatementStatistics statistics, StatementPattern sp) {
+        try {
+            return statistics.getCardinality(sp);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to read the statistics of a statement pattern; ordering joins without them.", e);
+            return -1;
+        }
     }
 
     @Override
     public void meet(StatementPattern sp) {
-        sp.replaceWith(new AggregationPipelineQueryNode(inputCollection, sp));
+        sp.replaceWith(new AggregationPipelineQueryNode(inputCollection, sp, strategy));
     }
 
     @Override
     public void meet(Join join) throws Exception {
+        // Order the whole tree of joins once, at its root
+        if (join.getParentNode() != null && !(join.getParentNode() instanceof Join)) {
+            TupleExpr reordered = joinOrderer.reorder(join);
+            if (reordered != join) {
+                join.replaceWith(reordered);
+                join = (Join) reordered;
+            }
+        }
         // If one branch is a single statement pattern, then try replacing the
         // other with a pipeline.
         AggregationPipelineQueryNode pipelineNode = null;
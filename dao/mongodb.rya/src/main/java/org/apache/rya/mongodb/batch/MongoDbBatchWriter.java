@@ -22,47 +22,68 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 import org.apache.rya.mongodb.batch.collection.CollectionType;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mongodb.DuplicateKeyException;
+import com.mongodb.ErrorCategory;
 import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
 
 /**
- * Handles batch writing MongoDB statement objects to the repository. It takes
- * in a configurable batch size and flush time. If the number of objects placed
- * in the queue reaches the batch size then the objects are bulk written to the
- * datastore. Or if the queue has not filled up after the batch time duration
- * has passed then the statements are flushed out and written to the datastore.
+ * Handles batch writing MongoDB statement objects to the repository. Objects
+ * are placed in a queue that holds up to the configured batch size, and a
+ * writer thread bulk writes whatever is queued as soon as its previous write
+ * has finished, so batches grow with the rate objects are added. When the queue
+ * is full, adding an object blocks until the writer thread has made room.
  * @param <T> the type of object that the batch writer's internal collection
  * type uses.
  */
 public class MongoDbBatchWriter<T> {
     private static final Logger log = Logger.getLogger(MongoDbBatchWriter.class);
 
-    private static final int CHECK_QUEUE_INTERVAL_MS = 10;
-
     private final CollectionType<T> collectionType;
+    private final int batchSize;
     private final long batchFlushTimeMs;
+    private final Consumer<List<T>> insertListener;
 
     private final ArrayBlockingQueue<T> statementInsertionQueue;
-    private final ScheduledThreadPoolExecutor scheduledExecutor = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(0);
-    private ScheduledFuture<?> flushBatchFuture;
-    private final Runnable flushBatchTask;
-    private Thread queueFullCheckerThread;
+    private volatile Thread writerThread;
+
+    /**
+     * Held while objects are written without the writer thread, so that
+     * concurrent flushes write their batches one at a time.
+     */
+    private final Object writeLock = new Object();
 
     private final AtomicBoolean isInit = new AtomicBoolean();
 
+    /**
+     * The number of objects that have been added to the queue. Guarded by {@code this}.
+     */
+    private long queued = 0;
+
+    /**
+     * The number of queued objects whose writes have finished. Guarded by {@code this}.
+     */
+    private long written = 0;
+
+    /**
+     * A write that failed since the last flush. Guarded by {@code this}.
+     */
+    private MongoDbBatchWriterException writeFailure = null;
+
     /**
      * Creates a new instance of {@link MongoDbBatchWriter}.
      * @param collectionType the {@link CollectionType}. (not {@code null})
@@ -70,57 +91,55 @@ public class MongoDbBatchWriter<T> {
      * (not {@code null})
      */
     public MongoDbBatchWriter(final CollectionType<T> collectionType, final MongoDbBatchWriterConfig mongoDbBatchWriterConfig) {
-        this.collectionType = checkNotNull(collectionType);
-        this.batchFlushTimeMs = checkNotNull(mongoDbBatchWriterConfig).getBatchFlushTimeMs();
-
-        statementInsertionQueue = new ArrayBlockingQueue<>(mongoDbBatchWriterConfig.getBatchSize());
-        flushBatchTask = new BatchFlusher();
+        this(collectionType, mongoDbBatchWriterConfig, inserted -> {});
     }
 
     /**
-     * Task used to flush statements if enough time has passed without an
-     * insertion while there are objects enqueued.
+     * Creates a new instance of {@link MongoDbBatchWriter} that reports the
+     * objects it inserts.
+     * @param collectionType the {@link CollectionType}. (not {@code null})
+     * @param mongoDbBatchWriterConfig the {@link MongoDbBatchWriterConfig}.
+     * (not {@code null})
+     * @param insertListener called with the objects of each batch that were
+     * inserted, leaving out duplicates and objects that failed. It is called
+     * before a {@link #flush()} waiting for the batch returns, and a failure it
+     * throws is reported by that flush. (not {@code null})
      */
-    private class BatchFlusher implements Runnable {
-        @Override
-        public void run() {
-            try {
-                if (!statementInsertionQueue.isEmpty()) {
-                    log.trace("Running statement insertion flush task. Too much time has passed without any object insertions so all queued data is being flushed.");
-                    flush();
-                }
-            } catch (final Exception e) {
-                log.error("Error flush out the statements", e);
-            }
-        }
+    public MongoDbBatchWriter(final CollectionType<T> collectionType, final MongoDbBatchWriterConfig mongoDbBatchWriterConfig,
+            final Consumer<List<T>> insertListener) {
+        this.collectionType = checkNotNull(collectionType);
+        this.batchSize = checkNotNull(mongoDbBatchWriterConfig).getBatchSize();
+        this.batchFlushTimeMs = mongoDbBatchWriterConfig.getBatchFlushTimeMs();
+        this.insertListener = checkNotNull(insertListener);
+
+        statementInsertionQueue = new ArrayBlockingQueue<>(batchSize);
     }
 
-    private static final ThreadFactory QUEUE_THREAD_FACTORY = new ThreadFactoryBuilder()
-        .setNameFormat("Queue Full Checker Thread - %d")
+    private static final ThreadFactory WRITER_THREAD_FACTORY = new ThreadFactoryBuilder()
+        .setNameFormat("MongoDB Batch Writer Thread - %d")
+        .setDaemon(true)
         .build();
 
     /**
-     * Checks the queue for statements to insert if the queue is full.
+     * Writes the queued objects in batches until the batch writer is shut down.
      */
-    private class QueueFullChecker implements Runnable {
+    private class BatchWriterTask implements Runnable {
         @Override
         public void run() {
             try {
                 while (isInit.get()) {
-                    // Check if the queue is full and if it is then insert the
-                    // statements. Otherwise reset the insertion timer.
-                    if (statementInsertionQueue.remainingCapacity() == 0) {
-                        log.trace("Statement queue is FULL -> going to empty it");
-                        try {
-                            flush();
-                        } catch (final MongoDbBatchWriterException e) {
-                            log.error("Error emptying queue", e);
-                        }
+                    // Block until there is something to write, waking up now and
+                    // then to see whether the writer has been shut down.
+                    final T first = statementInsertionQueue.poll(Math.max(batchFlushTimeMs, 1L), TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        final List<T> batch = new ArrayList<>();
+                        batch.add(first);
+                        statementInsertionQueue.drainTo(batch, batchSize - 1);
+                        write(batch);
                     }
-                    Thread.sleep(CHECK_QUEUE_INTERVAL_MS);
                 }
             } catch (final InterruptedException e) {
-                log.error("Encountered an unexpected error while checking the batch queue.", e);
+                log.error("Encountered an unexpected error while writing the batch queue.", e);
             }
         }
     }
@@ -130,74 +149,58 @@ public class MongoDbBatchWriter<T> {
      */
     public void start() throws MongoDbBatchWriterException {
         if (!isInit.get()) {
-            if (flushBatchFuture == null) {
-                flushBatchFuture = startFlushTimer();
-            }
-            if (queueFullCheckerThread == null) {
-                queueFullCheckerThread = QUEUE_THREAD_FACTORY.newThread(new QueueFullChecker());
-            }
             isInit.set(true);
-            queueFullCheckerThread.start();
+            writerThread = WRITER_THREAD_FACTORY.newThread(new BatchWriterTask());
+            writerThread.start();
         }
     }
 
     /**
-     * Stops the batch writer processes.
+     * Stops the batch writer processes. Objects that are still queued are
+     * written before this returns.
      */
     public void shutdown() throws MongoDbBatchWriterException {
         isInit.set(false);
-        if (flushBatchFuture != null) {
-            flushBatchFuture.cancel(true);
-            flushBatchFuture = null;
-        }
-        if (queueFullCheckerThread != null) {
-            if (queueFullCheckerThread.isAlive()) {
-                try {
-                    queueFullCheckerThread.join(2 * CHECK_QUEUE_INTERVAL_MS);
-                } catch (final InterruptedException e) {
-                    log.error("Error waiting for thread to finish", e);
-                }
-                queueFullCheckerThread = null;
+        if (writerThread != null) {
+            try {
+                writerThread.join();
+            } catch (final InterruptedException e) {
+                log.error("Error waiting for thread to finish", e);
+                Thread.currentThread().interrupt();
             }
+            writerThread = null;
         }
+        writeQueued();
     }
 
     /**
-     * Adds a MongoDB object to the queue which will not be written until one of
-     * the following occur:<br>
-     * <ul>
-     *  <li>The queue fills up</li>
-     *  <li>The flush time has been reached</li>
-     *  <li>A direct call to the {@link MongoDbBatchWriter#flush()} method
-     *  has been made</li>
-     * </ul>
+     * Adds a MongoDB object to the queue which will be written by the writer
+     * thread once the objects queued before it have been written. Blocks while
+     * the queue is full.
      * @param object the object to add to the queue.
      * @throws IOException
      */
     public void addObjectToQueue(final T object) throws MongoDbBatchWriterException {
         if (object != null) {
             try {
-                // Place in the queue which will bulk write after the specified
-                // "batchSize" number of items have filled the queue or if more
-                // than "batchFlushTimeMs" milliseconds have passed since the
-                // last insertion.
-                resetFlushTimer();
                 statementInsertionQueue.put(object);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MongoDbBatchWriterException("Interrupted while adding object to batch queue.", e);
             } catch (final Exception e) {
                 throw new MongoDbBatchWriterException("Error adding object to batch queue.", e);
             }
+            // Only count the object once it is queued, so that a failed put does not leave flush() waiting for it.
+            synchronized (this) {
+                queued++;
+            }
         }
     }
 
     /**
-     * Adds a list of MongoDB objects to the queue which will not be written
-     * until one of the following occur:<br>
-     * <ul>
-     *  <li>The queue fills up</li>
-     *  <li>The flush time has been reached</li>
-     *  <li>A direct call to the {@link MongoDbBatchWriter#flush()} method
-     *  has been made</li>
-     * </ul>
+     * Adds a list of MongoDB objects to the queue which will be written by the
+     * writer thread once the objects queued before them have been written.
+     * Blocks while the queue is full.
      * @param objects a {@link List} of objects to add to the queue.
      * @throws IOException
      */
@@ -210,38 +213,127 @@ public class MongoDbBatchWriter<T> {
     }
 
     /**
-     * Flushes out statements that are in the queue.
+     * Waits for the writer thread to write the objects that were queued before
+     * this call. The writer thread takes objects in the order they were queued,
+     * so once it has written as many objects as were queued, every one of them
+     * has been written. When the writer thread is not running, the queued
+     * objects are written by the calling thread instead.
+     * @throws MongoDbBatchWriterException A write that was made since the last
+     * flush failed.
      */
     public void flush() throws MongoDbBatchWriterException {
-        final List<T> batch = new ArrayList<>();
+        final long target;
+        synchronized (this) {
+            target = queued;
+        }
         try {
-            statementInsertionQueue.drainTo(batch);
-            if (!batch.isEmpty()) {
-                collectionType.insertMany(batch);
+            while (true) {
+                synchronized (this) {
+                    if (written >= target) {
+                        break;
+                    }
+                    if (isWriterRunning()) {
+                        wait(Math.max(batchFlushTimeMs, 1L));
+                        continue;
+                    }
+                }
+                writeQueued();
             }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoDbBatchWriterException("Interrupted while flushing statements", e);
+        }
+
+        synchronized (this) {
+            if (writeFailure != null) {
+                final MongoDbBatchWriterException failure = writeFailure;
+                writeFailure = null;
+                throw failure;
+            }
+        }
+    }
+
+    private boolean isWriterRunning() {
+        final Thread writer = writerThread;
+        return writer != null && writer.isAlive();
+    }
+
+    private void writeQueued() {
+        synchronized (writeLock) {
+            final List<T> batch = new ArrayList<>();
+            while (statementInsertionQueue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(final List<T> batch) {
+        MongoDbBatchWriterException failure = null;
+        List<T> inserted = batch;
+        try {
+            collectionType.insertMany(batch);
         } catch (final DuplicateKeyException e) {
             log.warn(e); // Suppress the stack trace so log doesn't get flooded.
+            inserted = Collections.emptyList();
         } catch (final MongoBulkWriteException e) {
-            if (e.getMessage().contains("duplicate key error")) {
-                log.warn(e); // Suppress the stack trace so log doesn't get flooded.
+            // The writes are unordered, so every object that did not fail has been written
+            inserted = withoutFailed(batch, e);
+            if (isDuplicateKeysOnly(e)) {
+                log.warn("Skipped " + e.getWriteErrors().size() + " duplicate objects in a batch of " + batch.size());
             } else {
-                throw new MongoDbBatchWriterException("Error flushing statements", e);
+                failure = new MongoDbBatchWriterException("Error flushing statements", e);
             }
         } catch (final Exception e) {
-            throw new MongoDbBatchWriterException("Error flushing statements", e);
+            failure = new MongoDbBatchWriterException("Error flushing statements", e);
+            inserted = Collections.emptyList();
+        }
+
+        if (!inserted.isEmpty()) {
+            try {
+                insertListener.accept(inserted);
+            } catch (final Exception e) {
+                if (failure == null) {
+                    failure = new MongoDbBatchWriterException("Error handling inserted objects", e);
+                }
+            }
+        }
+
+        synchronized (this) {
+            written += batch.size();
+            if (failure != null) {
+                log.error("Error writing a batch of " + batch.size() + " objects", failure);
+                if (writeFailure == null) {
+                    writeFailure = failure;
+                }
+            }
+            notifyAll();
         }
     }
 
-    private void resetFlushTimer() throws MongoDbBatchWriterException {
-        flushBatchFuture.cancel(false);
-        flushBatchFuture = startFlushTimer();
+    private static <T> List<T> withoutFailed(final List<T> batch, final MongoBulkWriteException e) {
+        final Set<Integer> failed = new HashSet<>();
+        for (final BulkWriteError error : e.getWriteErrors()) {
+            failed.add(error.getIndex());
+        }
+        final List<T> inserted = new ArrayList<>(batch.size() - failed.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (!failed.contains(i)) {
+                inserted.add(batch.get(i));
+            }
+        }
+        return inserted;
     }
 
-    private ScheduledFuture<?> startFlushTimer() throws MongoDbBatchWriterException {
-        try {
-            return scheduledExecutor.schedule(flushBatchTask, batchFlushTimeMs, TimeUnit.MILLISECONDS);
-        } catch (final Exception e) {
-            throw new MongoDbBatchWriterException("Error starting batch flusher", e);
+    private static boolean isDuplicateKeysOnly(final MongoBulkWriteException e) {
+        if (e.getWriteConcernError() != null) {
+            return false;
+        }
+        for (final BulkWriteError error : e.getWriteErrors()) {
+            if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+                return false;
+            }
         }
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -25,7 +25,9 @@ import com.google.common.base.Preconditions;
  */
 public class MongoDbBatchWriterConfig {
     /**
-     * The default number of statements to batch write at a time.
+     * The default number of statements to batch write at a time. This is also
+     * the number of statements that may be queued before adding another one
+     * blocks.
      */
     public static final int DEFAULT_BATCH_SIZE = 50000;
     private Integer batchSize = null;
@@ -33,7 +35,10 @@ public class MongoDbBatchWriterConfig {
     /**
      * The default time to wait in milliseconds to flush all statements out that
      * are queued for insertion if the queue has not filled up to its capacity
-     * of {@link #DEFAULT_BATCH_SIZE} or the user configured buffer size.
+     * of {@link #DEFAULT_BATCH_SIZE} or the user configured buffer size. The
+     * writer thread writes queued statements as soon as its previous write has
+     * finished, so this only bounds how long it waits for a statement before it
+     * checks whether it has been shut down.
      */
     public static final long DEFAULT_BATCH_FLUSH_TIME_MS = 100L;
     private Long batchFlushTimeMs = null;
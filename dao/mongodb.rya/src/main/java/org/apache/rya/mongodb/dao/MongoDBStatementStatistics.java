@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.dao;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.rya.api.domain.RyaStatement;
+import org.bson.Document;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * Counts the statements of a triple collection in a statistics collection:
+ * the total number of statements, the number with each predicate, and the
+ * number with each predicate and object. The counts are updated as statements
+ * are added and deleted, and are used to estimate how many statements a
+ * {@link StatementPattern} matches.
+ * <p>
+ * Callers report only the statements that were really inserted or deleted, so
+ * a duplicate insert, or the delete of a statement that was never stored, does
+ * not change the counts.
+ * <p>
+ * Each count is a document whose ID is built from the SHA-256 hashes of its
+ * terms, so the statistics do not depend on the {@link TermHashFormat} of the
+ * triples:
+ * <pre>
+ * {
+ *   "_id": "*" | &lt;predicate hash&gt; | &lt;predicate hash&gt; " " &lt;object hash&gt;,
+ *   "count": &lt;long&gt;
+ * }
+ * </pre>
+ */
+public class MongoDBStatementStatistics {
+    public static final String COUNT = "count";
+
+    private static final String ID = "_id";
+    private static final String TOTAL_ID = "*";
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+    private final MongoCollection<Document> collection;
+
+    /**
+     * @param collection - The collection the counts are stored in. (not null)
+     */
+    public MongoDBStatementStatistics(final MongoCollection<Document> collection) {
+        this.collection = requireNonNull(collection);
+    }
+
+    /**
+     * Counts statements that were added to the triple collection.
+     * @param statements - The added statements. (not null)
+     */
+    public void add(final Collection<RyaStatement> statements) {
+        update(statements, 1);
+    }
+
+    /**
+     * Stops counting statements that were deleted from the triple collection.
+     * @param statements - The deleted statements. (not null)
+     */
+    public void delete(final Collection<RyaStatement> statements) {
+        update(statements, -1);
+    }
+
+    private void update(final Collection<RyaStatement> statements, final int sign) {
+        requireNonNull(statements);
+        if (statements.isEmpty()) {
+            return;
+        }
+
+        // Sum the changes to each count, so a batch updates each count once
+        final Map<String, Long> changes = new HashMap<>();
+        changes.put(TOTAL_ID, (long) statements.size() * sign);
+        for (final RyaStatement statement : statements) {
+            final String predicate = SimpleMongoDBStorageStrategy.hash(statement.getPredicate().getData());
+            final String object = SimpleMongoDBStorageStrategy.hash(statement.getObject().getData());
+            changes.merge(predicate, (long) sign, Long::sum);
+            changes.merge(predicate + " " + object, (long) sign, Long::sum);
+        }
+
+        final List<WriteModel<Document>> updates = new ArrayList<>(changes.size());
+        for (final Map.Entry<String, Long> change : changes.entrySet()) {
+            updates.add(new UpdateOneModel<>(Filters.eq(ID, change.getKey()), Updates.inc(COUNT, change.getValue()), UPSERT));
+        }
+        collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+    }
+
+    /**
+     * Estimates the number of statements that match a statement pattern. A
+     * pattern with a constant subject is expected to match one statement, since
+     * the subjects are not counted.
+     * @param pattern - The statement pattern. (not null)
+     * @return The estimated number of matching statements, or -1 if no
+     *   statements have been counted.
+     */
+    public long getCardinality(final StatementPattern pattern) {
+        requireNonNull(pattern);
+        final long total = getCount(TOTAL_ID);
+        if (total < 0) {
+            return -1;
+        }
+        if (constant(pattern.getSubjectVar()) != null) {
+            return Math.min(total, 1);
+        }
+
+        final Value predicate = constant(pattern.getPredicateVar());
+        if (predicate == null) {
+            return total;
+        }
+        final String predicateHash = SimpleMongoDBStorageStrategy.hash(predicate.stringValue());
+        final Value object = constant(pattern.getObjectVar());
+        final String id = object == null ? predicateHash
+                : predicateHash + " " + SimpleMongoDBStorageStrategy.hash(object.stringValue());
+        return Math.max(getCount(id), 0);
+    }
+
+    /**
+     * @return The count with the ID, or -1 if there is no such count.
+     */
+    private long getCount(final String id) {
+        final Document count = collection.find(Filters.eq(ID, id)).first();
+        if (count == null) {
+            return -1;
+        }
+        return Math.max(((Number) count.get(COUNT)).longValue(), 0);
+    }
+
+    private static Value constant(final Var var) {
+        return var == null ? null : var.getValue();
+    }
+}
@@ -18,11 +18,14 @@
  */
 package org.apache.rya.mongodb.dao;
 
+import static java.util.Objects.requireNonNull;
 import static org.eclipse.rdf4j.model.vocabulary.XMLSchema.ANYURI;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -33,6 +36,8 @@ import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.domain.StatementMetadata;
 import org.apache.rya.api.persist.query.RyaQuery;
 import org.apache.rya.api.utils.LiteralLanguageUtils;
+import org.apache.rya.mongodb.MongoDBRdfConfiguration;
+import org.apache.rya.mongodb.document.util.DocumentVisibilityUtil;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibilityAdapter;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibilityAdapter.MalformedDocumentVisibilityException;
@@ -43,7 +48,9 @@ import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 import com.mongodb.client.MongoCollection;
 
 /**
- * Defines how {@link RyaStatement}s are stored in MongoDB.
+ * Defines how {@link RyaStatement}s are stored in MongoDB. The subject, predicate,
+ * and object of each statement are indexed by their hashes, which are stored in
+ * one of the {@link TermHashFormat}s.
  */
 public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaStatement> {
     private static final Logger LOG = Logger.getLogger(SimpleMongoDBStorageStrategy.class);
@@ -62,9 +69,17 @@ public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaS
     public static final String TIMESTAMP = "insertTimestamp";
     public static final String STATEMENT_METADATA = "statementMetadata";
     public static final String DOCUMENT_VISIBILITY = "documentVisibility";
+    /**
+     * The keys of the authorization sets that satisfy the document visibility,
+     * as created by {@link DocumentVisibilityUtil#toAuthorizationSetKeys(List)}.
+     * The field is indexed so that queries can find the documents a user may
+     * see without evaluating each document's visibility.
+     */
+    public static final String DOCUMENT_VISIBILITY_KEYS = "documentVisibilityKeys";
 
     /**
-     * Generate the hash that will be used to index and retrieve a given value.
+     * Generate the hash that will be used to index and retrieve a given value
+     * in the {@link TermHashFormat#SHA256_HEX} format.
      * @param value  A value to be stored or accessed (e.g. a IRI or literal).
      * @return the hash associated with that value in MongoDB.
      */
@@ -74,6 +89,68 @@ public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaS
 
     protected SimpleValueFactory factory = SimpleValueFactory.getInstance();
 
+    private final TermHashFormat hashFormat;
+    private final TermHashFormat previousHashFormat;
+
+    /**
+     * Constructs a strategy that stores hashes in the {@link TermHashFormat#SHA256_HEX} format.
+     */
+    public SimpleMongoDBStorageStrategy() {
+        this(TermHashFormat.SHA256_HEX, null);
+    }
+
+    /**
+     * @param hashFormat - The format hashes are stored and queried in. (not null)
+     * @param previousHashFormat - The format some of the stored triples may still
+     *   use while a {@link TermHashMigration} is running. Queries match hashes in
+     *   either format. (nullable)
+     */
+    public SimpleMongoDBStorageStrategy(final TermHashFormat hashFormat, final TermHashFormat previousHashFormat) {
+        this.hashFormat = requireNonNull(hashFormat);
+        this.previousHashFormat = previousHashFormat == hashFormat ? null : previousHashFormat;
+    }
+
+    /**
+     * @param conf - Configures the hash format. (not null)
+     * @return A strategy that uses the configuration's hash formats.
+     */
+    public static SimpleMongoDBStorageStrategy fromConfiguration(final MongoDBRdfConfiguration conf) {
+        requireNonNull(conf);
+        return new SimpleMongoDBStorageStrategy(conf.getTermHashFormat(), conf.getPreviousTermHashFormat());
+    }
+
+    /**
+     * @return The format hashes are stored and queried in.
+     */
+    public TermHashFormat getHashFormat() {
+        return hashFormat;
+    }
+
+    /**
+     * @return The format some of the stored triples may still use, or {@code null}
+     *   if every triple uses {@link #getHashFormat()}.
+     */
+    public TermHashFormat getPreviousHashFormat() {
+        return previousHashFormat;
+    }
+
+    /**
+     * Appends a test for a term to a query. The test matches the term's hash so
+     * that the query is answered from the indices, and matches the term itself
+     * when the hash format allows two terms to share a hash.
+     */
+    private void appendTerm(final Document query, final String hashField, final String valueField, final String value) {
+        final Object hash = hashFormat.hash(value);
+        if (previousHashFormat == null) {
+            query.append(hashField, hash);
+        } else {
+            query.append(hashField, new Document("$in", Arrays.asList(hash, previousHashFormat.hash(value))));
+        }
+        if (hashFormat.verifyValues() || (previousHashFormat != null && previousHashFormat.verifyValues())) {
+            query.append(valueField, value);
+        }
+    }
+
     @Override
     public void createIndices(final MongoCollection<Document> coll){
         Document doc = new Document();
@@ -93,6 +170,7 @@ public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaS
         doc.put(OBJECT_LANGUAGE, 1);
         doc.put(SUBJECT_HASH, 1);
         coll.createIndex(doc);
+        coll.createIndex(new Document(DOCUMENT_VISIBILITY_KEYS, 1));
     }
 
     @Override
@@ -103,15 +181,15 @@ public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaS
         final RyaIRI context = stmt.getContext();
         final Document query = new Document();
         if (subject != null){
-            query.append(SUBJECT_HASH, hash(subject.getData()));
+            appendTerm(query, SUBJECT_HASH, SUBJECT, subject.getData());
         }
         if (object != null){
-            query.append(OBJECT_HASH, hash(object.getData()));
+            appendTerm(query, OBJECT_HASH, OBJECT, object.getData());
             query.append(OBJECT_TYPE, object.getDataType().toString());
             query.append(OBJECT_LANGUAGE, object.getLanguage());
         }
         if (predicate != null){
-            query.append(PREDICATE_HASH, hash(predicate.getData()));
+            appendTerm(query, PREDICATE_HASH, PREDICATE, predicate.getData());
         }
         if (context != null){
             query.append(CONTEXT, context.getData());
@@ -193,19 +271,24 @@ public class SimpleMongoDBStorageStrategy implements MongoDBStorageStrategy<RyaS
             statement.setStatementMetadata(StatementMetadata.EMPTY_METADATA);
         }
         final Document dvObject = DocumentVisibilityAdapter.toDocument(statement.getColumnVisibility());
+        final List<?> dvList = (List<?>) dvObject.get(DOCUMENT_VISIBILITY);
         final Document doc = new Document(ID, new String(Hex.encodeHex(bytes)))
         .append(SUBJECT, statement.getSubject().getData())
-        .append(SUBJECT_HASH, hash(statement.getSubject().getData()))
+        .append(SUBJECT_HASH, hashFormat.hash(statement.getSubject().getData()))
         .append(PREDICATE, statement.getPredicate().getData())
-        .append(PREDICATE_HASH, hash(statement.getPredicate().getData()))
+        .append(PREDICATE_HASH, hashFormat.hash(statement.getPredicate().getData()))
         .append(OBJECT, statement.getObject().getData())
-        .append(OBJECT_HASH, hash(statement.getObject().getData()))
+        .append(OBJECT_HASH, hashFormat.hash(statement.getObject().getData()))
         .append(OBJECT_TYPE, statement.getObject().getDataType().toString())
         .append(OBJECT_LANGUAGE, statement.getObject().getLanguage())
         .append(CONTEXT, context)
         .append(STATEMENT_METADATA, statement.getMetadata().toString())
-        .append(DOCUMENT_VISIBILITY, dvObject.get(DOCUMENT_VISIBILITY))
-        .append(TIMESTAMP, statement.getTimestamp());
+        .append(DOCUMENT_VISIBILITY, dvList);
+        // without keys the document must match the filter for documents that have none, so the field is left out rather than null
+        if (dvList != null) {
+            doc.append(DOCUMENT_VISIBILITY_KEYS, DocumentVisibilityUtil.toAuthorizationSetKeys(dvList));
+        }
+        doc.append(TIMESTAMP, statement.getTimestamp());
         return doc;
     }
 
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.dao;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.bson.BsonType;
+import org.bson.types.Binary;
+
+/**
+ * The versions of the hashes that {@link SimpleMongoDBStorageStrategy} stores in
+ * the subject, predicate, and object hash fields of a triple. The hash fields are
+ * what the triple collection's indices are built on, so the smaller the hash,
+ * the more of the indices fit in memory.
+ * <p>
+ * The compact formats truncate the SHA-256 digest, so two terms may share a hash.
+ * Queries against them also match the stored term, which is never truncated.
+ */
+public enum TermHashFormat {
+    /**
+     * The original format: the SHA-256 digest as a 64 character hex string.
+     */
+    SHA256_HEX(BsonType.STRING, false) {
+        @Override
+        public Object hash(final String value) {
+            return DigestUtils.sha256Hex(value);
+        }
+    },
+
+    /**
+     * The first 16 bytes of the SHA-256 digest, stored as binary data.
+     */
+    SHA256_BINARY(BsonType.BINARY, true) {
+        @Override
+        public Object hash(final String value) {
+            return new Binary(Arrays.copyOf(DigestUtils.sha256(value), 16));
+        }
+    },
+
+    /**
+     * The first 8 bytes of the SHA-256 digest, stored as a 64-bit integer.
+     */
+    INT64(BsonType.INT64, true) {
+        @Override
+        public Object hash(final String value) {
+            return ByteBuffer.wrap(DigestUtils.sha256(value)).getLong();
+        }
+    };
+
+    private final BsonType bsonType;
+    private final boolean verifyValues;
+
+    private TermHashFormat(final BsonType bsonType, final boolean verifyValues) {
+        this.bsonType = bsonType;
+        this.verifyValues = verifyValues;
+    }
+
+    /**
+     * Generate the hash that will be used to index and retrieve a given value.
+     * @param value  A value to be stored or accessed (e.g. a IRI or literal).
+     * @return the hash associated with that value in MongoDB.
+     */
+    public abstract Object hash(String value);
+
+    /**
+     * @return The BSON type the hashes are stored as.
+     */
+    public BsonType getBsonType() {
+        return bsonType;
+    }
+
+    /**
+     * @return {@code true} if two terms may share a hash, so matches on the hash
+     *   have to be verified against the stored term; otherwise {@code false}.
+     */
+    public boolean verifyValues() {
+        return verifyValues;
+    }
+}
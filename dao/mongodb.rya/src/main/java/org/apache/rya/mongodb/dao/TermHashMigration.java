@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.dao;
+
+import static java.util.Objects.requireNonNull;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.ID;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.OBJECT_HASH;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.PREDICATE;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.PREDICATE_HASH;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.SUBJECT;
+import static org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy.SUBJECT_HASH;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.google.common.base.Preconditions;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * Rewrites the subject, predicate, and object hashes of the triples in a
+ * collection into another {@link TermHashFormat}. The triples are rewritten in
+ * batches while the collection stays in use, and the indices on the hash fields
+ * are updated along with each triple. To migrate a store without stopping it:
+ * <ol>
+ *   <li>Configure every client of the store with the new format as its
+ *     {@code TermHashFormat} and the old one as its previous format, so that
+ *     queries match triples in either format.</li>
+ *   <li>Run the migration until it finishes.</li>
+ *   <li>Remove the previous format from the clients' configuration.</li>
+ * </ol>
+ * A migration that is stopped may be run again later; it only rewrites the
+ * triples that are not in the new format yet.
+ */
+public class TermHashMigration implements Runnable {
+    private static final Logger LOG = Logger.getLogger(TermHashMigration.class);
+
+    private final MongoCollection<Document> collection;
+    private final TermHashFormat format;
+    private final int batchSize;
+
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final AtomicLong migrated = new AtomicLong(0);
+
+    /**
+     * @param collection - The collection of triples to migrate. (not null)
+     * @param format - The format the hashes are rewritten in. (not null)
+     * @param batchSize - The number of triples that are rewritten with each bulk write.
+     */
+    public TermHashMigration(final MongoCollection<Document> collection, final TermHashFormat format, final int batchSize) {
+        this.collection = requireNonNull(collection);
+        this.format = requireNonNull(format);
+        Preconditions.checkArgument(batchSize > 0, "batchSize must be greater than 0");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Rewrites every triple whose hashes are not in the new format yet, then
+     * makes sure the collection's indices exist.
+     */
+    @Override
+    public void run() {
+        final Bson notMigrated = Filters.or(
+                Filters.not(Filters.type(SUBJECT_HASH, format.getBsonType())),
+                Filters.not(Filters.type(PREDICATE_HASH, format.getBsonType())),
+                Filters.not(Filters.type(OBJECT_HASH, format.getBsonType())));
+        final Bson terms = Projections.include(SUBJECT, PREDICATE, OBJECT);
+        LOG.info("Migrating the term hashes of " + collection.getNamespace() + " to " + format);
+
+        final List<WriteModel<Document>> batch = new ArrayList<>(batchSize);
+        try (final MongoCursor<Document> cursor = collection.find(notMigrated).projection(terms).batchSize(batchSize).iterator()) {
+            while (!stopped.get() && cursor.hasNext()) {
+                final Document triple = cursor.next();
+                final Document hashes = new Document()
+                        .append(SUBJECT_HASH, format.hash(triple.getString(SUBJECT)))
+                        .append(PREDICATE_HASH, format.hash(triple.getString(PREDICATE)))
+                        .append(OBJECT_HASH, format.hash(triple.getString(OBJECT)));
+                batch.add(new UpdateOneModel<>(Filters.eq(ID, triple.get(ID)), new Document("$set", hashes)));
+                if (batch.size() == batchSize) {
+                    write(batch);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        }
+
+        if (stopped.get()) {
+            LOG.info("Stopped the migration of " + collection.getNamespace() + " after " + migrated.get() + " triples.");
+        } else {
+            new SimpleMongoDBStorageStrategy(format, null).createIndices(collection);
+            LOG.info("Migrated " + migrated.get() + " triples of " + collection.getNamespace() + " to " + format);
+        }
+    }
+
+    private void write(final List<WriteModel<Document>> batch) {
+        // the updates are independent, so an unordered write lets the server apply them in parallel
+        collection.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+        migrated.addAndGet(batch.size());
+        batch.clear();
+    }
+
+    /**
+     * Stops a running migration once its current batch has been written.
+     */
+    public void stop() {
+        stopped.set(true);
+    }
+
+    /**
+     * @return The number of triples that have been rewritten so far.
+     */
+    public long getMigrated() {
+        return migrated.get();
+    }
+
+    /**
+     * Migrates a collection from the command line.
+     * <p>
+     * Usage: {@code TermHashMigration <mongo uri> <database> <collection> <format> [batch size]}
+     *
+     * @param args - The arguments described above.
+     */
+    public static void main(final String[] args) {
+        if (args.length < 4 || args.length > 5) {
+            System.err.println("Usage: TermHashMigration <mongo uri> <database> <collection> <format> [batch size]");
+            System.exit(1);
+        }
+        final TermHashFormat format = TermHashFormat.valueOf(args[3]);
+        final int batchSize = args.length == 5 ? Integer.parseInt(args[4]) : 1000;
+        final MongoClient client = new MongoClient(new MongoClientURI(args[0]));
+        try {
+            final TermHashMigration migration = new TermHashMigration(
+                    client.getDatabase(args[1]).getCollection(args[2]), format, batchSize);
+            migration.run();
+        } finally {
+            client.close();
+        }
+    }
+}
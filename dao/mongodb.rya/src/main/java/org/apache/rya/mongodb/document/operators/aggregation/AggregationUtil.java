@@ -24,9 +24,13 @@ import static org.apache.rya.mongodb.document.operators.aggregation.SetOperators
 import static org.apache.rya.mongodb.document.operators.aggregation.VariableOperators.map;
 import static org.apache.rya.mongodb.document.operators.query.ArrayOperators.size;
 import static org.apache.rya.mongodb.document.operators.query.ComparisonOperators.eq;
+import static org.apache.rya.mongodb.document.operators.query.ComparisonOperators.gt;
+import static org.apache.rya.mongodb.document.operators.query.ConditionalOperators.ifNull;
 import static org.apache.rya.mongodb.document.operators.query.LogicalOperators.or;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.accumulo.core.security.Authorizations;
@@ -36,12 +40,29 @@ import org.apache.rya.mongodb.document.operators.aggregation.PipelineOperators.R
 import org.apache.rya.mongodb.document.util.AuthorizationsUtil;
 import org.bson.Document;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 
 /**
  * Utility methods for MongoDB aggregation.
  */
 public final class AggregationUtil {
+    /**
+     * The most authorizations whose subsets are enumerated to match the
+     * indexed {@link SimpleMongoDBStorageStrategy#DOCUMENT_VISIBILITY_KEYS}.
+     * Users with more authorizations are checked by evaluating each document's
+     * visibility instead.
+     */
+    private static final int MAX_ENUMERATED_AUTHORIZATIONS = 10;
+
+    /**
+     * The pipelines that were created for recently used authorizations.
+     */
+    private static final Cache<Authorizations, List<Document>> REDACT_PIPELINES = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .build();
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -52,6 +73,12 @@ public final class AggregationUtil {
      * Creates a MongoDB $redact aggregation pipeline that only include
      * documents whose document visibility match the provided authorizations.
      * All other documents are excluded.
+     * <p>
+     * When there are few enough authorizations, the pipeline starts with a
+     * $match on the indexed keys of the authorization sets that satisfy each
+     * document's visibility, so the $redact only has to evaluate the visibility
+     * of documents that were written before those keys were stored. The
+     * pipelines are cached per set of authorizations.
      * @param authorizations the {@link Authorization}s to include in the
      * $redact. Only documents that match the authorizations will be returned.
      * @return the {@link List} of {@link Document}s that represents the $redact
@@ -62,6 +89,15 @@ public final class AggregationUtil {
             return Lists.newArrayList();
         }
 
+        List<Document> pipeline = REDACT_PIPELINES.getIfPresent(authorizations);
+        if (pipeline == null) {
+            pipeline = Collections.unmodifiableList(createRedactPipelineInternal(authorizations));
+            REDACT_PIPELINES.put(authorizations, pipeline);
+        }
+        return new ArrayList<>(pipeline);
+    }
+
+    private static List<Document> createRedactPipelineInternal(final Authorizations authorizations) {
         final List<String> authList = AuthorizationsUtil.getAuthorizationsStrings(authorizations);
 
         final String documentVisibilityField = "$" + SimpleMongoDBStorageStrategy.DOCUMENT_VISIBILITY;
@@ -88,9 +124,34 @@ public final class AggregationUtil {
                 0
             );
 
-        final Document orExpression = or(anyElementTrue, isFieldSizeZero);
+        Document orExpression = or(anyElementTrue, isFieldSizeZero);
 
         final List<Document> pipeline = new ArrayList<>();
+        if (authList.size() <= MAX_ENUMERATED_AUTHORIZATIONS) {
+            final String keysField = SimpleMongoDBStorageStrategy.DOCUMENT_VISIBILITY_KEYS;
+
+            // Documents that have the keys are visible if one of the keys of
+            // the authorizations' subsets is theirs. Documents without them
+            // are left for the $redact.
+            pipeline.add(
+                new Document("$match",
+                    new Document("$or", Arrays.asList(
+                        new Document(keysField, new Document("$in", AuthorizationsUtil.getAuthorizationSetKeys(authorizations))),
+                        new Document(keysField, new Document("$exists", false))
+                    ))
+                )
+            );
+
+            // Every document with keys has at least one, and has already been
+            // matched, so its visibility does not need to be evaluated.
+            final Document hasKeys =
+                gt(
+                    size(ifNull("$" + keysField, Collections.emptyList())),
+                    0
+                );
+            orExpression = or(hasKeys, orExpression);
+        }
+
         pipeline.add(
             redact(
                 orExpression,
@@ -101,4 +162,4 @@ public final class AggregationUtil {
 
         return pipeline;
     }
-}
\ No newline at end of file
+}
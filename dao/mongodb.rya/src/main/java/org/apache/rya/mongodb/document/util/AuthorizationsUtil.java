@@ -18,6 +18,8 @@
  */
 package org.apache.rya.mongodb.document.util;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -57,4 +59,32 @@ public final class AuthorizationsUtil {
         }
         return Collections.unmodifiableList(copy);
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the keys of every subset of the authorizations, as created by
+     * {@link DocumentVisibilityUtil#toAuthorizationSetKey(java.util.Collection)}.
+     * A document may be seen with the authorizations if any of these keys is
+     * one of the keys of its visibility.
+     * @param authorizations the {@link Authorizations}. There are 2<sup>n</sup>
+     * subsets of n authorizations, so only use this with a few of them.
+     * @return the keys of the subsets of the authorizations, including the
+     * empty set.
+     */
+    public static List<String> getAuthorizationSetKeys(final Authorizations authorizations) {
+        final List<String> auths = getAuthorizationsStrings(authorizations);
+        checkArgument(auths.size() < Integer.SIZE - 1, "Too many authorizations to enumerate their subsets.");
+        final int subsetCount = 1 << auths.size();
+        final List<String> keys = new ArrayList<>(subsetCount);
+        final List<String> subset = new ArrayList<>(auths.size());
+        for (int members = 0; members < subsetCount; members++) {
+            subset.clear();
+            for (int i = 0; i < auths.size(); i++) {
+                if ((members & (1 << i)) != 0) {
+                    subset.add(auths.get(i));
+                }
+            }
+            keys.add(DocumentVisibilityUtil.toAuthorizationSetKey(subset));
+        }
+        return keys;
+    }
+}
@@ -21,7 +21,10 @@ package org.apache.rya.mongodb.document.util;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.security.Authorizations;
@@ -34,7 +37,13 @@ import org.apache.rya.mongodb.MongoDbRdfConstants;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.mongodb.BasicDBList;
 
 /**
@@ -45,6 +54,57 @@ import com.mongodb.BasicDBList;
 public final class DocumentVisibilityUtil {
     private static final Logger log = Logger.getLogger(DocumentVisibilityUtil.class);
 
+    /**
+     * The number of distinct expressions each of the caches below holds. A
+     * store typically uses a small number of distinct visibilities, so every
+     * statement after the first with a given visibility skips the parsing and
+     * the conversion to disjunctive normal form.
+     */
+    private static final int CACHE_SIZE = 10000;
+
+    /**
+     * Parsed expressions, keyed by the expression.
+     */
+    private static final LoadingCache<String, DocumentVisibility> PARSED_EXPRESSIONS = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build(new CacheLoader<String, DocumentVisibility>() {
+                @Override
+                public DocumentVisibility load(final String expression) {
+                    return new DocumentVisibility(expression);
+                }
+            });
+
+    /**
+     * Multidimensional arrays, keyed by the expression they were converted from.
+     */
+    private static final LoadingCache<String, List<Object>> MULTIDIMENSIONAL_ARRAYS = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build(new CacheLoader<String, List<Object>>() {
+                @Override
+                public List<Object> load(final String expression) throws DocumentVisibilityConversionException {
+                    return toMultidimensionalArrayInternal(new DocumentVisibility(expression));
+                }
+            });
+
+    /**
+     * Flattened boolean expressions in disjunctive normal form, keyed by the
+     * unsimplified expression of a multidimensional array.
+     */
+    private static final LoadingCache<String, String> BOOLEAN_STRINGS = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build(new CacheLoader<String, String>() {
+                @Override
+                public String load(final String booleanString) {
+                    final DocumentVisibility dv = DisjunctiveNormalFormConverter.createDnfDocumentVisibility(booleanString);
+                    return new String(dv.flatten(), Charsets.UTF_8);
+                }
+            });
+
+    /**
+     * The separator of the terms of an authorization set key.
+     */
+    private static final Joiner AUTHORIZATION_SET_KEY_JOINER = Joiner.on('&');
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -60,10 +120,39 @@ public final class DocumentVisibilityUtil {
      * @throws DocumentVisibilityConversionException
      */
     public static List<Object> toMultidimensionalArray(final String booleanString) throws DocumentVisibilityConversionException {
-        final DocumentVisibility dv = new DocumentVisibility(booleanString);
+        final DocumentVisibility dv = parse(booleanString);
         return toMultidimensionalArray(dv);
     }
 
+    /**
+     * Parses a document visibility expression. Parsed expressions are cached,
+     * so the returned {@link DocumentVisibility} is shared between threads and
+     * may only be evaluated. Flattening it normalizes its parse tree in place,
+     * so parse a new one to flatten.
+     * @param expression the document visibility expression. (not {@code null})
+     * @return the parsed {@link DocumentVisibility}.
+     * @throws IllegalArgumentException if the expression is not valid.
+     */
+    public static DocumentVisibility parse(final String expression) {
+        checkNotNull(expression);
+        return getCached(PARSED_EXPRESSIONS, expression);
+    }
+
+    /**
+     * Parses a document visibility expression. Parsed expressions are cached,
+     * so the returned {@link DocumentVisibility} is shared between threads and
+     * may only be evaluated. Flattening it normalizes its parse tree in place,
+     * so parse a new one to flatten.
+     * @param expression the document visibility expression byte array.
+     * (not {@code null})
+     * @return the parsed {@link DocumentVisibility}.
+     * @throws IllegalArgumentException if the expression is not valid.
+     */
+    public static DocumentVisibility parse(final byte[] expression) {
+        checkNotNull(expression);
+        return parse(new String(expression, Charsets.UTF_8));
+    }
+
     /**
      * Converts a {@link DocumentVisibility} object into a multidimensional
      * array representation of the boolean expression.
@@ -74,6 +163,19 @@ public final class DocumentVisibilityUtil {
      */
     public static List<Object> toMultidimensionalArray(final DocumentVisibility dv) throws DocumentVisibilityConversionException {
         checkNotNull(dv);
+        final String expression = new String(dv.getExpression(), Charsets.UTF_8);
+        try {
+            // Copy the cached array so that callers may modify their result.
+            return copyMultidimensionalArray(MULTIDIMENSIONAL_ARRAYS.get(expression));
+        } catch (final ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), DocumentVisibilityConversionException.class);
+            throw Throwables.propagate(e.getCause());
+        } catch (final UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private static List<Object> toMultidimensionalArrayInternal(final DocumentVisibility dv) throws DocumentVisibilityConversionException {
         final byte[] expression = dv.flatten();
         final DocumentVisibility flattenedDv = DisjunctiveNormalFormConverter.createDnfDocumentVisibility(expression);
         final List<Object> result = toMultidimensionalArray(flattenedDv.getParseTree(), flattenedDv.getExpression());
@@ -87,6 +189,97 @@ public final class DocumentVisibilityUtil {
         return result;
     }
 
+    private static List<Object> copyMultidimensionalArray(final List<?> array) {
+        final List<Object> copy = new ArrayList<>(array.size());
+        for (final Object child : array) {
+            if (child instanceof List) {
+                copy.add(copyMultidimensionalArray((List<?>) child));
+            } else {
+                copy.add(child);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Converts the multidimensional array representation of a boolean
+     * expression into the keys of the authorization sets that satisfy it. Each
+     * AND group of the expression has one key, created from its terms by
+     * {@link #toAuthorizationSetKey(Collection)}. An expression that requires
+     * no authorizations has the key of the empty set, which is the empty
+     * string. A user may see the document if the key of any subset of their
+     * authorizations is one of the document's keys.
+     * @param multidimensionalArray the multidimensional array representation
+     * of a boolean expression in disjunctive normal form, as created by
+     * {@link #toMultidimensionalArray(DocumentVisibility)}. (not {@code null})
+     * @return the keys of the authorization sets that satisfy the expression.
+     */
+    public static List<String> toAuthorizationSetKeys(final List<?> multidimensionalArray) {
+        checkNotNull(multidimensionalArray);
+        final List<String> keys = new ArrayList<>();
+        if (multidimensionalArray.isEmpty()) {
+            keys.add("");
+        }
+        for (final Object group : multidimensionalArray) {
+            final List<String> terms = new ArrayList<>();
+            if (group instanceof List) {
+                for (final Object term : (List<?>) group) {
+                    terms.add(removeQuotes(term.toString()));
+                }
+            } else {
+                terms.add(removeQuotes(group.toString()));
+            }
+            final String key = toAuthorizationSetKey(terms);
+            if (!keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Creates the key of a set of authorizations. Backslashes and '&amp;' are
+     * escaped with a backslash within each authorization, so different sets
+     * never have the same key.
+     * @param authorizations the authorizations in the set. (not {@code null})
+     * @return the escaped authorizations, without duplicates, sorted and
+     * joined with '&amp;'.
+     */
+    public static String toAuthorizationSetKey(final Collection<String> authorizations) {
+        checkNotNull(authorizations);
+        final TreeSet<String> sorted = new TreeSet<>();
+        for (final String auth : authorizations) {
+            if (!auth.isEmpty()) {
+                sorted.add(auth.replace("\\", "\\\\").replace("&", "\\&"));
+            }
+        }
+        return AUTHORIZATION_SET_KEY_JOINER.join(sorted);
+    }
+
+    /**
+     * Removes the quotes from a quoted term of an expression and unescapes it,
+     * so that it can be compared with an authorization.
+     * @param term the term, as created by {@link #getTermNodeData(Node, byte[])}.
+     * @return the authorization the term requires.
+     */
+    private static String removeQuotes(final String term) {
+        if (term.length() < 2 || term.charAt(0) != '"' || term.charAt(term.length() - 1) != '"') {
+            return term;
+        }
+        final String quoted = term.substring(1, term.length() - 1);
+        final StringBuilder sb = new StringBuilder(quoted.length());
+        for (int i = 0; i < quoted.length(); i++) {
+            final char c = quoted.charAt(i);
+            if (c == '\\' && i + 1 < quoted.length()) {
+                i++;
+                sb.append(quoted.charAt(i));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
     /**
      * Converts a {@link Node} and its corresponding expression into a
      * multidimensional array representation of the boolean expression.
@@ -192,11 +385,7 @@ public final class DocumentVisibilityUtil {
         final String booleanString = multidimensionalArrayToBooleanStringInternal(object);
 
         // Simplify and clean up the formatting.
-        final DocumentVisibility dv = DisjunctiveNormalFormConverter.createDnfDocumentVisibility(booleanString);
-        final byte[] bytes = dv.flatten();
-        final String result = new String(bytes, Charsets.UTF_8);
-
-        return result;
+        return getCached(BOOLEAN_STRINGS, booleanString);
     }
 
     private static String multidimensionalArrayToBooleanStringInternal(final Object[] object) {
@@ -276,7 +465,7 @@ public final class DocumentVisibilityUtil {
      */
     public static boolean doesUserHaveDocumentAccess(final Authorizations authorizations, final byte[] documentVisibilityExpression) {
         final byte[] expression = documentVisibilityExpression != null ? documentVisibilityExpression : MongoDbRdfConstants.EMPTY_DV.getExpression();
-        final DocumentVisibility documentVisibility = new DocumentVisibility(expression);
+        final DocumentVisibility documentVisibility = parse(expression);
         return doesUserHaveDocumentAccess(authorizations, documentVisibility);
     }
 
@@ -304,12 +493,12 @@ public final class DocumentVisibilityUtil {
      */
     public static boolean doesUserHaveDocumentAccess(final Authorizations authorizations, final DocumentVisibility documentVisibility, final boolean doesEmptyAccessPass) {
         final Authorizations userAuths = authorizations != null ? authorizations : MongoDbRdfConstants.ALL_AUTHORIZATIONS;
-        final VisibilityEvaluator visibilityEvaluator = new VisibilityEvaluator(userAuths);
         boolean accept = false;
         if (doesEmptyAccessPass && MongoDbRdfConstants.ALL_AUTHORIZATIONS.equals(userAuths)) {
             accept = true;
         } else {
             try {
+                final VisibilityEvaluator visibilityEvaluator = new VisibilityEvaluator(userAuths);
                 accept = visibilityEvaluator.evaluate(documentVisibility);
             } catch (final VisibilityParseException e) {
                 log.error("Could not parse document visibility.");
@@ -335,4 +524,16 @@ public final class DocumentVisibilityUtil {
         }
         return list;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets a value from one of the caches, rethrowing the unchecked exceptions
+     * of its loader as they are.
+     */
+    private static <K, V> V getCached(final LoadingCache<K, V> cache, final K key) {
+        try {
+            return cache.getUnchecked(key);
+        } catch (final UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+}
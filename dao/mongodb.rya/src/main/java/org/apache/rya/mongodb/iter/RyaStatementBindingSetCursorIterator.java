@@ -19,17 +19,18 @@
 package org.apache.rya.mongodb.iter;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.log4j.Logger;
 import org.apache.rya.api.RdfCloudTripleStoreUtils;
 import org.apache.rya.api.domain.RyaStatement;
-import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.mongodb.dao.MongoDBStorageStrategy;
 import org.apache.rya.mongodb.document.operators.aggregation.AggregationUtil;
@@ -38,24 +39,46 @@ import org.bson.conversions.Bson;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Iterators;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
 
+/**
+ * Queries MongoDB for the statements that match a set of statement patterns and
+ * joins each statement with the binding sets of the patterns it matches. The
+ * patterns are queried in batches with one {@code $or} query per batch. While
+ * the results of one batch are read, the query of the next batch is already
+ * running, and the number of patterns in a batch adapts to how many results the
+ * previous batches returned.
+ */
 public class RyaStatementBindingSetCursorIterator implements CloseableIteration<Entry<RyaStatement, BindingSet>, RyaDAOException> {
     private static final Logger log = Logger.getLogger(RyaStatementBindingSetCursorIterator.class);
 
-    private static final int QUERY_BATCH_SIZE = 50;
+    private static final int INITIAL_QUERY_BATCH_SIZE = 50;
+    private static final int MIN_QUERY_BATCH_SIZE = 10;
+    private static final int MAX_QUERY_BATCH_SIZE = 1000;
+
+    /**
+     * The number of results a batch should return. Batches of selective patterns
+     * grow so that fewer round trips are made, and batches of unselective patterns
+     * shrink so that their results do not hold up the patterns after them.
+     */
+    private static final int TARGET_BATCH_RESULTS = 1000;
+
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("rya-mongo-prefetch-%d").build());
 
     private final MongoCollection<Document> coll;
     private final Multimap<RyaStatement, BindingSet> rangeMap;
-    private final Multimap<RyaStatement, BindingSet> executedRangeMap = HashMultimap.create();
     private final Iterator<RyaStatement> queryIterator;
-    private Iterator<Document> batchQueryResultsIterator;
+    private Batch currentBatch;
+    private Future<Batch> nextBatch;
+    private int queryBatchSize = INITIAL_QUERY_BATCH_SIZE;
     private RyaStatement currentResultStatement;
     private Iterator<BindingSet> currentBindingSetIterator;
     private final MongoDBStorageStrategy<RyaStatement> strategy;
@@ -96,53 +119,93 @@ public class RyaStatementBindingSetCursorIterator implements CloseableIteration<
     }
 
     private void findNextResult() {
-        if (!currentBatchQueryResultCursorIsValid()) {
-            submitBatchQuery();
-        }
+        // Skip results that do not match any binding set until one does or the batches run out
+        while (!currentBindingSetIteratorIsValid()) {
+            if (currentBatch == null || !currentBatch.cursor.hasNext()) {
+                if (!advanceBatch()) {
+                    return;
+                }
+                continue;
+            }
 
-        if (currentBatchQueryResultCursorIsValid()) {
             // convert to Rya Statement
-            final Document queryResult = batchQueryResultsIterator.next();
+            final Document queryResult = currentBatch.cursor.next();
+            currentBatch.results++;
             currentResultStatement = strategy.deserializeDocument(queryResult);
 
-            // Find all of the queries in the executed RangeMap that this result matches
-            // and collect all of those binding sets
-            final Set<BindingSet> bsList = new HashSet<>();
-            for (final RyaStatement executedQuery : executedRangeMap.keys()) {
-                if (isResultForQuery(executedQuery, currentResultStatement)) {
-                    bsList.addAll(executedRangeMap.get(executedQuery));
-                }
-            }
-            currentBindingSetIterator = bsList.iterator();
+            // Look up the binding sets of every query in the batch that this result matches
+            currentBindingSetIterator = currentBatch.index.match(currentResultStatement).iterator();
         }
+    }
 
-        // Handle case of invalid currentResultStatement or no binding sets returned
-        if ((currentBindingSetIterator == null || !currentBindingSetIterator.hasNext()) && (currentBatchQueryResultCursorIsValid() || queryIterator.hasNext())) {
-            findNextResult();
+    /**
+     * Closes the current batch and makes the next one current.
+     *
+     * @return {@code true} if there was another batch; {@code false} if every
+     *   query has been executed.
+     */
+    private boolean advanceBatch() {
+        if (currentBatch != null) {
+            currentBatch.cursor.close();
+            adjustBatchSize(currentBatch);
+            currentBatch = null;
+        }
+
+        if (nextBatch != null) {
+            currentBatch = getPrefetched();
+        } else {
+            final Batch batch = createBatch();
+            currentBatch = batch == null ? null : batch.open();
+        }
+        if (currentBatch == null) {
+            return false;
+        }
+
+        // Overlap the next batch's round trip with reading this batch's results
+        final Batch prefetch = createBatch();
+        if (prefetch != null) {
+            nextBatch = PREFETCH_EXECUTOR.submit(prefetch::open);
         }
+        return true;
     }
 
-    private static boolean isResultForQuery(final RyaStatement query, final RyaStatement result) {
-        return isResult(query.getSubject(), result.getSubject()) &&
-                isResult(query.getPredicate(), result.getPredicate()) &&
-                isResult(query.getObject(), result.getObject()) &&
-                isResult(query.getContext(), result.getContext());
+    private Batch getPrefetched() {
+        try {
+            return nextBatch.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a batch query to be executed.", e);
+        } catch (final ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            nextBatch = null;
+        }
     }
 
-    private static boolean isResult(final RyaType query, final RyaType result) {
-        return (query == null) || query.equals(result);
+    private void adjustBatchSize(final Batch batch) {
+        if (batch.results < TARGET_BATCH_RESULTS / 2 && batch.queries >= queryBatchSize) {
+            queryBatchSize = Math.min(queryBatchSize * 2, MAX_QUERY_BATCH_SIZE);
+        } else if (batch.results > TARGET_BATCH_RESULTS * 2) {
+            queryBatchSize = Math.max(queryBatchSize / 2, MIN_QUERY_BATCH_SIZE);
+        }
     }
 
-    private void submitBatchQuery() {
+    /**
+     * Takes the next batch of queries from the range map.
+     *
+     * @return The batch, which has not been executed yet, or {@code null} if
+     *   every query has been taken.
+     */
+    private Batch createBatch() {
         int count = 0;
-        executedRangeMap.clear();
+        final StatementPatternIndex index = new StatementPatternIndex();
         final List<Bson> pipeline = new ArrayList<>();
         final List<Bson> matches = new ArrayList<>();
 
-        while (queryIterator.hasNext() && count < QUERY_BATCH_SIZE){
+        while (queryIterator.hasNext() && count < queryBatchSize){
             count++;
             final RyaStatement query = queryIterator.next();
-            executedRangeMap.putAll(query, rangeMap.get(query));
+            index.put(query, rangeMap.get(query));
             final Document currentQuery = strategy.getQuery(query);
             matches.add(currentQuery);
         }
@@ -153,27 +216,28 @@ public class RyaStatementBindingSetCursorIterator implements CloseableIteration<
         } else if (numMatches == 1) {
             pipeline.add(Aggregates.match(matches.get(0)));
         } else {
-            batchQueryResultsIterator = Iterators.emptyIterator();
-            return;
+            return null;
         }
 
         // Executing redact aggregation to only return documents the user has access to.
         pipeline.addAll(AggregationUtil.createRedactPipeline(auths));
         log.trace(pipeline);
-
-        final AggregateIterable<Document> aggIter = coll.aggregate(pipeline);
-        aggIter.batchSize(1000);
-        batchQueryResultsIterator = aggIter.iterator();
+        return new Batch(index, pipeline, numMatches);
     }
 
-    private boolean currentBatchQueryResultCursorIsValid() {
-        return (batchQueryResultsIterator != null) && batchQueryResultsIterator.hasNext();
-    }
-
-
     @Override
     public void close() throws RyaDAOException {
-        // TODO don't know what to do here
+        if (currentBatch != null) {
+            currentBatch.cursor.close();
+            currentBatch = null;
+        }
+        if (nextBatch != null) {
+            try {
+                getPrefetched().cursor.close();
+            } catch (final RuntimeException e) {
+                log.warn("A prefetched batch query failed after the iterator was closed.", e);
+            }
+        }
     }
 
     @Override
@@ -181,4 +245,30 @@ public class RyaStatementBindingSetCursorIterator implements CloseableIteration<
         next();
     }
 
+    /**
+     * A batch of queries that are executed together, and the results they returned.
+     */
+    private class Batch {
+        private final StatementPatternIndex index;
+        private final List<Bson> pipeline;
+        private final int queries;
+        private MongoCursor<Document> cursor;
+        private int results = 0;
+
+        private Batch(final StatementPatternIndex index, final List<Bson> pipeline, final int queries) {
+            this.index = index;
+            this.pipeline = pipeline;
+            this.queries = queries;
+        }
+
+        /**
+         * Executes the batch's query. The first results are fetched before this returns.
+         */
+        private Batch open() {
+            final AggregateIterable<Document> aggIter = coll.aggregate(pipeline);
+            aggIter.batchSize(1000);
+            cursor = aggIter.iterator();
+            return this;
+        }
+    }
 }
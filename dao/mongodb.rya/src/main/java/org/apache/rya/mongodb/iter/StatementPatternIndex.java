@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.iter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.eclipse.rdf4j.query.BindingSet;
+
+/**
+ * Finds the binding sets of the statement patterns a statement matches. The
+ * patterns are grouped by which of their subject, predicate, object, and context
+ * are bound, and each group is hashed on its bound values, so a statement is
+ * matched with one lookup per group instead of one comparison per pattern.
+ */
+class StatementPatternIndex {
+    private static final int SUBJECT = 1;
+    private static final int PREDICATE = 2;
+    private static final int OBJECT = 4;
+    private static final int CONTEXT = 8;
+
+    /**
+     * The bound positions of each group of patterns, mapped to the patterns'
+     * bound values and then to their binding sets.
+     */
+    private final Map<Integer, Map<List<RyaType>, Set<BindingSet>>> groups = new HashMap<>();
+
+    /**
+     * @param pattern - The pattern whose binding sets are added. (not null)
+     * @param bindingSets - The binding sets a statement that matches the pattern is joined with. (not null)
+     */
+    void put(final RyaStatement pattern, final Collection<BindingSet> bindingSets) {
+        final int bound = boundPositions(pattern);
+        Map<List<RyaType>, Set<BindingSet>> group = groups.get(bound);
+        if (group == null) {
+            group = new HashMap<>();
+            groups.put(bound, group);
+        }
+        final List<RyaType> key = key(pattern, bound);
+        Set<BindingSet> values = group.get(key);
+        if (values == null) {
+            values = new HashSet<>();
+            group.put(key, values);
+        }
+        values.addAll(bindingSets);
+    }
+
+    /**
+     * @param statement - A statement that was read from the store. (not null)
+     * @return The binding sets of every pattern the statement matches. The result
+     *   must not be modified.
+     */
+    Set<BindingSet> match(final RyaStatement statement) {
+        List<Set<BindingSet>> matches = null;
+        for (final Map.Entry<Integer, Map<List<RyaType>, Set<BindingSet>>> group : groups.entrySet()) {
+            final Set<BindingSet> values = group.getValue().get(key(statement, group.getKey()));
+            if (values != null) {
+                if (matches == null) {
+                    matches = new ArrayList<>(groups.size());
+                }
+                matches.add(values);
+            }
+        }
+
+        if (matches == null) {
+            return Collections.emptySet();
+        } else if (matches.size() == 1) {
+            return matches.get(0);
+        }
+        final Set<BindingSet> union = new HashSet<>();
+        for (final Set<BindingSet> values : matches) {
+            union.addAll(values);
+        }
+        return union;
+    }
+
+    private static int boundPositions(final RyaStatement pattern) {
+        int bound = 0;
+        if (pattern.getSubject() != null) {
+            bound |= SUBJECT;
+        }
+        if (pattern.getPredicate() != null) {
+            bound |= PREDICATE;
+        }
+        if (pattern.getObject() != null) {
+            bound |= OBJECT;
+        }
+        if (pattern.getContext() != null) {
+            bound |= CONTEXT;
+        }
+        return bound;
+    }
+
+    private static List<RyaType> key(final RyaStatement statement, final int bound) {
+        return Arrays.<RyaType>asList(
+                (bound & SUBJECT) != 0 ? statement.getSubject() : null,
+                (bound & PREDICATE) != 0 ? statement.getPredicate() : null,
+                (bound & OBJECT) != 0 ? statement.getObject() : null,
+                (bound & CONTEXT) != 0 ? statement.getContext() : null);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.mongodb.dao.MongoDBStatementStatistics;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.junit.Test;
+
+/**
+ * Integration tests the methods of {@link MongoDBStatementStatistics}.
+ */
+public class MongoDBStatementStatisticsIT extends MongoRyaITBase {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Override
+    protected void updateConfiguration(final MongoDBRdfConfiguration conf) {
+        conf.setUseStatistics(true);
+    }
+
+    @Test
+    public void countsAddedAndDeletedStatements() throws Exception {
+        final MongoDBStatementStatistics statistics = new MongoDBStatementStatistics(
+                getMongoClient().getDatabase(conf.getMongoDBName()).getCollection(conf.getStatisticsCollectionName()));
+        final StatementPattern anything = new StatementPattern(new Var("s"), new Var("p"), new Var("o"));
+        final StatementPattern isStudent = new StatementPattern(new Var("s"),
+                new Var("type", VF.createIRI("urn:type")), new Var("student", VF.createIRI("urn:Student")));
+        final StatementPattern hasType = new StatementPattern(new Var("s"),
+                new Var("type", VF.createIRI("urn:type")), new Var("o"));
+        assertEquals(-1, statistics.getCardinality(anything));
+
+        final MongoDBRyaDAO dao = new MongoDBRyaDAO();
+        try {
+            dao.setConf(conf);
+            dao.init();
+            final List<RyaStatement> statements = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                final RyaIRI type = new RyaIRI(i < 7 ? "urn:Student" : "urn:Professor");
+                statements.add(new RyaStatement(new RyaIRI("urn:person" + i), new RyaIRI("urn:type"), type));
+            }
+            dao.add(statements.iterator());
+            dao.add(new RyaStatement(new RyaIRI("urn:person0"), new RyaIRI("urn:name"), new RyaIRI("urn:alice")));
+
+            assertEquals(11, statistics.getCardinality(anything));
+            assertEquals(10, statistics.getCardinality(hasType));
+            assertEquals(7, statistics.getCardinality(isStudent));
+
+            dao.delete(statements.subList(0, 2).iterator(), conf);
+            assertEquals(9, statistics.getCardinality(anything));
+            assertEquals(5, statistics.getCardinality(isStudent));
+
+            // Statements that are not stored do not lower the counts.
+            final List<RyaStatement> mixed = new ArrayList<>(statements.subList(1, 3));
+            mixed.add(new RyaStatement(new RyaIRI("urn:person42"), new RyaIRI("urn:type"), new RyaIRI("urn:Student")));
+            dao.delete(mixed.iterator(), conf);
+            assertEquals(8, statistics.getCardinality(anything));
+            assertEquals(4, statistics.getCardinality(isStudent));
+
+            // Statements that are already stored are not counted again.
+            dao.add(statements.subList(5, 7).iterator());
+            assertEquals(8, statistics.getCardinality(anything));
+            assertEquals(4, statistics.getCardinality(isStudent));
+        } finally {
+            dao.destroy();
+        }
+    }
+}
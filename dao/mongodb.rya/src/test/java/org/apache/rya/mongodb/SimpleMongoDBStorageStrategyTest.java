@@ -20,8 +20,10 @@ package org.apache.rya.mongodb;
 
 import static org.eclipse.rdf4j.model.vocabulary.XMLSchema.ANYURI;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.rya.api.domain.RyaIRI;
@@ -30,10 +32,12 @@ import org.apache.rya.api.domain.RyaStatement.RyaStatementBuilder;
 import org.apache.rya.api.domain.RyaType;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
+import org.apache.rya.mongodb.dao.TermHashFormat;
 import org.apache.rya.mongodb.document.util.DocumentVisibilityConversionException;
 import org.apache.rya.mongodb.document.util.DocumentVisibilityUtil;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
 import org.bson.Document;
+import org.bson.types.Binary;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.junit.Test;
 
@@ -80,6 +84,7 @@ public class SimpleMongoDBStorageStrategyTest {
         } catch (final DocumentVisibilityConversionException e) {
             e.printStackTrace();
         }
+        TEST_DOC.put(SimpleMongoDBStorageStrategy.DOCUMENT_VISIBILITY_KEYS, Arrays.asList("A&B"));
         TEST_DOC.put(SimpleMongoDBStorageStrategy.TIMESTAMP, null);
 
 
@@ -110,6 +115,7 @@ public class SimpleMongoDBStorageStrategyTest {
         } catch (final DocumentVisibilityConversionException e) {
             e.printStackTrace();
         }
+        TEST_DOC_2.put(SimpleMongoDBStorageStrategy.DOCUMENT_VISIBILITY_KEYS, Arrays.asList("A&B"));
         TEST_DOC_2.put(SimpleMongoDBStorageStrategy.TIMESTAMP, null);
     }
 
@@ -143,4 +149,45 @@ public class SimpleMongoDBStorageStrategyTest {
         statement.setTimestamp(null);
         assertEquals(testStatement2, statement);
     }
+
+    @Test
+    public void testSerializeCompactHashes() {
+        final SimpleMongoDBStorageStrategy binaryStrategy = new SimpleMongoDBStorageStrategy(TermHashFormat.SHA256_BINARY, null);
+        Document doc = binaryStrategy.serialize(testStatement);
+        final Binary subjectHash = (Binary) doc.get(SimpleMongoDBStorageStrategy.SUBJECT_HASH);
+        assertEquals(16, subjectHash.length());
+        assertEquals(new Binary(Arrays.copyOf(DigestUtils.sha256(SUBJECT), 16)), subjectHash);
+
+        final SimpleMongoDBStorageStrategy longStrategy = new SimpleMongoDBStorageStrategy(TermHashFormat.INT64, null);
+        doc = longStrategy.serialize(testStatement);
+        assertEquals(Long.class, doc.get(SimpleMongoDBStorageStrategy.OBJECT_HASH).getClass());
+
+        // The hashes do not change how the statement is read back
+        final RyaStatement statement = longStrategy.deserializeDocument(doc);
+        statement.setTimestamp(null);
+        assertEquals(testStatement, statement);
+    }
+
+    @Test
+    public void testQueryVerifiesCompactHashes() {
+        Document query = storageStrategy.getQuery(testStatement);
+        assertFalse(query.containsKey(SimpleMongoDBStorageStrategy.SUBJECT));
+
+        final SimpleMongoDBStorageStrategy longStrategy = new SimpleMongoDBStorageStrategy(TermHashFormat.INT64, null);
+        query = longStrategy.getQuery(testStatement);
+        assertEquals(TermHashFormat.INT64.hash(SUBJECT), query.get(SimpleMongoDBStorageStrategy.SUBJECT_HASH));
+        assertEquals(SUBJECT, query.get(SimpleMongoDBStorageStrategy.SUBJECT));
+        assertEquals(PREDICATE, query.get(SimpleMongoDBStorageStrategy.PREDICATE));
+        assertEquals(OBJECT, query.get(SimpleMongoDBStorageStrategy.OBJECT));
+    }
+
+    @Test
+    public void testQueryDuringMigration() {
+        final SimpleMongoDBStorageStrategy migrating = new SimpleMongoDBStorageStrategy(TermHashFormat.SHA256_BINARY, TermHashFormat.SHA256_HEX);
+        final Document query = migrating.getQuery(testStatement);
+        final Document expected = new Document("$in", Arrays.asList(
+                TermHashFormat.SHA256_BINARY.hash(PREDICATE), DigestUtils.sha256Hex(PREDICATE)));
+        assertEquals(expected, query.get(SimpleMongoDBStorageStrategy.PREDICATE_HASH));
+        assertEquals(PREDICATE, query.get(SimpleMongoDBStorageStrategy.PREDICATE));
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.mongodb.dao.SimpleMongoDBStorageStrategy;
+import org.apache.rya.mongodb.dao.TermHashFormat;
+import org.apache.rya.mongodb.dao.TermHashMigration;
+import org.bson.Document;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.junit.Test;
+
+import com.mongodb.client.model.Filters;
+
+/**
+ * Integration tests the methods of {@link TermHashMigration}.
+ */
+public class TermHashMigrationIT extends MongoRyaITBase {
+
+    @Test
+    public void migrateToCompactHashes() throws Exception {
+        // Store some statements in the original format.
+        final MongoDBRyaDAO dao = new MongoDBRyaDAO();
+        try {
+            dao.setConf(conf);
+            dao.init();
+            for (int i = 0; i < 25; i++) {
+                dao.add(new RyaStatement(new RyaIRI("urn:subject" + (i % 5)),
+                        new RyaIRI("urn:predicate"), new RyaType("value" + i)));
+            }
+        } finally {
+            dao.destroy();
+        }
+
+        // While the migration is pending, the statements are found in either format.
+        conf.setTermHashFormat(TermHashFormat.INT64);
+        conf.setPreviousTermHashFormat(TermHashFormat.SHA256_HEX);
+        assertEquals(5, countSubject("urn:subject1"));
+
+        final TermHashMigration migration = new TermHashMigration(getRyaCollection(), TermHashFormat.INT64, 10);
+        migration.run();
+        assertEquals(25, migration.getMigrated());
+        assertEquals(0, getRyaCollection().count(Filters.type(SimpleMongoDBStorageStrategy.SUBJECT_HASH, "string")));
+
+        // Once the migration is finished, the statements are found in the new format.
+        conf.setPreviousTermHashFormat(null);
+        assertEquals(5, countSubject("urn:subject1"));
+
+        // Running the migration again has nothing left to do.
+        final TermHashMigration again = new TermHashMigration(getRyaCollection(), TermHashFormat.INT64, 10);
+        again.run();
+        assertEquals(0, again.getMigrated());
+        final Document first = getRyaCollection().find().first();
+        assertEquals(TermHashFormat.INT64.hash(first.getString(SimpleMongoDBStorageStrategy.PREDICATE)),
+                first.get(SimpleMongoDBStorageStrategy.PREDICATE_HASH));
+    }
+
+    private int countSubject(final String subject) throws Exception {
+        final MongoDBRyaDAO dao = new MongoDBRyaDAO();
+        try {
+            dao.setConf(conf);
+            dao.init();
+            final RyaStatement query = new RyaStatement(new RyaIRI(subject), null, null);
+            int count = 0;
+            try (final CloseableIteration<RyaStatement, RyaDAOException> results = dao.getQueryEngine().query(query, conf)) {
+                while (results.hasNext()) {
+                    assertEquals(new RyaIRI(subject), results.next().getSubject());
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            dao.destroy();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.aggregation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PipelineJoinOrdererTest {
+
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final String LUBM = "urn:lubm";
+    private static final IRI UNDERGRAD = VF.createIRI(LUBM, "UndergraduateStudent");
+    private static final IRI COURSE = VF.createIRI(LUBM, "Course");
+    private static final IRI TAKES = VF.createIRI(LUBM, "takesCourse");
+    private static final IRI NAME = VF.createIRI(LUBM, "name");
+
+    private static final StatementPattern IS_UNDERGRAD = new StatementPattern(new Var("x"), constant(RDF.TYPE), constant(UNDERGRAD));
+    private static final StatementPattern TAKES_COURSE = new StatementPattern(new Var("x"), constant(TAKES), new Var("c"));
+    private static final StatementPattern IS_COURSE = new StatementPattern(new Var("c"), constant(RDF.TYPE), constant(COURSE));
+    private static final StatementPattern HAS_NAME = new StatementPattern(new Var("c"), constant(NAME), new Var("n"));
+
+    private static Var constant(IRI value) {
+        return new Var(value.stringValue(), value);
+    }
+
+    @Test
+    public void testSmallestPatternFirst() {
+        Map<StatementPattern, Long> cardinalities = new HashMap<>();
+        cardinalities.put(IS_UNDERGRAD, 1000L);
+        cardinalities.put(TAKES_COURSE, 5000L);
+        cardinalities.put(IS_COURSE, 10L);
+        cardinalities.put(HAS_NAME, 50000L);
+        PipelineJoinOrderer orderer = new PipelineJoinOrderer(cardinalities::get);
+        // Each pattern after the first shares a variable with the ones before it
+        Assert.assertEquals(Arrays.asList(IS_COURSE, TAKES_COURSE, IS_UNDERGRAD, HAS_NAME),
+                orderer.order(Arrays.asList(IS_UNDERGRAD, TAKES_COURSE, IS_COURSE, HAS_NAME)));
+    }
+
+    @Test
+    public void testUnknownCardinality() {
+        PipelineJoinOrderer orderer = new PipelineJoinOrderer(sp -> -1);
+        // Patterns with more constants go first; otherwise the order is kept
+        Assert.assertEquals(Arrays.asList(IS_UNDERGRAD, TAKES_COURSE, IS_COURSE, HAS_NAME),
+                orderer.order(Arrays.asList(HAS_NAME, TAKES_COURSE, IS_UNDERGRAD, IS_COURSE)));
+    }
+
+    @Test
+    public void testReorderBuildsLeftDeepTree() {
+        PipelineJoinOrderer orderer = new PipelineJoinOrderer(sp -> -1);
+        Join join = new Join(new Join(TAKES_COURSE.clone(), HAS_NAME.clone()), new Join(IS_UNDERGRAD.clone(), IS_COURSE.clone()));
+        QueryRoot root = new QueryRoot(join);
+        TupleExpr reordered = orderer.reorder(join);
+        join.replaceWith(reordered);
+        Join expected = new Join(new Join(new Join(IS_UNDERGRAD.clone(), TAKES_COURSE.clone()), IS_COURSE.clone()), HAS_NAME.clone());
+        Assert.assertEquals(expected, root.getArg());
+    }
+}
@@ -125,14 +125,28 @@ public class SparqlToPipelineTransformVisitorTest {
                 new Join(isProfessor, teachesCourse)));
         SparqlToPipelineTransformVisitor visitor = new SparqlToPipelineTransformVisitor(collection);
         queryTree.visit(visitor);
+        // The joins are reordered into a chain that shares a variable at each step
+        Assert.assertTrue(queryTree.getArg() instanceof AggregationPipelineQueryNode);
+        AggregationPipelineQueryNode pipelineNode = (AggregationPipelineQueryNode) queryTree.getArg();
+        Assert.assertEquals(Sets.newHashSet("x", "y", "c"), pipelineNode.getAssuredBindingNames());
+    }
+
+    @Test
+    public void testDisconnectedJoin() throws Exception {
+        StatementPattern isUndergrad = new StatementPattern(new Var("x"), constant(RDF.TYPE), constant(UNDERGRAD));
+        StatementPattern takesCourse = new StatementPattern(new Var("x"), constant(TAKES), new Var("c"));
+        StatementPattern isProfessor = new StatementPattern(new Var("y"), constant(RDF.TYPE), constant(PROFESSOR));
+        QueryRoot queryTree = new QueryRoot(new Join(
+                new Join(isUndergrad, isProfessor),
+                takesCourse));
+        SparqlToPipelineTransformVisitor visitor = new SparqlToPipelineTransformVisitor(collection);
+        queryTree.visit(visitor);
         Assert.assertTrue(queryTree.getArg() instanceof Join);
         Join topJoin = (Join) queryTree.getArg();
         Assert.assertTrue(topJoin.getLeftArg() instanceof AggregationPipelineQueryNode);
-        Assert.assertTrue(topJoin.getRightArg() instanceof AggregationPipelineQueryNode);
-        AggregationPipelineQueryNode leftPipeline = (AggregationPipelineQueryNode) topJoin.getLeftArg();
-        AggregationPipelineQueryNode rightPipeline = (AggregationPipelineQueryNode) topJoin.getRightArg();
-        Assert.assertEquals(Sets.newHashSet("x", "c"), leftPipeline.getAssuredBindingNames());
-        Assert.assertEquals(Sets.newHashSet("y", "c"), rightPipeline.getAssuredBindingNames());
+        Assert.assertTrue(topJoin.getRightArg() instanceof StatementPattern);
+        AggregationPipelineQueryNode pipelineNode = (AggregationPipelineQueryNode) topJoin.getLeftArg();
+        Assert.assertEquals(Sets.newHashSet("x", "c"), pipelineNode.getAssuredBindingNames());
     }
 
     @Test
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.rya.mongodb.batch.collection.CollectionType;
+import org.bson.BsonDocument;
+import org.junit.Test;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+/**
+ * Tests the methods of {@link MongoDbBatchWriter}.
+ */
+public class MongoDbBatchWriterTest {
+
+    @Test
+    public void flushWritesEverythingQueued() throws Exception {
+        final RecordingCollection collection = new RecordingCollection(0);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection,
+                new MongoDbBatchWriterConfig().setBatchSize(10));
+        writer.start();
+        try {
+            // More objects than the queue holds, so adding them has to wait for the writer thread
+            for (int i = 0; i < 1000; i++) {
+                writer.addObjectToQueue(i);
+            }
+            writer.flush();
+            assertEquals(1000, collection.getWritten().size());
+            for (final List<Integer> batch : collection.getBatches()) {
+                assertTrue(batch.size() <= 10);
+            }
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void shutdownWritesEverythingQueued() throws Exception {
+        final RecordingCollection collection = new RecordingCollection(0);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection,
+                new MongoDbBatchWriterConfig().setBatchSize(100));
+        writer.start();
+        for (int i = 0; i < 50; i++) {
+            writer.addObjectToQueue(i);
+        }
+        writer.shutdown();
+        assertEquals(50, collection.getWritten().size());
+    }
+
+    @Test
+    public void duplicateKeysDoNotFailTheBatch() throws Exception {
+        // Every batch reports a duplicate key for its first object
+        final RecordingCollection collection = new RecordingCollection(11000);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection, new MongoDbBatchWriterConfig());
+        writer.addObjectsToQueue(Collections.nCopies(5, 1));
+        writer.flush();
+        assertEquals(4, collection.getWritten().size());
+    }
+
+    @Test
+    public void duplicatesAreNotReportedAsInserted() throws Exception {
+        // Every batch reports a duplicate key for its first object
+        final RecordingCollection collection = new RecordingCollection(11000);
+        final List<Integer> inserted = new ArrayList<>();
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection, new MongoDbBatchWriterConfig(),
+                inserted::addAll);
+        writer.addObjectsToQueue(Arrays.asList(1, 2, 3));
+        writer.flush();
+        assertEquals(Arrays.asList(2, 3), inserted);
+    }
+
+    @Test(timeout = 10000)
+    public void interruptedAddDoesNotBlockFlush() throws Exception {
+        final RecordingCollection collection = new RecordingCollection(0);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection, new MongoDbBatchWriterConfig());
+        writer.addObjectToQueue(1);
+
+        Thread.currentThread().interrupt();
+        try {
+            writer.addObjectToQueue(2);
+            fail("The interrupted add should have failed.");
+        } catch (final MongoDbBatchWriterException e) {
+            // The interrupt is preserved for the caller.
+            assertTrue(Thread.interrupted());
+        }
+
+        // The object that was never queued is not waited for.
+        writer.flush();
+        assertEquals(Collections.singletonList(1), collection.getWritten());
+    }
+
+    @Test(timeout = 10000)
+    public void flushWaitsForTheBatchBeingWritten() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final RecordingCollection collection = new RecordingCollection(0) {
+            @Override
+            public void insertMany(final List<Integer> items) {
+                if (items.contains(1)) {
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.insertMany(items);
+            }
+        };
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection, new MongoDbBatchWriterConfig());
+        writer.start();
+        try {
+            writer.addObjectToQueue(1);
+            final Thread flusher = new Thread(() -> {
+                try {
+                    writer.flush();
+                } catch (final MongoDbBatchWriterException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            flusher.start();
+            // Objects queued after the flush started must not let it return early.
+            for (int i = 2; i < 100; i++) {
+                writer.addObjectToQueue(i);
+            }
+            flusher.join(200);
+            assertTrue(flusher.isAlive());
+
+            release.countDown();
+            flusher.join();
+            assertTrue(collection.getWritten().contains(1));
+        } finally {
+            release.countDown();
+            writer.shutdown();
+        }
+    }
+
+    @Test(expected = MongoDbBatchWriterException.class)
+    public void otherWriteErrorsFailTheFlush() throws Exception {
+        final RecordingCollection collection = new RecordingCollection(2);
+        final MongoDbBatchWriter<Integer> writer = new MongoDbBatchWriter<>(collection, new MongoDbBatchWriterConfig());
+        writer.addObjectToQueue(1);
+        writer.flush();
+    }
+
+    /**
+     * Records the batches that are written to it, and optionally fails the
+     * first object of each batch with an error code.
+     */
+    private static class RecordingCollection implements CollectionType<Integer> {
+        private final int errorCode;
+        private final List<List<Integer>> batches = new ArrayList<>();
+        private final List<Integer> written = new ArrayList<>();
+
+        RecordingCollection(final int errorCode) {
+            this.errorCode = errorCode;
+        }
+
+        @Override
+        public void insertOne(final Integer item) {
+            insertMany(Collections.singletonList(item));
+        }
+
+        @Override
+        public synchronized void insertMany(final List<Integer> items) {
+            batches.add(new ArrayList<>(items));
+            if (errorCode == 0) {
+                written.addAll(items);
+            } else {
+                written.addAll(items.subList(1, items.size()));
+                final BulkWriteError error = new BulkWriteError(errorCode, "error", new BsonDocument(), 0);
+                throw new MongoBulkWriteException(BulkWriteResult.unacknowledged(), Collections.singletonList(error),
+                        null, new ServerAddress());
+            }
+        }
+
+        synchronized List<List<Integer>> getBatches() {
+            return new ArrayList<>(batches);
+        }
+
+        synchronized List<Integer> getWritten() {
+            return new ArrayList<>(written);
+        }
+    }
+}
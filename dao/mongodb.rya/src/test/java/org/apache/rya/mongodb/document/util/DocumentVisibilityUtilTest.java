@@ -22,8 +22,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.log4j.Logger;
 import org.apache.rya.mongodb.document.visibility.DocumentVisibility;
@@ -137,4 +139,39 @@ public class DocumentVisibilityUtilTest {
             count++;
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAuthorizationSetKeys() throws DocumentVisibilityConversionException {
+        assertEquals(Arrays.asList(""), DocumentVisibilityUtil.toAuthorizationSetKeys(
+                DocumentVisibilityUtil.toMultidimensionalArray(new DocumentVisibility())));
+        assertEquals(Arrays.asList("A&B"), DocumentVisibilityUtil.toAuthorizationSetKeys(
+                DocumentVisibilityUtil.toMultidimensionalArray(new DocumentVisibility("B&A"))));
+        assertEquals(ImmutableSet.of("A&C", "B&C"), ImmutableSet.copyOf(DocumentVisibilityUtil.toAuthorizationSetKeys(
+                DocumentVisibilityUtil.toMultidimensionalArray(new DocumentVisibility("(A|B)&C")))));
+    }
+
+    @Test
+    public void testAuthorizationSetKeysMatchEvaluation() throws DocumentVisibilityConversionException {
+        final List<Authorizations> userAuths = Arrays.asList(
+                new Authorizations(),
+                new Authorizations("A"),
+                new Authorizations("A", "B"),
+                new Authorizations("C", "D"),
+                new Authorizations("A", "B", "C", "D", "E"));
+        for (final Pair<String, String> pair : INPUT_AND_EXPECTED_BOOLEAN_EXPRESSIONS) {
+            final DocumentVisibility dv = new DocumentVisibility(pair.getLeft());
+            final List<String> documentKeys = DocumentVisibilityUtil.toAuthorizationSetKeys(DocumentVisibilityUtil.toMultidimensionalArray(dv));
+            for (final Authorizations auths : userAuths) {
+                final boolean keysMatch = !Collections.disjoint(documentKeys, AuthorizationsUtil.getAuthorizationSetKeys(auths));
+                assertEquals(pair.getLeft() + " with " + auths, DocumentVisibilityUtil.doesUserHaveDocumentAccess(auths, dv, false), keysMatch);
+            }
+        }
+    }
+
+    @Test
+    public void testCachedArraysAreCopies() throws DocumentVisibilityConversionException {
+        final DocumentVisibility dv = new DocumentVisibility("A|B");
+        DocumentVisibilityUtil.toMultidimensionalArray(dv).clear();
+        assertEquals(2, DocumentVisibilityUtil.toMultidimensionalArray(dv).size());
+    }
+}
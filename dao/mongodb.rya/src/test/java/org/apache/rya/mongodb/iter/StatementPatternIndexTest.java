@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.mongodb.iter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Test;
+
+/**
+ * Tests the methods of {@link StatementPatternIndex}.
+ */
+public class StatementPatternIndexTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final RyaIRI ALICE = new RyaIRI("urn:alice");
+    private static final RyaIRI BOB = new RyaIRI("urn:bob");
+    private static final RyaIRI TALKS_TO = new RyaIRI("urn:talksTo");
+    private static final RyaIRI WORKS_AT = new RyaIRI("urn:worksAt");
+
+    @Test
+    public void matchesEveryBoundPosition() {
+        final BindingSet aliceTalks = bindingSet("x", "urn:alice-talks");
+        final BindingSet anyoneTalks = bindingSet("x", "urn:anyone-talks");
+        final BindingSet bobTalks = bindingSet("x", "urn:bob-talks");
+        final BindingSet aliceWorks = bindingSet("x", "urn:alice-works");
+
+        final StatementPatternIndex index = new StatementPatternIndex();
+        index.put(new RyaStatement(ALICE, TALKS_TO, null), Collections.singleton(aliceTalks));
+        index.put(new RyaStatement(null, TALKS_TO, null), Collections.singleton(anyoneTalks));
+        index.put(new RyaStatement(BOB, TALKS_TO, null), Collections.singleton(bobTalks));
+        index.put(new RyaStatement(ALICE, WORKS_AT, null), Collections.singleton(aliceWorks));
+
+        final RyaStatement statement = new RyaStatement(ALICE, TALKS_TO, BOB);
+        assertEquals(new HashSet<>(Arrays.asList(aliceTalks, anyoneTalks)), index.match(statement));
+
+        final RyaStatement other = new RyaStatement(BOB, WORKS_AT, new RyaType("acme"));
+        assertTrue(index.match(other).isEmpty());
+    }
+
+    @Test
+    public void mergesPatternsWithTheSameBoundValues() {
+        final BindingSet first = bindingSet("x", "urn:first");
+        final BindingSet second = bindingSet("x", "urn:second");
+
+        final StatementPatternIndex index = new StatementPatternIndex();
+        index.put(new RyaStatement(ALICE, null, null), Collections.singleton(first));
+        index.put(new RyaStatement(ALICE, null, null), Arrays.asList(first, second));
+
+        assertEquals(new HashSet<>(Arrays.asList(first, second)), index.match(new RyaStatement(ALICE, TALKS_TO, BOB)));
+    }
+
+    @Test
+    public void boundContextDoesNotMatchDefaultGraph() {
+        final BindingSet inGraph = bindingSet("x", "urn:in-graph");
+
+        final StatementPatternIndex index = new StatementPatternIndex();
+        index.put(new RyaStatement(ALICE, null, null, new RyaIRI("urn:graph")), Collections.singleton(inGraph));
+
+        assertTrue(index.match(new RyaStatement(ALICE, TALKS_TO, BOB)).isEmpty());
+        assertEquals(Collections.singleton(inGraph),
+                index.match(new RyaStatement(ALICE, TALKS_TO, BOB, new RyaIRI("urn:graph"))));
+    }
+
+    private static BindingSet bindingSet(final String name, final String iri) {
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding(name, VF.createIRI(iri));
+        return bs;
+    }
+}
@@ -150,6 +150,9 @@ public class AccumuloInstall extends AccumuloCommand implements Install {
                 .setRyaVersion( getVersion() )
                 .addUser(installUser)
 
+                // Core Table Values
+                .setDictionaryEncoded(installConfig.isDictionaryEncodingEnabled())
+
                 // Secondary Index Values
               //RYA-215                .setGeoIndexDetails(new GeoIndexDetails(installConfig.isGeoIndexEnabled()))
                 .setTemporalIndexDetails(
@@ -197,6 +200,7 @@ public class AccumuloInstall extends AccumuloCommand implements Install {
          * RYA-322
          * conf.setPrefixRowsWithHash(details.getPrefixRowsWithHashDetails().isEnabled());
          */
+        conf.setDictionaryEncoded(details.isDictionaryEncoded());
         conf.set(ConfigUtils.USE_FREETEXT, "" + details.getFreeTextIndexDetails().isEnabled() );
         conf.set(ConfigUtils.USE_TEMPORAL, "" + details.getTemporalIndexDetails().isEnabled() );
         conf.set(ConfigUtils.USE_ENTITY, "" + details.getEntityCentricIndexDetails().isEnabled());
@@ -92,7 +92,8 @@ public class AccumuloRyaStatementStore implements RyaStatementStore {
     @Override
     public Iterator<RyaStatement> fetchStatements() throws FetchStatementException {
         try {
-            final RyaTripleContext ryaTripleContext = RyaTripleContext.getInstance(accumuloRyaDao.getConf());
+            // the DAO's context is bound to the term dictionary of a dictionary encoded instance
+            final RyaTripleContext ryaTripleContext = accumuloRyaDao.getRyaTripleContext();
 
             Scanner scanner = null;
             try {
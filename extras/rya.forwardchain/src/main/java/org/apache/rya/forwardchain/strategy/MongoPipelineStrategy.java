@@ -104,7 +104,8 @@ public class MongoPipelineStrategy extends AbstractRuleExecutionStrategy {
         final MongoClient mongoClient = statefulConf.getMongoClient();
         final MongoDatabase mongoDB = mongoClient.getDatabase(mongoDBName);
         this.baseCollection = mongoDB.getCollection(collectionName);
-        this.pipelineVisitor = new SparqlToPipelineTransformVisitor(this.baseCollection);
+        this.pipelineVisitor = new SparqlToPipelineTransformVisitor(this.baseCollection,
+                SimpleMongoDBStorageStrategy.fromConfiguration(statefulConf));
         this.engine = this.dao.getQueryEngine();
         this.backup = new SailExecutionStrategy(statefulConf);
         final MongoDbBatchWriterConfig writerConfig = MongoDbBatchWriterUtils.getMongoDbBatchWriterConfig(statefulConf);
@@ -67,6 +67,7 @@ public class RyaVertexInputFormat extends AccumuloVertexInputFormat<Text, RyaTyp
         super.setConf(conf);
         RyaGiraphUtils.initializeAccumuloInputFormat(conf);
         rdfTableLayout = MRUtils.getTableLayout(conf, TABLE_LAYOUT.SPO);
+        RyaTripleContext.checkNotDictionaryEncoded(conf, getClass().getSimpleName());
         tripleContext = RyaTripleContext.getInstance(new AccumuloRdfConfiguration(conf));
 
     }
@@ -69,7 +69,8 @@ public class AccumuloPeriodicQueryResultStorage implements PeriodicQueryResultSt
     private Authorizations auths;
     private final PCJIdFactory pcjIdFactory = new PCJIdFactory();
     private final AccumuloPcjSerializer converter = new AccumuloPcjSerializer();
-    private static final PcjTables pcjTables = new PcjTables();
+    // Results are read back from their Values, which hold the aggregation values the Row IDs leave out.
+    private static final PcjTables pcjTables = new PcjTables(true);
     private static final PeriodicQueryTableNameFactory tableNameFactory = new PeriodicQueryTableNameFactory();
 
     /**
@@ -23,20 +23,21 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.BatchWriter;
 import org.apache.accumulo.core.client.BatchWriterConfig;
-import org.apache.accumulo.core.client.ConditionalWriter;
-import org.apache.accumulo.core.client.ConditionalWriterConfig;
 import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.MutationsRejectedException;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.TableExistsException;
@@ -45,12 +46,13 @@ import org.apache.accumulo.core.client.admin.TableOperations;
 import org.apache.accumulo.core.client.lexicoder.ListLexicoder;
 import org.apache.accumulo.core.client.lexicoder.LongLexicoder;
 import org.apache.accumulo.core.client.lexicoder.StringLexicoder;
-import org.apache.accumulo.core.client.mock.MockInstance;
-import org.apache.accumulo.core.data.Condition;
-import org.apache.accumulo.core.data.ConditionalMutation;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.LongCombiner;
+import org.apache.accumulo.core.iterators.user.SummingCombiner;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.hadoop.io.Text;
@@ -69,6 +71,7 @@ import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -100,16 +103,64 @@ public class PcjTables {
      */
     private static final Text PCJ_METADATA_CARDINALITY = new Text("cardinality");
 
+    /**
+     * The Column Qualifier for the changes to a PCJ's cardinality that have been
+     * made since it was created or purged. They are summed by a combiner.
+     */
+    private static final Text PCJ_METADATA_CARDINALITY_DELTA = new Text("cardinalityDelta");
+
+    /**
+     * The name of the combiner that sums the cardinality deltas of a PCJ table.
+     */
+    private static final String CARDINALITY_COMBINER_NAME = "pcjCardinalitySum";
+
+    private static final int CARDINALITY_COMBINER_PRIORITY = 10;
+
     /**
      * The Column Qualifier for the various variable orders a PCJ's results are written to.
      */
     private static final Text PCJ_METADATA_VARIABLE_ORDERS = new Text("variableOrders");
 
+    /**
+     * The Value of result entries that are only read from their Row IDs.
+     */
+    private static final Value EMPTY_VALUE = new Value(new byte[0]);
+
     // Lexicoders used to read/write PcjMetadata to/from Accumulo.
     private static final LongLexicoder longLexicoder = new LongLexicoder();
     private static final StringLexicoder stringLexicoder = new StringLexicoder();
     private static final ListLexicoder<String> listLexicoder = new ListLexicoder<>(stringLexicoder);
 
+    /**
+     * The PCJ tables this object has verified have the cardinality combiner attached.
+     */
+    private final Set<String> combinedTables = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Whether each result entry also stores the serialized result as its Value.
+     */
+    private final boolean storeResultValues;
+
+    /**
+     * Constructs an instance of {@link PcjTables} whose result entries are read
+     * from their Row IDs and have empty Values.
+     */
+    public PcjTables() {
+        this(false);
+    }
+
+    /**
+     * Constructs an instance of {@link PcjTables}.
+     *
+     * @param storeResultValues - Whether each result entry also stores the serialized
+     *   {@link VisibilityBindingSet} as its Value. This is required by readers that
+     *   decode results from the Value instead of the Row ID, such as the periodic
+     *   query storage, whose Row IDs do not hold the aggregation values.
+     */
+    public PcjTables(final boolean storeResultValues) {
+        this.storeResultValues = storeResultValues;
+    }
+
     /**
      * Create a new PCJ table within an Accumulo instance for a SPARQL query.
      * For example, calling the function like this:
@@ -136,6 +187,7 @@ public class PcjTables {
      *   <tr> <th>Row ID</td>  <th>Column</td>  <th>Value</td> </tr>
      *   <tr> <td>pcjMetadata</td> <td>metadata:sparql</td> <td> ... UTF-8 bytes encoding the query string ... </td> </tr>
      *   <tr> <td>pcjMetadata</td> <td>metadata:cardinality</td> <td> The query's cardinality </td> </tr>
+     *   <tr> <td>pcjMetadata</td> <td>metadata:cardinalityDelta</td> <td> Changes to the cardinality, summed by a combiner </td> </tr>
      *   <tr> <td>pcjMetadata</td> <td>metadata:variableOrders</td> <td> The variable orders the results are written to </td> </tr>
      * </table>
      *
@@ -162,6 +214,7 @@ public class PcjTables {
             try {
                 // Create the new table in Accumulo.
                 tableOps.create(pcjTableName);
+                attachCardinalityCombiner(tableOps, pcjTableName);
 
                 // Write the PCJ Metadata to the newly created table.
                 final PcjMetadata pcjMetadata = new PcjMetadata(sparql, 0L, varOrders);
@@ -244,6 +297,7 @@ public class PcjTables {
         try {
             // Create an Accumulo scanner that iterates through the metadata entries.
             scanner = accumuloConn.createScanner(pcjTableName, new Authorizations());
+            scanner.setRange(new Range(PCJ_METADATA_ROW_ID));
             final Iterator<Entry<Key, Value>> entries = scanner.iterator();
 
             // No metadata has been stored in the table yet.
@@ -254,6 +308,7 @@ public class PcjTables {
             // Fetch the metadata from the entries. Assuming they all have the same cardinality and sparql query.
             String sparql = null;
             Long cardinality = null;
+            long cardinalityDelta = 0L;
             final Set<VariableOrder> varOrders = new HashSet<>();
 
             while(entries.hasNext()) {
@@ -265,6 +320,8 @@ public class PcjTables {
                     sparql = stringLexicoder.decode(value);
                 } else if(columnQualifier.equals(PCJ_METADATA_CARDINALITY)) {
                     cardinality = longLexicoder.decode(value);
+                } else if(columnQualifier.equals(PCJ_METADATA_CARDINALITY_DELTA)) {
+                    cardinalityDelta += LongCombiner.FIXED_LEN_ENCODER.decode(value);
                 } else if(columnQualifier.equals(PCJ_METADATA_VARIABLE_ORDERS)) {
                     for(final String varOrderStr : listLexicoder.decode(value)) {
                         varOrders.add( new VariableOrder(varOrderStr) );
@@ -272,6 +329,9 @@ public class PcjTables {
                 }
             }
 
+            if(cardinality != null) {
+                cardinality += cardinalityDelta;
+            }
             return new PcjMetadata(sparql, cardinality, varOrders);
 
         } catch (final TableNotFoundException e) {
@@ -287,6 +347,10 @@ public class PcjTables {
      * Add a collection of results to a PCJ table. The table's cardinality will
      * be updated to include the new results.
      * <p>
+     * The cardinality is updated by writing the number of new results to a delta
+     * cell that is summed by a combiner, so writers that add results to the same
+     * PCJ concurrently do not need to read the cardinality or retry each other's updates.
+     * <p>
      * This method assumes the PCJ table has already been created.
      *
      * @param accumuloConn - A connection to the Accumulo that hosts the PCJ table. (not null)
@@ -303,15 +367,18 @@ public class PcjTables {
         checkNotNull(pcjTableName);
         checkNotNull(results);
 
-        // Write a result to each of the variable orders that are in the table.
-        writeResults(accumuloConn, pcjTableName, results);
-
-        // Increment the cardinality of the query by the number of new results.
-        if(accumuloConn.getInstance().getClass().equals(MockInstance.class)) {
-        	updateMockCardinality(accumuloConn, pcjTableName, results.size());
-        } else {
-        	updateCardinality(accumuloConn, pcjTableName, results.size());
+        // Tables created by older versions do not have the combiner the cardinality depends on.
+        if(!combinedTables.contains(pcjTableName)) {
+            try {
+                attachCardinalityCombiner(accumuloConn.tableOperations(), pcjTableName);
+            } catch (AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
+                throw new PCJStorageException("Could not update the cardinality value of the PCJ Table named: " + pcjTableName, e);
+            }
         }
+
+        // Write a result to each of the variable orders that are in the table and
+        // increment the cardinality of the query by the number of new results.
+        writeResults(accumuloConn, pcjTableName, results);
     }
 
     /**
@@ -370,9 +437,13 @@ public class PcjTables {
         try {
             writer = accumuloConn.createBatchWriter(pcjTableName, new BatchWriterConfig());
             for(final VisibilityBindingSet result : results) {
-                final Set<Mutation> addResultMutations = makeWriteResultMutations(metadata.getVarOrders(), result);
+                final Set<Mutation> addResultMutations = makeWriteResultMutations(metadata.getVarOrders(), result, storeResultValues);
                 writer.addMutations( addResultMutations );
             }
+
+            if(!results.isEmpty()) {
+                writer.addMutation( makeCardinalityDeltaMutation(results.size()) );
+            }
         } catch (TableNotFoundException | MutationsRejectedException e) {
             throw new PCJStorageException("Could not add results to the PCJ table named: " + pcjTableName, e);
         } finally {
@@ -392,18 +463,20 @@ public class PcjTables {
      *
      * @param varOrders - The variables orders the result will be written to. (not null)
      * @param result - A new PCJ result. (not null)
+     * @param storeValue - Whether the serialized result is written as the Value of each entry.
      * @return Mutation that will write the result to a PCJ table.
      * @throws PCJStorageException The binding set could not be encoded.
      */
     private static Set<Mutation> makeWriteResultMutations(
             final Set<VariableOrder> varOrders,
-            final VisibilityBindingSet result) throws PCJStorageException {
+            final VisibilityBindingSet result,
+            final boolean storeValue) throws PCJStorageException {
         checkNotNull(varOrders);
         checkNotNull(result);
 
         final Set<Mutation> mutations = new HashSet<>();
         final AccumuloPcjSerializer converter = new AccumuloPcjSerializer();
-        VisibilityBindingSetSerDe bsSerDe = new VisibilityBindingSetSerDe();
+        final VisibilityBindingSetSerDe bsSerDe = new VisibilityBindingSetSerDe();
 
         for(final VariableOrder varOrder : varOrders) {
             try {
@@ -411,9 +484,11 @@ public class PcjTables {
                 final byte[] rowKey = converter.convert(result, varOrder);
 
                 // Row ID = binding set values, Column Family = variable order of the binding set.
+                // Unless the Value is requested, the Row ID is the only copy of the result's values.
                 final Mutation addResult = new Mutation(rowKey);
                 final String visibility = result.getVisibility();
-                addResult.put(varOrder.toString(), "", new ColumnVisibility(visibility), new Value(bsSerDe.serialize(result).toArray()));
+                final Value value = storeValue ? new Value(bsSerDe.serialize(result).toArray()) : EMPTY_VALUE;
+                addResult.put(varOrder.toString(), "", new ColumnVisibility(visibility), value);
                 mutations.add(addResult);
             } catch(Exception e) {
                 throw new PCJStorageException("Could not serialize a result.", e);
@@ -424,124 +499,35 @@ public class PcjTables {
     }
 
     /**
-     * Update the cardinality of a PCJ by a {@code delta}.
+     * Creates a {@link Mutation} that changes the cardinality of a PCJ by a
+     * {@code delta}. The table's combiner adds it to the deltas that are already stored.
      *
-     * @param accumuloConn - A connection to the Accumulo that hosts the PCJ table. (not null)
-     * @param pcjTableName - The name of the PCJ table that will have its cardinality updated. (not null)
      * @param delta - How much the cardinality will change.
-     * @throws PCJStorageException The cardinality could not be updated.
+     * @return The mutation that will write the delta.
      */
-    private void updateCardinality(final Connector accumuloConn, final String pcjTableName, final long delta) throws PCJStorageException {
-        checkNotNull(accumuloConn);
-        checkNotNull(pcjTableName);
-
-        ConditionalWriter conditionalWriter = null;
-        try {
-            conditionalWriter = accumuloConn.createConditionalWriter(pcjTableName, new ConditionalWriterConfig());
-
-            boolean updated = false;
-            while (!updated) {
-                // Write the conditional update request to Accumulo.
-                final long cardinality = getPcjMetadata(accumuloConn,pcjTableName).getCardinality();
-                final ConditionalMutation mutation = makeUpdateCardinalityMutation(cardinality, delta);
-                final ConditionalWriter.Result result = conditionalWriter.write(mutation);
-
-                // Interpret the result.
-                switch (result.getStatus()) {
-                case ACCEPTED:
-                    updated = true;
-                    break;
-                case REJECTED:
-                    break;
-                case UNKNOWN:
-                    // We do not know if the mutation succeeded. At best, we
-                    // can hope the metadata hasn't been updated
-                    // since we originally fetched it and try again.
-                    // Otherwise, continue forwards as if it worked. It's
-                    // okay if this number is slightly off.
-                    final long newCardinality = getPcjMetadata(accumuloConn,pcjTableName).getCardinality();
-                    if (newCardinality != cardinality) {
-                        updated = true;
-                    }
-                    break;
-                case VIOLATED:
-                    throw new PCJStorageException("The cardinality could not be updated because the commit violated a table constraint.");
-                case INVISIBLE_VISIBILITY:
-                    throw new PCJStorageException("The condition contains a visibility the updater can not satisfy.");
-                }
-            }
-        } catch (AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
-            throw new PCJStorageException("Could not update the cardinality value of the PCJ Table named: " + pcjTableName, e);
-        } finally {
-            if (conditionalWriter != null) {
-                conditionalWriter.close();
-            }
-        }
+    private static Mutation makeCardinalityDeltaMutation(final long delta) {
+        final Mutation mutation = new Mutation(PCJ_METADATA_ROW_ID);
+        mutation.put(PCJ_METADATA_FAMILY, PCJ_METADATA_CARDINALITY_DELTA, new Value( LongCombiner.FIXED_LEN_ENCODER.encode(delta) ));
+        return mutation;
     }
 
     /**
-     * Update the cardinality of a PCJ by a {@code delta}.
+     * Attaches the combiner that sums the cardinality deltas of a PCJ table if
+     * it is not already attached.
      *
-     * This method updates the PCJ table cardinality using a BatchWriter in the event that
-     * the Accumulo Connector is for a MockInstance.  In the event that the cardinality is
-     * being updated asynchronously, there are no guarantees that the resulting cardinality
-     * will be correct.
-     *
-     * @param accumuloConn - A connection to a Mock Accumulo Instance that hosts the PCJ table. (not null)
-     * @param pcjTableName - The name of the PCJ table that will have its cardinality updated. (not null)
-     * @param delta - How much the cardinality will change.
-     * @throws PCJStorageException The cardinality could not be updated.
+     * @param tableOps - Used to configure the table. (not null)
+     * @param pcjTableName - The name of the PCJ table. (not null)
      */
-    private void updateMockCardinality(final Connector accumuloConn, final String pcjTableName, final long delta) throws PCJStorageException {
-        checkNotNull(accumuloConn);
-        checkNotNull(pcjTableName);
-
-        BatchWriter batchWriter = null;
-        try {
-            batchWriter = accumuloConn.createBatchWriter(pcjTableName, new BatchWriterConfig());
-            final long cardinality = getPcjMetadata(accumuloConn, pcjTableName).getCardinality();
-            final Mutation mutation = new Mutation(PCJ_METADATA_ROW_ID);
-            final Value newCardinality = new Value(longLexicoder.encode(cardinality + delta));
-            mutation.put(PCJ_METADATA_FAMILY, PCJ_METADATA_CARDINALITY, newCardinality);
-            batchWriter.addMutation(mutation);
-        } catch (TableNotFoundException | MutationsRejectedException e) {
-            throw new PCJStorageException("Could not update the cardinality value of the PCJ Table named: " + pcjTableName, e);
-        } finally {
-            if (batchWriter != null) {
-                try {
-                    batchWriter.close();
-                } catch (final MutationsRejectedException e) {
-                    throw new PCJStorageException("Could not update the cardinality value of the PCJ Table named: " + pcjTableName, e);
-                }
-            }
+    private void attachCardinalityCombiner(final TableOperations tableOps, final String pcjTableName)
+            throws AccumuloSecurityException, AccumuloException, TableNotFoundException {
+        if(!tableOps.listIterators(pcjTableName).containsKey(CARDINALITY_COMBINER_NAME)) {
+            final IteratorSetting setting = new IteratorSetting(CARDINALITY_COMBINER_PRIORITY, CARDINALITY_COMBINER_NAME, SummingCombiner.class);
+            SummingCombiner.setEncodingType(setting, LongCombiner.Type.FIXEDLEN);
+            SummingCombiner.setColumns(setting, Lists.newArrayList(
+                    new IteratorSetting.Column(PCJ_METADATA_FAMILY, PCJ_METADATA_CARDINALITY_DELTA)));
+            tableOps.attachIterator(pcjTableName, setting, EnumSet.allOf(IteratorScope.class));
         }
-    }
-
-    /**
-     * Creates a {@link ConditionalMutation} that only updates the cardinality
-     * of the PCJ table if the old value has not changed by the time this mutation
-     * is committed to Accumulo.
-     *
-     * @param current - The current cardinality value.
-     * @param delta - How much the cardinality will change.
-     * @return The mutation that will perform the conditional update.
-     */
-    private static ConditionalMutation makeUpdateCardinalityMutation(final long current, final long delta) {
-        // Try to update the cardinality by the delta.
-        final ConditionalMutation mutation = new ConditionalMutation(PCJ_METADATA_ROW_ID);
-        final Condition lastCardinalityStillCurrent = new Condition(
-                PCJ_METADATA_FAMILY,
-                PCJ_METADATA_CARDINALITY);
-
-        // Require the old cardinality to be the value we just read.
-        final byte[] currentCardinalityBytes = longLexicoder.encode( current );
-        lastCardinalityStillCurrent.setValue( currentCardinalityBytes );
-        mutation.addCondition(lastCardinalityStillCurrent);
-
-        // If that is the case, then update to the new value.
-        final Value newCardinality = new Value( longLexicoder.encode(current + delta) );
-        mutation.put(PCJ_METADATA_FAMILY, PCJ_METADATA_CARDINALITY, newCardinality);
-        return mutation;
+        combinedTables.add(pcjTableName);
     }
 
     /**
@@ -736,6 +722,7 @@ public class PcjTables {
         checkNotNull(pcjTableName);
         try {
             accumuloConn.tableOperations().delete(pcjTableName);
+            combinedTables.remove(pcjTableName);
         } catch (AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
             throw new PCJStorageException("Could not delete PCJ table named: " + pcjTableName, e);
         }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.pcj.storage.accumulo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.rya.api.model.VisibilityBindingSet;
+import org.apache.rya.api.utils.CloseableIterator;
+import org.apache.rya.indexing.pcj.storage.PeriodicQueryResultStorage;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Test;
+
+/**
+ * Tests the methods of {@link AccumuloPeriodicQueryResultStorage} against a {@link MockInstance}.
+ */
+public class AccumuloPeriodicQueryResultStorageWithMockTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Test
+    public void addAndListResults() throws Exception {
+        final Connector accumuloConn = new MockInstance("periodicInstance").getConnector("root", new PasswordToken(""));
+        accumuloConn.securityOperations().changeUserAuthorizations("root", new Authorizations("U"));
+        final PeriodicQueryResultStorage periodicStorage = new AccumuloPeriodicQueryResultStorage(accumuloConn, "rya_");
+
+        // The aggregation value is not part of the Row ID, so it must be read back from the Value.
+        final String sparql = "prefix function: <http://org.apache.rya/function#> "
+                + "prefix time: <http://www.w3.org/2006/time#> "
+                + "select ?id (count(?obs) as ?total) where {"
+                + "Filter(function:periodic(?time, 2, .5, time:hours)) "
+                + "?obs <uri:hasTime> ?time. "
+                + "?obs <uri:hasId> ?id } group by ?id";
+        final String queryId = periodicStorage.createPeriodicQuery(sparql);
+
+        final Set<BindingSet> expected = new HashSet<>();
+        final Set<VisibilityBindingSet> results = new HashSet<>();
+        for(final String id : new String[] {"id_1", "id_2"}) {
+            final QueryBindingSet bs = new QueryBindingSet();
+            bs.addBinding(PeriodicQueryResultStorage.PeriodicBinId, VF.createLiteral(1L));
+            bs.addBinding("id", VF.createLiteral(id));
+            bs.addBinding("total", VF.createLiteral(3L));
+            expected.add(bs);
+            results.add(new VisibilityBindingSet(bs, "U"));
+        }
+        periodicStorage.addPeriodicQueryResults(queryId, results);
+
+        final Set<BindingSet> actual = new HashSet<>();
+        try(CloseableIterator<BindingSet> iter = periodicStorage.listResults(queryId, Optional.of(1L))) {
+            iter.forEachRemaining(actual::add);
+        }
+        assertEquals(expected, actual);
+    }
+}
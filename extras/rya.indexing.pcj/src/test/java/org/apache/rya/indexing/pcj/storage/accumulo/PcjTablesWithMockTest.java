@@ -21,6 +21,7 @@ package org.apache.rya.indexing.pcj.storage.accumulo;
 import static org.junit.Assert.assertEquals;
 
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -35,6 +36,7 @@ import org.apache.log4j.Logger;
 import org.apache.rya.accumulo.AccumuloRdfConfiguration;
 import org.apache.rya.accumulo.AccumuloRyaDAO;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.model.VisibilityBindingSet;
 import org.apache.rya.indexing.pcj.storage.PcjException;
 import org.apache.rya.indexing.pcj.storage.PcjMetadata;
 import org.apache.rya.indexing.pcj.storage.accumulo.BindingSetConverter.BindingSetConversionException;
@@ -43,6 +45,7 @@ import org.apache.rya.rdftriplestore.RyaSailRepository;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.sail.SailRepositoryConnection;
 import org.junit.After;
@@ -50,6 +53,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Sets;
 
 public class PcjTablesWithMockTest {
 
@@ -109,6 +113,40 @@ public class PcjTablesWithMockTest {
         assertEquals(4, metadata.getCardinality());
     }
 
+    @Test
+    public void addResults_cardinalityDeltas() throws PcjException {
+        final String sparql =
+                "SELECT ?name ?age " +
+                "{" +
+                  "?name <http://hasAge> ?age." +
+                "}";
+
+        final String pcjTableName = new PcjTableNameFactory().makeTableName(RYA_TABLE_PREFIX, "testPcjDeltas");
+        final Set<VariableOrder> varOrders = new ShiftVarOrderFactory().makeVarOrders(new VariableOrder("name;age"));
+        final PcjTables pcjs = new PcjTables();
+        pcjs.createPcjTable(accumuloConn, pcjTableName, varOrders, sparql);
+
+        // Add the results in a few batches, each of which writes its own cardinality delta.
+        pcjs.addResults(accumuloConn, pcjTableName, Sets.newHashSet(result("http://Alice", 14), result("http://Bob", 16)));
+        pcjs.addResults(accumuloConn, pcjTableName, Collections.singleton(result("http://Charlie", 12)));
+        pcjs.addResults(accumuloConn, pcjTableName, Collections.singleton(result("http://Eve", 43)));
+        assertEquals(4, pcjs.getPcjMetadata(accumuloConn, pcjTableName).getCardinality());
+
+        // Purging the table also clears the deltas.
+        pcjs.purgePcjTable(accumuloConn, pcjTableName);
+        assertEquals(0, pcjs.getPcjMetadata(accumuloConn, pcjTableName).getCardinality());
+
+        pcjs.addResults(accumuloConn, pcjTableName, Collections.singleton(result("http://Alice", 14)));
+        assertEquals(1, pcjs.getPcjMetadata(accumuloConn, pcjTableName).getCardinality());
+    }
+
+    private static VisibilityBindingSet result(final String name, final int age) {
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("name", VF.createIRI(name));
+        bs.addBinding("age", VF.createLiteral(age));
+        return new VisibilityBindingSet(bs);
+    }
+
 
 	@After
 	public void shutdown() {
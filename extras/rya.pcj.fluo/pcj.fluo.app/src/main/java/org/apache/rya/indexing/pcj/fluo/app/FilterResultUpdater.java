@@ -20,34 +20,23 @@ package org.apache.rya.indexing.pcj.fluo.app;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.concurrent.ExecutionException;
+
 import org.apache.fluo.api.client.TransactionBase;
 import org.apache.fluo.api.data.Bytes;
+import org.apache.rya.api.function.filter.FilterEvaluator;
 import org.apache.rya.api.model.VisibilityBindingSet;
 import org.apache.rya.indexing.pcj.fluo.app.query.FilterMetadata;
 import org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryColumns;
 import org.apache.rya.indexing.pcj.fluo.app.util.FilterSerializer;
 import org.apache.rya.indexing.pcj.storage.accumulo.VariableOrder;
 import org.apache.rya.indexing.pcj.storage.accumulo.VisibilityBindingSetSerDe;
-import org.eclipse.rdf4j.common.iteration.CloseableIteration;
-import org.eclipse.rdf4j.model.IRI;
-import org.eclipse.rdf4j.model.Resource;
-import org.eclipse.rdf4j.model.Statement;
-import org.eclipse.rdf4j.model.Value;
-import org.eclipse.rdf4j.model.ValueFactory;
-import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
-import org.eclipse.rdf4j.query.BindingSet;
-import org.eclipse.rdf4j.query.QueryEvaluationException;
-import org.eclipse.rdf4j.query.algebra.Filter;
-import org.eclipse.rdf4j.query.algebra.FunctionCall;
-import org.eclipse.rdf4j.query.algebra.ValueExpr;
-import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
-import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
-import org.eclipse.rdf4j.query.algebra.evaluation.function.FunctionRegistry;
-import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
-import org.eclipse.rdf4j.query.algebra.evaluation.util.QueryEvaluationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
@@ -63,26 +52,10 @@ public class FilterResultUpdater extends AbstractNodeUpdater {
     private static final VisibilityBindingSetSerDe BS_SERDE = new VisibilityBindingSetSerDe();
 
     /**
-     * Is used to evaluate the conditions of a {@link Filter}.
+     * The evaluators of the Filters whose results have been updated, keyed by the Filter's SPARQL. The
+     * Filter's condition is compiled once, instead of once for each Binding Set it evaluates.
      */
-    private static final StrictEvaluationStrategy evaluator = new StrictEvaluationStrategy(
-            new TripleSource() {
-                private final ValueFactory valueFactory = SimpleValueFactory.getInstance();
-
-                @Override
-                public ValueFactory getValueFactory() {
-                    return valueFactory;
-                }
-
-                @Override
-                public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(
-                        final Resource arg0,
-                        final IRI arg1,
-                        final Value arg2,
-                        final Resource... arg3) throws QueryEvaluationException {
-                    throw new UnsupportedOperationException();
-                }
-            },null);
+    private final Cache<String, FilterEvaluator> evaluators = CacheBuilder.newBuilder().maximumSize(1000).build();
 
     /**
      * Updates the results of a Filter node when one of its child has added a
@@ -103,13 +76,17 @@ public class FilterResultUpdater extends AbstractNodeUpdater {
 
         log.trace("Transaction ID: {}\nFilter Node ID: {}\nBinding Set:\n{}\n", tx.getStartTimestamp(), filterMetadata.getNodeId(), childBindingSet);
 
-        // Parse the original query and find the Filter that represents filterId.
+        // Find the evaluator of the Filter that represents filterId.
         final String sparql = filterMetadata.getFilterSparql();
-        final Filter filter = FilterSerializer.deserialize(sparql);
+        final FilterEvaluator evaluator;
+        try {
+            evaluator = evaluators.get(sparql, () -> FilterEvaluator.make(FilterSerializer.deserialize(sparql)));
+        } catch (final ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
 
         // Evaluate whether the child BindingSet satisfies the filter's condition.
-        final ValueExpr condition = filter.getCondition();
-        if (isTrue(condition, childBindingSet)) {
+        if (evaluator.filter(childBindingSet)) {
 
             // Create the Row Key for the emitted binding set. It does not contain visibilities.
             final VariableOrder filterVarOrder = filterMetadata.getVariableOrder();
@@ -122,27 +99,4 @@ public class FilterResultUpdater extends AbstractNodeUpdater {
             tx.set(resultRow, FluoQueryColumns.FILTER_BINDING_SET, nodeValueBytes);
         }
     }
-
-    /**
-     * Evaluate a {@link BindingSet} to see if it is accepted by a filter's condition.
-     *
-     * @param condition - The filter condition. (not null)
-     * @param bindings - The binding set to evaluate. (not null)
-     * @return {@code true} if the binding set is accepted by the filter; otherwise {@code false}.
-     * @throws QueryEvaluationException The condition couldn't be evaluated. In the case that the ValueExpr is a
-     *             {@link FunctionCall}, this Exception is thrown because the Function could not be found in the
-     *             {@link FunctionRegistry}.
-     */
-    private static boolean isTrue(final ValueExpr condition, final BindingSet bindings) throws QueryEvaluationException {
-        try {
-            final Value value = evaluator.evaluate(condition, bindings);
-            return QueryEvaluationUtil.getEffectiveBooleanValue(value);
-        } catch (final ValueExprEvaluationException e) {
-            //False returned because for whatever reason, the ValueExpr could not be evaluated.
-            //In the event that the ValueExpr is a FunctionCall, this Exception will be generated if
-            //the Function URI is a valid URI that was found in the FunctionRegistry, but the arguments
-            //for that Function could not be parsed.
-            return false;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -20,22 +20,17 @@ package org.apache.rya.indexing.pcj.fluo.app.observers;
 
 import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.DELIM;
 
-import java.util.Map;
-import java.util.Set;
-
 import org.apache.fluo.api.client.TransactionBase;
 import org.apache.fluo.api.data.Bytes;
 import org.apache.fluo.api.data.Column;
 import org.apache.fluo.api.observer.AbstractObserver;
 import org.apache.rya.api.domain.RyaStatement;
-import org.apache.rya.api.domain.VarNameUtils;
 import org.apache.rya.api.model.VisibilityBindingSet;
 import org.apache.rya.indexing.pcj.fluo.app.IncUpdateDAO;
 import org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryColumns;
-import org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryMetadataCache;
-import org.apache.rya.indexing.pcj.fluo.app.query.MetadataCacheSupplier;
 import org.apache.rya.indexing.pcj.fluo.app.query.StatementPatternIdCache;
 import org.apache.rya.indexing.pcj.fluo.app.query.StatementPatternIdCacheSupplier;
+import org.apache.rya.indexing.pcj.fluo.app.query.StatementPatternIndex.IndexedPattern;
 import org.apache.rya.indexing.pcj.fluo.app.query.StatementPatternMetadata;
 import org.apache.rya.indexing.pcj.fluo.app.util.BindingHashShardingFunction;
 import org.apache.rya.indexing.pcj.storage.accumulo.VariableOrder;
@@ -44,8 +39,6 @@ import org.apache.rya.indexing.pcj.storage.accumulo.VisibilityBindingSetStringCo
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Maps;
-
 /**
  * An observer that matches new Triples to the Statement Patterns that are part
  * of any PCJ that is being maintained. If the triple matches a pattern, then
@@ -55,7 +48,6 @@ public class TripleObserver extends AbstractObserver {
     private static final Logger log = LoggerFactory.getLogger(TripleObserver.class);
 
     private static final VisibilityBindingSetSerDe BS_SERDE = new VisibilityBindingSetSerDe();
-    private final FluoQueryMetadataCache QUERY_METADATA_DAO = MetadataCacheSupplier.getOrCreateCache();
     private final StatementPatternIdCache SP_ID_CACHE = StatementPatternIdCacheSupplier.getOrCreateCache();
     private static final VisibilityBindingSetStringConverter VIS_BS_CONVERTER = new VisibilityBindingSetStringConverter();
 
@@ -71,21 +63,18 @@ public class TripleObserver extends AbstractObserver {
         log.trace("Transaction ID: {}\nRya Statement: {}\n", tx.getStartTimestamp(), ryaStatement);
         log.trace("Beginging to process triple.");
 
-        final String triple = IncUpdateDAO.getTripleString(ryaStatement);
+        final String[] triple = IncUpdateDAO.getTripleString(ryaStatement).split(DELIM);
 
-        Set<String> spIDs = SP_ID_CACHE.getStatementPatternIds(tx);
-
-        //see if triple matches conditions of any of the SP
-        for (String spID: spIDs) {
-            // Fetch its metadata.
-            final StatementPatternMetadata spMetadata = QUERY_METADATA_DAO.readStatementPatternMetadata(tx, spID);
+        //see if triple matches conditions of any of the SP that share a constant with it
+        for (final IndexedPattern pattern : SP_ID_CACHE.getStatementPatternIndex(tx).getCandidates(triple)) {
+            final StatementPatternMetadata spMetadata = pattern.getMetadata();
+            final String spID = spMetadata.getNodeId();
 
             log.trace("Retrieved metadata: {}", spMetadata);
 
             // Attempt to match the triple against the pattern.
-            final String pattern = spMetadata.getStatementPattern();
             final VariableOrder varOrder = spMetadata.getVariableOrder();
-            final String bindingSetString = getBindingSet(triple, pattern, varOrder);
+            final String bindingSetString = pattern.getBindingSet(triple);
 
             log.trace("Created binding set match string: {}", bindingSetString);
 
@@ -118,49 +107,4 @@ public class TripleObserver extends AbstractObserver {
         // Once the triple has been handled, it may be deleted.
         tx.delete(brow, column);
     }
-
-    /**
-     * Determines whether a triple matches a Statement Pattern. If so, it generates a string representation of a
-     * BindingSet whose order is determined by varOrder.
-     *
-     * @param triple - The triple to consider.
-     * @param pattern - The pattern the triple must match.
-     * @param varOrder - The variable order of the Binding Set String that is produced by this method.
-     * @return The string representation of a Binding Set that is generated by matching the triple to the pattern;
-     *   otherwise an empty string if the pattern couldn't be matched.
-     */
-    private static String getBindingSet(final String triple, final String pattern, final VariableOrder varOrder) {
-        final String[] patternArray = pattern.split(DELIM);
-        final String[] tripleArray = triple.split(DELIM);
-        final String[] varOrderArray = varOrder.toArray();
-        final Map<String,String> bindingValues = Maps.newHashMap();
-
-        if(patternArray.length != 3 || tripleArray.length != 3) {
-            throw new IllegalArgumentException("Invald number of components");
-        }
-
-        // Extract the binding names and values.
-        for(int i = 0; i < 3; i ++) {
-            if(VarNameUtils.isConstant(patternArray[i])) {
-                // If a constant value does not match, then the triple does not match the pattern.
-                if(!patternArray[i].substring(7).equals(tripleArray[i])) {
-                    return "";
-                }
-            } else{
-                bindingValues.put(patternArray[i], tripleArray[i]);
-            }
-        }
-
-        // Create the returned binding set string from the extracted values.
-        String bindingSetString = "";
-        for (final String bindingName : varOrderArray) {
-            if(bindingSetString.length() == 0) {
-                bindingSetString = bindingValues.get(bindingName);
-            } else {
-                bindingSetString = bindingSetString + DELIM + bindingValues.get(bindingName);
-            }
-        }
-
-        return bindingSetString;
-    }
-}
\ No newline at end of file
+}
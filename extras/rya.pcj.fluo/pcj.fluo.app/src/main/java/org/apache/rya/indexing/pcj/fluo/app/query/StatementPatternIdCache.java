@@ -24,7 +24,9 @@ import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.VA
 import static org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryColumns.STATEMENT_PATTERN_IDS;
 import static org.apache.rya.indexing.pcj.fluo.app.query.FluoQueryColumns.STATEMENT_PATTERN_IDS_HASH;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
@@ -32,12 +34,15 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.apache.fluo.api.client.TransactionBase;
 import org.apache.fluo.api.data.Bytes;
 
+import com.google.common.base.Splitter;
 import com.google.common.collect.Sets;
 
 /**
  * This class caches the StatementPattern Ids so they don't have
  * to be looked up each time a new Statement needs to be processed
- * in the TripleObserver.
+ * in the TripleObserver. It also caches a {@link StatementPatternIndex}
+ * over those StatementPatterns so that each new Statement is only
+ * compared against the patterns it may match.
  *
  */
 public class StatementPatternIdCache {
@@ -46,6 +51,10 @@ public class StatementPatternIdCache {
     private static Optional<String> HASH = Optional.empty();
     private static Set<String> IDS = new HashSet<>();
 
+    private final FluoQueryMetadataDAO dao = new FluoQueryMetadataDAO();
+    private volatile Optional<String> indexHash = Optional.empty();
+    private volatile StatementPatternIndex index = StatementPatternIndex.EMPTY;
+
     /**
      * This method retrieves the StatementPattern NodeIds registered in the Fluo table.
      * To determine whether the StatementPattern NodeIds have changed in the underlying Fluo table,
@@ -67,7 +76,7 @@ public class StatementPatternIdCache {
             lock.lock();
             try {
                 String ids = tx.get(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS).toString();
-                IDS = Sets.newHashSet(ids.split(VAR_DELIM));
+                IDS = Sets.newHashSet(Splitter.on(VAR_DELIM).omitEmptyStrings().split(ids));
                 HASH = Optional.of(hash);
                 return IDS;
             } finally {
@@ -77,6 +86,35 @@ public class StatementPatternIdCache {
         return IDS;
     }
 
+    /**
+     * This method retrieves a {@link StatementPatternIndex} over the StatementPatterns registered in the Fluo table.
+     * The index is only rebuilt when the hash of the StatementPattern nodeIds in the Fluo table differs from
+     * the hash of the nodeIds the index was built from. This method is thread safe.
+     * @param tx
+     * @return - An index over the registered StatementPatterns
+     */
+    public StatementPatternIndex getStatementPatternIndex(TransactionBase tx) {
+        checkNotNull(tx);
+        Optional<String> hash = Optional.ofNullable(tx.get(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS_HASH)).map(Bytes::toString);
+        if (hash.equals(indexHash)) {
+            return index;
+        }
+        lock.lock();
+        try {
+            if (!hash.equals(indexHash)) {
+                List<StatementPatternMetadata> patterns = new ArrayList<>();
+                for (String id : getStatementPatternIds(tx)) {
+                    patterns.add(dao.readStatementPatternMetadata(tx, id));
+                }
+                index = new StatementPatternIndex(patterns);
+                indexHash = hash;
+            }
+            return index;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Clears contexts of cache so that it will be re-populated next time
      * {@link StatementPatternIdCache#getStatementPatternIds(TransactionBase)} is called.
@@ -84,6 +122,8 @@ public class StatementPatternIdCache {
     public void clear() {
         HASH = Optional.empty();
         IDS.clear();
+        indexHash = Optional.empty();
+        index = StatementPatternIndex.EMPTY;
     }
 
 }
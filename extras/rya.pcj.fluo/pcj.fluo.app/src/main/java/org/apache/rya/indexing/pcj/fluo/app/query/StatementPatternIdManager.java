@@ -82,7 +82,7 @@ public class StatementPatternIdManager {
             storedIds = Sets.newHashSet(val.get().toString().split(VAR_DELIM));
         }
         storedIds.removeAll(ids);
-        String idString = Joiner.on(VAR_DELIM).join(ids);
+        String idString = Joiner.on(VAR_DELIM).join(storedIds);
         tx.set(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS, Bytes.of(idString));
         tx.set(Bytes.of(STATEMENT_PATTERN_ID), STATEMENT_PATTERN_IDS_HASH, Bytes.of(Hashing.sha256().hashString(idString).toString()));
     }
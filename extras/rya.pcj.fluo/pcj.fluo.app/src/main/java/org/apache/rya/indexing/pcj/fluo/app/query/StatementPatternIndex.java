@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.pcj.fluo.app.query;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.DELIM;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.rya.api.domain.VarNameUtils;
+
+/**
+ * An immutable index over the StatementPatterns that are maintained by the Fluo application. Each pattern is
+ * filed under one of its constants so that a triple only needs to be compared against the patterns whose
+ * constant it shares, plus the patterns that do not have any constants.
+ * <p>
+ * A pattern is filed under its predicate if it is a constant, otherwise its subject, otherwise its object.
+ * Patterns without constants are placed in a wildcard bucket that is checked for every triple. Since each
+ * pattern is filed exactly once, a triple never sees the same pattern twice.
+ */
+public class StatementPatternIndex {
+
+    private static final int SUBJECT = 0;
+    private static final int PREDICATE = 1;
+    private static final int OBJECT = 2;
+
+    /**
+     * An index that does not hold any StatementPatterns.
+     */
+    public static final StatementPatternIndex EMPTY = new StatementPatternIndex(Collections.emptyList());
+
+    private final Map<String, List<IndexedPattern>> bySubject = new HashMap<>();
+    private final Map<String, List<IndexedPattern>> byPredicate = new HashMap<>();
+    private final Map<String, List<IndexedPattern>> byObject = new HashMap<>();
+    private final List<IndexedPattern> wildcards = new ArrayList<>();
+
+    /**
+     * Creates a StatementPatternIndex.
+     *
+     * @param patterns - The metadata of the StatementPatterns that will be indexed. (not null)
+     */
+    public StatementPatternIndex(final Collection<StatementPatternMetadata> patterns) {
+        checkNotNull(patterns);
+        for(final StatementPatternMetadata metadata : patterns) {
+            final IndexedPattern pattern = new IndexedPattern(metadata);
+            if(pattern.isConstant(PREDICATE)) {
+                byPredicate.computeIfAbsent(pattern.getConstant(PREDICATE), key -> new ArrayList<>()).add(pattern);
+            } else if(pattern.isConstant(SUBJECT)) {
+                bySubject.computeIfAbsent(pattern.getConstant(SUBJECT), key -> new ArrayList<>()).add(pattern);
+            } else if(pattern.isConstant(OBJECT)) {
+                byObject.computeIfAbsent(pattern.getConstant(OBJECT), key -> new ArrayList<>()).add(pattern);
+            } else {
+                wildcards.add(pattern);
+            }
+        }
+    }
+
+    /**
+     * Finds the StatementPatterns a triple may match. The triple still needs to be checked against each of them
+     * using {@link IndexedPattern#getBindingSet(String[])}.
+     *
+     * @param triple - The subject, predicate, and object of the triple in the form produced by
+     *   {@code IncUpdateDAO#getTripleString(RyaStatement)}, split on {@code DELIM}. (not null)
+     * @return The patterns that share a constant with the triple or that do not have any constants.
+     */
+    public List<IndexedPattern> getCandidates(final String[] triple) {
+        checkNotNull(triple);
+        checkArgument(triple.length == 3, "Invald number of components");
+
+        final List<IndexedPattern> candidates = new ArrayList<>(wildcards);
+        candidates.addAll( bySubject.getOrDefault(triple[SUBJECT], Collections.emptyList()) );
+        candidates.addAll( byPredicate.getOrDefault(triple[PREDICATE], Collections.emptyList()) );
+        candidates.addAll( byObject.getOrDefault(triple[OBJECT], Collections.emptyList()) );
+        return candidates;
+    }
+
+    /**
+     * A StatementPattern whose pattern string has been parsed once so that triples may be matched against it
+     * without parsing it again.
+     */
+    public static class IndexedPattern {
+        private final StatementPatternMetadata metadata;
+        private final String[] pattern;
+        private final String[] varOrder;
+
+        private IndexedPattern(final StatementPatternMetadata metadata) {
+            this.metadata = checkNotNull(metadata);
+            this.pattern = metadata.getStatementPattern().split(DELIM);
+            this.varOrder = metadata.getVariableOrder().toArray();
+            checkArgument(pattern.length == 3, "Invald number of components");
+        }
+
+        /**
+         * @return The metadata of the StatementPattern.
+         */
+        public StatementPatternMetadata getMetadata() {
+            return metadata;
+        }
+
+        private boolean isConstant(final int position) {
+            return VarNameUtils.isConstant(pattern[position]);
+        }
+
+        private String getConstant(final int position) {
+            return VarNameUtils.removeConstant(pattern[position]);
+        }
+
+        /**
+         * Determines whether a triple matches this StatementPattern. If so, it generates a string representation
+         * of a BindingSet whose order is determined by the pattern's variable order.
+         *
+         * @param triple - The subject, predicate, and object of the triple. (not null)
+         * @return The string representation of a Binding Set that is generated by matching the triple to the
+         *   pattern; otherwise an empty string if the pattern couldn't be matched.
+         */
+        public String getBindingSet(final String[] triple) {
+            checkNotNull(triple);
+            final Map<String, String> bindingValues = new HashMap<>();
+
+            // Extract the binding names and values.
+            for(int i = 0; i < 3; i++) {
+                if(isConstant(i)) {
+                    // If a constant value does not match, then the triple does not match the pattern.
+                    if(!getConstant(i).equals(triple[i])) {
+                        return "";
+                    }
+                } else {
+                    bindingValues.put(pattern[i], triple[i]);
+                }
+            }
+
+            // Create the returned binding set string from the extracted values.
+            final StringBuilder bindingSetString = new StringBuilder();
+            for(final String bindingName : varOrder) {
+                if(bindingSetString.length() != 0) {
+                    bindingSetString.append(DELIM);
+                }
+                bindingSetString.append(bindingValues.get(bindingName));
+            }
+            return bindingSetString.toString();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.indexing.pcj.fluo.app.query;
+
+import static org.apache.rya.api.domain.VarNameUtils.prependConstant;
+import static org.apache.rya.indexing.pcj.fluo.app.IncrementalUpdateConstants.DELIM;
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.indexing.pcj.fluo.app.FluoStringConverter;
+import org.apache.rya.indexing.pcj.fluo.app.IncUpdateDAO;
+import org.apache.rya.indexing.pcj.fluo.app.query.StatementPatternIndex.IndexedPattern;
+import org.apache.rya.indexing.pcj.storage.accumulo.VariableOrder;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the methods of {@link StatementPatternIndex}.
+ */
+public class StatementPatternIndexTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final StatementPatternMetadata WORKS_AT = metadata("SP_worksAt", new Var("x"), constant("urn:worksAt"), new Var("y"));
+    private static final StatementPatternMetadata ALICE = metadata("SP_alice", constant("urn:Alice"), new Var("p"), new Var("o"));
+    private static final StatementPatternMetadata CHIPOTLE = metadata("SP_chipotle", new Var("s"), new Var("p"), constant("urn:Chipotle"));
+    private static final StatementPatternMetadata ANYTHING = metadata("SP_anything", new Var("s"), new Var("p"), new Var("o"));
+
+    private static final StatementPatternIndex INDEX = new StatementPatternIndex(Lists.newArrayList(WORKS_AT, ALICE, CHIPOTLE, ANYTHING));
+
+    @Test
+    public void getCandidates_sharedConstants() {
+        final String[] triple = triple("urn:Alice", "urn:worksAt", "urn:Chipotle");
+        assertEquals(Sets.newHashSet("SP_worksAt", "SP_alice", "SP_chipotle", "SP_anything"), candidateIds(triple));
+    }
+
+    @Test
+    public void getCandidates_onlyWildcards() {
+        final String[] triple = triple("urn:Bob", "urn:talksTo", "urn:Eve");
+        assertEquals(Sets.newHashSet("SP_anything"), candidateIds(triple));
+    }
+
+    @Test
+    public void getCandidates_empty() {
+        assertEquals(0, StatementPatternIndex.EMPTY.getCandidates(triple("urn:Bob", "urn:talksTo", "urn:Eve")).size());
+    }
+
+    @Test
+    public void getBindingSet() {
+        final String[] triple = triple("urn:Alice", "urn:worksAt", "urn:Chipotle");
+        for(final IndexedPattern pattern : INDEX.getCandidates(triple)) {
+            if(pattern.getMetadata().equals(WORKS_AT)) {
+                assertEquals(triple[0] + DELIM + triple[2], pattern.getBindingSet(triple));
+            }
+        }
+    }
+
+    @Test
+    public void getBindingSet_constantDoesNotMatch() {
+        // A pattern that is filed under its predicate must still check its other constants.
+        final StatementPatternMetadata aliceWorksAt = metadata("SP_aliceWorksAt", constant("urn:Alice"), constant("urn:worksAt"), new Var("y"));
+        final StatementPatternIndex index = new StatementPatternIndex(Lists.newArrayList(aliceWorksAt));
+
+        final String[] triple = triple("urn:Bob", "urn:worksAt", "urn:Chipotle");
+        final IndexedPattern pattern = index.getCandidates(triple).get(0);
+        assertEquals("", pattern.getBindingSet(triple));
+    }
+
+    private static Set<String> candidateIds(final String[] triple) {
+        final Set<String> ids = new HashSet<>();
+        for(final IndexedPattern pattern : INDEX.getCandidates(triple)) {
+            ids.add(pattern.getMetadata().getNodeId());
+        }
+        return ids;
+    }
+
+    private static String[] triple(final String subject, final String predicate, final String object) {
+        final RyaStatement statement = new RyaStatement(new RyaIRI(subject), new RyaIRI(predicate), new RyaIRI(object));
+        return IncUpdateDAO.getTripleString(statement).split(DELIM);
+    }
+
+    private static Var constant(final String iri) {
+        return new Var(prependConstant(iri), VF.createIRI(iri));
+    }
+
+    private static StatementPatternMetadata metadata(final String nodeId, final Var subject, final Var predicate, final Var object) {
+        final StatementPattern sp = new StatementPattern(subject, predicate, object);
+        final VariableOrder varOrder = new VariableOrder(Lists.newArrayList(sp.getBindingNames()).stream()
+                .filter(name -> !name.startsWith("_const_"))
+                .sorted()
+                .toArray(String[]::new));
+        return StatementPatternMetadata.builder(nodeId)
+                .setStatementPattern(FluoStringConverter.toStatementPatternString(sp))
+                .setVarOrder(varOrder)
+                .setParentNodeId("parent")
+                .build();
+    }
+}
@@ -104,6 +104,7 @@ public class JoinSelectSpoTableOutput extends Configured implements Tool {
   public int run(String[] args) throws Exception {
 
     Configuration conf = getConf();
+    RyaTripleContext.checkNotDictionaryEncoded(conf, getClass().getSimpleName());
     String inTable = conf.get(SPO_TABLE);
     String auths = conf.get(AUTHS);
     String outPath = conf.get(SPO_OUTPUTPATH);
@@ -43,6 +43,7 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import org.apache.rya.api.resolver.RyaTripleContext;
 import org.apache.rya.prospector.domain.IntermediateProspect;
 import org.apache.rya.prospector.utils.ProspectorUtils;
 
@@ -68,6 +69,7 @@ public class Prospector extends Configured implements Tool {
 
         final Path configurationPath = new Path(args[0]);
         conf.addResource(configurationPath);
+        RyaTripleContext.checkNotDictionaryEncoded(conf, getClass().getSimpleName());
 
         final String inTable = conf.get("prospector.intable");
         final String outTable = conf.get("prospector.outtable");
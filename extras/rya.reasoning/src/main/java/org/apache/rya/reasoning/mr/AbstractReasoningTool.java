@@ -49,6 +49,7 @@ import org.apache.hadoop.util.Tool;
 import org.apache.rya.accumulo.mr.MRUtils;
 import org.apache.rya.accumulo.mr.RdfFileInputFormat;
 import org.apache.rya.accumulo.mr.RyaStatementWritable;
+import org.apache.rya.api.resolver.RyaTripleContext;
 import org.apache.rya.reasoning.Derivation;
 import org.apache.rya.reasoning.Fact;
 import org.apache.rya.reasoning.Schema;
@@ -77,6 +78,7 @@ abstract public class AbstractReasoningTool extends Configured implements Tool {
     @Override
     public int run(String[] args) throws Exception {
         Configuration conf = getConf();
+        RyaTripleContext.checkNotDictionaryEncoded(conf, getClass().getSimpleName());
         job = Job.getInstance(conf);
         job.setJobName(getJobName());
         job.setJarByClass(this.getClass());
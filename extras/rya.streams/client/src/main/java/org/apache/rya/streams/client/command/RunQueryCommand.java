@@ -35,6 +35,7 @@ import org.apache.rya.streams.client.RyaStreamsCommand;
 import org.apache.rya.streams.kafka.KafkaTopics;
 import org.apache.rya.streams.kafka.interactor.KafkaRunQuery;
 import org.apache.rya.streams.kafka.interactor.KafkaTopicPropertiesBuilder;
+import org.apache.rya.streams.kafka.processors.join.JoinRetentionPolicy;
 import org.apache.rya.streams.kafka.queries.KafkaQueryChangeLogFactory;
 import org.apache.rya.streams.kafka.topology.TopologyFactory;
 
@@ -61,6 +62,14 @@ public class RunQueryCommand implements RyaStreamsCommand {
         @Parameter(names = {"--zookeepers", "-z"}, required = true, description = "The servers that Zookeeper runs on.")
         private String zookeeperServers;
 
+        @Parameter(names = {"--joinMaxAgeMs"}, required = false, description = "How many milliseconds each join of the " +
+                "query holds onto a binding set. By default, binding sets do not age off.")
+        private Long joinMaxAgeMs;
+
+        @Parameter(names = {"--joinMaxEntries"}, required = false, description = "How many binding sets each join of the " +
+                "query holds onto. By default, the number is not limited.")
+        private Long joinMaxEntries;
+
         @Override
         public String toString() {
             final StringBuilder parameters = new StringBuilder();
@@ -70,6 +79,12 @@ public class RunQueryCommand implements RyaStreamsCommand {
                 parameters.append("\tQueryID: " + queryId);
                 parameters.append("\n");
             }
+            if (joinMaxAgeMs != null) {
+                parameters.append("\tJoin Max Age (ms): " + joinMaxAgeMs + "\n");
+            }
+            if (joinMaxEntries != null) {
+                parameters.append("\tJoin Max Entries: " + joinMaxEntries + "\n");
+            }
             return parameters.toString();
         }
     }
@@ -117,6 +132,17 @@ public class RunQueryCommand implements RyaStreamsCommand {
             throw new ArgumentsException("Could not add a new query because of invalid command line parameters.", e);
         }
 
+        // Bound the state each of the query's joins holds onto, if requested.
+        final JoinRetentionPolicy joinRetention;
+        try {
+            joinRetention = new JoinRetentionPolicy(
+                    Optional.ofNullable(params.joinMaxAgeMs),
+                    Optional.ofNullable(params.joinMaxEntries),
+                    JoinRetentionPolicy.DEFAULT_EVICTION_INTERVAL_MS);
+        } catch(final IllegalArgumentException e) {
+            throw new ArgumentsException("Could not run the query because of an invalid join retention.", e);
+        }
+
         // Create the Kafka backed QueryChangeLog.
         final String bootstrapServers = params.kafkaIP + ":" + params.kafkaPort;
         final String topic = KafkaTopics.queryChangeLogTopic(params.ryaInstance);
@@ -152,7 +178,7 @@ public class RunQueryCommand implements RyaStreamsCommand {
                         KafkaTopics.statementsTopic(params.ryaInstance),
                         KafkaTopics.queryResultsTopic(params.ryaInstance, queryId),
                         queryRepo,
-                        new TopologyFactory());
+                        new TopologyFactory(joinRetention));
                 runQuery.run(queryId);
             } catch(final Exception e) {
                 throw new ExecutionException("Could not execute the Run Query command.", e);
@@ -20,6 +20,7 @@ package org.apache.rya.streams.kafka;
 
 import org.apache.kafka.streams.KafkaStreams;
 import org.apache.rya.streams.api.entity.StreamsQuery;
+import org.apache.rya.streams.kafka.topology.SharedStatementPattern;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -40,6 +41,28 @@ public interface KafkaStreamsFactory {
      */
     public KafkaStreams make(String ryaInstance, StreamsQuery query) throws KafkaStreamsFactoryException;
 
+    /**
+     * Builds a {@link KafkaStreams} object that is able to process a specific {@link StreamsQuery} by reading the
+     * matches of its statement patterns from the topics written to by the jobs built by
+     * {@link #make(String, SharedStatementPattern)}.
+     *
+     * @param ryaInstance - The Rya Instance the streams job is for. (not null)
+     * @param query - Defines the query that will be executed. (not null)
+     * @return A {@link KafkaStreams} object that will process the provided query.
+     * @throws KafkaStreamsFactoryException Unable to create a {@link KafkaStreams} object from the provided values.
+     */
+    public KafkaStreams makeSharingStatementPatterns(String ryaInstance, StreamsQuery query) throws KafkaStreamsFactoryException;
+
+    /**
+     * Builds a {@link KafkaStreams} object that matches the statements of a Rya Instance against a statement pattern
+     * that is shared by any number of queries.
+     *
+     * @param ryaInstance - The Rya Instance the streams job is for. (not null)
+     * @param pattern - The statement pattern that will be matched. (not null)
+     * @return A {@link KafkaStreams} object that will match the provided pattern.
+     */
+    public KafkaStreams make(String ryaInstance, SharedStatementPattern pattern);
+
     /**
      * A {@link KafkaStreamsFactory} could not create a {@link KafkaStreams} object.
      */
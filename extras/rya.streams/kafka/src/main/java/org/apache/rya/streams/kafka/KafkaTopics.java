@@ -98,6 +98,20 @@ public class KafkaTopics {
         return ryaInstance + "-QueryResults-" + queryId.toString();
     }
 
+    /**
+     * Creates the Kafka topic name that holds the binding sets of the statements that match a statement pattern
+     * that is shared by the queries of a specific instance of Rya.
+     *
+     * @param ryaInstance - The Rya instance the statements are for. (not null)
+     * @param patternId - The ID of the shared statement pattern the topic is for. (not null)
+     * @return The name of the Kafka topic.
+     */
+    public static String sharedStatementPatternTopic(final String ryaInstance, final UUID patternId) {
+        requireNonNull(ryaInstance);
+        requireNonNull(patternId);
+        return ryaInstance + "-SharedPattern-" + patternId.toString();
+    }
+
     /**
      * TODO doc
      *
@@ -28,6 +28,8 @@ import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.processor.TopologyBuilder;
 import org.apache.rya.api.function.projection.RandomUUIDFactory;
 import org.apache.rya.streams.api.entity.StreamsQuery;
+import org.apache.rya.streams.kafka.processors.join.JoinRetentionPolicy;
+import org.apache.rya.streams.kafka.topology.SharedStatementPattern;
 import org.apache.rya.streams.kafka.topology.TopologyBuilderFactory;
 import org.apache.rya.streams.kafka.topology.TopologyBuilderFactory.TopologyBuilderException;
 import org.apache.rya.streams.kafka.topology.TopologyFactory;
@@ -46,7 +48,7 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 @DefaultAnnotation(NonNull.class)
 public class SingleThreadKafkaStreamsFactory implements KafkaStreamsFactory {
 
-    private final TopologyBuilderFactory topologyFactory = new TopologyFactory();
+    private final TopologyBuilderFactory topologyFactory;
 
     private final String bootstrapServersConfig;
 
@@ -56,7 +58,18 @@ public class SingleThreadKafkaStreamsFactory implements KafkaStreamsFactory {
      * @param bootstrapServersConfig - Configures which Kafka cluster the jobs will interact with. (not null)
      */
     public SingleThreadKafkaStreamsFactory(final String bootstrapServersConfig) {
+        this(bootstrapServersConfig, JoinRetentionPolicy.RETAIN_ALL);
+    }
+
+    /**
+     * Constructs an instance of {@link SingleThreadKafkaStreamsFactory}.
+     *
+     * @param bootstrapServersConfig - Configures which Kafka cluster the jobs will interact with. (not null)
+     * @param joinRetention - Bounds the state each join of the queries holds onto. (not null)
+     */
+    public SingleThreadKafkaStreamsFactory(final String bootstrapServersConfig, final JoinRetentionPolicy joinRetention) {
         this.bootstrapServersConfig = requireNonNull(bootstrapServersConfig);
+        this.topologyFactory = new TopologyFactory(requireNonNull(joinRetention));
     }
 
     @Override
@@ -64,27 +77,68 @@ public class SingleThreadKafkaStreamsFactory implements KafkaStreamsFactory {
         requireNonNull(ryaInstance);
         requireNonNull(query);
 
+        // Setup the topology that processes the Query.
+        final String statementsTopic = KafkaTopics.statementsTopic(ryaInstance);
+        final String resultsTopic = KafkaTopics.queryResultsTopic(ryaInstance, query.getQueryId());
+
+        try {
+            final TopologyBuilder topologyBuilder = topologyFactory.build(query.getSparql(), statementsTopic, resultsTopic, new RandomUUIDFactory());
+            return new KafkaStreams(topologyBuilder, new StreamsConfig(makeProperties("RyaStreams-Query-" + query.getQueryId())));
+        } catch (final MalformedQueryException | TopologyBuilderException e) {
+            throw new KafkaStreamsFactoryException("Could not create a KafkaStreams processing topology for query " + query.getQueryId(), e);
+        }
+    }
+
+    @Override
+    public KafkaStreams makeSharingStatementPatterns(final String ryaInstance, final StreamsQuery query) throws KafkaStreamsFactoryException {
+        requireNonNull(ryaInstance);
+        requireNonNull(query);
+
+        // Setup the topology that processes the Query using the matches of the shared statement patterns.
+        final String resultsTopic = KafkaTopics.queryResultsTopic(ryaInstance, query.getQueryId());
+
+        try {
+            final TopologyBuilder topologyBuilder = topologyFactory.buildSharingStatementPatterns(query.getSparql(),
+                    pattern -> KafkaTopics.sharedStatementPatternTopic(ryaInstance, pattern.getId()),
+                    resultsTopic, new RandomUUIDFactory());
+            return new KafkaStreams(topologyBuilder, new StreamsConfig(makeProperties("RyaStreams-Query-" + query.getQueryId())));
+        } catch (final MalformedQueryException | TopologyBuilderException e) {
+            throw new KafkaStreamsFactoryException("Could not create a KafkaStreams processing topology for query " + query.getQueryId(), e);
+        }
+    }
+
+    @Override
+    public KafkaStreams make(final String ryaInstance, final SharedStatementPattern pattern) {
+        requireNonNull(ryaInstance);
+        requireNonNull(pattern);
+
+        // Setup the topology that matches the pattern.
+        final String statementsTopic = KafkaTopics.statementsTopic(ryaInstance);
+        final String patternTopic = KafkaTopics.sharedStatementPatternTopic(ryaInstance, pattern.getId());
+        final TopologyBuilder topologyBuilder = topologyFactory.buildSharedStatementPattern(pattern, statementsTopic, patternTopic);
+
+        // The pattern's ID is part of the Application ID so the job resumes where the last job for the pattern left off.
+        final String applicationId = "RyaStreams-SharedPattern-" + ryaInstance + "-" + pattern.getId();
+        return new KafkaStreams(topologyBuilder, new StreamsConfig(makeProperties(applicationId)));
+    }
+
+    /**
+     * @param applicationId - The Application ID of the Kafka Streams program. (not null)
+     * @return The properties of a Kafka Streams program.
+     */
+    private Properties makeProperties(final String applicationId) {
         // Setup the Kafka Stream program.
         final Properties streamsProps = new Properties();
 
         // Configure the Kafka servers that will be talked to.
         streamsProps.setProperty(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServersConfig);
 
-        // Use the Query ID as the Application ID to ensure we resume where we left off the last time this command was run.
-        streamsProps.put(StreamsConfig.APPLICATION_ID_CONFIG, "RyaStreams-Query-" + query.getQueryId());
+        // Use an ID that is stable across runs to ensure we resume where we left off the last time this command was run.
+        streamsProps.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
 
         // Always start at the beginning of the input topic.
         streamsProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
 
-        // Setup the topology that processes the Query.
-        final String statementsTopic = KafkaTopics.statementsTopic(ryaInstance);
-        final String resultsTopic = KafkaTopics.queryResultsTopic(ryaInstance, query.getQueryId());
-
-        try {
-            final TopologyBuilder topologyBuilder = topologyFactory.build(query.getSparql(), statementsTopic, resultsTopic, new RandomUUIDFactory());
-            return new KafkaStreams(topologyBuilder, new StreamsConfig(streamsProps));
-        } catch (final MalformedQueryException | TopologyBuilderException e) {
-            throw new KafkaStreamsFactoryException("Could not create a KafkaStreams processing topology for query " + query.getQueryId(), e);
-        }
+        return streamsProps;
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.processors;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+
+import org.apache.kafka.streams.processor.Processor;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.ProcessorSupplier;
+import org.apache.rya.api.model.VisibilityBindingSet;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Supplies {@link SharedStatementPatternProcessor} instances.
+ */
+@DefaultAnnotation(NonNull.class)
+public class SharedStatementPatternProcessorSupplier implements ProcessorSupplier<String, VisibilityBindingSet> {
+
+    private final Map<String, String> queryVarNames;
+    private final ProcessorResultFactory resultFactory;
+
+    /**
+     * Constructs an instance of {@link SharedStatementPatternProcessorSupplier}.
+     *
+     * @param queryVarNames - Maps the shared pattern's variable names to the names used by the query. (not null)
+     * @param resultFactory - The factory that the supplied processors will use to create results. (not null)
+     */
+    public SharedStatementPatternProcessorSupplier(
+            final Map<String, String> queryVarNames,
+            final ProcessorResultFactory resultFactory) {
+        this.queryVarNames = requireNonNull(queryVarNames);
+        this.resultFactory = requireNonNull(resultFactory);
+    }
+
+    @Override
+    public Processor<String, VisibilityBindingSet> get() {
+        return new SharedStatementPatternProcessor(queryVarNames, resultFactory);
+    }
+
+    /**
+     * Reads the {@link VisibilityBindingSet}s that were matched by a shared statement pattern and forwards them to
+     * the downstream processor using the variable names of the query the processor is part of.
+     */
+    @DefaultAnnotation(NonNull.class)
+    public static final class SharedStatementPatternProcessor implements Processor<String, VisibilityBindingSet> {
+
+        private static final Logger log = LoggerFactory.getLogger(SharedStatementPatternProcessor.class);
+
+        private final Map<String, String> queryVarNames;
+        private final ProcessorResultFactory resultFactory;
+
+        private ProcessorContext context;
+
+        /**
+         * Constructs an instance of {@link SharedStatementPatternProcessor}.
+         *
+         * @param queryVarNames - Maps the shared pattern's variable names to the names used by the query. (not null)
+         * @param resultFactory - The factory that the processor will use to create results. (not null)
+         */
+        public SharedStatementPatternProcessor(
+                final Map<String, String> queryVarNames,
+                final ProcessorResultFactory resultFactory) {
+            this.queryVarNames = requireNonNull(queryVarNames);
+            this.resultFactory = requireNonNull(resultFactory);
+        }
+
+        @Override
+        public void init(final ProcessorContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void process(final String key, final VisibilityBindingSet value) {
+            log.debug("\nINPUT:\n{}\n", value);
+
+            // Rename the bindings so that they use the query's variable names.
+            final MapBindingSet renamed = new MapBindingSet();
+            for(final Binding binding : value) {
+                renamed.addBinding(queryVarNames.getOrDefault(binding.getName(), binding.getName()), binding.getValue());
+            }
+            final VisibilityBindingSet visBs = new VisibilityBindingSet(renamed, value.getVisibility());
+
+            // Wrap the binding set as a result and forward it to the downstream processor.
+            log.debug("\nOUTPUT:\n{}", visBs);
+            context.forward(key, resultFactory.make(visBs));
+        }
+
+        @Override
+        public void punctuate(final long timestamp) {
+            // Nothing to do.
+        }
+
+        @Override
+        public void close() {
+            // Nothing to do.
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.rya.streams.kafka.processors.ProcessorResult.ResultType;
 import org.apache.rya.streams.kafka.processors.ProcessorResultFactory;
 import org.apache.rya.streams.kafka.processors.RyaStreamsProcessor;
 import org.apache.rya.streams.kafka.processors.RyaStreamsProcessorSupplier;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -100,7 +101,16 @@ public class FilterProcessorSupplier extends RyaStreamsProcessorSupplier {
             // If the value's binding set passes the filter, then forward it to the downstream processor.
             final VisibilityBindingSet bindingSet = value.getUnary().getResult();
             log.debug("\nINPUT:\n{}", bindingSet);
-            if(filter.filter(bindingSet)) {
+            final boolean matches;
+            try {
+                matches = filter.filter(bindingSet);
+            } catch (final QueryEvaluationException e) {
+                // The filter could not be evaluated, for example because it calls an unknown function,
+                // so the binding set is dropped instead of stopping the stream.
+                log.error("Could not evaluate a Filter.", e);
+                return;
+            }
+            if(matches) {
                 log.debug("\nOUTPUT:\n{}", bindingSet);
                 final ProcessorResult result = super.getResultFactory().make(bindingSet);
                 context.forward(key, result);
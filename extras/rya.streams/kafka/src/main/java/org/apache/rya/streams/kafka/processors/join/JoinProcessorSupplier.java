@@ -22,15 +22,14 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
 
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.processor.Processor;
 import org.apache.kafka.streams.processor.ProcessorContext;
 import org.apache.kafka.streams.state.KeyValueStore;
 import org.apache.rya.api.function.join.IterativeJoin;
 import org.apache.rya.api.model.VisibilityBindingSet;
 import org.apache.rya.api.utils.CloseableIterator;
-import org.apache.rya.api.utils.UuidUtils;
 import org.apache.rya.streams.kafka.processors.ProcessorResult;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult.Side;
@@ -53,6 +52,28 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
     private final IterativeJoin join;
     private final List<String> joinVars;
     private final List<String> allVars;
+    private final JoinRetentionPolicy retentionPolicy;
+
+    /**
+     * Constructs an instance of {@link JoinProcessorSupplier} whose processors never evict anything from
+     * their state stores.
+     *
+     * @param stateStoreName - The name of the state store the processor will use. (not null)
+     * @param join - The join function the supplied processor will use. (not null)
+     * @param joinVars - The variables that the supplied processor will join over. (not null)
+     * @param allVars - An ordered list of all the variables that may appear in resulting Binding Sets.
+     *   This list must lead with the same variables and order as {@code joinVars}. (not null)
+     * @param resultFactory - The factory that the supplied processors will use to create results. (not null)
+     * @throws IllegalArgumentException Thrown if {@code allVars} does not start with {@code joinVars}.
+     */
+    public JoinProcessorSupplier(
+            final String stateStoreName,
+            final IterativeJoin join,
+            final List<String> joinVars,
+            final List<String> allVars,
+            final ProcessorResultFactory resultFactory) throws IllegalArgumentException {
+        this(stateStoreName, join, joinVars, allVars, JoinRetentionPolicy.RETAIN_ALL, resultFactory);
+    }
 
     /**
      * Constructs an instance of {@link JoinProcessorSupplier}.
@@ -62,6 +83,7 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
      * @param joinVars - The variables that the supplied processor will join over. (not null)
      * @param allVars - An ordered list of all the variables that may appear in resulting Binding Sets.
      *   This list must lead with the same variables and order as {@code joinVars}. (not null)
+     * @param retentionPolicy - Defines what the supplied processors evict from their state stores. (not null)
      * @param resultFactory - The factory that the supplied processors will use to create results. (not null)
      * @throws IllegalArgumentException Thrown if {@code allVars} does not start with {@code joinVars}.
      */
@@ -70,12 +92,14 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
             final IterativeJoin join,
             final List<String> joinVars,
             final List<String> allVars,
+            final JoinRetentionPolicy retentionPolicy,
             final ProcessorResultFactory resultFactory) throws IllegalArgumentException {
         super(resultFactory);
         this.stateStoreName = requireNonNull(stateStoreName);
         this.join = requireNonNull(join);
         this.joinVars = requireNonNull(joinVars);
         this.allVars = requireNonNull(allVars);
+        this.retentionPolicy = requireNonNull(retentionPolicy);
 
         if(!allVars.subList(0, joinVars.size()).equals(joinVars)) {
             throw new IllegalArgumentException("The allVars list must start with the joinVars list, but it did not. " +
@@ -85,14 +109,15 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
 
     @Override
     public Processor<Object, ProcessorResult> get() {
-        return new JoinProcessor(stateStoreName, join, joinVars, allVars, super.getResultFactory());
+        return new JoinProcessor(stateStoreName, join, joinVars, allVars, retentionPolicy, super.getResultFactory());
     }
 
     /**
-     * Joins {@link VisibilityBindingSet}s against all binding sets that were emitted on the other side. This function
-     * does not have an age off policy, so it will match everything that could have ever possibly matched, however this
-     * may become prohibitive for joins that match a large volume of binding sets since this will indefinitely grow
-     * within the state store.
+     * Joins {@link VisibilityBindingSet}s against the binding sets that were emitted on the other side and are still
+     * held by its {@link JoinRetentionPolicy}. With {@link JoinRetentionPolicy#RETAIN_ALL}, it will match everything
+     * that could have ever possibly matched, however this may become prohibitive for joins that match a large volume
+     * of binding sets since this will indefinitely grow within the state store. Other policies are enforced each time
+     * the processor is punctuated.
      */
     @DefaultAnnotation(NonNull.class)
     public static class JoinProcessor extends RyaStreamsProcessor {
@@ -103,6 +128,7 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
         private final IterativeJoin join;
         private final List<String> joinVars;
         private final List<String> allVars;
+        private final JoinRetentionPolicy retentionPolicy;
         private final ProcessorResultFactory resultFactory;
 
         private ProcessorContext context;
@@ -116,6 +142,7 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
          * @param joinVars - The variables that the processor will join over. (not null)
          * @param allVars - An ordered list of all the variables that may appear in resulting Binding Sets.
          *   This list must lead with the same variables and order as {@code joinVars}. (not null)
+         * @param retentionPolicy - Defines what the processor evicts from its state store. (not null)
          * @param resultFactory - The factory that will format this processor's final results
          *   for the downstream processor. (not null)
          */
@@ -124,12 +151,14 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
                 final IterativeJoin join,
                 final List<String> joinVars,
                 final List<String> allVars,
+                final JoinRetentionPolicy retentionPolicy,
                 final ProcessorResultFactory resultFactory) {
             super(resultFactory);
             this.stateStoreName = requireNonNull(stateStoreName);
             this.join = requireNonNull(join);
             this.joinVars = requireNonNull(joinVars);
             this.allVars = requireNonNull(allVars);
+            this.retentionPolicy = requireNonNull(retentionPolicy);
             this.resultFactory = requireNonNull(resultFactory);
 
             if(!allVars.subList(0, joinVars.size()).equals(joinVars)) {
@@ -143,13 +172,15 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
             // Hold onto the context so that we can forward results.
             this.context = context;
 
-            final String appId = context.applicationId();
-            final UUID queryId = UuidUtils.extractUuidFromStringEnd(appId);
-
             // Get a reference to the state store that keeps track of what can be joined with.
-            final KeyValueStore<String, VisibilityBindingSet> stateStore =
-                    (KeyValueStore<String, VisibilityBindingSet>) context.getStateStore( stateStoreName );
-            joinStateStore = new KeyValueJoinStateStore( stateStore, queryId.toString(), joinVars, allVars );
+            final KeyValueStore<Bytes, VisibilityBindingSet> stateStore =
+                    (KeyValueStore<Bytes, VisibilityBindingSet>) context.getStateStore( stateStoreName );
+            joinStateStore = new KeyValueJoinStateStore( stateStore, joinVars, allVars, retentionPolicy );
+
+            // Have the processor punctuated so that it may evict what falls outside of the retention policy.
+            if(retentionPolicy.evicts()) {
+                context.schedule( retentionPolicy.getEvictionIntervalMs() );
+            }
         }
 
         @Override
@@ -161,7 +192,7 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
             final BinaryResult binary = value.getBinary();
 
             // Store the new result in the state store so that future joins may include it.
-            joinStateStore.store(binary);
+            joinStateStore.store(binary, context.timestamp());
 
             // Fetch the binding sets that the emitted value joins with.
             try(final CloseableIterator<VisibilityBindingSet> otherSide = joinStateStore.getJoinedValues(binary)) {
@@ -186,7 +217,7 @@ public class JoinProcessorSupplier extends RyaStreamsProcessorSupplier {
 
         @Override
         public void punctuate(final long timestamp) {
-            // Nothing to do.
+            joinStateStore.evict(timestamp);
         }
 
         @Override
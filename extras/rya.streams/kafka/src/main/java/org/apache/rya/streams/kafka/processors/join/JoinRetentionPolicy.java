@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.processors.join;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import org.apache.rya.api.model.VisibilityBindingSet;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Defines how long a Join holds onto the {@link VisibilityBindingSet}s that were emitted from either of its sides.
+ * A binding set that has been evicted will no longer join with binding sets that arrive after it was evicted.
+ * <p>
+ * A binding set may be evicted once it is older than a maximum age, measured against the timestamps of the
+ * records that are processed, and the oldest binding sets are evicted once the Join holds more than a maximum
+ * number of them. Eviction happens every eviction interval, so a Join may hold onto a binding set for up to
+ * that long after it falls outside of the policy.
+ */
+@DefaultAnnotation(NonNull.class)
+public final class JoinRetentionPolicy {
+
+    /**
+     * The default number of milliseconds between evictions.
+     */
+    public static final long DEFAULT_EVICTION_INTERVAL_MS = 60 * 1000L;
+
+    /**
+     * A policy that never evicts anything.
+     */
+    public static final JoinRetentionPolicy RETAIN_ALL = new JoinRetentionPolicy(Optional.empty(), Optional.empty(), DEFAULT_EVICTION_INTERVAL_MS);
+
+    private final Optional<Long> maxAgeMs;
+    private final Optional<Long> maxEntries;
+    private final long evictionIntervalMs;
+
+    /**
+     * Constructs an instance of {@link JoinRetentionPolicy}.
+     *
+     * @param maxAgeMs - How many milliseconds a binding set is held onto, if binding sets age off. (not null)
+     * @param maxEntries - How many binding sets the Join holds onto, if it is limited. (not null)
+     * @param evictionIntervalMs - How many milliseconds pass between evictions. Must be positive.
+     */
+    public JoinRetentionPolicy(final Optional<Long> maxAgeMs, final Optional<Long> maxEntries, final long evictionIntervalMs) {
+        this.maxAgeMs = requireNonNull(maxAgeMs);
+        this.maxEntries = requireNonNull(maxEntries);
+        this.evictionIntervalMs = evictionIntervalMs;
+
+        if(maxAgeMs.isPresent() && maxAgeMs.get() < 0) {
+            throw new IllegalArgumentException("The maximum age may not be negative. Was: " + maxAgeMs.get());
+        }
+        if(maxEntries.isPresent() && maxEntries.get() < 0) {
+            throw new IllegalArgumentException("The maximum number of entries may not be negative. Was: " + maxEntries.get());
+        }
+        if(evictionIntervalMs <= 0) {
+            throw new IllegalArgumentException("The eviction interval must be positive. Was: " + evictionIntervalMs);
+        }
+    }
+
+    /**
+     * @param maxAgeMs - How many milliseconds a binding set is held onto.
+     * @return A policy that evicts binding sets once they are older than {@code maxAgeMs}.
+     */
+    public static JoinRetentionPolicy maxAge(final long maxAgeMs) {
+        return new JoinRetentionPolicy(Optional.of(maxAgeMs), Optional.empty(), DEFAULT_EVICTION_INTERVAL_MS);
+    }
+
+    /**
+     * @param maxEntries - How many binding sets the Join holds onto.
+     * @return A policy that evicts the oldest binding sets once there are more than {@code maxEntries} of them.
+     */
+    public static JoinRetentionPolicy maxEntries(final long maxEntries) {
+        return new JoinRetentionPolicy(Optional.empty(), Optional.of(maxEntries), DEFAULT_EVICTION_INTERVAL_MS);
+    }
+
+    /**
+     * @return How many milliseconds a binding set is held onto, if binding sets age off.
+     */
+    public Optional<Long> getMaxAgeMs() {
+        return maxAgeMs;
+    }
+
+    /**
+     * @return How many binding sets the Join holds onto, if it is limited.
+     */
+    public Optional<Long> getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return How many milliseconds pass between evictions.
+     */
+    public long getEvictionIntervalMs() {
+        return evictionIntervalMs;
+    }
+
+    /**
+     * @return {@code true} if this policy ever evicts anything; otherwise {@code false}.
+     */
+    public boolean evicts() {
+        return maxAgeMs.isPresent() || maxEntries.isPresent();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxAgeMs, maxEntries, evictionIntervalMs);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(o instanceof JoinRetentionPolicy) {
+            final JoinRetentionPolicy other = (JoinRetentionPolicy) o;
+            return Objects.equals(maxAgeMs, other.maxAgeMs) &&
+                    Objects.equals(maxEntries, other.maxEntries) &&
+                    evictionIntervalMs == other.evictionIntervalMs;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "JoinRetentionPolicy { maxAgeMs: " + maxAgeMs + ", maxEntries: " + maxEntries +
+                ", evictionIntervalMs: " + evictionIntervalMs + " }";
+    }
+}
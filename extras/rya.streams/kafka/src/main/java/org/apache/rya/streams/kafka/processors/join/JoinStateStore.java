@@ -36,8 +36,9 @@ public interface JoinStateStore {
      * Store a {@link VisibilityBindingSet} based on the side it was emitted from.
      *
      * @param result - The result whose value will be stored. (not null)
+     * @param timestamp - The timestamp of the record the result was derived from.
      */
-    public void store(BinaryResult result);
+    public void store(BinaryResult result, long timestamp);
 
     /**
      * Get the previously stored {@link VisibilityBindingSet}s that join with the provided result.
@@ -46,4 +47,11 @@ public interface JoinStateStore {
      * @return The {@link VisibilityBinidngSet}s that join with {@code result}.
      */
     public CloseableIterator<VisibilityBindingSet> getJoinedValues(BinaryResult result);
+
+    /**
+     * Removes the {@link VisibilityBindingSet}s that fall outside of the store's {@link JoinRetentionPolicy}.
+     *
+     * @param streamTime - The current time of the stream that is being joined.
+     */
+    public void evict(long streamTime);
 }
\ No newline at end of file
@@ -20,10 +20,14 @@ package org.apache.rya.streams.kafka.processors.join;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.state.KeyValueIterator;
 import org.apache.kafka.streams.state.KeyValueStore;
@@ -35,9 +39,6 @@ import org.eclipse.rdf4j.query.impl.MapBindingSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Charsets;
-import com.google.common.base.Joiner;
-
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
@@ -45,76 +46,96 @@ import edu.umd.cs.findbugs.annotations.NonNull;
  * A {@link KeyValueStore} implementation of {@link JoinStateStore}.
  * </p>
  * This is a key/value store, so we need to store the {@link VisibilityBindingSet}s using keys that allow us to fetch
- * all binding sets that join from a specific side. We use the following pattern to accomplish this:
+ * all binding sets that join from a specific side. We use the following binary pattern to accomplish this:
  * <pre>
- * [side],[joinVar1 value], [joinVar2 value], ..., [joinVarN value]
+ * [side][joinVar1 value]0x00[joinVar2 value]0x00...[joinVarN value]0x00[remainingBindingValues]
  * </pre>
- * This will group all binding sets that have been emitted from a specific side and who have the same join variables
- * next to each other within the store. This isn't enough information to fetch that group, though. We must provide a
- * start and end key to bound the range that is fetched back. To accomplish this, we place a start of range marker
- * as the first key for all unique [side]/[join values] groups, and an end of range marker as the last key for each
- * of those groups. All keys in between the start and end markers separate their
- * [joinVars] from their [remainingBindingValues] with the join variable end
- * marker, {@link #JOIN_VAR_END_MARKER}.
+ * Each value is the UTF-8 bytes of the binding's value, with 0x00 escaped as 0x01 0x01 and 0x01 escaped as
+ * 0x01 0x02, so 0x00 only appears at the end of a value. This groups all binding sets that have been emitted from
+ * a specific side and who have the same join values next to each other within the store, and the group is read
+ * with a prefix seek: a range from the group's prefix up to the prefix followed by 0xFF, a byte that never appears
+ * in UTF-8. No marker rows are needed to bound the range, and "urn:Student9" does not match "urn:Student95".
  * </p>
- * The rows follow this pattern:
+ * When the store's {@link JoinRetentionPolicy} evicts binding sets, each stored binding set also has a row in an
+ * age index, which orders the binding sets by the timestamp of the record they were stored for:
  * <pre>
- * [side],[joinVar1 value], [joinVar2 value], ..., [joinVarN value]0x00
- * [side],[joinVar1 value], [joinVar2 value], ..., [joinVarN value][JOIN_VAR_END_MARKER],[remainingBindingValues]
- * [side],[joinVar1 value], [joinVar2 value], ..., [joinVarN value]0xFF
+ * [AGE_INDEX][8 byte timestamp][binding set's key]
  * </pre>
- * </p>
- * When an iterator over the results is returned, it skips over the start and end of range markers.
+ * Eviction scans the age index from its oldest row and deletes both rows of each binding set that is evicted.
  */
 @DefaultAnnotation(NonNull.class)
 public class KeyValueJoinStateStore implements JoinStateStore {
 
     private static final Logger log = LoggerFactory.getLogger(KeyValueJoinStateStore.class);
 
-    /**
-     * This is the minimum value in UTF-8 character.
-     */
-    private static final String START_RANGE_SUFFIX = new String(new byte[] { 0x00 }, Charsets.UTF_8);
+    private static final byte LEFT = 0x01;
+    private static final byte RIGHT = 0x02;
+    private static final byte AGE_INDEX = 0x03;
+
+    private static final byte VALUE_END = 0x00;
+    private static final byte ESCAPE = 0x01;
 
     /**
-     * This is the maximum value of a UTF-8 character.
+     * Follows a prefix to form the end of the range of keys that start with the prefix.
      */
-    private static final String END_RANGE_SUFFIX = new String(new byte[] { (byte) 0xFF }, Charsets.UTF_8);
+    private static final byte PREFIX_END = (byte) 0xFF;
+
+    private static final Bytes AGE_INDEX_START = Bytes.wrap(new byte[] { AGE_INDEX });
+    private static final Bytes AGE_INDEX_END = Bytes.wrap(new byte[] { AGE_INDEX, PREFIX_END });
 
     /**
-     * Indicates where the end of the join variables occurs and the start of
-     * the remaining binding values should begin.
+     * The length of an age index row's key before the binding set's key.
      */
-    private static final String JOIN_VAR_END_MARKER = new String(new byte[] { (byte) 0x06, (byte) 0x10, (byte) 0x03, (byte) 0x04}, Charsets.UTF_8);
+    private static final int AGE_INDEX_PREFIX_LENGTH = 1 + Long.BYTES;
 
     /**
-     * A default empty value that is stored for a start of range or end of range marker.
+     * A default empty value that is stored for an age index row.
      */
-    private static final VisibilityBindingSet RANGE_MARKER_VALUE = new VisibilityBindingSet(new MapBindingSet(), "");
+    private static final VisibilityBindingSet AGE_INDEX_VALUE = new VisibilityBindingSet(new MapBindingSet(), "");
 
-    private final KeyValueStore<String, VisibilityBindingSet> store;
-    private final String id;
+    private final KeyValueStore<Bytes, VisibilityBindingSet> store;
     private final List<String> joinVars;
     private final List<String> allVars;
+    private final JoinRetentionPolicy retentionPolicy;
 
     /**
-     * Constructs an instance of {@link KeyValueJoinStateStore}.
+     * The number of binding sets in the age index, or -1 if they have not been counted yet.
+     */
+    private long ageIndexSize = -1;
+
+    /**
+     * Constructs an instance of {@link KeyValueJoinStateStore} that never evicts anything.
      *
      * @param store - The state store that will be used. (not null)
-     * @param id - The ID used for the state store. (not null)
      * @param joinVars - The variables that are used to build grouping keys. (not null)
      * @param allVars - The variables that are used to build full value keys. (not null)
      * @throws IllegalArgumentException Thrown if {@code allVars} does not start with {@code joinVars}.
      */
     public KeyValueJoinStateStore(
-            final KeyValueStore<String, VisibilityBindingSet> store,
-            final String id,
+            final KeyValueStore<Bytes, VisibilityBindingSet> store,
             final List<String> joinVars,
             final List<String> allVars) throws IllegalArgumentException {
+        this(store, joinVars, allVars, JoinRetentionPolicy.RETAIN_ALL);
+    }
+
+    /**
+     * Constructs an instance of {@link KeyValueJoinStateStore}.
+     *
+     * @param store - The state store that will be used. (not null)
+     * @param joinVars - The variables that are used to build grouping keys. (not null)
+     * @param allVars - The variables that are used to build full value keys. (not null)
+     * @param retentionPolicy - Defines which binding sets {@link #evict(long)} removes. (not null)
+     * @throws IllegalArgumentException Thrown if {@code allVars} does not start with {@code joinVars}.
+     */
+    public KeyValueJoinStateStore(
+            final KeyValueStore<Bytes, VisibilityBindingSet> store,
+            final List<String> joinVars,
+            final List<String> allVars,
+            final JoinRetentionPolicy retentionPolicy) throws IllegalArgumentException {
         this.store = requireNonNull(store);
-        this.id = requireNonNull(id);
         this.joinVars = requireNonNull(joinVars);
         this.allVars = requireNonNull(allVars);
+        this.retentionPolicy = requireNonNull(retentionPolicy);
 
         for(int i = 0; i < joinVars.size(); i++) {
             if(!joinVars.get(i).equals(allVars.get(i))) {
@@ -125,34 +146,26 @@ public class KeyValueJoinStateStore implements JoinStateStore {
     }
 
     @Override
-    public void store(final BinaryResult result) {
+    public void store(final BinaryResult result, final long timestamp) {
         requireNonNull(result);
 
-        // The join key prefix is an ordered list of values from the binding set that match the join variables.
-        // This is a prefix for every row that holds values for a specific set of join variable values.
-        final Side side = result.getSide();
         final VisibilityBindingSet bs = result.getResult();
-
-        final String joinKeyPrefix = makeCommaDelimitedValues(side, joinVars, bs, joinVars.size());
-
-        final List<KeyValue<String, VisibilityBindingSet>> values = new ArrayList<>();
-
-        // For each join variable set, we need a start key for scanning.
-        final String startKey = joinKeyPrefix + START_RANGE_SUFFIX;
-        values.add( new KeyValue<>(startKey, RANGE_MARKER_VALUE) );
-
-        // The actual value that was emitted as a result.
-        final String valueKey = makeCommaDelimitedValues(side, allVars, bs, joinVars.size());
-
-        values.add( new KeyValue<>(valueKey, bs) );
-
-        // And the end key for scanning.
-        final String endKey = joinKeyPrefix + END_RANGE_SUFFIX;
-        values.add( new KeyValue<>(endKey, RANGE_MARKER_VALUE) );
-
-        // Write the pairs to the store.
-        log.debug("\nStoring the following values: {}\n", values);
-        store.putAll( values );
+        final Bytes key = makeKey(result.getSide(), allVars, bs);
+        log.debug("\nStoring the following value: {}\n", bs);
+
+        // A binding set that is already stored keeps the age it was first stored with.
+        if(retentionPolicy.evicts() && store.get(key) == null) {
+            final List<KeyValue<Bytes, VisibilityBindingSet>> values = new ArrayList<>(2);
+            values.add( new KeyValue<>(key, bs) );
+            values.add( new KeyValue<>(makeAgeIndexKey(timestamp, key), AGE_INDEX_VALUE) );
+            store.putAll( values );
+
+            if(ageIndexSize >= 0) {
+                ageIndexSize++;
+            }
+        } else {
+            store.put(key, bs);
+        }
     }
 
     @Override
@@ -161,93 +174,79 @@ public class KeyValueJoinStateStore implements JoinStateStore {
 
         // Get an iterator over the values that start with the join variables for the other side.
         final Side otherSide = result.getSide() == Side.LEFT ? Side.RIGHT : Side.LEFT;
-        final VisibilityBindingSet bs = result.getResult();
-        final String joinKeyPrefix = makeCommaDelimitedValues(otherSide, joinVars, bs, joinVars.size());
-
-        final String startKey = joinKeyPrefix + START_RANGE_SUFFIX;
-        final String endKey = joinKeyPrefix + END_RANGE_SUFFIX;
-
-        final KeyValueIterator<String, VisibilityBindingSet> rangeIt = store.range(startKey, endKey);
+        final Bytes prefix = makeKey(otherSide, joinVars, result.getResult());
+        final KeyValueIterator<Bytes, VisibilityBindingSet> rangeIt = store.range(prefix, prefixEnd(prefix));
 
-        // Return a CloseableIterator over the range's value fields, skipping the start and end entry.
+        // Return a CloseableIterator over the range's value fields.
         return new CloseableIterator<VisibilityBindingSet>() {
-
-            private Optional<VisibilityBindingSet> next = null;
-
             @Override
             public boolean hasNext() {
-                // If the iterator has not been initialized yet, read a value in.
-                if(next == null) {
-                    next = readNext();
-                }
-
-                // Return true if there is a next value, otherwise false.
-                return next.isPresent();
+                return rangeIt.hasNext();
             }
 
             @Override
             public VisibilityBindingSet next() {
-                // If the iterator has not been initialized yet, read a value in.
-                if(next == null) {
-                    next = readNext();
-                }
-
-                // It's illegal to call next() when there is no next value.
-                if(!next.isPresent()) {
-                    throw new IllegalStateException("May not invoke next() when there is nothing left in the Iterator.");
-                }
-
-                // Update and return the next value.
-                final VisibilityBindingSet ret = next.get();
+                final VisibilityBindingSet ret = rangeIt.next().value;
                 log.debug("\nReturning: {}", ret);
-                next = readNext();
                 return ret;
             }
 
-            private Optional<VisibilityBindingSet> readNext() {
-                // Check to see if there's anything left in the iterator.
-                if(!rangeIt.hasNext()) {
-                    return Optional.empty();
-                }
-
-                // Read a candidate key/value pair from the iterator.
-                KeyValue<String, VisibilityBindingSet> candidate = rangeIt.next();
+            @Override
+            public void close() throws Exception {
+                rangeIt.close();
+            }
+        };
+    }
 
-                // If we are initializing, then the first thing we must read is a start of range marker.
-                if(next == null) {
-                    if(!candidate.key.endsWith(START_RANGE_SUFFIX)) {
-                        throw new IllegalStateException("The first key encountered must be a start of range key.");
-                    }
-                    log.debug("Read the start of range markers.\n");
+    @Override
+    public void evict(final long streamTime) {
+        if(!retentionPolicy.evicts()) {
+            return;
+        }
 
-                    // Read a new candidate to skip this one.
-                    if(!rangeIt.hasNext()) {
-                        throw new IllegalStateException("There must be another entry after the start of range key.");
-                    }
-                    candidate = rangeIt.next();
+        // Anything stored before the cutoff is too old, and the oldest binding sets past the maximum are evicted.
+        final long cutoff = retentionPolicy.getMaxAgeMs().isPresent() ?
+                streamTime - retentionPolicy.getMaxAgeMs().get() : Long.MIN_VALUE;
+        final long excess = retentionPolicy.getMaxEntries().isPresent() ?
+                getAgeIndexSize() - retentionPolicy.getMaxEntries().get() : 0;
+
+        final List<Bytes> evicted = new ArrayList<>();
+        try(final KeyValueIterator<Bytes, VisibilityBindingSet> ageIt = store.range(AGE_INDEX_START, AGE_INDEX_END)) {
+            while(ageIt.hasNext()) {
+                final Bytes ageIndexKey = ageIt.next().key;
+                if(evicted.size() >= excess && getTimestamp(ageIndexKey) >= cutoff) {
+                    break;
                 }
+                evicted.add(ageIndexKey);
+            }
+        }
 
-                // If that value is an end of range key, then we are finished. Otherwise, return it.
-                else if(candidate.key.endsWith(END_RANGE_SUFFIX)) {
-                    log.debug("Read the end of range marker.\n");
-
-                    // If there are more messages, that's a problem.
-                    if(rangeIt.hasNext()) {
-                        throw new IllegalStateException("The end of range marker must be the last key in the iterator.");
-                    }
+        for(final Bytes ageIndexKey : evicted) {
+            store.delete(ageIndexKey);
+            final byte[] indexKey = ageIndexKey.get();
+            store.delete(Bytes.wrap(Arrays.copyOfRange(indexKey, AGE_INDEX_PREFIX_LENGTH, indexKey.length)));
+        }
+        if(ageIndexSize >= 0) {
+            ageIndexSize -= evicted.size();
+        }
+        log.debug("Evicted {} binding sets at stream time {}.", evicted.size(), streamTime);
+    }
 
-                    return Optional.empty();
+    /**
+     * @return The number of binding sets in the age index, which are counted the first time it is needed.
+     */
+    private long getAgeIndexSize() {
+        if(ageIndexSize < 0) {
+            long size = 0;
+            try(final KeyValueIterator<Bytes, VisibilityBindingSet> ageIt = store.range(AGE_INDEX_START, AGE_INDEX_END)) {
+                while(ageIt.hasNext()) {
+                    ageIt.next();
+                    size++;
                 }
-
-                // Otherwise we found a new value.
-                return Optional.of( candidate.value );
             }
-
-            @Override
-            public void close() throws Exception {
-                rangeIt.close();
-            }
-        };
+            ageIndexSize = size;
+        }
+        return ageIndexSize;
     }
 
     /**
@@ -256,58 +255,47 @@ public class KeyValueJoinStateStore implements JoinStateStore {
      * @param side - The side value for the key. (not null)
      * @param vars - Which variables within the binding set to use for the key's values. (not null)
      * @param bindingSet - The binding set the key is being constructed from. (not null)
-     * @param joinVarSize - the number of join variables at the beginning of
-     * {@code vars}.
-     * @return A comma delimited list of the binding values, leading with the side.
+     * @return The side followed by each of the binding values, escaped and terminated by 0x00.
      */
-    private String makeCommaDelimitedValues(final Side side, final List<String> vars, final VisibilityBindingSet bindingSet, final int joinVarSize) {
+    private static Bytes makeKey(final Side side, final List<String> vars, final VisibilityBindingSet bindingSet) {
         requireNonNull(side);
         requireNonNull(vars);
         requireNonNull(bindingSet);
 
-        // Make a an ordered list of the binding set variables.
-        final List<String> values = new ArrayList<>();
-        values.add(id);
-        values.add(side.toString());
-        int count = 0;
+        final ByteArrayOutputStream key = new ByteArrayOutputStream();
+        key.write(side == Side.LEFT ? LEFT : RIGHT);
         for(final String var : vars) {
-            count++;
-            String value = bindingSet.hasBinding(var) ? bindingSet.getBinding(var).getValue().toString() : "";
-            if (count == joinVarSize) {
-                // Place the marker at the end of the last joinVar String (and
-                // before the remaining "allVars")
-                // A marker is needed to indicate where the join vars end so
-                // that a range search from "urn:Student9[0x00]" to "urn:Student9[0xFF]"
-                // does not return "urn:Student95,[remainingBindingValues]"
-                // when we want "urn:Student9,[remainingBindingValues]".
-                value += JOIN_VAR_END_MARKER;
+            if(bindingSet.hasBinding(var)) {
+                for(final byte b : bindingSet.getValue(var).toString().getBytes(StandardCharsets.UTF_8)) {
+                    if(b == VALUE_END || b == ESCAPE) {
+                        key.write(ESCAPE);
+                        key.write(b + 1);
+                    } else {
+                        key.write(b);
+                    }
+                }
             }
-            values.add(value);
+            key.write(VALUE_END);
         }
-
-        // Return a comma delimited list of those values.
-        return Joiner.on(",").join(values);
+        return Bytes.wrap(key.toByteArray());
     }
 
-    private void printStateStoreRange(final String startKey, final String endKey) {
-        final KeyValueIterator<String, VisibilityBindingSet> rangeIt = store.range(startKey, endKey);
-        printStateStoreKeyValueIterator(rangeIt);
+    private static Bytes prefixEnd(final Bytes prefix) {
+        final byte[] bytes = Arrays.copyOf(prefix.get(), prefix.get().length + 1);
+        bytes[bytes.length - 1] = PREFIX_END;
+        return Bytes.wrap(bytes);
     }
 
-    private void printStateStoreAll() {
-        final KeyValueIterator<String, VisibilityBindingSet> rangeIt = store.all();
-        printStateStoreKeyValueIterator(rangeIt);
+    private static Bytes makeAgeIndexKey(final long timestamp, final Bytes key) {
+        // Flipping the sign bit makes the unsigned order of the bytes match the order of the timestamps.
+        return Bytes.wrap(ByteBuffer.allocate(AGE_INDEX_PREFIX_LENGTH + key.get().length)
+                .put(AGE_INDEX)
+                .putLong(timestamp ^ Long.MIN_VALUE)
+                .put(key.get())
+                .array());
     }
 
-    private static void printStateStoreKeyValueIterator(final KeyValueIterator<String, VisibilityBindingSet> rangeIt) {
-        log.info("----------------");
-        while (rangeIt.hasNext()) {
-            final KeyValue<String, VisibilityBindingSet> keyValue = rangeIt.next();
-            log.info(keyValue.key + " :::: " + keyValue.value);
-        }
-        log.info("----------------\n\n");
-        if (rangeIt != null) {
-            rangeIt.close();
-        }
+    private static long getTimestamp(final Bytes ageIndexKey) {
+        return ByteBuffer.wrap(ageIndexKey.get(), 1, Long.BYTES).getLong() ^ Long.MIN_VALUE;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A Kafka {@link Deserializer} that reads entities that were written by a
+ * {@link BinarySerializer}. Records that were written with Java object
+ * serialization, before the binary form was introduced, are still read, so
+ * existing topics and state stores stay readable.
+ *
+ * @param T - The type of entity to deserialize.
+ */
+@DefaultAnnotation(NonNull.class)
+public abstract class BinaryDeserializer<T> implements Deserializer<T> {
+
+    /**
+     * The first byte of every Java object serialization stream.
+     */
+    private static final byte JAVA_SERIALIZATION_MAGIC = (byte) 0xAC;
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryDeserializer.class);
+
+    @Override
+    public void configure(final Map<String, ?> configs, final boolean isKey) {
+        // Nothing to do.
+    }
+
+    @Override
+    public T deserialize(final String topic, final byte[] data) {
+        if(data == null || data.length == 0) {
+            // Returning null because that is the contract of this method.
+            return null;
+        }
+
+        try {
+            if(data[0] == JAVA_SERIALIZATION_MAGIC) {
+                return ObjectSerialization.deserialize(data, getDeserializedClass());
+            }
+            if(data[0] != BinarySerializer.FORMAT_VERSION) {
+                throw new IOException("Unknown binary format version: " + data[0]);
+            }
+
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1));
+            return read(in);
+        } catch (final ClassNotFoundException | ClassCastException | IOException e) {
+            log.error("Could not deserialize some data into a " + getDeserializedClass().getName() + ". This data will be skipped.", e);
+
+            // Returning null because that is the contract of this method.
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to do.
+    }
+
+    /**
+     * Reads the fields of an entity.
+     *
+     * @param in - The input the fields are read from. It starts after the format version. (not null)
+     * @return The entity that was read.
+     * @throws IOException The entity could not be read.
+     */
+    protected abstract T read(DataInput in) throws IOException;
+
+    /**
+     * @return - Used by {@link ObjectSerialization#deserialize(byte[], Class)} and the logger.
+     */
+    protected abstract Class<T> getDeserializedClass();
+}
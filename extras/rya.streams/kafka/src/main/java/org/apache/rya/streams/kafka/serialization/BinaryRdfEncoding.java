@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.serialization;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Writes and reads the parts of Rya Streams records in a compact binary form.
+ * <p>
+ * Integers are written as unsigned varints, seven bits per byte with the high
+ * bit set on every byte but the last. Strings are written as their varint
+ * length in bytes followed by their UTF-8 bytes. RDF values are written as one
+ * of the tags of RDF4J's binary RDF format followed by the value's strings:
+ * <ul>
+ *   <li>{@link #NULL_VALUE} - nothing</li>
+ *   <li>{@link #IRI_VALUE} - the IRI</li>
+ *   <li>{@link #BNODE_VALUE} - the blank node's ID</li>
+ *   <li>{@link #PLAIN_LITERAL_VALUE} - the label of an {@code xsd:string} literal</li>
+ *   <li>{@link #LANG_LITERAL_VALUE} - the label, then the language</li>
+ *   <li>{@link #DATATYPE_LITERAL_VALUE} - the label, then the datatype IRI</li>
+ * </ul>
+ */
+@DefaultAnnotation(NonNull.class)
+public final class BinaryRdfEncoding {
+
+    public static final int NULL_VALUE = 0;
+    public static final int IRI_VALUE = 1;
+    public static final int BNODE_VALUE = 2;
+    public static final int PLAIN_LITERAL_VALUE = 3;
+    public static final int LANG_LITERAL_VALUE = 4;
+    public static final int DATATYPE_LITERAL_VALUE = 5;
+
+    /**
+     * The most bytes a string is allocated before any of its bytes have been read.
+     */
+    private static final int INITIAL_STRING_BUFFER = 8192;
+
+    private BinaryRdfEncoding() { }
+
+    /**
+     * @param out - The output the integer is written to. (not null)
+     * @param value - The integer to write. Must not be negative.
+     * @throws IOException The integer could not be written.
+     */
+    public static void writeVarInt(final DataOutput out, final int value) throws IOException {
+        requireNonNull(out);
+        if(value < 0) {
+            throw new IllegalArgumentException("Only non-negative integers may be written as varints. Was: " + value);
+        }
+
+        int remaining = value;
+        while((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    /**
+     * @param in - The input the integer is read from. (not null)
+     * @return The integer that was read.
+     * @throws IOException The integer could not be read.
+     */
+    public static int readVarInt(final DataInput in) throws IOException {
+        requireNonNull(in);
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("The varint is longer than 5 bytes.");
+    }
+
+    /**
+     * Reads a varint that holds a length or a count.
+     *
+     * @param in - The input the length is read from. (not null)
+     * @return The length that was read.
+     * @throws IOException The length could not be read or is negative.
+     */
+    public static int readLength(final DataInput in) throws IOException {
+        final int length = readVarInt(in);
+        if(length < 0) {
+            throw new IOException("Invalid length: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * @param out - The output the string is written to. (not null)
+     * @param value - The string to write. (not null)
+     * @throws IOException The string could not be written.
+     */
+    public static void writeString(final DataOutput out, final String value) throws IOException {
+        requireNonNull(out);
+        requireNonNull(value);
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param in - The input the string is read from. (not null)
+     * @return The string that was read.
+     * @throws IOException The string could not be read, its length is negative,
+     *   or its length is longer than the rest of the input.
+     */
+    public static String readString(final DataInput in) throws IOException {
+        requireNonNull(in);
+        final int length = readLength(in);
+
+        // The length comes from the input, so the buffer only grows once the bytes
+        // before it have been read. A corrupt length fails with an EOFException
+        // instead of allocating whatever it claims.
+        byte[] bytes = new byte[Math.min(length, INITIAL_STRING_BUFFER)];
+        in.readFully(bytes);
+        while(bytes.length < length) {
+            final int offset = bytes.length;
+            bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * offset));
+            in.readFully(bytes, offset, bytes.length - offset);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param out - The output the value is written to. (not null)
+     * @param value - The value to write. (nullable)
+     * @throws IOException The value could not be written.
+     */
+    public static void writeValue(final DataOutput out, final @Nullable Value value) throws IOException {
+        requireNonNull(out);
+        if(value == null) {
+            out.writeByte(NULL_VALUE);
+        } else if(value instanceof IRI) {
+            out.writeByte(IRI_VALUE);
+            writeString(out, value.stringValue());
+        } else if(value instanceof BNode) {
+            out.writeByte(BNODE_VALUE);
+            writeString(out, ((BNode) value).getID());
+        } else if(value instanceof Literal) {
+            final Literal literal = (Literal) value;
+            if(literal.getLanguage().isPresent()) {
+                out.writeByte(LANG_LITERAL_VALUE);
+                writeString(out, literal.getLabel());
+                writeString(out, literal.getLanguage().get());
+            } else if(XMLSchema.STRING.equals(literal.getDatatype())) {
+                out.writeByte(PLAIN_LITERAL_VALUE);
+                writeString(out, literal.getLabel());
+            } else {
+                out.writeByte(DATATYPE_LITERAL_VALUE);
+                writeString(out, literal.getLabel());
+                writeString(out, literal.getDatatype().stringValue());
+            }
+        } else {
+            throw new IOException("Unknown type of value: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * @param in - The input the value is read from. (not null)
+     * @param vf - Creates the value. (not null)
+     * @return The value that was read, or {@code null} if a {@code null} value was written.
+     * @throws IOException The value could not be read.
+     */
+    public static @Nullable Value readValue(final DataInput in, final ValueFactory vf) throws IOException {
+        requireNonNull(in);
+        requireNonNull(vf);
+        final int tag = in.readUnsignedByte();
+        switch(tag) {
+            case NULL_VALUE:
+                return null;
+            case IRI_VALUE:
+                return vf.createIRI(readString(in));
+            case BNODE_VALUE:
+                return vf.createBNode(readString(in));
+            case PLAIN_LITERAL_VALUE:
+                return vf.createLiteral(readString(in));
+            case LANG_LITERAL_VALUE: {
+                final String label = readString(in);
+                return vf.createLiteral(label, readString(in));
+            }
+            case DATATYPE_LITERAL_VALUE: {
+                final String label = readString(in);
+                return vf.createLiteral(label, vf.createIRI(readString(in)));
+            }
+            default:
+                throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+}
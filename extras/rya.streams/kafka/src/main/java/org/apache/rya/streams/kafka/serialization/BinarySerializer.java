@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.serialization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A Kafka {@link Serializer} that writes entities in a compact binary form. The
+ * first byte of each record is the {@link #FORMAT_VERSION} of the binary form,
+ * which is followed by the fields the implementation writes using
+ * {@link BinaryRdfEncoding}.
+ *
+ * @param T - The type of entity to serialize.
+ */
+@DefaultAnnotation(NonNull.class)
+public abstract class BinarySerializer<T> implements Serializer<T> {
+
+    /**
+     * The version of the binary form that is written. Java object serialization
+     * streams always start with the byte 0xAC, so {@link BinaryDeserializer} is
+     * able to tell the two apart.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySerializer.class);
+
+    @Override
+    public void configure(final Map<String, ?> configs, final boolean isKey) {
+        // Nothing to do.
+    }
+
+    @Override
+    public byte[] serialize(final String topic, final T data) {
+        if(data == null) {
+            return null;
+        }
+
+        try {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+            final DataOutputStream out = new DataOutputStream(baos);
+            out.writeByte(FORMAT_VERSION);
+            write(out, data);
+            out.flush();
+            return baos.toByteArray();
+        } catch (final IOException e) {
+            log.error("Unable to serialize a " + getSerializedClass().getName() + ".", e);
+
+            // Return null when there is an error since that is the contract of this method.
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing to do.
+    }
+
+    /**
+     * Writes the fields of an entity.
+     *
+     * @param out - The output the fields are written to. (not null)
+     * @param data - The entity to write. (not null)
+     * @throws IOException The entity could not be written.
+     */
+    protected abstract void write(DataOutput out, T data) throws IOException;
+
+    /**
+     * @return - The class name of T. This is used for logging purposes.
+     */
+    protected abstract Class<T> getSerializedClass();
+}
@@ -18,19 +18,40 @@
  */
 package org.apache.rya.streams.kafka.serialization;
 
+import java.io.DataInput;
+import java.io.IOException;
+
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.rya.api.model.VisibilityBindingSet;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Deserializer} that is able to deserialize Java object serialized {@link VisibilityBindingSet}s.
+ * A Kafka {@link Deserializer} that is able to deserialize {@link VisibilityBindingSet}s that were
+ * written by a {@link VisibilityBindingSetSerializer}.
  */
 @DefaultAnnotation(NonNull.class)
-public class VisibilityBindingSetDeserializer extends ObjectDeserializer<VisibilityBindingSet> {
+public class VisibilityBindingSetDeserializer extends BinaryDeserializer<VisibilityBindingSet> {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Override
+    protected VisibilityBindingSet read(final DataInput in) throws IOException {
+        final String visibility = BinaryRdfEncoding.readString(in);
+        final int size = BinaryRdfEncoding.readLength(in);
+        final MapBindingSet bindingSet = new MapBindingSet();
+        for(int i = 0; i < size; i++) {
+            final String name = BinaryRdfEncoding.readString(in);
+            bindingSet.addBinding(name, BinaryRdfEncoding.readValue(in, VF));
+        }
+        return new VisibilityBindingSet(bindingSet, visibility);
+    }
+
     @Override
     protected Class<VisibilityBindingSet> getDeserializedClass() {
         return VisibilityBindingSet.class;
     }
-}
\ No newline at end of file
+}
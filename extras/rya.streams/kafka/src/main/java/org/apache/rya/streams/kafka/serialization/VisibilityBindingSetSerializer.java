@@ -18,19 +18,34 @@
  */
 package org.apache.rya.streams.kafka.serialization;
 
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.kafka.common.serialization.Serializer;
 import org.apache.rya.api.model.VisibilityBindingSet;
+import org.eclipse.rdf4j.query.Binding;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Serializer} that is able to serialize {@link VisibilityBinidngSet}s using Java object serialization.
+ * A Kafka {@link Serializer} that is able to serialize {@link VisibilityBindingSet}s. The visibility
+ * is written, followed by the number of bindings and the name and value of each binding.
  */
 @DefaultAnnotation(NonNull.class)
-public class VisibilityBindingSetSerializer extends ObjectSerializer<VisibilityBindingSet> {
+public class VisibilityBindingSetSerializer extends BinarySerializer<VisibilityBindingSet> {
+    @Override
+    protected void write(final DataOutput out, final VisibilityBindingSet data) throws IOException {
+        BinaryRdfEncoding.writeString(out, data.getVisibility());
+        BinaryRdfEncoding.writeVarInt(out, data.size());
+        for(final Binding binding : data) {
+            BinaryRdfEncoding.writeString(out, binding.getName());
+            BinaryRdfEncoding.writeValue(out, binding.getValue());
+        }
+    }
+
     @Override
     protected Class<VisibilityBindingSet> getSerializedClass() {
         return VisibilityBindingSet.class;
     }
-}
\ No newline at end of file
+}
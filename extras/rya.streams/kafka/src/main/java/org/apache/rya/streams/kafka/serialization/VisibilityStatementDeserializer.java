@@ -18,19 +18,47 @@
  */
 package org.apache.rya.streams.kafka.serialization;
 
+import java.io.DataInput;
+import java.io.IOException;
+
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.rya.api.model.VisibilityStatement;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Deserializer} that is able to deserialize Java object serialized {@link VisibilityStatement}s.
+ * A Kafka {@link Deserializer} that is able to deserialize {@link VisibilityStatement}s that were
+ * written by a {@link VisibilityStatementSerializer}.
  */
 @DefaultAnnotation(NonNull.class)
-public class VisibilityStatementDeserializer extends ObjectDeserializer<VisibilityStatement> {
+public class VisibilityStatementDeserializer extends BinaryDeserializer<VisibilityStatement> {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Override
+    protected VisibilityStatement read(final DataInput in) throws IOException {
+        try {
+            final Resource subject = (Resource) BinaryRdfEncoding.readValue(in, VF);
+            final IRI predicate = (IRI) BinaryRdfEncoding.readValue(in, VF);
+            final Value object = BinaryRdfEncoding.readValue(in, VF);
+            final Resource context = (Resource) BinaryRdfEncoding.readValue(in, VF);
+            final Statement statement = context == null ?
+                    VF.createStatement(subject, predicate, object) :
+                    VF.createStatement(subject, predicate, object, context);
+            return new VisibilityStatement(statement, BinaryRdfEncoding.readString(in));
+        } catch(final ClassCastException | NullPointerException e) {
+            throw new IOException("The data does not hold a valid statement.", e);
+        }
+    }
+
     @Override
     protected Class<VisibilityStatement> getDeserializedClass() {
         return VisibilityStatement.class;
     }
-}
\ No newline at end of file
+}
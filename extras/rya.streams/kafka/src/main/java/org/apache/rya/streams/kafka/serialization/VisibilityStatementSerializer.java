@@ -18,6 +18,9 @@
  */
 package org.apache.rya.streams.kafka.serialization;
 
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.kafka.common.serialization.Serializer;
 import org.apache.rya.api.model.VisibilityStatement;
 
@@ -25,12 +28,22 @@ import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Serializer} that is able to serialize {@link VisibilityStatement}s using Java object serialization.
+ * A Kafka {@link Serializer} that is able to serialize {@link VisibilityStatement}s. The statement's
+ * subject, predicate, object, and context (or a null value) are written, followed by the visibility.
  */
 @DefaultAnnotation(NonNull.class)
-public class VisibilityStatementSerializer extends ObjectSerializer<VisibilityStatement> {
+public class VisibilityStatementSerializer extends BinarySerializer<VisibilityStatement> {
+    @Override
+    protected void write(final DataOutput out, final VisibilityStatement data) throws IOException {
+        BinaryRdfEncoding.writeValue(out, data.getSubject());
+        BinaryRdfEncoding.writeValue(out, data.getPredicate());
+        BinaryRdfEncoding.writeValue(out, data.getObject());
+        BinaryRdfEncoding.writeValue(out, data.getContext());
+        BinaryRdfEncoding.writeString(out, data.getVisibility());
+    }
+
     @Override
     protected Class<VisibilityStatement> getSerializedClass() {
         return VisibilityStatement.class;
     }
-}
\ No newline at end of file
+}
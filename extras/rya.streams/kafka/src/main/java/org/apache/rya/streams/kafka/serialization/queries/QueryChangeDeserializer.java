@@ -18,18 +18,44 @@
  */
 package org.apache.rya.streams.kafka.serialization.queries;
 
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.UUID;
+
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.rya.streams.api.queries.QueryChange;
-import org.apache.rya.streams.kafka.serialization.ObjectDeserializer;
+import org.apache.rya.streams.kafka.serialization.BinaryDeserializer;
+import org.apache.rya.streams.kafka.serialization.BinaryRdfEncoding;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Deserializer} that is able to deserialize Java object serialized {@link QueryChange}s.
+ * A Kafka {@link Deserializer} that is able to deserialize {@link QueryChange}s that were written by a
+ * {@link QueryChangeSerializer}.
  */
 @DefaultAnnotation(NonNull.class)
-public class QueryChangeDeserializer extends ObjectDeserializer<QueryChange> {
+public class QueryChangeDeserializer extends BinaryDeserializer<QueryChange> {
+
+    @Override
+    protected QueryChange read(final DataInput in) throws IOException {
+        final UUID queryId = new UUID(in.readLong(), in.readLong());
+        final int changeType = in.readUnsignedByte();
+        switch(changeType) {
+            case QueryChangeSerializer.CREATE: {
+                final String sparql = BinaryRdfEncoding.readString(in);
+                final boolean isActive = in.readBoolean();
+                final boolean isInsert = in.readBoolean();
+                return QueryChange.create(queryId, sparql, isActive, isInsert);
+            }
+            case QueryChangeSerializer.UPDATE:
+                return QueryChange.update(queryId, in.readBoolean());
+            case QueryChangeSerializer.DELETE:
+                return QueryChange.delete(queryId);
+            default:
+                throw new IOException("Unknown change type: " + changeType);
+        }
+    }
 
     @Override
     protected Class<QueryChange> getDeserializedClass() {
@@ -18,22 +18,53 @@
  */
 package org.apache.rya.streams.kafka.serialization.queries;
 
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.kafka.common.serialization.Serializer;
 import org.apache.rya.streams.api.queries.QueryChange;
-import org.apache.rya.streams.kafka.serialization.ObjectSerializer;
+import org.apache.rya.streams.kafka.serialization.BinaryRdfEncoding;
+import org.apache.rya.streams.kafka.serialization.BinarySerializer;
 
 import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
- * A Kafka {@link Serializer} that is able to serialize {@link QueryChange}s
- * using Java object serialization.
+ * A Kafka {@link Serializer} that is able to serialize {@link QueryChange}s. The query ID and the
+ * change type are written, followed by the optional fields that are present for that type of change.
  */
 @DefaultAnnotation(NonNull.class)
-public class QueryChangeSerializer extends ObjectSerializer<QueryChange> {
+public class QueryChangeSerializer extends BinarySerializer<QueryChange> {
+
+    static final int CREATE = 0;
+    static final int UPDATE = 1;
+    static final int DELETE = 2;
+
+    @Override
+    protected void write(final DataOutput out, final QueryChange data) throws IOException {
+        out.writeLong(data.getQueryId().getMostSignificantBits());
+        out.writeLong(data.getQueryId().getLeastSignificantBits());
+        switch(data.getChangeType()) {
+            case CREATE:
+                out.writeByte(CREATE);
+                BinaryRdfEncoding.writeString(out, data.getSparql().get());
+                out.writeBoolean(data.getIsActive().get());
+                out.writeBoolean(data.getIsInsert().get());
+                break;
+            case UPDATE:
+                out.writeByte(UPDATE);
+                out.writeBoolean(data.getIsActive().get());
+                break;
+            case DELETE:
+                out.writeByte(DELETE);
+                break;
+            default:
+                throw new IOException("Unknown change type: " + data.getChangeType());
+        }
+    }
 
     @Override
     protected Class<QueryChange> getSerializedClass() {
         return QueryChange.class;
     }
-}
\ No newline at end of file
+}
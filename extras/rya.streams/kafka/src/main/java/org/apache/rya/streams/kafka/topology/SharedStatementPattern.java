@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.topology;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+
+import com.google.common.collect.ImmutableMap;
+
+import edu.umd.cs.findbugs.annotations.DefaultAnnotation;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * The canonical form of a {@link StatementPattern} that appears within a query. Two patterns that only differ by
+ * the names of their variables have the same canonical form, so the statements that match them only need to be
+ * found once for every query that uses them.
+ * <p>
+ * The canonical pattern keeps the pattern's constants and renames its variables {@code v0}, {@code v1}, ... in the
+ * order they first appear within the subject, predicate, object, and context. The pattern's ID is derived from
+ * its canonical form, so it is the same across JVMs and restarts.
+ */
+@DefaultAnnotation(NonNull.class)
+public final class SharedStatementPattern {
+
+    private final UUID id;
+    private final StatementPattern pattern;
+    private final Map<String, String> queryVarNames;
+
+    /**
+     * Constructs an instance of {@link SharedStatementPattern}. Use {@link #make(StatementPattern)} instead.
+     *
+     * @param id - Uniquely identifies the canonical form of the pattern. (not null)
+     * @param pattern - The canonical statement pattern. (not null)
+     * @param queryVarNames - Maps the canonical variable names to the names the query used. (not null)
+     */
+    private SharedStatementPattern(final UUID id, final StatementPattern pattern, final Map<String, String> queryVarNames) {
+        this.id = requireNonNull(id);
+        this.pattern = requireNonNull(pattern);
+        this.queryVarNames = requireNonNull(queryVarNames);
+    }
+
+    /**
+     * @param sp - A statement pattern that appears within a query. (not null)
+     * @return The canonical form of the statement pattern.
+     */
+    public static SharedStatementPattern make(final StatementPattern sp) {
+        requireNonNull(sp);
+
+        final Map<String, String> canonicalNames = new LinkedHashMap<>();
+        final StringBuilder form = new StringBuilder();
+        final StatementPattern pattern = new StatementPattern(
+                canonicalVar(sp.getSubjectVar(), canonicalNames, form),
+                canonicalVar(sp.getPredicateVar(), canonicalNames, form),
+                canonicalVar(sp.getObjectVar(), canonicalNames, form),
+                canonicalVar(sp.getContextVar(), canonicalNames, form));
+
+        // Invert the lookup so that it maps from the canonical names to the query's names.
+        final Map<String, String> queryVarNames = new HashMap<>();
+        canonicalNames.forEach((queryName, canonicalName) -> queryVarNames.put(canonicalName, queryName));
+
+        final UUID id = UUID.nameUUIDFromBytes( form.toString().getBytes(StandardCharsets.UTF_8) );
+        return new SharedStatementPattern(id, pattern, ImmutableMap.copyOf(queryVarNames));
+    }
+
+    /**
+     * Finds the distinct canonical statement patterns that appear within a SPARQL query.
+     *
+     * @param sparql - The SPARQL query whose statement patterns will be found. (not null)
+     * @return The canonical statement patterns of the query, keyed by their IDs. Patterns that appear more than
+     *   once within the query only appear once within the map.
+     * @throws MalformedQueryException The query could not be parsed.
+     */
+    public static Map<UUID, SharedStatementPattern> find(final String sparql) throws MalformedQueryException {
+        requireNonNull(sparql);
+
+        final Map<UUID, SharedStatementPattern> patterns = new LinkedHashMap<>();
+        new SPARQLParser().parseQuery(sparql, null).getTupleExpr().visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(final StatementPattern node) {
+                final SharedStatementPattern shared = make(node);
+                patterns.putIfAbsent(shared.getId(), shared);
+            }
+        });
+        return patterns;
+    }
+
+    private static @Nullable Var canonicalVar(@Nullable final Var var, final Map<String, String> canonicalNames, final StringBuilder form) {
+        if(var == null) {
+            // Only the context may be missing.
+            form.append("*");
+            return null;
+        }
+
+        final Var canonical;
+        if(var.isConstant()) {
+            // Constants are part of the canonical form. IRIs are wrapped so they can not collide with literals.
+            form.append(var.getValue() instanceof IRI ? "<" + var.getValue().stringValue() + ">" : var.getValue().toString());
+            canonical = new Var("_const_" + form.length(), var.getValue());
+            canonical.setConstant(true);
+        } else {
+            final String name = canonicalNames.computeIfAbsent(var.getName(), queryName -> "v" + canonicalNames.size());
+            form.append("?").append(name);
+            canonical = new Var(name);
+        }
+        form.append(" ");
+        return canonical;
+    }
+
+    /**
+     * @return Uniquely identifies the canonical form of the pattern.
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * @return The canonical statement pattern. Its binding sets use the canonical variable names.
+     */
+    public StatementPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return Maps the canonical variable names to the names that were used by the query the pattern came from.
+     */
+    public Map<String, String> getQueryVarNames() {
+        return queryVarNames;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, queryVarNames);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(o instanceof SharedStatementPattern) {
+            final SharedStatementPattern other = (SharedStatementPattern) o;
+            return Objects.equals(id, other.id) &&
+                    Objects.equals(queryVarNames, other.queryVarNames);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "SharedStatementPattern { id: " + id + ", pattern: " + pattern + ", queryVarNames: " + queryVarNames + " }";
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.rya.streams.kafka.topology;
 
+import java.util.function.Function;
+
 import org.apache.kafka.streams.processor.TopologyBuilder;
 import org.apache.rya.api.function.projection.BNodeIdFactory;
 import org.eclipse.rdf4j.query.MalformedQueryException;
@@ -50,6 +52,41 @@ public interface TopologyBuilderFactory {
             final String resultsTopic,
             final BNodeIdFactory bNodeIdFactory) throws MalformedQueryException, TopologyBuilderException;
 
+    /**
+     * Builds a {@link TopologyBuilder} based on the provided SPARQL query that reads the statements matched
+     * by each of its statement patterns from the topic of the pattern's {@link SharedStatementPattern} and
+     * writes the query's results to {@code resultsTopic}. Those topics are written to by the topologies built
+     * by {@link #buildSharedStatementPattern(SharedStatementPattern, String, String)}.
+     *
+     * @param sparqlQuery - The SPARQL query to build a topology for. (not null)
+     * @param patternTopics - Gives the topic that holds the matches of each shared statement pattern. (not null)
+     * @param resultsTopic - The topic for the sink to write to. (not null)
+     * @param bNodeIdFactory - A factory that generates Blank Node IDs if any are required. (not null)
+     * @return The created {@link TopologyBuilder}.
+     * @throws MalformedQueryException - The provided query is not a valid SPARQL query.
+     * @throws TopologyBuilderException - A problem occurred while constructing the topology.
+     */
+    public TopologyBuilder buildSharingStatementPatterns(
+            final String sparqlQuery,
+            final Function<SharedStatementPattern, String> patternTopics,
+            final String resultsTopic,
+            final BNodeIdFactory bNodeIdFactory) throws MalformedQueryException, TopologyBuilderException;
+
+    /**
+     * Builds a {@link TopologyBuilder} that pulls from {@code statementsTopic} and writes the binding sets
+     * of the statements that match a {@link SharedStatementPattern} to {@code patternTopic}. The binding sets
+     * use the pattern's canonical variable names.
+     *
+     * @param pattern - The shared statement pattern to build a topology for. (not null)
+     * @param statementsTopic - The topic for the source to read from. (not null)
+     * @param patternTopic - The topic for the sink to write to. (not null)
+     * @return The created {@link TopologyBuilder}.
+     */
+    public TopologyBuilder buildSharedStatementPattern(
+            final SharedStatementPattern pattern,
+            final String statementsTopic,
+            final String patternTopic);
+
     /**
      * An Exception thrown when a problem occurs when constructing the processor
      * topology in the {@link TopologyFactory}.
@@ -29,7 +29,9 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 
+import org.apache.kafka.common.serialization.Serdes;
 import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
@@ -50,14 +52,17 @@ import org.apache.rya.streams.kafka.processors.ProcessorResult;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult.Side;
 import org.apache.rya.streams.kafka.processors.ProcessorResult.UnaryResult;
+import org.apache.rya.streams.kafka.processors.SharedStatementPatternProcessorSupplier;
 import org.apache.rya.streams.kafka.processors.StatementPatternProcessorSupplier;
 import org.apache.rya.streams.kafka.processors.aggregation.AggregationProcessorSupplier;
 import org.apache.rya.streams.kafka.processors.filter.FilterProcessorSupplier;
 import org.apache.rya.streams.kafka.processors.join.JoinProcessorSupplier;
+import org.apache.rya.streams.kafka.processors.join.JoinRetentionPolicy;
 import org.apache.rya.streams.kafka.processors.output.BindingSetOutputFormatterSupplier;
 import org.apache.rya.streams.kafka.processors.output.StatementOutputFormatterSupplier;
 import org.apache.rya.streams.kafka.processors.projection.MultiProjectionProcessorSupplier;
 import org.apache.rya.streams.kafka.processors.projection.ProjectionProcessorSupplier;
+import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetDeserializer;
 import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetSerde;
 import org.apache.rya.streams.kafka.serialization.VisibilityBindingSetSerializer;
 import org.apache.rya.streams.kafka.serialization.VisibilityStatementDeserializer;
@@ -99,8 +104,26 @@ public class TopologyFactory implements TopologyBuilderFactory {
     private static final String AGGREGATION_PREFIX = "AGGREGATION_";
     private static final String SINK = "SINK";
 
+    private final JoinRetentionPolicy joinRetentionPolicy;
+
     private List<ProcessorEntry> processorEntryList;
 
+    /**
+     * Constructs an instance of {@link TopologyFactory} whose joins never evict anything from their state stores.
+     */
+    public TopologyFactory() {
+        this(JoinRetentionPolicy.RETAIN_ALL);
+    }
+
+    /**
+     * Constructs an instance of {@link TopologyFactory}.
+     *
+     * @param joinRetentionPolicy - Defines what each join in a built topology evicts from its state store. (not null)
+     */
+    public TopologyFactory(final JoinRetentionPolicy joinRetentionPolicy) {
+        this.joinRetentionPolicy = requireNonNull(joinRetentionPolicy);
+    }
+
     @Override
     public TopologyBuilder build(
             final String sparqlQuery,
@@ -108,21 +131,77 @@ public class TopologyFactory implements TopologyBuilderFactory {
             final String resultsTopic,
             final BNodeIdFactory bNodeIdFactory)
             throws MalformedQueryException, TopologyBuilderException {
-        requireNonNull(sparqlQuery);
         requireNonNull(statementsTopic);
+        return build(sparqlQuery, Optional.of(statementsTopic), Optional.empty(), resultsTopic, bNodeIdFactory);
+    }
+
+    @Override
+    public TopologyBuilder buildSharingStatementPatterns(
+            final String sparqlQuery,
+            final Function<SharedStatementPattern, String> patternTopics,
+            final String resultsTopic,
+            final BNodeIdFactory bNodeIdFactory)
+            throws MalformedQueryException, TopologyBuilderException {
+        requireNonNull(patternTopics);
+        return build(sparqlQuery, Optional.empty(), Optional.of(patternTopics), resultsTopic, bNodeIdFactory);
+    }
+
+    @Override
+    public TopologyBuilder buildSharedStatementPattern(
+            final SharedStatementPattern pattern,
+            final String statementsTopic,
+            final String patternTopic) {
+        requireNonNull(pattern);
+        requireNonNull(statementsTopic);
+        requireNonNull(patternTopic);
+
+        final TopologyBuilder builder = new TopologyBuilder();
+        builder.addSource(SOURCE, new StringDeserializer(), new VisibilityStatementDeserializer(), statementsTopic);
+        builder.addProcessor(STATEMENT_PATTERN_PREFIX + pattern.getId(),
+                new StatementPatternProcessorSupplier(pattern.getPattern(), result -> ProcessorResult.make(new UnaryResult(result))),
+                SOURCE);
+        builder.addProcessor("OUTPUT_FORMATTER", new BindingSetOutputFormatterSupplier(), STATEMENT_PATTERN_PREFIX + pattern.getId());
+        builder.addSink(SINK, patternTopic, new StringSerializer(), new VisibilityBindingSetSerializer(), "OUTPUT_FORMATTER");
+        return builder;
+    }
+
+    /**
+     * Builds the topology of a query.
+     *
+     * @param sparqlQuery - The SPARQL query to build a topology for. (not null)
+     * @param statementsTopic - If present, the topic the statement patterns match statements from. (not null)
+     * @param patternTopics - If present, the statement patterns read their matches from the topics of their
+     *   {@link SharedStatementPattern}s instead of matching statements themselves. (not null)
+     * @param resultsTopic - The topic for the sink to write to. (not null)
+     * @param bNodeIdFactory - A factory that generates Blank Node IDs if any are required. (not null)
+     * @return The created {@link TopologyBuilder}.
+     */
+    private TopologyBuilder build(
+            final String sparqlQuery,
+            final Optional<String> statementsTopic,
+            final Optional<Function<SharedStatementPattern, String>> patternTopics,
+            final String resultsTopic,
+            final BNodeIdFactory bNodeIdFactory)
+            throws MalformedQueryException, TopologyBuilderException {
+        requireNonNull(sparqlQuery);
         requireNonNull(resultsTopic);
 
         final ParsedQuery parsedQuery = new SPARQLParser().parseQuery(sparqlQuery, null);
         final TopologyBuilder builder = new TopologyBuilder();
 
         final TupleExpr expr = parsedQuery.getTupleExpr();
-        final QueryVisitor visitor = new QueryVisitor(bNodeIdFactory);
+        final QueryVisitor visitor = new QueryVisitor(bNodeIdFactory, joinRetentionPolicy, patternTopics.isPresent());
         expr.visit(visitor);
 
         processorEntryList = visitor.getProcessorEntryList();
         final Map<TupleExpr, String> idMap = visitor.getIDs();
         // add source node
-        builder.addSource(SOURCE, new StringDeserializer(), new VisibilityStatementDeserializer(), statementsTopic);
+        if(statementsTopic.isPresent()) {
+            builder.addSource(SOURCE, new StringDeserializer(), new VisibilityStatementDeserializer(), statementsTopic.get());
+        }
+
+        // A topic may only be read by one source, so statement patterns that share a topic also share its source.
+        final Set<String> patternSources = Sets.newHashSet();
 
         // processing the processor entry list in reverse order means we go from leaf
         // nodes -> parent nodes.
@@ -134,7 +213,18 @@ public class TopologyFactory implements TopologyBuilderFactory {
             entry = processorEntryList.get(ii);
             //statement patterns need to be connected to the Source.
             if(entry.getNode() instanceof StatementPattern) {
-                builder.addProcessor(entry.getID(), entry.getSupplier(), SOURCE);
+                if(patternTopics.isPresent()) {
+                    // Shared statement patterns need to be connected to the source of their pattern's topic.
+                    final SharedStatementPattern shared = SharedStatementPattern.make((StatementPattern) entry.getNode());
+                    final String patternSource = SOURCE + "_" + shared.getId();
+                    if(patternSources.add(patternSource)) {
+                        builder.addSource(patternSource, new StringDeserializer(), new VisibilityBindingSetDeserializer(),
+                                patternTopics.get().apply(shared));
+                    }
+                    builder.addProcessor(entry.getID(), entry.getSupplier(), patternSource);
+                } else {
+                    builder.addProcessor(entry.getID(), entry.getSupplier(), SOURCE);
+                }
             } else {
                 final List<TupleExpr> parents = entry.getUpstreamNodes();
                 final String[] parentIDs = new String[parents.size()];
@@ -145,15 +235,24 @@ public class TopologyFactory implements TopologyBuilderFactory {
             }
 
             // Add a state store for any node type that requires one.
-            if (entry.getNode() instanceof Join ||  entry.getNode() instanceof LeftJoin || entry.getNode() instanceof Group) {
-                // Add a state store for the join processor.
+            if (entry.getNode() instanceof Join ||  entry.getNode() instanceof LeftJoin) {
+                // Add a state store for the join processor. Its keys are binary so that they may be prefix seeked.
                 final StateStoreSupplier joinStoreSupplier =
                         Stores.create( entry.getID() )
-                            .withStringKeys()
+                            .withKeys(Serdes.Bytes())
                             .withValues(new VisibilityBindingSetSerde())
                             .persistent()
                             .build();
                 builder.addStateStore(joinStoreSupplier, entry.getID());
+            } else if (entry.getNode() instanceof Group) {
+                // Add a state store for the aggregation processor.
+                final StateStoreSupplier aggregationStoreSupplier =
+                        Stores.create( entry.getID() )
+                            .withStringKeys()
+                            .withValues(new VisibilityBindingSetSerde())
+                            .persistent()
+                            .build();
+                builder.addStateStore(aggregationStoreSupplier, entry.getID());
             }
         }
 
@@ -346,14 +445,31 @@ public class TopologyFactory implements TopologyBuilderFactory {
                 new VisibilityBindingSetSerializer());
 
         private final BNodeIdFactory bNodeIdFactory;
+        private final JoinRetentionPolicy joinRetentionPolicy;
+        private final boolean shareStatementPatterns;
+
+        /**
+         * Constructs an instance of {@link QueryVisitor}.
+         *
+         * @param bNodeIdFactory - Builds Blank Node IDs for the query's results. (not null)
+         * @param joinRetentionPolicy - Defines what each join evicts from its state store. (not null)
+         */
+        public QueryVisitor(final BNodeIdFactory bNodeIdFactory, final JoinRetentionPolicy joinRetentionPolicy) {
+            this(bNodeIdFactory, joinRetentionPolicy, false);
+        }
 
         /**
          * Constructs an instance of {@link QueryVisitor}.
          *
          * @param bNodeIdFactory - Builds Blank Node IDs for the query's results. (not null)
+         * @param joinRetentionPolicy - Defines what each join evicts from its state store. (not null)
+         * @param shareStatementPatterns - {@code true} if the statement patterns read the matches of their
+         *   {@link SharedStatementPattern}s instead of matching statements themselves.
          */
-        public QueryVisitor(final BNodeIdFactory bNodeIdFactory) {
+        public QueryVisitor(final BNodeIdFactory bNodeIdFactory, final JoinRetentionPolicy joinRetentionPolicy, final boolean shareStatementPatterns) {
             this.bNodeIdFactory = requireNonNull(bNodeIdFactory);
+            this.joinRetentionPolicy = requireNonNull(joinRetentionPolicy);
+            this.shareStatementPatterns = shareStatementPatterns;
         }
 
         /**
@@ -392,7 +508,9 @@ public class TopologyFactory implements TopologyBuilderFactory {
             // topology parent for Statement Patterns will always be a source
             final String id = STATEMENT_PATTERN_PREFIX + UUID.randomUUID();
             final Optional<Side> side = getSide(node);
-            final StatementPatternProcessorSupplier supplier = new StatementPatternProcessorSupplier(node, result -> getResult(side, result));
+            final ProcessorSupplier<?, ?> supplier = shareStatementPatterns ?
+                    new SharedStatementPatternProcessorSupplier(SharedStatementPattern.make(node).getQueryVarNames(), result -> getResult(side, result)) :
+                    new StatementPatternProcessorSupplier(node, result -> getResult(side, result));
             entries.add(new ProcessorEntry(node, id, side, supplier, Lists.newArrayList()));
             idMap.put(node, id);
             super.meet(node);
@@ -527,7 +645,8 @@ public class TopologyFactory implements TopologyBuilderFactory {
             allVars.addAll(otherVars);
 
             final Optional<Side> side = getSide(node);
-            final JoinProcessorSupplier supplier = new JoinProcessorSupplier(id, joinFunction, joinVars, allVars, result -> getResult(side, result));
+            final JoinProcessorSupplier supplier = new JoinProcessorSupplier(id, joinFunction, joinVars, allVars,
+                    joinRetentionPolicy, result -> getResult(side, result));
             entries.add(new ProcessorEntry(node, id, side, supplier, Lists.newArrayList(node.getLeftArg(), node.getRightArg())));
             idMap.put(node, id);
         }
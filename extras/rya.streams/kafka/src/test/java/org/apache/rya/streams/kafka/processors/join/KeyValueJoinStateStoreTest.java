@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.processors.join;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.rya.api.model.VisibilityBindingSet;
+import org.apache.rya.api.utils.CloseableIterator;
+import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult;
+import org.apache.rya.streams.kafka.processors.ProcessorResult.BinaryResult.Side;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests the methods of {@link KeyValueJoinStateStore}.
+ */
+public class KeyValueJoinStateStoreTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private static final List<String> JOIN_VARS = Lists.newArrayList("student");
+    private static final List<String> ALL_VARS = Lists.newArrayList("student", "course", "name");
+
+    @Test
+    public void getJoinedValues_onlyMatchingJoinValues() throws Exception {
+        final KeyValueJoinStateStore joinStore = new KeyValueJoinStateStore(new TreeMapStore(), JOIN_VARS, ALL_VARS);
+
+        final VisibilityBindingSet math = bs("urn:Student9", "course", "urn:Math");
+        final VisibilityBindingSet art = bs("urn:Student9", "course", "urn:Art");
+        joinStore.store(new BinaryResult(Side.LEFT, math), 0);
+        joinStore.store(new BinaryResult(Side.LEFT, art), 0);
+        joinStore.store(new BinaryResult(Side.LEFT, bs("urn:Student95", "course", "urn:Math")), 0);
+        joinStore.store(new BinaryResult(Side.RIGHT, bs("urn:Student9", "name", "Alice")), 0);
+
+        // Only the left side values for urn:Student9 join with a new right side value for urn:Student9.
+        final VisibilityBindingSet bob = bs("urn:Student9", "name", "Bob");
+        assertEquals(ImmutableSet.of(math, art), getJoinedValues(joinStore, new BinaryResult(Side.RIGHT, bob)));
+    }
+
+    @Test
+    public void evict_maxAge() throws Exception {
+        final KeyValueJoinStateStore joinStore = new KeyValueJoinStateStore(
+                new TreeMapStore(), JOIN_VARS, ALL_VARS, JoinRetentionPolicy.maxAge(100L));
+
+        final VisibilityBindingSet math = bs("urn:Student9", "course", "urn:Math");
+        final VisibilityBindingSet art = bs("urn:Student9", "course", "urn:Art");
+        joinStore.store(new BinaryResult(Side.LEFT, math), 1000L);
+        joinStore.store(new BinaryResult(Side.LEFT, art), 1050L);
+
+        // Storing the same value again does not make it younger.
+        joinStore.store(new BinaryResult(Side.LEFT, math), 1075L);
+
+        final BinaryResult alice = new BinaryResult(Side.RIGHT, bs("urn:Student9", "name", "Alice"));
+        joinStore.evict(1100L);
+        assertEquals(ImmutableSet.of(math, art), getJoinedValues(joinStore, alice));
+
+        joinStore.evict(1101L);
+        assertEquals(ImmutableSet.of(art), getJoinedValues(joinStore, alice));
+
+        joinStore.evict(2000L);
+        assertEquals(ImmutableSet.of(), getJoinedValues(joinStore, alice));
+    }
+
+    @Test
+    public void evict_maxEntries() throws Exception {
+        final TreeMapStore store = new TreeMapStore();
+        final KeyValueJoinStateStore joinStore = new KeyValueJoinStateStore(
+                store, JOIN_VARS, ALL_VARS, JoinRetentionPolicy.maxEntries(2L));
+
+        final VisibilityBindingSet math = bs("urn:Student9", "course", "urn:Math");
+        final VisibilityBindingSet art = bs("urn:Student9", "course", "urn:Art");
+        final VisibilityBindingSet alice = bs("urn:Student9", "name", "Alice");
+        joinStore.store(new BinaryResult(Side.LEFT, math), 30L);
+        joinStore.store(new BinaryResult(Side.LEFT, art), 10L);
+        joinStore.store(new BinaryResult(Side.RIGHT, alice), 20L);
+
+        // The oldest value is evicted, along with its row in the age index.
+        joinStore.evict(40L);
+        final BinaryResult bob = new BinaryResult(Side.RIGHT, bs("urn:Student9", "name", "Bob"));
+        assertEquals(ImmutableSet.of(math), getJoinedValues(joinStore, bob));
+        final BinaryResult physics = new BinaryResult(Side.LEFT, bs("urn:Student9", "course", "urn:Physics"));
+        assertEquals(ImmutableSet.of(alice), getJoinedValues(joinStore, physics));
+        assertEquals(4, store.map.size());
+    }
+
+    private static VisibilityBindingSet bs(final String student, final String var, final String value) {
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("student", VF.createIRI(student));
+        bs.addBinding(var, var.equals("name") ? VF.createLiteral(value) : VF.createIRI(value));
+        return new VisibilityBindingSet(bs, "a");
+    }
+
+    private static Set<VisibilityBindingSet> getJoinedValues(final JoinStateStore joinStore, final BinaryResult result) throws Exception {
+        final Set<VisibilityBindingSet> values = new HashSet<>();
+        try(CloseableIterator<VisibilityBindingSet> it = joinStore.getJoinedValues(result)) {
+            it.forEachRemaining(values::add);
+        }
+        return values;
+    }
+
+    /**
+     * A {@link KeyValueStore} that holds its values in a sorted map, the way RocksDB orders its keys.
+     */
+    private static final class TreeMapStore implements KeyValueStore<Bytes, VisibilityBindingSet> {
+        private final TreeMap<Bytes, VisibilityBindingSet> map = new TreeMap<>();
+
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public void init(final ProcessorContext context, final StateStore root) { }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+
+        @Override
+        public boolean persistent() {
+            return false;
+        }
+
+        @Override
+        public VisibilityBindingSet get(final Bytes key) {
+            return map.get(key);
+        }
+
+        @Override
+        public void put(final Bytes key, final VisibilityBindingSet value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public VisibilityBindingSet putIfAbsent(final Bytes key, final VisibilityBindingSet value) {
+            return map.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void putAll(final List<KeyValue<Bytes, VisibilityBindingSet>> entries) {
+            entries.forEach(entry -> map.put(entry.key, entry.value));
+        }
+
+        @Override
+        public VisibilityBindingSet delete(final Bytes key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public KeyValueIterator<Bytes, VisibilityBindingSet> range(final Bytes from, final Bytes to) {
+            return iterator(map.subMap(from, true, to, true).entrySet().iterator());
+        }
+
+        @Override
+        public KeyValueIterator<Bytes, VisibilityBindingSet> all() {
+            return iterator(map.entrySet().iterator());
+        }
+
+        private static KeyValueIterator<Bytes, VisibilityBindingSet> iterator(final Iterator<Entry<Bytes, VisibilityBindingSet>> it) {
+            return new KeyValueIterator<Bytes, VisibilityBindingSet>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public KeyValue<Bytes, VisibilityBindingSet> next() {
+                    final Entry<Bytes, VisibilityBindingSet> entry = it.next();
+                    return new KeyValue<>(entry.getKey(), entry.getValue());
+                }
+
+                @Override
+                public void close() { }
+            };
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.rya.streams.kafka.serialization;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.rya.api.model.VisibilityBindingSet;
@@ -61,4 +62,62 @@ public class VisibilityBindingSetSerdeTest {
             assertNull( serde.deserializer().deserialize("topic", new byte[0]) );
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void serializeAndDeserializeEveryKindOfValue() {
+        final ValueFactory vf = SimpleValueFactory.getInstance();
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("iri", vf.createIRI("urn:alice"));
+        bs.addBinding("bnode", vf.createBNode("b1"));
+        bs.addBinding("plain", vf.createLiteral("alice"));
+        bs.addBinding("lang", vf.createLiteral("alice", "en"));
+        bs.addBinding("typed", vf.createLiteral(3.5));
+
+        final VisibilityBindingSet original  = new VisibilityBindingSet(bs, "");
+
+        try(final Serde<VisibilityBindingSet> serde = new VisibilityBindingSetSerde()) {
+            final byte[] bytes = serde.serializer().serialize("topic", original);
+            assertEquals(original, serde.deserializer().deserialize("topic", bytes));
+        }
+    }
+
+    @Test
+    public void deserializeJavaSerializedData() throws Exception {
+        // Records that were written before the binary form are still readable.
+        final ValueFactory vf = SimpleValueFactory.getInstance();
+        final MapBindingSet bs = new MapBindingSet();
+        bs.addBinding("name", vf.createLiteral("alice"));
+
+        final VisibilityBindingSet original  = new VisibilityBindingSet(bs, "a|b|c");
+        final byte[] javaSerialized = ObjectSerialization.serialize(original);
+
+        try(final Serde<VisibilityBindingSet> serde = new VisibilityBindingSetSerde()) {
+            assertEquals(original, serde.deserializer().deserialize("topic", javaSerialized));
+            assertTrue(serde.serializer().serialize("topic", original).length < javaSerialized.length);
+        }
+    }
+
+    @Test
+    public void deserializeCorruptLengths() {
+        try(final Serde<VisibilityBindingSet> serde = new VisibilityBindingSetSerde()) {
+            // A visibility that claims to be Integer.MAX_VALUE bytes long.
+            final byte[] tooLong = { BinarySerializer.FORMAT_VERSION, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'a' };
+            assertNull( serde.deserializer().deserialize("topic", tooLong) );
+
+            // A visibility whose length is negative.
+            final byte[] negative = { BinarySerializer.FORMAT_VERSION, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F };
+            assertNull( serde.deserializer().deserialize("topic", negative) );
+
+            // A binding count that is negative.
+            final byte[] negativeCount = { BinarySerializer.FORMAT_VERSION, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F };
+            assertNull( serde.deserializer().deserialize("topic", negativeCount) );
+        }
+    }
+
+    @Test
+    public void deserializeUnknownVersion() {
+        try(final Serde<VisibilityBindingSet> serde = new VisibilityBindingSetSerde()) {
+            assertNull( serde.deserializer().deserialize("topic", new byte[] { 99, 0 }) );
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.rya.streams.kafka.serialization;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.rya.api.model.VisibilityStatement;
@@ -63,4 +64,39 @@ public class VisibilityStatementSerdeTest {
             assertNull( serde.deserializer().deserialize("topic", new byte[0]) );
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void serializeAndDeserializeWithoutContext() {
+        final ValueFactory vf = SimpleValueFactory.getInstance();
+        final Statement statement = vf.createStatement(
+                vf.createBNode("b1"),
+                vf.createIRI("urn:age"),
+                vf.createLiteral(37));
+
+        final VisibilityStatement original = new VisibilityStatement(statement, "");
+
+        try(final Serde<VisibilityStatement> serde = new VisibilityStatementSerde()) {
+            final byte[] bytes = serde.serializer().serialize("topic", original);
+            assertEquals(original, serde.deserializer().deserialize("topic", bytes));
+        }
+    }
+
+    @Test
+    public void deserializeJavaSerializedData() throws Exception {
+        // Records that were written before the binary form are still readable.
+        final ValueFactory vf = SimpleValueFactory.getInstance();
+        final Statement statement = vf.createStatement(
+                vf.createIRI("urn:person1"),
+                vf.createIRI("urn:hasName"),
+                vf.createLiteral("alice", "en"),
+                vf.createIRI("urn:testContext"));
+
+        final VisibilityStatement original = new VisibilityStatement(statement, "a|b|c");
+        final byte[] javaSerialized = ObjectSerialization.serialize(original);
+
+        try(final Serde<VisibilityStatement> serde = new VisibilityStatementSerde()) {
+            assertEquals(original, serde.deserializer().deserialize("topic", javaSerialized));
+            assertTrue(serde.serializer().serialize("topic", original).length < javaSerialized.length);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.serialization.queries;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.UUID;
+
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.rya.streams.api.queries.QueryChange;
+import org.apache.rya.streams.kafka.serialization.ObjectSerialization;
+import org.junit.Test;
+
+/**
+ * Tests the methods of {@link QueryChangeSerde}.
+ */
+public class QueryChangeSerdeTest {
+
+    @Test
+    public void serializeAndDeserializeEveryChangeType() {
+        final UUID queryId = UUID.randomUUID();
+        try(final Serde<QueryChange> serde = new QueryChangeSerde()) {
+            for(final QueryChange original : new QueryChange[] {
+                    QueryChange.create(queryId, "SELECT * WHERE { ?a ?b ?c . }", true, false),
+                    QueryChange.update(queryId, false),
+                    QueryChange.delete(queryId) }) {
+                final byte[] bytes = serde.serializer().serialize("topic", original);
+                assertEquals(original, serde.deserializer().deserialize("topic", bytes));
+            }
+        }
+    }
+
+    @Test
+    public void deserializeJavaSerializedData() throws Exception {
+        final QueryChange original = QueryChange.create(UUID.randomUUID(), "SELECT * WHERE { ?a ?b ?c . }", false, true);
+        try(final Serde<QueryChange> serde = new QueryChangeSerde()) {
+            assertEquals(original, serde.deserializer().deserialize("topic", ObjectSerialization.serialize(original)));
+        }
+    }
+}
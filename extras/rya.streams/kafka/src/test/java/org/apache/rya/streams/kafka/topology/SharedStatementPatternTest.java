@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.rya.streams.kafka.topology;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Unit tests the methods of {@link SharedStatementPattern}.
+ */
+public class SharedStatementPatternTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    @Test
+    public void sameFormDifferentVariableNames() throws Exception {
+        final SharedStatementPattern first = single("SELECT * WHERE { ?person <urn:talksTo> ?otherPerson . }");
+        final SharedStatementPattern second = single("SELECT * WHERE { ?a <urn:talksTo> ?b . }");
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(first.getPattern(), second.getPattern());
+        assertEquals(ImmutableMap.of("v0", "person", "v1", "otherPerson"), first.getQueryVarNames());
+        assertEquals(ImmutableMap.of("v0", "a", "v1", "b"), second.getQueryVarNames());
+    }
+
+    @Test
+    public void differentConstants() throws Exception {
+        final UUID iri = single("SELECT * WHERE { ?a <urn:talksTo> <urn:Bob> . }").getId();
+        final UUID literal = single("SELECT * WHERE { ?a <urn:talksTo> \"urn:Bob\" . }").getId();
+        final UUID otherIri = single("SELECT * WHERE { ?a <urn:talksTo> <urn:Alice> . }").getId();
+
+        assertNotEquals(iri, literal);
+        assertNotEquals(iri, otherIri);
+    }
+
+    @Test
+    public void repeatedVariable() throws Exception {
+        final Var talksTo = new Var("talksTo", VF.createIRI("urn:talksTo"));
+        talksTo.setConstant(true);
+
+        final UUID repeated = SharedStatementPattern.make(new StatementPattern(new Var("a"), talksTo, new Var("a"))).getId();
+        final UUID distinct = SharedStatementPattern.make(new StatementPattern(new Var("a"), talksTo, new Var("b"))).getId();
+        assertNotEquals(repeated, distinct);
+    }
+
+    @Test
+    public void context() throws Exception {
+        final UUID anyGraph = single("SELECT * WHERE { ?a <urn:talksTo> ?b . }").getId();
+        final UUID namedGraph = single("SELECT * WHERE { GRAPH <urn:g> { ?a <urn:talksTo> ?b . } }").getId();
+        final UUID graphVar = single("SELECT * WHERE { GRAPH ?g { ?a <urn:talksTo> ?b . } }").getId();
+
+        assertNotEquals(anyGraph, namedGraph);
+        assertNotEquals(anyGraph, graphVar);
+        assertNotEquals(namedGraph, graphVar);
+    }
+
+    @Test
+    public void find_distinctPatterns() throws Exception {
+        final Map<UUID, SharedStatementPattern> patterns = SharedStatementPattern.find("SELECT * WHERE { "
+                + "?person <urn:talksTo> ?otherPerson . "
+                + "?otherPerson <urn:talksTo> ?dog . "
+                + "?dog <urn:chews> ?toy . "
+                + "}");
+        assertEquals(2, patterns.size());
+    }
+
+    private static SharedStatementPattern single(final String sparql) throws Exception {
+        final Map<UUID, SharedStatementPattern> patterns = SharedStatementPattern.find(sparql);
+        assertEquals(1, patterns.size());
+        return patterns.values().iterator().next();
+    }
+}
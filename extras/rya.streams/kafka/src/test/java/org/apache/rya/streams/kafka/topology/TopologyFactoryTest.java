@@ -23,6 +23,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
+import org.apache.kafka.streams.processor.TopologyBuilder;
 import org.apache.rya.api.domain.VarNameUtils;
 import org.apache.rya.api.function.projection.RandomUUIDFactory;
 import org.apache.rya.streams.kafka.topology.TopologyFactory.ProcessorEntry;
@@ -35,6 +36,8 @@ import org.eclipse.rdf4j.query.algebra.Var;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.Sets;
+
 /**
  * Unit tests the methods of {@link TopologyFactory}.
  */
@@ -126,4 +129,21 @@ public class TopologyFactoryTest {
         final StatementPattern expected = new StatementPattern(new Var("person"), TALKS_TO, new Var("otherPerson"));
         assertEquals(expected, entries.get(1).getNode());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sharedStatementPatternsShareSources() throws Exception {
+        // Both statement patterns have the same canonical form, so they read from the same topic.
+        final String query = "SELECT * WHERE { "
+                + "?person <urn:talksTo> ?otherPerson . "
+                + "?otherPerson <urn:talksTo> ?dog . "
+                + "?dog <urn:chews> ?toy . "
+                + "}";
+
+        final TopologyBuilder builder = FACTORY.buildSharingStatementPatterns(
+                query, pattern -> "pattern-" + pattern.getId(), "sink", new RandomUUIDFactory());
+
+        final String talksTo = "pattern-" + SharedStatementPattern.make(new StatementPattern(new Var("a"), TALKS_TO, new Var("b"))).getId();
+        final String chews = "pattern-" + SharedStatementPattern.make(new StatementPattern(new Var("a"), CHEWS, new Var("b"))).getId();
+        assertEquals(Sets.newHashSet(talksTo, chews), builder.sourceTopics("test"));
+    }
+}
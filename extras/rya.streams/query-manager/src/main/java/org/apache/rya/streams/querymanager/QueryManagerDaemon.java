@@ -24,6 +24,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBException;
@@ -34,12 +35,15 @@ import org.apache.commons.daemon.DaemonInitException;
 import org.apache.rya.streams.kafka.KafkaStreamsFactory;
 import org.apache.rya.streams.kafka.SingleThreadKafkaStreamsFactory;
 import org.apache.rya.streams.kafka.interactor.CreateKafkaTopic;
+import org.apache.rya.streams.kafka.processors.join.JoinRetentionPolicy;
 import org.apache.rya.streams.querymanager.kafka.KafkaQueryChangeLogSource;
 import org.apache.rya.streams.querymanager.kafka.LocalQueryExecutor;
+import org.apache.rya.streams.querymanager.xml.JoinRetention;
 import org.apache.rya.streams.querymanager.xml.Kafka;
 import org.apache.rya.streams.querymanager.xml.QueryManagerConfig;
 import org.apache.rya.streams.querymanager.xml.QueryManagerConfig.PerformanceTunning.QueryChanngeLogDiscoveryPeriod;
 import org.apache.rya.streams.querymanager.xml.QueryManagerConfigUnmarshaller;
+import org.apache.rya.streams.querymanager.xml.TimePeriod;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
@@ -112,13 +116,39 @@ public class QueryManagerDaemon implements Daemon {
 
         // Initialize a QueryExecutor.
         final String zookeeperServers = config.getQueryExecutor().getLocalKafkaStreams().getZookeepers();
-        final KafkaStreamsFactory streamsFactory = new SingleThreadKafkaStreamsFactory(kafka.getHostname() + ":" + kafka.getPort());
-        final QueryExecutor queryExecutor = new LocalQueryExecutor(new CreateKafkaTopic(zookeeperServers), streamsFactory);
+        final boolean shareStatementPatterns = Boolean.TRUE.equals( config.getQueryExecutor().getLocalKafkaStreams().isShareStatementPatterns() );
+        log.info("Share Statement Patterns: " + shareStatementPatterns);
+        final JoinRetentionPolicy joinRetention;
+        try {
+            joinRetention = makeJoinRetentionPolicy( config.getQueryExecutor().getLocalKafkaStreams().getJoinRetention() );
+        } catch(final IllegalArgumentException e) {
+            throw new DaemonInitException("Invalid join retention in the configuration XML file: " + configFile, e);
+        }
+        log.info("Join Retention: " + joinRetention);
+        final KafkaStreamsFactory streamsFactory = new SingleThreadKafkaStreamsFactory(kafka.getHostname() + ":" + kafka.getPort(), joinRetention);
+        final QueryExecutor queryExecutor = new LocalQueryExecutor(new CreateKafkaTopic(zookeeperServers), streamsFactory, shareStatementPatterns);
 
         // Initialize the QueryManager using the configured resources.
         manager = new QueryManager(queryExecutor, source, period, units);
     }
 
+    /**
+     * @param config - The join retention that was configured. (nullable)
+     * @return The policy that bounds the state of each join, which retains everything if none was configured.
+     */
+    private static JoinRetentionPolicy makeJoinRetentionPolicy(final JoinRetention config) {
+        if(config == null) {
+            return JoinRetentionPolicy.RETAIN_ALL;
+        }
+
+        final TimePeriod maxAge = config.getMaxAge();
+        final Optional<Long> maxAgeMs = maxAge == null ? Optional.empty() :
+            Optional.of( TimeUnit.valueOf(maxAge.getUnits().toString()).toMillis(maxAge.getValue().longValueExact()) );
+        final Optional<Long> maxEntries = config.getMaxEntries() == null ? Optional.empty() :
+            Optional.of( config.getMaxEntries().longValueExact() );
+        return new JoinRetentionPolicy(maxAgeMs, maxEntries, JoinRetentionPolicy.DEFAULT_EVICTION_INTERVAL_MS);
+    }
+
     @Override
     public void start() throws Exception {
         log.info("Starting the Rya Streams Query Manager Daemon.");
@@ -35,7 +35,9 @@ import org.apache.rya.streams.kafka.KafkaStreamsFactory;
 import org.apache.rya.streams.kafka.KafkaStreamsFactory.KafkaStreamsFactoryException;
 import org.apache.rya.streams.kafka.KafkaTopics;
 import org.apache.rya.streams.kafka.interactor.CreateKafkaTopic;
+import org.apache.rya.streams.kafka.topology.SharedStatementPattern;
 import org.apache.rya.streams.querymanager.QueryExecutor;
+import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +55,12 @@ import kafka.consumer.KafkaStream;
  * time {@link #startQuery(String, StreamsQuery)} is invoked.
  * <p/>
  * This executor may run out of JVM resources if it is used to execute too many queries.
+ * <p/>
+ * If the executor shares statement patterns, then each distinct statement pattern of the running queries
+ * is matched against the statements by a single job whose results are written to a topic that is read by
+ * every query that uses the pattern. That job is started when the first query that uses the pattern starts
+ * and stopped when the last one stops, so the number of jobs that read the statements grows with the number
+ * of distinct statement patterns instead of the number of queries.
  */
 @DefaultAnnotation(NonNull.class)
 public class LocalQueryExecutor extends AbstractIdleService implements QueryExecutor {
@@ -78,6 +86,21 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
      */
     private final Map<UUID, KafkaStreams> byQueryId = new HashMap<>();
 
+    /**
+     * Lookup the executing {@link KafkaStreams} job for a shared statement pattern's topic.
+     */
+    private final Map<String, KafkaStreams> bySharedPatternTopic = new HashMap<>();
+
+    /**
+     * Lookup the Query IDs that are reading from a shared statement pattern's topic.
+     */
+    private final Multimap<String, UUID> idBySharedPatternTopic = HashMultimap.create();
+
+    /**
+     * Lookup the shared statement pattern topics a Query ID is reading from.
+     */
+    private final Multimap<UUID, String> sharedPatternTopicById = HashMultimap.create();
+
     /**
      * Used to create the input and output topics for a Kafka Streams job.
      */
@@ -89,7 +112,12 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
     private final KafkaStreamsFactory streamsFactory;
 
     /**
-     * Constructs an instance of {@link LocalQueryExecutor}.
+     * Whether the statement patterns of the queries are matched by shared jobs.
+     */
+    private final boolean shareStatementPatterns;
+
+    /**
+     * Constructs an instance of {@link LocalQueryExecutor} that does not share statement patterns between queries.
      *
      * @param createKafkaTopic - Used to create the input and output topics for a Kafka Streams job. (not null)
      * @param streamsFactory - Builds the {@link KafkaStreams} objects that execute {@link KafkaStream}s. (not null)
@@ -97,8 +125,24 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
     public LocalQueryExecutor(
             final CreateKafkaTopic createKafkaTopic,
             final KafkaStreamsFactory streamsFactory) {
+        this(createKafkaTopic, streamsFactory, false);
+    }
+
+    /**
+     * Constructs an instance of {@link LocalQueryExecutor}.
+     *
+     * @param createKafkaTopic - Used to create the input and output topics for a Kafka Streams job. (not null)
+     * @param streamsFactory - Builds the {@link KafkaStreams} objects that execute {@link KafkaStream}s. (not null)
+     * @param shareStatementPatterns - {@code true} if the statement patterns of the queries are matched by jobs
+     *   that are shared by every query that uses them; {@code false} if each query matches its own.
+     */
+    public LocalQueryExecutor(
+            final CreateKafkaTopic createKafkaTopic,
+            final KafkaStreamsFactory streamsFactory,
+            final boolean shareStatementPatterns) {
         this.createKafkaTopic = requireNonNull(createKafkaTopic);
         this.streamsFactory = requireNonNull(streamsFactory);
+        this.shareStatementPatterns = shareStatementPatterns;
     }
 
     @Override
@@ -115,6 +159,11 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
             job.close();
         }
 
+        // Stop all of the shared statement pattern jobs.
+        for(final KafkaStreams job : bySharedPatternTopic.values()) {
+            job.close();
+        }
+
         log.info("Local Query Executor shut down.");
     }
 
@@ -125,19 +174,47 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
         checkState(state() == State.RUNNING, "The service must be RUNNING to execute this method.");
 
         lock.lock();
+        final Set<String> patternTopics = new HashSet<>();
+        KafkaStreams streams = null;
+        boolean started = false;
         try {
             // Make sure the Statements topic exists for the query.
             final Set<String> topics = Sets.newHashSet(
                     KafkaTopics.statementsTopic(ryaInstance),
                     KafkaTopics.queryResultsTopic(ryaInstance, query.getQueryId()));
 
+            // Make sure the topics of the query's shared statement patterns exist.
+            final Map<UUID, SharedStatementPattern> patterns = shareStatementPatterns ?
+                    SharedStatementPattern.find(query.getSparql()) : new HashMap<>();
+            for(final UUID patternId : patterns.keySet()) {
+                topics.add( KafkaTopics.sharedStatementPatternTopic(ryaInstance, patternId) );
+            }
+
             // Make sure the Query Results topic exists for the query.
             // Since this is running in the JVM, the properties are left empty
             //   so the cleanup.policy will default to delete to reduce memory usage.
             createKafkaTopic.createTopics(topics, 1, 1, Optional.empty());
 
+            // Start the jobs of any shared statement patterns that are not already running.
+            for(final SharedStatementPattern pattern : patterns.values()) {
+                final String patternTopic = KafkaTopics.sharedStatementPatternTopic(ryaInstance, pattern.getId());
+                patternTopics.add(patternTopic);
+                if(!bySharedPatternTopic.containsKey(patternTopic)) {
+                    log.info("Starting the shared statement pattern job for " + patternTopic);
+                    final KafkaStreams patternStreams = streamsFactory.make(ryaInstance, pattern);
+                    bySharedPatternTopic.put(patternTopic, patternStreams);
+                    patternStreams.start();
+                }
+
+                // Attach the query to the pattern.
+                idBySharedPatternTopic.put(patternTopic, query.getQueryId());
+                sharedPatternTopicById.put(query.getQueryId(), patternTopic);
+            }
+
             // Setup the Kafka Streams job that will execute.
-            final KafkaStreams streams = streamsFactory.make(ryaInstance, query);
+            streams = shareStatementPatterns ?
+                    streamsFactory.makeSharingStatementPatterns(ryaInstance, query) :
+                    streamsFactory.make(ryaInstance, query);
             streams.start();
 
             // Mark which Rya Instance the Query ID is for.
@@ -148,11 +225,22 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
 
             // Add the running Kafka Streams job for the Query ID.
             byQueryId.put(query.getQueryId(), streams);
+            started = true;
 
-        } catch (final KafkaStreamsFactoryException e) {
+        } catch (final KafkaStreamsFactoryException | MalformedQueryException e) {
             throw new QueryExecutorException("Could not start query " + query.getQueryId(), e);
         } finally {
-            lock.unlock();
+            try {
+                if(!started) {
+                    // Do not leave behind a job or shared statement pattern jobs that nothing uses.
+                    if(streams != null) {
+                        streams.close();
+                    }
+                    releaseSharedPatterns(query.getQueryId(), patternTopics);
+                }
+            } finally {
+                lock.unlock();
+            }
         }
     }
 
@@ -176,12 +264,33 @@ public class LocalQueryExecutor extends AbstractIdleService implements QueryExec
 
                 // Remove it from the running Kafka Streams job lookup.
                 byQueryId.remove(queryId);
+
+                // Detach it from its shared statement patterns and stop the jobs no other query uses.
+                releaseSharedPatterns(queryId, new HashSet<>(sharedPatternTopicById.get(queryId)));
             }
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Detaches a query from shared statement patterns and stops the pattern jobs that no other query uses.
+     * The caller must hold the {@link #lock}.
+     *
+     * @param queryId - The ID of the query. (not null)
+     * @param patternTopics - The topics of the shared statement patterns the query is detached from. (not null)
+     */
+    private void releaseSharedPatterns(final UUID queryId, final Set<String> patternTopics) {
+        for(final String patternTopic : patternTopics) {
+            idBySharedPatternTopic.remove(patternTopic, queryId);
+            sharedPatternTopicById.remove(queryId, patternTopic);
+            if(!idBySharedPatternTopic.containsKey(patternTopic) && bySharedPatternTopic.containsKey(patternTopic)) {
+                log.info("Stopping the shared statement pattern job for " + patternTopic);
+                bySharedPatternTopic.remove(patternTopic).close();
+            }
+        }
+    }
+
     @Override
     public void stopAll(final String ryaInstanceName) throws QueryExecutorException {
         requireNonNull(ryaInstanceName);
@@ -20,9 +20,13 @@ package org.apache.rya.streams.querymanager.kafka;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -33,6 +37,7 @@ import org.apache.kafka.streams.KafkaStreams;
 import org.apache.rya.streams.api.entity.StreamsQuery;
 import org.apache.rya.streams.kafka.KafkaStreamsFactory;
 import org.apache.rya.streams.kafka.interactor.CreateKafkaTopic;
+import org.apache.rya.streams.kafka.topology.SharedStatementPattern;
 import org.apache.rya.streams.querymanager.QueryExecutor;
 import org.junit.Test;
 
@@ -121,6 +126,86 @@ public class LocalQueryExecutorTest {
         }
     }
 
+    @Test
+    public void stopQuery_sharedStatementPatterns() throws Exception {
+        // Test values. Both queries use the same statement pattern, but with different variable names.
+        final String ryaInstance = "rya";
+        final StreamsQuery query1 = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?a <urn:talksTo> ?b. }", true, false);
+        final StreamsQuery query2 = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?x <urn:talksTo> ?y. }", true, false);
+
+        // Mock the streams factory so that we can tell which jobs are started and stopped.
+        final KafkaStreamsFactory jobFactory = mock(KafkaStreamsFactory.class);
+        final KafkaStreams queryJob1 = mock(KafkaStreams.class);
+        final KafkaStreams queryJob2 = mock(KafkaStreams.class);
+        final KafkaStreams patternJob = mock(KafkaStreams.class);
+        when(jobFactory.makeSharingStatementPatterns(eq(ryaInstance), eq(query1))).thenReturn(queryJob1);
+        when(jobFactory.makeSharingStatementPatterns(eq(ryaInstance), eq(query2))).thenReturn(queryJob2);
+        when(jobFactory.make(eq(ryaInstance), any(SharedStatementPattern.class))).thenReturn(patternJob);
+
+        // Start the executor that will be tested.
+        final QueryExecutor executor = new LocalQueryExecutor(mock(CreateKafkaTopic.class), jobFactory, true);
+        executor.startAndWait();
+        try {
+            // Tell the executor to start the queries.
+            executor.startQuery(ryaInstance, query1);
+            executor.startQuery(ryaInstance, query2);
+
+            // Show a single job was started for the shared pattern.
+            verify(jobFactory, times(1)).make(eq(ryaInstance), any(SharedStatementPattern.class));
+            verify(patternJob, times(1)).start();
+            verify(queryJob1).start();
+            verify(queryJob2).start();
+
+            // The pattern's job keeps running while a query still uses it.
+            executor.stopQuery(query1.getQueryId());
+            verify(queryJob1).close();
+            verify(patternJob, never()).close();
+
+            // The pattern's job is stopped once the last query that uses it is stopped.
+            executor.stopQuery(query2.getQueryId());
+            verify(queryJob2).close();
+            verify(patternJob).close();
+        } finally {
+            executor.stopAndWait();
+        }
+    }
+
+    @Test
+    public void startQuery_sharedStatementPatterns_failureReleasesPatterns() throws Exception {
+        // Test values.
+        final String ryaInstance = "rya";
+        final StreamsQuery query = new StreamsQuery(UUID.randomUUID(), "SELECT * WHERE { ?a <urn:talksTo> ?b. }", true, false);
+
+        // Mock the streams factory so that the query's job fails to start after its pattern's job has started.
+        final KafkaStreamsFactory jobFactory = mock(KafkaStreamsFactory.class);
+        final KafkaStreams queryJob = mock(KafkaStreams.class);
+        final KafkaStreams patternJob = mock(KafkaStreams.class);
+        when(jobFactory.makeSharingStatementPatterns(eq(ryaInstance), eq(query))).thenReturn(queryJob);
+        when(jobFactory.make(eq(ryaInstance), any(SharedStatementPattern.class))).thenReturn(patternJob);
+        doThrow(new IllegalStateException()).when(queryJob).start();
+
+        // Start the executor that will be tested.
+        final QueryExecutor executor = new LocalQueryExecutor(mock(CreateKafkaTopic.class), jobFactory, true);
+        executor.startAndWait();
+        try {
+            // Tell the executor to start the query.
+            try {
+                executor.startQuery(ryaInstance, query);
+                fail("The query's job should have failed to start.");
+            } catch(final IllegalStateException e) {
+                // Expected.
+            }
+
+            // Show the failed query's job and the pattern job nothing else uses were stopped.
+            verify(patternJob).start();
+            verify(queryJob).close();
+            verify(patternJob).close();
+            assertTrue(executor.getRunningQueryIds().isEmpty());
+        } finally {
+            executor.stopAndWait();
+        }
+    }
+
     @Test(expected = IllegalStateException.class)
     public void stopAll_serviceNotStarted() throws Exception {
         final QueryExecutor executor = new LocalQueryExecutor(mock(CreateKafkaTopic.class), mock(KafkaStreamsFactory.class));
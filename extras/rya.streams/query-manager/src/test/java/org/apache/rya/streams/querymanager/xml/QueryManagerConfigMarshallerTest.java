@@ -18,10 +18,12 @@
  */
 package org.apache.rya.streams.querymanager.xml;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.math.BigInteger;
 
 import javax.xml.bind.UnmarshalException;
 
@@ -63,6 +65,45 @@ public class QueryManagerConfigMarshallerTest {
         assertNotNull(config);
     }
 
+    @Test
+    public void unmarshal_joinRetention() throws Exception {
+        final String xml =
+                "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                "<queryManagerConfig>\n" +
+                "    <queryChangeLogSource>\n" +
+                "        <kafka>\n" +
+                "            <hostname>localhost</hostname>\n" +
+                "            <port>6</port>\n" +
+                "        </kafka>\n" +
+                "    </queryChangeLogSource>\n" +
+                "    <queryExecutor>\n" +
+                "        <localKafkaStreams>\n" +
+                "            <zookeepers>zoo1,zoo2,zoo3</zookeepers>\n" +
+                "            <joinRetention>\n" +
+                "                <maxAge>\n" +
+                "                    <value>5</value>\n" +
+                "                    <units>MINUTES</units>\n" +
+                "                </maxAge>\n" +
+                "                <maxEntries>1000</maxEntries>\n" +
+                "            </joinRetention>\n" +
+                "        </localKafkaStreams>\n" +
+                "    </queryExecutor>\n" +
+                "    <performanceTunning>\n" +
+                "        <queryChanngeLogDiscoveryPeriod>\n" +
+                "            <value>1</value>\n" +
+                "            <units>MINUTES</units>\n" +
+                "        </queryChanngeLogDiscoveryPeriod>\n" +
+                "    </performanceTunning>\n" +
+                "</queryManagerConfig>";
+
+        final InputStream xmlStream = new ByteArrayInputStream(xml.getBytes(Charsets.UTF_8));
+        final JoinRetention joinRetention = QueryManagerConfigUnmarshaller.unmarshall(xmlStream)
+                .getQueryExecutor().getLocalKafkaStreams().getJoinRetention();
+        assertEquals(BigInteger.valueOf(5), joinRetention.getMaxAge().getValue());
+        assertEquals(TimeUnits.MINUTES, joinRetention.getMaxAge().getUnits());
+        assertEquals(BigInteger.valueOf(1000), joinRetention.getMaxEntries());
+    }
+
     @Test(expected = UnmarshalException.class)
     public void unmarshal_invalidXml() throws Exception {
         final String xml =
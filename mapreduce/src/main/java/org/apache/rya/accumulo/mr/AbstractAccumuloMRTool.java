@@ -39,10 +39,13 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.util.Tool;
 import org.apache.rya.accumulo.AccumuloRdfConstants;
+import org.apache.rya.accumulo.bulk.RyaBulkLoader;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreConstants;
 import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
 import org.apache.rya.api.RdfCloudTripleStoreUtils;
+import org.apache.rya.api.layout.TablePrefixLayoutStrategy;
+import org.apache.rya.api.resolver.RyaTripleContext;
 import org.apache.rya.indexing.accumulo.ConfigUtils;
 import org.eclipse.rdf4j.rio.RDFFormat;
 
@@ -57,7 +60,8 @@ import com.google.common.base.Preconditions;
  * RDF files.
  * <p>
  * Can be configured to send output either by inserting RyaStatementWritables to
- * a Rya instance, or by writing arbitrary
+ * a Rya instance, by writing them to RFiles that are bulk imported into a Rya
+ * instance, or by writing arbitrary
  * {@link org.apache.accumulo.core.data.Mutation}s directly to Accumulo tables.
  */
 public abstract class AbstractAccumuloMRTool implements Tool {
@@ -105,6 +109,8 @@ public abstract class AbstractAccumuloMRTool implements Tool {
      * configuration properties.
      */
     protected void init() {
+        // The tasks read and write the core tables without the instance's term dictionary
+        RyaTripleContext.checkNotDictionaryEncoded(conf, getClass().getSimpleName());
         // Load configuration parameters
         zk = MRUtils.getACZK(conf);
         instance = MRUtils.getACInstance(conf);
@@ -283,6 +289,36 @@ public abstract class AbstractAccumuloMRTool implements Tool {
         }
     }
 
+    /**
+     * Sets up bulk Rya output for a job: allows the job to write
+     * {@link RyaStatementWritable} data, which will be written to sorted
+     * RFiles under the given directory. Call {@link #importRyaBulkOutput(Path)}
+     * once the job has finished to import them into the configured Rya
+     * instance. Secondary indexes are not written.
+     * @param   job Job to configure
+     * @param   outputDir Directory to write the RFiles to. Must not exist yet.
+     */
+    protected void setupRyaBulkOutput(Job job, Path outputDir) {
+        job.setOutputFormatClass(RyaBulkOutputFormat.class);
+        job.setOutputValueClass(RyaStatementWritable.class);
+        // Specify default visibility of output rows, if given
+        RyaOutputFormat.setDefaultVisibility(job, conf.get(MRUtils.AC_CV_PROP));
+        // Specify named graph, if given
+        RyaOutputFormat.setDefaultContext(job, conf.get(MRUtils.NAMED_GRAPH_PROP));
+        RyaBulkOutputFormat.setOutputPath(job, outputDir);
+    }
+
+    /**
+     * Imports the RFiles written by a job configured with
+     * {@link #setupRyaBulkOutput(Job, Path)} into the configured Rya instance.
+     * @param   outputDir Directory the job wrote the RFiles to.
+     * @throws  Exception if connecting to Accumulo or importing the files fails.
+     */
+    protected void importRyaBulkOutput(Path outputDir) throws Exception {
+        RyaBulkLoader.importDirectory(getConnector(), new TablePrefixLayoutStrategy(tablePrefix),
+                outputDir.getFileSystem(conf), outputDir);
+    }
+
     /**
      * Connects to Accumulo, using the stored connection parameters.
      * @return  A Connector to an Accumulo instance, which could be a mock
@@ -110,6 +110,12 @@ public class MRUtils {
      * new statements.
      */
     public static final String NAMED_GRAPH_PROP = "rdf.graph";
+    /**
+     * Property name for a directory to write sorted RFiles to. If set, tools
+     * that insert statements bulk import those files into the core Rya tables
+     * instead of writing through batch writers, and skip secondary indexing.
+     */
+    public static final String AC_BULK_DIR_PROP = "ac.bulk.dir";
 
     public static final String AC_TABLE_PROP = "ac.table";
     public static final String HADOOP_IO_SORT_MB = "io.sort.mb";
@@ -0,0 +1,121 @@
+package org.apache.rya.accumulo.mr;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.bulk.RyaBulkLoader;
+import org.apache.rya.accumulo.bulk.RyaBulkWriter;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.resolver.RyaTripleContext;
+
+/**
+ * {@link OutputFormat} that writes statements to sorted RFiles under the job's
+ * output path instead of writing them to Rya. Each task writes one RFile for
+ * each of the SPO, PO, and OSP tables, which can be bulk imported into Rya with
+ * {@link RyaBulkLoader#importDirectory} once the job has finished. Secondary
+ * indexes are not written.
+ * <p>
+ * The default visibility and context of the statements are configured the same
+ * way they are for {@link RyaOutputFormat}.
+ */
+public class RyaBulkOutputFormat extends FileOutputFormat<Writable, RyaStatementWritable> {
+
+    /**
+     * Fails before the job is submitted if it is configured for a dictionary
+     * encoded Rya instance, since the RFiles are written without its term dictionary.
+     * @param   context     Context of the MapReduce job
+     * @throws  IOException if the output directory is invalid
+     */
+    @Override
+    public void checkOutputSpecs(final JobContext context) throws IOException {
+        RyaTripleContext.checkNotDictionaryEncoded(context.getConfiguration(), getClass().getSimpleName());
+        super.checkOutputSpecs(context);
+    }
+
+    /**
+     * Get this OutputFormat's RecordWriter.
+     * @param   context     Context of the MapReduce task
+     * @return  A RecordWriter that writes statements to the task's RFiles.
+     * @throws  IOException if the task's output path can't be accessed
+     */
+    @Override
+    public RecordWriter<Writable, RyaStatementWritable> getRecordWriter(final TaskAttemptContext context) throws IOException {
+        final Configuration conf = context.getConfiguration();
+        final AccumuloRdfConfiguration ryaConf = new AccumuloRdfConfiguration(conf);
+        final Path workPath = ((FileOutputCommitter) getOutputCommitter(context)).getWorkPath();
+        final RyaBulkWriter writer = new RyaBulkWriter(RyaTripleContext.getInstance(ryaConf), workPath.getFileSystem(conf),
+                workPath, getUniqueFile(context, "statements", ""), new File(ryaConf.getBulkLocalDir()),
+                ryaConf.getBulkSortBufferSize());
+        return new RyaBulkRecordWriter(writer, conf);
+    }
+
+    /**
+     * RecordWriter that takes in {@link RyaStatementWritable}s and writes them
+     * to a {@link RyaBulkWriter}. The RFiles are written when it is closed.
+     */
+    private static class RyaBulkRecordWriter extends RecordWriter<Writable, RyaStatementWritable> {
+        private final RyaBulkWriter writer;
+        private byte[] cv = null;
+        private RyaIRI defaultContext = null;
+
+        private RyaBulkRecordWriter(final RyaBulkWriter writer, final Configuration conf) {
+            this.writer = writer;
+            final String visibility = conf.get(RyaOutputFormat.CV_PROPERTY);
+            if (visibility != null) {
+                cv = visibility.getBytes(StandardCharsets.UTF_8);
+            }
+            final String context = conf.get(RyaOutputFormat.CONTEXT_PROPERTY, "");
+            if (!context.isEmpty()) {
+                defaultContext = new RyaIRI(context);
+            }
+        }
+
+        @Override
+        public void write(final Writable key, final RyaStatementWritable value) throws IOException {
+            final RyaStatement ryaStatement = value.getRyaStatement();
+            if (ryaStatement.getColumnVisibility() == null) {
+                ryaStatement.setColumnVisibility(cv);
+            }
+            if (ryaStatement.getContext() == null) {
+                ryaStatement.setContext(defaultContext);
+            }
+            writer.write(ryaStatement);
+        }
+
+        @Override
+        public void close(final TaskAttemptContext context) throws IOException {
+            writer.close();
+        }
+    }
+}
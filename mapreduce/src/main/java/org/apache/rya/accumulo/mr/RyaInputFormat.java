@@ -20,6 +20,7 @@ package org.apache.rya.accumulo.mr;
  */
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map.Entry;
 
 import org.apache.accumulo.core.client.Scanner;
@@ -31,6 +32,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
@@ -59,6 +61,19 @@ public class RyaInputFormat extends AbstractInputFormat<Text, RyaStatementWritab
         return new RyaStatementRecordReader();
     }
 
+    /**
+     * Fails before the job is submitted if it is configured for a dictionary
+     * encoded Rya instance, whose rows the record readers can not decode.
+     * @param   context The context of the job.
+     * @return  The splits of the Rya table being read.
+     * @throws  IOException if thrown by the superclass's getSplits method.
+     */
+    @Override
+    public List<InputSplit> getSplits(JobContext context) throws IOException {
+        RyaTripleContext.checkNotDictionaryEncoded(context.getConfiguration(), getClass().getSimpleName());
+        return super.getSplits(context);
+    }
+
     /**
      * Sets the table layout to use.
      * @param conf  Configuration to set the layout in.
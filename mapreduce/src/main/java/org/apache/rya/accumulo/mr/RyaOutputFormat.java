@@ -85,8 +85,8 @@ public class RyaOutputFormat extends OutputFormat<Writable, RyaStatementWritable
     private static final String ENABLE_ENTITY = PREFIX + ".entity.enable";
     private static final String ENABLE_CORE = PREFIX + ".coretables.enable";
     private static final String OUTPUT_PREFIX_PROPERTY = PREFIX + ".tablePrefix";
-    private static final String CV_PROPERTY = PREFIX + ".cv.default";
-    private static final String CONTEXT_PROPERTY = PREFIX + ".context";
+    static final String CV_PROPERTY = PREFIX + ".cv.default";
+    static final String CONTEXT_PROPERTY = PREFIX + ".context";
 
     /**
      * Set the default visibility of output: any statement whose visibility is
@@ -178,6 +178,8 @@ public class RyaOutputFormat extends OutputFormat<Writable, RyaStatementWritable
     @Override
     public void checkOutputSpecs(final JobContext jobContext) throws IOException {
         final Configuration conf = jobContext.getConfiguration();
+        // the core tables are written without the instance's term dictionary
+        RyaTripleContext.checkNotDictionaryEncoded(conf, getClass().getSimpleName());
         // make sure that all of the indexers can connect
         getFreeTextIndexer(conf);
         getTemporalIndexer(conf);
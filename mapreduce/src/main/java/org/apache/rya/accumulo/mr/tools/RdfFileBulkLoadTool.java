@@ -0,0 +1,149 @@
+package org.apache.rya.accumulo.mr.tools;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.bulk.RyaBulkLoader;
+import org.apache.rya.accumulo.bulk.RyaBulkWriter;
+import org.apache.rya.accumulo.mr.AbstractAccumuloMRTool;
+import org.apache.rya.accumulo.mr.MRUtils;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.resolver.RdfToRyaConversions;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads RDF data from one or more file(s) in a single process and bulk loads
+ * the statements into the core Rya tables with a {@link RyaBulkLoader}. Use
+ * {@link RdfFileInputTool} with {@link MRUtils#AC_BULK_DIR_PROP} set to do the
+ * same with a MapReduce job.
+ * <p>
+ * Takes two arguments: a comma separated list of the files or directories to
+ * read, and a directory that does not exist yet, where the RFiles are staged.
+ * Both are resolved against the default Hadoop file system.
+ * <p>
+ * Expects configuration:
+ * <p>
+ * - RDF format, named by parameter "rdf.format"; see {@link RDFFormat}. If not
+ *   given, the format is guessed from each file's name.
+ * <p>
+ * - Accumulo and Rya configuration parameters as named in {@link MRUtils}
+ *   (username, password, instance name, zookeepers, and Rya prefix)
+ * <p>
+ * - Bulk load parameters as named in {@link AccumuloRdfConfiguration} (the size
+ *   of the sort buffer and the local directory sorted rows are spilled to).
+ */
+public class RdfFileBulkLoadTool extends AbstractAccumuloMRTool implements Tool {
+    public static void main(String[] args) {
+        try {
+            ToolRunner.run(new Configuration(), new RdfFileBulkLoadTool(), args);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public int run(String[] args) throws Exception {
+        init();
+        String inputPaths = conf.get(MRUtils.INPUT_PATH, args[0]);
+        String workDirName = conf.get(MRUtils.AC_BULK_DIR_PROP, args.length > 1 ? args[1] : null);
+        Preconditions.checkNotNull(workDirName, "Bulk load directory [" + MRUtils.AC_BULK_DIR_PROP + "] not set.");
+        Path workDir = new Path(workDirName);
+
+        AccumuloRdfConfiguration ryaConf = new AccumuloRdfConfiguration(conf);
+        ryaConf.setTablePrefix(tablePrefix);
+        RyaBulkLoader loader = new RyaBulkLoader(getConnector(), ryaConf, workDir.getFileSystem(conf), workDir);
+
+        Date startTime = new Date();
+        System.out.println("Load started: " + startTime);
+        long n = loader.load(writer -> {
+            for (String inputPath : inputPaths.split(",")) {
+                Path path = new Path(inputPath.trim());
+                FileSystem fs = path.getFileSystem(conf);
+                for (FileStatus file : fs.listStatus(path)) {
+                    if (file.isFile()) {
+                        parse(fs, file.getPath(), writer);
+                    }
+                }
+            }
+        });
+        Date endTime = new Date();
+        System.out.println("Load ended: " + endTime);
+        System.out.println("The load took " + (endTime.getTime() - startTime.getTime()) / 1000 + " seconds.");
+        System.out.println(n + " statement(s) inserted to Rya.");
+        return 0;
+    }
+
+    private void parse(FileSystem fs, Path file, RyaBulkWriter writer) throws IOException {
+        RDFFormat format = MRUtils.getRDFFormat(conf);
+        if (format == null) {
+            format = Rio.getParserFormatForFileName(file.getName()).orElse(RDFFormat.RDFXML);
+        }
+        String cv = conf.get(MRUtils.AC_CV_PROP);
+        String context = conf.get(MRUtils.NAMED_GRAPH_PROP);
+        RDFParser parser = Rio.createParser(format);
+        parser.setRDFHandler(new AbstractRDFHandler() {
+            @Override
+            public void handleStatement(Statement statement) throws RDFHandlerException {
+                RyaStatement ryaStatement = RdfToRyaConversions.convertStatement(statement);
+                if (ryaStatement.getColumnVisibility() == null && cv != null) {
+                    ryaStatement.setColumnVisibility(cv.getBytes(StandardCharsets.UTF_8));
+                }
+                if (ryaStatement.getContext() == null && context != null) {
+                    ryaStatement.setContext(new RyaIRI(context));
+                }
+                try {
+                    writer.write(ryaStatement);
+                } catch (IOException e) {
+                    throw new RDFHandlerException(e);
+                }
+            }
+        });
+        try (InputStream in = fs.open(file)) {
+            parser.parse(in, file.toString());
+        } catch (RDFHandlerException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not parse " + file, e);
+        } catch (RDFParseException e) {
+            throw new IOException("Could not parse " + file, e);
+        }
+    }
+}
@@ -22,6 +22,7 @@ package org.apache.rya.accumulo.mr.tools;
 import java.util.Date;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
@@ -48,6 +49,11 @@ import org.eclipse.rdf4j.rio.RDFFormat;
  *   {@link org.apache.rya.indexing.accumulo.ConfigUtils} (enable or disable freetext,
  *   geo, temporal, and entity indexing, and specify predicates for each
  *   indexer). If not given, no secondary indexing is done.
+ * <p>
+ * - Optionally, a directory named by parameter "ac.bulk.dir"; see
+ *   {@link MRUtils#AC_BULK_DIR_PROP}. If given, the statements are written to
+ *   sorted RFiles in that directory and bulk imported into the core tables once
+ *   the job finishes. No secondary indexing is done in that case.
  */
 public class RdfFileInputTool extends AbstractAccumuloMRTool implements Tool {
     public static void main(String[] args) {
@@ -66,12 +72,20 @@ public class RdfFileInputTool extends AbstractAccumuloMRTool implements Tool {
 
         String inputPath = conf.get(MRUtils.INPUT_PATH, args[0]);
         setupFileInputs(job, inputPath, RDFFormat.RDFXML);
-        setupRyaOutput(job);
+        String bulkDir = conf.get(MRUtils.AC_BULK_DIR_PROP);
+        if (bulkDir != null) {
+            setupRyaBulkOutput(job, new Path(bulkDir));
+        } else {
+            setupRyaOutput(job);
+        }
         job.setNumReduceTasks(0);
 
         Date startTime = new Date();
         System.out.println("Job started: " + startTime);
         int exitCode = job.waitForCompletion(true) ? 0 : 1;
+        if (exitCode == 0 && bulkDir != null) {
+            importRyaBulkOutput(new Path(bulkDir));
+        }
 
         if (exitCode == 0) {
             Date end_time = new Date();
@@ -19,6 +19,8 @@ package org.apache.rya.accumulo.mr.tools;
  * under the License.
  */
 
+import java.io.File;
+
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.client.admin.SecurityOperations;
 import org.apache.accumulo.core.client.mock.MockInstance;
@@ -34,7 +36,9 @@ import org.apache.rya.api.domain.RyaType;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Created by IntelliJ IDEA.
@@ -51,6 +55,9 @@ public class RdfFileInputToolTest {
     private Authorizations auths = new Authorizations("test_auths");
     private Connector connector;
 
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
     @Before
     public void setUp() throws Exception {
         connector = new MockInstance(instance).getConnector(user, new PasswordToken(pwd));
@@ -152,4 +159,34 @@ public class RdfFileInputToolTest {
         conf.setAuths(auths.toString());
         TestUtils.verify(connector, conf, rs);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBulkImport() throws Exception {
+        String bulkDir = new File(tempDir.getRoot(), "bulk").getAbsolutePath();
+        RdfFileInputTool.main(new String[]{
+                "-Dac.mock=true",
+                "-Dac.instance=" + instance,
+                "-Dac.username=" + user,
+                "-Dac.pwd=" + pwd,
+                "-Dac.auth=" + auths.toString(),
+                "-Dac.cv=" + auths.toString(),
+                "-Dac.bulk.dir=" + bulkDir,
+                "-Dac.bulk.localdir=" + tempDir.getRoot().getAbsolutePath(),
+                "-Drdf.tablePrefix=" + tablePrefix,
+                "-Drdf.format=" + RDFFormat.NTRIPLES.getName(),
+                "src/test/resources/test.ntriples,src/test/resources/test2.ntriples",
+        });
+        RyaStatement rs1 = new RyaStatement(new RyaIRI("urn:lubm:rdfts#GraduateStudent01"),
+                new RyaIRI("urn:lubm:rdfts#hasFriend"),
+                new RyaIRI("urn:lubm:rdfts#GraduateStudent02"));
+        RyaStatement rs2 = new RyaStatement(new RyaIRI("urn:lubm:rdfts#GraduateStudent05"),
+                new RyaIRI("urn:lubm:rdfts#hasFriend"),
+                new RyaIRI("urn:lubm:rdfts#GraduateStudent07"));
+        rs1.setColumnVisibility(auths.toString().getBytes());
+        rs2.setColumnVisibility(auths.toString().getBytes());
+        AccumuloRdfConfiguration conf = new AccumuloRdfConfiguration();
+        conf.setTablePrefix(tablePrefix);
+        conf.setAuths(auths.toString());
+        TestUtils.verify(connector, conf, rs1, rs2);
+    }
+}
@@ -107,6 +107,7 @@ public class StatementPatternStorage extends AccumuloStorage {
     @Override
     protected void setLocationFromUri(String uri, Job job) throws IOException {
         super.setLocationFromUri(uri, job);
+        RyaTripleContext.checkNotDictionaryEncoded(job.getConfiguration(), getClass().getSimpleName());
         // ex: accumulo://tablePrefix?instance=myinstance&user=root&password=secret&zookeepers=127.0.0.1:2181&auths=PRIVATE,PUBLIC&subject=a&predicate=b&object=c&context=c&infer=true
         addStatementPatternRange(subject, predicate, object, context);
         if (infer) {
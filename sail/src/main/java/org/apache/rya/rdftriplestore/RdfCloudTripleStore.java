@@ -21,6 +21,7 @@ package org.apache.rya.rdftriplestore;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.persist.CachingRdfEvalStatsDAO;
 import org.apache.rya.api.persist.RdfEvalStatsDAO;
 import org.apache.rya.api.persist.RyaDAO;
 import org.apache.rya.api.persist.RyaDAOException;
@@ -76,6 +77,11 @@ public class RdfCloudTripleStore<C extends RdfCloudTripleStoreConfiguration> ext
             rdfEvalStatsDAO.init();
         }
 
+        // Cache the cardinalities so repeated query plans do not scan the statistics tables again.
+        if (rdfEvalStatsDAO != null && !(rdfEvalStatsDAO instanceof CachingRdfEvalStatsDAO) && this.conf.getStatsCacheSize() > 0) {
+            rdfEvalStatsDAO = new CachingRdfEvalStatsDAO<>(rdfEvalStatsDAO, this.conf.getStatsCacheSize(), this.conf.getStatsCacheRefreshMs());
+        }
+
         if (namespaceManager == null) {
             this.namespaceManager = new NamespaceManager(ryaDAO, this.conf);
         }
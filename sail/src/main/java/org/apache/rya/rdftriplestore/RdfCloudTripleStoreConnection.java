@@ -40,9 +40,13 @@ import org.apache.rya.api.persist.RdfEvalStatsDAO;
 import org.apache.rya.api.persist.RyaDAO;
 import org.apache.rya.api.persist.RyaDAOException;
 import org.apache.rya.api.persist.joinselect.SelectivityEvalDAO;
+import org.apache.rya.api.persist.query.StarJoinQueryEngine;
 import org.apache.rya.api.persist.utils.RyaDAOHelper;
 import org.apache.rya.api.resolver.RdfToRyaConversions;
+import org.apache.rya.api.resolver.RyaTripleContext;
 import org.apache.rya.rdftriplestore.evaluation.FilterRangeVisitor;
+import org.apache.rya.rdftriplestore.evaluation.MergeJoinVisitor;
+import org.apache.rya.rdftriplestore.evaluation.StarJoinVisitor;
 import org.apache.rya.rdftriplestore.evaluation.ParallelEvaluationStrategyImpl;
 import org.apache.rya.rdftriplestore.evaluation.QueryJoinOptimizer;
 import org.apache.rya.rdftriplestore.evaluation.QueryJoinSelectOptimizer;
@@ -404,6 +408,16 @@ public class RdfCloudTripleStoreConnection<C extends RdfCloudTripleStoreConfigur
                     qjo.optimize(tupleExpr, dataset, bindings); // TODO: Make pluggable
                 }
             }
+            if (queryConf.isStarJoin() && dataset == null && ryaDAO.getQueryEngine() instanceof StarJoinQueryEngine
+                    && !queryConf.isPrefixRowsWithHash() && !queryConf.isDictionaryEncoded()) {
+                // stars are found after the joins are ordered, so their patterns are next to each other in the join order
+                tupleExpr.visit(new StarJoinVisitor<C>((StarJoinQueryEngine<C>) ryaDAO.getQueryEngine(), queryConf));
+            }
+            if (queryConf.isMergeJoin() && !queryConf.isPrefixRowsWithHash() && !queryConf.isDictionaryEncoded()) {
+                // joins are merged after they are ordered; the default statistics only order patterns, so they can not cost a merge
+                final EvaluationStatistics mergeStats = (stats instanceof DefaultStatistics) ? null : stats;
+                tupleExpr.visit(new MergeJoinVisitor(mergeStats, RyaTripleContext.getInstance(queryConf)));
+            }
 
             final CloseableIteration<BindingSet, QueryEvaluationException> iter = strategy
                     .evaluate(tupleExpr, EmptyBindingSet.getInstance());
@@ -0,0 +1,49 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+
+/**
+ * A {@link Join} of two statement patterns whose scans are both sorted on the
+ * variable they share. Instead of looking up the right pattern once for every
+ * binding set of the left pattern, each pattern is scanned once and the two
+ * scans are merged. These joins are placed by {@link MergeJoinVisitor}.
+ * <p>
+ * Whether the scans are sorted depends on which of the patterns' variables are
+ * bound, so the join falls back to a nested loop join when it is evaluated with
+ * binding sets that change the order of either scan.
+ */
+public class MergeJoin extends Join {
+
+    /**
+     * @param leftArg - The left statement pattern. (not null)
+     * @param rightArg - The right statement pattern. (not null)
+     */
+    public MergeJoin(final StatementPattern leftArg, final StatementPattern rightArg) {
+        super(leftArg, rightArg);
+    }
+
+    @Override
+    public MergeJoin clone() {
+        return (MergeJoin) super.clone();
+    }
+}
@@ -0,0 +1,343 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.rya.api.RdfCloudTripleStoreConstants.TABLE_LAYOUT;
+import org.apache.rya.api.domain.RangeIRI;
+import org.apache.rya.api.domain.RangeValue;
+import org.apache.rya.api.query.strategy.TriplePatternStrategy;
+import org.apache.rya.api.resolver.RdfToRyaConversions;
+import org.apache.rya.api.resolver.RyaContext;
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.api.resolver.RyaTypeResolverException;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Evaluates a {@link MergeJoin} by scanning each of its statement patterns once
+ * and merging the two scans on the variable they share. A scan is sorted on the
+ * first unbound position of the table it reads, so the join is only possible
+ * when that position holds the same variable in both patterns, for example the
+ * subjects of {@code ?s :p1 :o1 . ?s :p2 :o2} or the objects of
+ * {@code ?a :p1 ?o . ?b :p2 ?o}, which are both read from the PO table.
+ * <p>
+ * The statements of the right pattern that share a key are held in memory while
+ * they are joined with the statements of the left pattern that have that key.
+ */
+public class MergeJoinIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+    private static final int SUBJECT = 0;
+    private static final int PREDICATE = 1;
+    private static final int OBJECT = 2;
+
+    private static final Comparator<byte[]> KEY_ORDER = UnsignedBytes.lexicographicalComparator();
+
+    private final BindingSet bindings;
+    private final StatementPatternBinder leftBinder;
+    private final StatementPatternBinder rightBinder;
+    private final SortedScan left;
+    private final SortedScan right;
+
+    private int leftIndex = 0;
+    private int rightIndex = 0;
+    private BindingSet leftResult = null;
+
+    /**
+     * @param tripleSource - Scans the statements of the patterns. The statements
+     *   of each scan must be returned in the order of the rows of their table.
+     * @param context - Decides which table each pattern is read from. (not null)
+     * @param join - The join to evaluate. It must be mergeable for {@code bindings}.
+     * @param bindings - The binding set the join is evaluated with. (not null)
+     * @throws QueryEvaluationException The join can not be merged for {@code bindings}.
+     * @see #isMergeable(StatementPattern, StatementPattern, BindingSet, RyaTripleContext)
+     */
+    public MergeJoinIterator(final TripleSource tripleSource, final RyaTripleContext context,
+            final MergeJoin join, final BindingSet bindings) throws QueryEvaluationException {
+        final StatementPattern leftPattern = (StatementPattern) join.getLeftArg();
+        final StatementPattern rightPattern = (StatementPattern) join.getRightArg();
+        final int leftPosition = getSortPosition(leftPattern, bindings, context);
+        final int rightPosition = getSortPosition(rightPattern, bindings, context);
+        if (!isMergeable(leftPattern, leftPosition, rightPattern, rightPosition)) {
+            throw new QueryEvaluationException("The scans of " + join + " are not sorted on a shared variable.");
+        }
+        this.bindings = bindings;
+        leftBinder = new StatementPatternBinder(leftPattern);
+        rightBinder = new StatementPatternBinder(rightPattern);
+        left = new SortedScan(scan(tripleSource, leftPattern, bindings), leftPosition);
+        try {
+            right = new SortedScan(scan(tripleSource, rightPattern, bindings), rightPosition);
+        } catch (final QueryEvaluationException e) {
+            left.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param left - The left statement pattern of a join. (not null)
+     * @param right - The right statement pattern of a join. (not null)
+     * @param bindings - The binding set the join would be evaluated with. (not null)
+     * @param context - Decides which table each pattern is read from. (not null)
+     * @return {@code true} if the scans of both patterns are sorted on the same
+     *   variable when they are evaluated with {@code bindings}; otherwise {@code false}.
+     */
+    public static boolean isMergeable(final StatementPattern left, final StatementPattern right,
+            final BindingSet bindings, final RyaTripleContext context) {
+        return isMergeable(left, getSortPosition(left, bindings, context), right, getSortPosition(right, bindings, context));
+    }
+
+    private static boolean isMergeable(final StatementPattern left, final int leftPosition,
+            final StatementPattern right, final int rightPosition) {
+        return leftPosition >= 0 && rightPosition >= 0
+                && getVar(left, leftPosition).getName().equals(getVar(right, rightPosition).getName());
+    }
+
+    /**
+     * @return The position of the pattern that its scan is sorted on, or -1 if
+     *   the scan's order is unknown or no position is left unbound.
+     */
+    private static int getSortPosition(final StatementPattern sp, final BindingSet bindings, final RyaTripleContext context) {
+        // subclasses such as FixedStatementPattern are not read from the tables
+        if (sp.getClass() != StatementPattern.class || sp.getContextVar() != null) {
+            return -1;
+        }
+        final Set<String> names = new HashSet<>();
+        final Value[] values = new Value[3];
+        for (int position = SUBJECT; position <= OBJECT; position++) {
+            final Var var = getVar(sp, position);
+            values[position] = getValue(var, bindings);
+            // a variable repeated within the pattern is not checked by the scan
+            if (!var.isConstant() && !names.add(var.getName())) {
+                return -1;
+            }
+            if (values[position] instanceof RangeValue || values[position] instanceof RangeIRI) {
+                return -1;
+            }
+        }
+        if ((values[SUBJECT] != null && !(values[SUBJECT] instanceof Resource))
+                || (values[PREDICATE] != null && !(values[PREDICATE] instanceof IRI))) {
+            return -1;
+        }
+        final TriplePatternStrategy strategy = context.retrieveStrategy(
+                RdfToRyaConversions.convertResource((Resource) values[SUBJECT]),
+                RdfToRyaConversions.convertIRI((IRI) values[PREDICATE]),
+                RdfToRyaConversions.convertValue(values[OBJECT]), null);
+        if (strategy == null) {
+            return -1;
+        }
+        for (final int position : getRowOrder(strategy.getLayout())) {
+            if (values[position] == null) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] getRowOrder(final TABLE_LAYOUT layout) {
+        switch (layout) {
+            case SPO:
+                return new int[] { SUBJECT, PREDICATE, OBJECT };
+            case PO:
+                return new int[] { PREDICATE, OBJECT, SUBJECT };
+            case OSP:
+                return new int[] { OBJECT, SUBJECT, PREDICATE };
+            default:
+                return new int[0];
+        }
+    }
+
+    private static Var getVar(final StatementPattern sp, final int position) {
+        switch (position) {
+            case SUBJECT:
+                return sp.getSubjectVar();
+            case PREDICATE:
+                return sp.getPredicateVar();
+            default:
+                return sp.getObjectVar();
+        }
+    }
+
+    private static Value getValue(final Var var, final BindingSet bindings) {
+        return var.hasValue() ? var.getValue() : bindings.getValue(var.getName());
+    }
+
+    private static CloseableIteration<? extends Statement, QueryEvaluationException> scan(final TripleSource tripleSource,
+            final StatementPattern sp, final BindingSet bindings) throws QueryEvaluationException {
+        return tripleSource.getStatements(
+                (Resource) getValue(sp.getSubjectVar(), bindings),
+                (IRI) getValue(sp.getPredicateVar(), bindings),
+                getValue(sp.getObjectVar(), bindings));
+    }
+
+    @Override
+    protected BindingSet getNextElement() throws QueryEvaluationException {
+        while (true) {
+            final List<Statement> leftGroup = left.getGroup();
+            final List<Statement> rightGroup = right.getGroup();
+            while (leftIndex < leftGroup.size()) {
+                if (leftResult == null) {
+                    leftResult = leftBinder.bind(leftGroup.get(leftIndex), bindings);
+                }
+                while (rightIndex < rightGroup.size()) {
+                    final Statement statement = rightGroup.get(rightIndex++);
+                    // the keys only compare the values' labels, so the values themselves may still differ
+                    if (rightBinder.isCompatible(statement, leftResult)) {
+                        return rightBinder.bind(statement, leftResult);
+                    }
+                }
+                leftIndex++;
+                rightIndex = 0;
+                leftResult = null;
+            }
+
+            if (!left.nextGroup() || !right.nextGroup()) {
+                return null;
+            }
+            int comparison = KEY_ORDER.compare(left.getKey(), right.getKey());
+            while (comparison != 0) {
+                final SortedScan behind = comparison < 0 ? left : right;
+                if (!behind.nextGroup()) {
+                    return null;
+                }
+                comparison = KEY_ORDER.compare(left.getKey(), right.getKey());
+            }
+            leftIndex = 0;
+            rightIndex = 0;
+        }
+    }
+
+    @Override
+    protected void handleClose() throws QueryEvaluationException {
+        try {
+            super.handleClose();
+        } finally {
+            try {
+                left.close();
+            } finally {
+                right.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a scan one run of statements that share a sort key at a time.
+     */
+    private static final class SortedScan {
+        private final CloseableIteration<? extends Statement, QueryEvaluationException> statements;
+        private final int position;
+        private final List<Statement> group = new ArrayList<>();
+
+        private boolean started = false;
+        private byte[] key = null;
+        private Statement next = null;
+        private byte[] nextKey = null;
+
+        private SortedScan(final CloseableIteration<? extends Statement, QueryEvaluationException> statements, final int position) {
+            this.statements = statements;
+            this.position = position;
+        }
+
+        /**
+         * Replaces the current group with the next run of statements that share a key.
+         *
+         * @return {@code false} if the scan has no more statements.
+         */
+        private boolean nextGroup() throws QueryEvaluationException {
+            if (!started) {
+                started = true;
+                advance();
+            }
+            group.clear();
+            if (next == null) {
+                return false;
+            }
+            key = nextKey;
+            do {
+                group.add(next);
+                advance();
+            } while (next != null && Arrays.equals(key, nextKey));
+            return true;
+        }
+
+        private void advance() throws QueryEvaluationException {
+            next = null;
+            nextKey = null;
+            while (statements.hasNext()) {
+                final Statement statement = statements.next();
+                if (statement != null) {
+                    next = statement;
+                    nextKey = toKey(statement);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return The bytes the statement's row is sorted on, which are the
+         *   serialized label of the value at the scan's sort position.
+         */
+        private byte[] toKey(final Statement statement) throws QueryEvaluationException {
+            final Value value;
+            switch (position) {
+                case SUBJECT:
+                    value = statement.getSubject();
+                    break;
+                case PREDICATE:
+                    value = statement.getPredicate();
+                    break;
+                default:
+                    value = statement.getObject();
+            }
+            try {
+                return RyaContext.getInstance().serializeType(RdfToRyaConversions.convertValue(value))[0];
+            } catch (final RyaTypeResolverException e) {
+                throw new QueryEvaluationException(e);
+            }
+        }
+
+        private List<Statement> getGroup() {
+            return group;
+        }
+
+        private byte[] getKey() {
+            return key;
+        }
+
+        private void close() throws QueryEvaluationException {
+            statements.close();
+        }
+    }
+}
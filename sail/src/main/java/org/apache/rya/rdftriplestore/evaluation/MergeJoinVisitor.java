@@ -0,0 +1,82 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+
+/**
+ * Replaces the joins of two statement patterns whose scans are sorted on their
+ * shared variable with {@link MergeJoin}s when a merge is expected to be cheaper.
+ * <p>
+ * A nested loop join seeks into the right pattern's table once for every result
+ * of the left pattern, while a merge join streams both patterns. The merge is
+ * chosen when streaming the right pattern reads fewer entries than the seeks of
+ * the nested loop would cost. Without statistics every mergeable join is merged.
+ * This visitor must run after the joins have been ordered.
+ */
+public class MergeJoinVisitor extends AbstractQueryModelVisitor<Exception> {
+
+    /**
+     * The number of entries that can be streamed in the time one seek takes.
+     */
+    private static final double SEEK_COST = 100;
+
+    private final EvaluationStatistics statistics;
+    private final RyaTripleContext context;
+
+    /**
+     * @param statistics - Estimates the cardinalities of the patterns. (may be null)
+     * @param context - Decides which table each pattern is read from. (not null)
+     */
+    public MergeJoinVisitor(final EvaluationStatistics statistics, final RyaTripleContext context) {
+        this.statistics = statistics;
+        this.context = context;
+    }
+
+    @Override
+    public void meet(final Join node) throws Exception {
+        super.meet(node);
+
+        final TupleExpr leftArg = node.getLeftArg();
+        final TupleExpr rightArg = node.getRightArg();
+        if (node instanceof MergeJoin || !(leftArg instanceof StatementPattern) || !(rightArg instanceof StatementPattern)) {
+            return;
+        }
+
+        final StatementPattern left = (StatementPattern) leftArg;
+        final StatementPattern right = (StatementPattern) rightArg;
+        if (MergeJoinIterator.isMergeable(left, right, EmptyBindingSet.getInstance(), context) && isCheaper(left, right)) {
+            node.replaceWith(new MergeJoin(left, right));
+        }
+    }
+
+    private boolean isCheaper(final StatementPattern left, final StatementPattern right) {
+        if (statistics == null) {
+            return true;
+        }
+        return statistics.getCardinality(right) <= statistics.getCardinality(left) * SEEK_COST;
+    }
+}
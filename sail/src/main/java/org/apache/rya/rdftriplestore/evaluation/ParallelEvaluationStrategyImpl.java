@@ -31,6 +31,7 @@ import java.util.concurrent.Executors;
 import org.apache.log4j.Logger;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreUtils;
+import org.apache.rya.api.resolver.RyaTripleContext;
 import org.apache.rya.api.utils.NullableStatementImpl;
 import org.apache.rya.rdftriplestore.RdfCloudTripleStoreConnection;
 import org.apache.rya.rdftriplestore.RdfCloudTripleStoreConnection.StoreTripleSource;
@@ -59,7 +60,6 @@ import org.eclipse.rdf4j.query.algebra.Slice;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.Var;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.FilterIterator;
 import org.eclipse.rdf4j.query.algebra.evaluation.iterator.JoinIterator;
@@ -74,6 +74,9 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
     private int numOfThreads = 10;
     private boolean performant = true;
     private boolean displayQueryPlan = false;
+    private boolean parallelJoin = false;
+    private int parallelJoinBufferSize = ParallelJoinIterator.DEFAULT_BUFFER_SIZE;
+    private RyaTripleContext mergeJoinContext = null;
     private ExecutorService executorService;
     private InferenceEngine inferenceEngine;
 
@@ -86,12 +89,24 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
         this.performant = (val != null) ? val : this.performant;
         val = conf.isDisplayQueryPlan();
         this.displayQueryPlan = (val != null) ? val : this.displayQueryPlan;
+        val = conf.isParallelJoin();
+        this.parallelJoin = (val != null) ? val : this.parallelJoin;
+        Integer bufferSize = conf.getParallelJoinBufferSize();
+        this.parallelJoinBufferSize = (bufferSize != null) ? bufferSize : this.parallelJoinBufferSize;
+        // the scans of hashed and dictionary encoded tables are not sorted on the terms themselves
+        if (conf.isMergeJoin() && !conf.isPrefixRowsWithHash() && !conf.isDictionaryEncoded()) {
+            this.mergeJoinContext = RyaTripleContext.getInstance(conf);
+        }
         this.executorService = Executors.newFixedThreadPool(this.numOfThreads);
         this.inferenceEngine = inferenceEngine;
     }
 
     @Override
     public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(Join join, BindingSet bindings) throws QueryEvaluationException {
+        if (join instanceof MergeJoin && mergeJoinContext != null && MergeJoinIterator.isMergeable(
+                (StatementPattern) join.getLeftArg(), (StatementPattern) join.getRightArg(), bindings, mergeJoinContext)) {
+            return new MergeJoinIterator(tripleSource, mergeJoinContext, (MergeJoin) join, bindings);
+        }
         if (performant) {
             TupleExpr buffer = join.getLeftArg();
             if (join.getRightArg() instanceof StatementPattern) {
@@ -122,17 +137,27 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
                         return new FilterIterator(filter, new MultipleBindingSetsIterator(this, new Join(buffer, fcj_left), (StatementPattern) fcj_right, bindings), this);
                     }
                 }
-                //TODO: add a configuration flag for ParallelJoinIterator
-                return new JoinIterator(this, join, bindings);
+                return evaluateNestedLoopJoin(join, bindings);
             } else {
-                //TODO: add a configuration flag for ParallelJoinIterator
-                return new JoinIterator(this, join, bindings);
+                return evaluateNestedLoopJoin(join, bindings);
             }
         } else {
             return super.evaluate(join, bindings);
         }
     }
 
+    /**
+     * Evaluates a join whose right side can not be evaluated for a batch of binding sets.
+     * If {@link RdfCloudTripleStoreConfiguration#isParallelJoin()} is set, the right side
+     * is evaluated for several of the left side's binding sets at once.
+     */
+    private CloseableIteration<BindingSet, QueryEvaluationException> evaluateNestedLoopJoin(Join join, BindingSet bindings) throws QueryEvaluationException {
+        if (parallelJoin) {
+            return new ParallelJoinIterator(this, join, bindings, executorService, numOfThreads, parallelJoinBufferSize);
+        }
+        return new JoinIterator(this, join, bindings);
+    }
+
     @Override
     public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(StatementPattern sp, BindingSet bindings) throws QueryEvaluationException {
         //TODO: Wonder if creating a Collection here hurts performance
@@ -157,7 +182,6 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
                 Value subjValue = getVarValue(subjVar, binding);
                 Value predValue = getVarValue(predVar, binding);
                 Value objValue = getVarValue(objVar, binding);
-                Resource contxtValue = (Resource) getVarValue(cntxtVar, binding);
                 for (Statement st : ((FixedStatementPattern) sp).statements) {
                     if (!((subjValue != null && !subjValue.equals(st.getSubject())) ||
                             (predValue != null && !predValue.equals(st.getPredicate())) ||
@@ -208,28 +232,14 @@ public class ParallelEvaluationStrategyImpl extends StrictEvaluationStrategy {
 
             iter = ((RdfCloudTripleStoreConnection.StoreTripleSource) tripleSource).getStatements(stmts);
         }
+        //only add values to result BindingSet if Var is not constant and BindingSet doesn't already
+        //contain a Value for that Var name
+        final StatementPatternBinder binder = new StatementPatternBinder(sp);
         return new ConvertingIteration<Map.Entry<Statement, BindingSet>, BindingSet, QueryEvaluationException>(iter) {
 
             @Override
             protected BindingSet convert(Map.Entry<Statement, BindingSet> stbs) throws QueryEvaluationException {
-                Statement st = stbs.getKey();
-                BindingSet bs = stbs.getValue();
-                QueryBindingSet result = new QueryBindingSet(bs);
-                //only add values to result BindingSet if Var is not constant and BindingSet doesn't already
-                //contain a Value for that Var name
-                if (subjVar != null && !subjVar.isConstant() && !result.hasBinding(subjVar.getName())) {
-                    result.addBinding(subjVar.getName(), st.getSubject());
-                }
-                if (predVar != null && !predVar.isConstant() && !result.hasBinding(predVar.getName())) {
-                    result.addBinding(predVar.getName(), st.getPredicate());
-                }
-                if (objVar != null && !objVar.isConstant() && !result.hasBinding(objVar.getName())) {
-                    result.addBinding(objVar.getName(), st.getObject());
-                }
-                if (cntxtVar != null && !cntxtVar.isConstant() && !result.hasBinding(cntxtVar.getName()) && st.getContext() != null) {
-                    result.addBinding(cntxtVar.getName(), st.getContext());
-                }
-                return result;
+                return binder.bind(stbs.getKey(), stbs.getValue());
             }
         };
     }
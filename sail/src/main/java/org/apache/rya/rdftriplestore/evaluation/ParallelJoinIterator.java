@@ -19,10 +19,14 @@ package org.apache.rya.rdftriplestore.evaluation;
  * under the License.
  */
 
-import java.util.NoSuchElementException;
-import java.util.Queue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
@@ -34,85 +38,137 @@ import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 
 /**
+ * A nested loop join that evaluates the right side of the join for several
+ * left binding sets at once.
+ * <p>
+ * At most {@code batch} left binding sets are evaluated ahead of the one whose
+ * results are being returned, and each of them buffers at most {@code bufferSize}
+ * results before its worker waits for them to be consumed, so the memory used by
+ * the join is bounded no matter how large its intermediate results are. Results
+ * are returned in the order of the left binding sets. If the left binding set
+ * whose results are needed next has not been picked up by the executor yet, it
+ * is evaluated on the calling thread instead of waiting for a free worker.
+ * <p>
+ * Closing the iterator cancels the outstanding work, and a failure within a
+ * worker is thrown to the caller when that left binding set's results are read.
  */
 public class ParallelJoinIterator extends LookAheadIteration<BindingSet, QueryEvaluationException> {
 
     public static final EmptyBindingSet EMPTY_BINDING_SET = new EmptyBindingSet();
 
+    public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+    /**
+     * Marks the end of a worker's results. Compared by identity so that an empty
+     * binding set that is a legitimate result is not mistaken for it.
+     */
+    private static final BindingSet END_OF_RESULTS = new EmptyBindingSet();
+
+    private static final long OFFER_TIMEOUT_MS = 100;
+
     private final EvaluationStrategy strategy;
     private final Join join;
     private final CloseableIteration<BindingSet, QueryEvaluationException> leftIter;
 
-    private ExecutorService executorService;
-    private Queue<ParallelIteratorWork> workQueue = new LinkedBlockingQueue<ParallelIteratorWork>();
+    private final ExecutorService executorService;
+    private final Deque<ParallelIteratorWork> workQueue = new ArrayDeque<ParallelIteratorWork>();
     private ParallelIteratorWork currentWork;
-    private int batch;
+    private final int batch;
+    private final int bufferSize;
 
     public ParallelJoinIterator(EvaluationStrategy strategy, Join join, BindingSet bindings, ExecutorService executorService, int batch)
             throws QueryEvaluationException {
+        this(strategy, join, bindings, executorService, batch, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param strategy - Evaluates both sides of the join.
+     * @param join - The join that is evaluated.
+     * @param bindings - The bindings the join is evaluated with.
+     * @param executorService - Runs the evaluations of the join's right side.
+     * @param batch - The maximum number of left binding sets whose right side is evaluated at once.
+     * @param bufferSize - The maximum number of results buffered for each left binding set.
+     */
+    public ParallelJoinIterator(EvaluationStrategy strategy, Join join, BindingSet bindings, ExecutorService executorService, int batch,
+            int bufferSize) throws QueryEvaluationException {
+        if (batch <= 0) {
+            throw new IllegalArgumentException("batch must be greater than 0");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be greater than 0");
+        }
         this.strategy = strategy;
         this.join = join;
         leftIter = strategy.evaluate(join.getLeftArg(), bindings);
 
         this.executorService = executorService;
         this.batch = batch;
+        this.bufferSize = bufferSize;
     }
 
-
     @Override
     protected BindingSet getNextElement() throws QueryEvaluationException {
-
-        try {
-            while (leftIter.hasNext() || !workQueue.isEmpty() || currentWork != null) {
-                if (!workQueue.isEmpty() && currentWork == null) {
-                    currentWork = workQueue.poll();
-                }
-
-                if (currentWork != null) {
-                    BindingSet bindingSet = currentWork.queue.poll();
-                    if (EMPTY_BINDING_SET.equals(bindingSet)) {
-                        currentWork = null;
-                        continue;
-                    } else if (bindingSet == null) {
-                        continue;
-                    }
-                    return bindingSet;
+        while (!isClosed()) {
+            if (currentWork == null) {
+                fillWorkQueue();
+                currentWork = workQueue.poll();
+                if (currentWork == null) {
+                    return null;
                 }
+                // keep the executor busy while the current work's results are consumed
+                fillWorkQueue();
+            }
 
-                try {
-                    for (int i = 0; i < batch; i++) {
-                        if (leftIter.hasNext()) {
-                            ParallelIteratorWork work = new ParallelIteratorWork(leftIter.next(), join.getRightArg());
-                            workQueue.add(work);
-                            executorService.execute(work);
-                        } else
-                            break;
-                    }
-                } catch (NoSuchElementException ignore) {
-                }
+            BindingSet bindingSet = currentWork.next();
+            if (bindingSet != null) {
+                return bindingSet;
             }
-        } catch (Exception e) {
-            throw new QueryEvaluationException(e);
+            currentWork = null;
         }
         return null;
     }
 
+    private void fillWorkQueue() throws QueryEvaluationException {
+        while (workQueue.size() < batch && leftIter.hasNext()) {
+            ParallelIteratorWork work = new ParallelIteratorWork(leftIter.next(), join.getRightArg());
+            workQueue.add(work);
+            try {
+                executorService.execute(work);
+            } catch (RejectedExecutionException e) {
+                // the work is evaluated on the calling thread once its results are needed
+            }
+        }
+    }
+
     @Override
     protected void handleClose() throws QueryEvaluationException {
         try {
             super.handleClose();
+        } finally {
+            if (currentWork != null) {
+                currentWork.cancel();
+                currentWork = null;
+            }
+            for (ParallelIteratorWork work : workQueue) {
+                work.cancel();
+            }
+            workQueue.clear();
             leftIter.close();
-//           rightIter.close();
-        } catch (Exception e) {
-            throw new QueryEvaluationException(e);
         }
     }
 
     private class ParallelIteratorWork implements Runnable {
 
-        private BindingSet leftBindingSet;
-        private TupleExpr rightTupleExpr;
-        public LinkedBlockingQueue<BindingSet> queue = new LinkedBlockingQueue<BindingSet>();
+        private final BindingSet leftBindingSet;
+        private final TupleExpr rightTupleExpr;
+        private final BlockingQueue<BindingSet> queue = new ArrayBlockingQueue<BindingSet>(bufferSize);
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private volatile boolean cancelled = false;
+        private volatile Throwable failure;
+
+        // Only used when the work is evaluated on the thread consuming its results.
+        private CloseableIteration<BindingSet, QueryEvaluationException> callerIter;
+        private boolean runByCaller = false;
 
         private ParallelIteratorWork(BindingSet leftBindingSet, TupleExpr rightTupleExpr) {
             this.leftBindingSet = leftBindingSet;
@@ -121,15 +177,94 @@ public class ParallelJoinIterator extends LookAheadIteration<BindingSet, QueryEv
 
         @Override
         public void run() {
+            if (cancelled || !started.compareAndSet(false, true)) {
+                return;
+            }
+            CloseableIteration<BindingSet, QueryEvaluationException> iter = null;
+            try {
+                iter = strategy.evaluate(rightTupleExpr, leftBindingSet);
+                while (!cancelled && iter.hasNext()) {
+                    if (!put(iter.next())) {
+                        return;
+                    }
+                }
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                if (iter != null) {
+                    try {
+                        iter.close();
+                    } catch (Throwable t) {
+                        if (failure == null) {
+                            failure = t;
+                        }
+                    }
+                }
+                put(END_OF_RESULTS);
+            }
+        }
+
+        /**
+         * Waits for room in the buffer, giving up if the work is cancelled.
+         *
+         * @return {@code true} if the binding set was buffered.
+         */
+        private boolean put(BindingSet bindingSet) {
+            try {
+                while (!queue.offer(bindingSet, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+                return false;
+            }
+        }
+
+        /**
+         * @return The next result of this work, or {@code null} if there are no more.
+         */
+        private BindingSet next() throws QueryEvaluationException {
+            if (!runByCaller && started.compareAndSet(false, true)) {
+                runByCaller = true;
+                callerIter = strategy.evaluate(rightTupleExpr, leftBindingSet);
+            }
+
+            if (runByCaller) {
+                if (callerIter.hasNext()) {
+                    return callerIter.next();
+                }
+                callerIter.close();
+                return null;
+            }
+
+            final BindingSet bindingSet;
             try {
-                CloseableIteration<BindingSet, QueryEvaluationException> iter = strategy.evaluate(rightTupleExpr, leftBindingSet);
-                while (iter.hasNext()) {
-                    queue.add(iter.next());
+                bindingSet = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryEvaluationException(e);
+            }
+            if (bindingSet == END_OF_RESULTS) {
+                if (failure instanceof QueryEvaluationException) {
+                    throw (QueryEvaluationException) failure;
+                } else if (failure != null) {
+                    throw new QueryEvaluationException(failure);
                 }
-                queue.add(EMPTY_BINDING_SET);
-                iter.close();
-            } catch (QueryEvaluationException e) {
-                throw new RuntimeException(e);
+                return null;
+            }
+            return bindingSet;
+        }
+
+        private void cancel() throws QueryEvaluationException {
+            cancelled = true;
+            // the worker may be waiting for room in the buffer
+            queue.clear();
+            if (callerIter != null) {
+                callerIter.close();
             }
         }
     }
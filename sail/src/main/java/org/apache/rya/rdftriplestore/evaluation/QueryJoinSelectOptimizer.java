@@ -20,9 +20,12 @@ package org.apache.rya.rdftriplestore.evaluation;
  */
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.persist.joinselect.SelectivityEvalDAO;
@@ -32,21 +35,39 @@ import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.Dataset;
 import org.eclipse.rdf4j.query.algebra.Join;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
 import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
 
+/**
+ * Orders the arguments of each join using the join selectivities of a {@link SelectivityEvalDAO}.
+ * <p>
+ * A join with at most {@link RdfCloudTripleStoreConfiguration#getSelectivityDpLimit()} arguments is
+ * ordered by a dynamic programming search that finds the left-deep order whose intermediate results
+ * have the smallest total estimated cardinality. Larger joins are ordered greedily. Plans stay left-deep
+ * because the evaluation strategy feeds the bindings of a join's left argument into the lookups of its
+ * right argument.
+ */
 public class QueryJoinSelectOptimizer implements QueryOptimizer {
 
+  /**
+   * The largest number of join arguments that are ever searched exhaustively, since the search keeps
+   * state for every subset of the arguments.
+   */
+  public static final int MAX_DP_ARGS = 20;
+
   private final EvaluationStatistics statistics;
   private final SelectivityEvalDAO eval;
   private final RdfCloudTripleStoreConfiguration config;
+  private final int dpLimit;
 
   public QueryJoinSelectOptimizer(EvaluationStatistics statistics, SelectivityEvalDAO eval) {
     System.out.println("Entering join optimizer!");
     this.statistics = statistics;
     this.eval = eval;
     this.config = eval.getConf();
+    this.dpLimit = config == null ? MAX_DP_ARGS : Math.min(config.getSelectivityDpLimit(), MAX_DP_ARGS);
   }
 
   /**
@@ -68,58 +89,24 @@ public class QueryJoinSelectOptimizer implements QueryOptimizer {
           return;
         }
 
-        TupleExpr partialQuery = null;
         List<TupleExpr> joinArgs = getJoinArgs(node, new ArrayList<TupleExpr>());
-        Map<TupleExpr,Double> cardinalityMap = new HashMap<TupleExpr,Double>();
-
-        for (TupleExpr tupleExpr : joinArgs) {
-          double cardinality = statistics.getCardinality(tupleExpr);
-          cardinalityMap.put(tupleExpr, cardinality);
+        JoinCosts costs = new JoinCosts(joinArgs);
+        List<TupleExpr> order = joinArgs.size() <= dpLimit ? costs.getBestOrder() : costs.getGreedyOrder();
 
-        }
+        TupleExpr partialQuery = null;
+        for (TupleExpr te : order) {
+          if (!(te instanceof Join)) {
+            te.visit(this);
+          }
 
-        while (!joinArgs.isEmpty()) {
-          TePairCost tpc = getBestTupleJoin(partialQuery, joinArgs);
-          List<TupleExpr> tePair = tpc.getTePair();
           if (partialQuery == null) {
-            if (tePair.size() != 2) {
-              throw new IllegalStateException();
-            }
-            if (!(tePair.get(0) instanceof Join)) {
-              tePair.get(0).visit(this);
-            }
-            if (!(tePair.get(1) instanceof Join)) {
-              tePair.get(1).visit(this);
-            }
-            if (tePair.get(1) instanceof Join) {
-              partialQuery = new Join(tePair.get(0), ((Join) tePair.get(1)).getLeftArg());
-              partialQuery = new Join(partialQuery, ((Join) tePair.get(1)).getRightArg());
-              joinArgs.remove(tePair.get(0));
-              joinArgs.remove(tePair.get(1));
-            } else {
-              partialQuery = new Join(tePair.get(0), tePair.get(1));
-              joinArgs.remove(tePair.get(0));
-              joinArgs.remove(tePair.get(1));
-            }
+            partialQuery = te;
+          } else if (te instanceof Join) {
+            partialQuery = new Join(partialQuery, ((Join) te).getLeftArg());
+            partialQuery = new Join(partialQuery, ((Join) te).getRightArg());
           } else {
-            if (tePair.size() != 1) {
-              throw new IllegalStateException();
-            }
-            if (!(tePair.get(0) instanceof Join)) {
-              tePair.get(0).visit(this);
-            }
-
-            if (tePair.get(0) instanceof Join) {
-              partialQuery = new Join(partialQuery, ((Join) tePair.get(0)).getLeftArg());
-              partialQuery = new Join(partialQuery, ((Join) tePair.get(0)).getRightArg());
-              joinArgs.remove(tePair.get(0));
-
-            } else {
-              partialQuery = new Join(partialQuery, tePair.get(0));
-              joinArgs.remove(tePair.get(0));
-            }
+            partialQuery = new Join(partialQuery, te);
           }
-
         }
 
         // Replace old join hierarchy
@@ -145,113 +132,203 @@ public class QueryJoinSelectOptimizer implements QueryOptimizer {
 
       return joinArgs;
     }
+  }
 
-    public TePairCost getBestTupleJoin(TupleExpr partialQuery, List<TupleExpr> teList) throws Exception {
-
-      double tempCost = 0;
-      double bestCost = Double.MAX_VALUE;
-      List<TupleExpr> bestJoinNodes = new ArrayList<TupleExpr>();
-
-      if (partialQuery == null) {
-
-        double jSelect = 0;
-        double card1 = 0;
-        double card2 = 0;
-        TupleExpr teMin1 = null;
-        TupleExpr teMin2 = null;
-        double bestCard1 = 0;
-        double bestCard2 = 0;
-
-        for (int i = 0; i < teList.size(); i++) {
-          for (int j = i + 1; j < teList.size(); j++) {
-            jSelect = eval.getJoinSelect(config, teList.get(i), teList.get(j));
-            card1 = statistics.getCardinality(teList.get(i));
-            card2 = statistics.getCardinality(teList.get(j));
-            tempCost = card1 + card2 + card1 * card2 * jSelect;
-//             System.out.println("Optimizer: TempCost is " + tempCost + " cards are " + card1 + ", " + card2 + ", selectivity is "
-//             + jSelect + ", and nodes are "
-//             + teList.get(i) + " and " + teList.get(j));
-
-            // TODO this generates a nullpointer exception if tempCost = Double.Max
-            if (bestCost > tempCost) {
-
-              teMin1 = teList.get(i);
-              teMin2 = teList.get(j);
-              bestCard1 = card1;
-              bestCard2 = card2;
-              bestCost = tempCost;
-
-              if (bestCost == 0) {
-                bestJoinNodes.add(teMin1);
-                bestJoinNodes.add(teMin2);
-                return new TePairCost(0.0, bestJoinNodes);
-              }
-            }
+  /**
+   * Estimates the cost of joining the arguments of a single join in different orders. The cardinality of
+   * each argument and the selectivity of each pair of arguments are looked up at most once, so the search
+   * does not scan the selectivity tables again for every candidate order.
+   * <p>
+   * The selectivity between a partial result and another argument is the smallest selectivity between any
+   * argument of the partial result and that argument, which is how {@link SelectivityEvalDAO}
+   * implementations estimate the selectivity of a join tree.
+   */
+  protected class JoinCosts {
+
+    private final List<TupleExpr> args;
+    private final double[] cards;
+    private final double[][] selectivities;
+    private final int[] neighbors;
+
+    public JoinCosts(List<TupleExpr> args) {
+      this.args = args;
+      this.cards = new double[args.size()];
+      this.selectivities = new double[args.size()][args.size()];
+      this.neighbors = new int[args.size()];
+
+      List<Set<String>> varNames = new ArrayList<Set<String>>();
+      for (int i = 0; i < args.size(); i++) {
+        cards[i] = statistics.getCardinality(args.get(i));
+        Arrays.fill(selectivities[i], Double.NaN);
+        varNames.add(getVarNames(args.get(i)));
+      }
+
+      // Two arguments are neighbors within the join graph if they share a variable.
+      for (int i = 0; i < args.size(); i++) {
+        for (int j = 0; j < args.size(); j++) {
+          if (i != j && !Collections.disjoint(varNames.get(i), varNames.get(j))) {
+            neighbors[i] |= 1 << j;
           }
         }
+      }
+    }
 
-        if (bestCard1 < bestCard2) {
-
-          bestJoinNodes.add(teMin1);
-          bestJoinNodes.add(teMin2);
-
-        } else {
-          bestJoinNodes.add(teMin2);
-          bestJoinNodes.add(teMin1);
+    /**
+     * @return The left-deep order of the arguments whose intermediate results have the smallest total
+     *   estimated cardinality. Like DPccp, the search only joins an argument that does not share a
+     *   variable with the partial result once no argument that does is left.
+     */
+    public List<TupleExpr> getBestOrder() throws Exception {
+      int n = args.size();
+      int full = (1 << n) - 1;
+      double[] planCards = new double[full + 1];
+      double[] planCosts = new double[full + 1];
+      int[] lastArgs = new int[full + 1];
+      Arrays.fill(lastArgs, -1);
+
+      // The first two arguments are ordered with the smaller one on the left.
+      for (int i = 0; i < n; i++) {
+        for (int j = i + 1; j < n; j++) {
+          if ((neighbors[i] & (1 << j)) == 0 && neighbors[i] != 0 && neighbors[j] != 0) {
+            continue;
+          }
+          int pair = (1 << i) | (1 << j);
+          planCards[pair] = join(cards[i], cards[j], getPairSelectivity(i, j));
+          planCosts[pair] = planCards[pair];
+          lastArgs[pair] = isLeftFirst(i, j, planCards[pair]) ? j : i;
         }
-        //System.out.println("Optimizer: Card1 is " + card1 + ", card2 is " + card2 + ", selectivity is " + jSelect + ", and best cost is" + bestCost);
-        return new TePairCost(bestCost, bestJoinNodes);
+      }
 
-      } else {
-        double card1 = statistics.getCardinality(partialQuery);
-        TupleExpr bestTe = null;
-        double card2 = 0;
-        double select = 0;
-
-        for (TupleExpr te : teList) {
-          select = eval.getJoinSelect(config, partialQuery, te);
-          card2 = statistics.getCardinality(te);
-          tempCost = card1 + card2 + card1 * card2 * select;
-//          System.out.println("Optimizer: TempCost is " + tempCost + " cards are " + card1 + ", " + card2 + ", selectivity is "
-//                  + select + ", and nodes are "
-//                  + partialQuery + " and " + te);
-
-
-          if (bestCost > tempCost) {
-            bestTe = te;
-            bestCost = tempCost;
+      // Adding an argument always makes a larger subset, so every subset is complete before it is extended.
+      for (int subset = 0; subset < full; subset++) {
+        if (lastArgs[subset] < 0) {
+          continue;
+        }
+        int subsetNeighbors = 0;
+        for (int i = 0; i < n; i++) {
+          if ((subset & (1 << i)) != 0) {
+            subsetNeighbors |= neighbors[i];
           }
+        }
+        subsetNeighbors &= ~subset;
 
+        for (int t = 0; t < n; t++) {
+          int extended = subset | (1 << t);
+          if (extended == subset || (subsetNeighbors != 0 && (subsetNeighbors & (1 << t)) == 0)) {
+            continue;
+          }
+          double card = join(planCards[subset], cards[t], getSelectivity(subset, t));
+          double cost = planCosts[subset] + card;
+          if (lastArgs[extended] < 0 || cost < planCosts[extended]) {
+            planCards[extended] = card;
+            planCosts[extended] = cost;
+            lastArgs[extended] = t;
+          }
         }
-        List<TupleExpr> teList2 = new ArrayList<TupleExpr>();
-        teList2.add(bestTe);
-        //System.out.println("Optimizer: Card1 is " + card1 + ", card2 is " + card2 + ", selectivity is " + select + ", and best cost is" + bestCost);
-        return new TePairCost(bestCost, teList2);
       }
 
+      LinkedList<TupleExpr> order = new LinkedList<TupleExpr>();
+      int subset = full;
+      while (Integer.bitCount(subset) > 1) {
+        order.addFirst(args.get(lastArgs[subset]));
+        subset &= ~(1 << lastArgs[subset]);
+      }
+      order.addFirst(args.get(Integer.numberOfTrailingZeros(subset)));
+      return order;
     }
 
-    // **************************************************************************************
-    public class TePairCost {
-
-      private double cost;
-      private List<TupleExpr> tePair;
-
-      public TePairCost(double cost, List<TupleExpr> tePair) {
-        this.cost = cost;
-        this.tePair = tePair;
+    /**
+     * @return An order of the arguments that starts with the cheapest pair and then repeatedly adds the
+     *   argument that is cheapest to join with the partial result.
+     */
+    public List<TupleExpr> getGreedyOrder() throws Exception {
+      int n = args.size();
+      int first = -1;
+      int second = -1;
+      double bestCost = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < n; i++) {
+        for (int j = i + 1; j < n; j++) {
+          double cost = join(cards[i], cards[j], getPairSelectivity(i, j));
+          if (first < 0 || cost < bestCost) {
+            bestCost = cost;
+            first = isLeftFirst(i, j, cost) ? i : j;
+            second = isLeftFirst(i, j, cost) ? j : i;
+          }
+        }
+      }
 
+      List<TupleExpr> order = new ArrayList<TupleExpr>();
+      order.add(args.get(first));
+      order.add(args.get(second));
+      int subset = (1 << first) | (1 << second);
+      double card = bestCost;
+
+      while (order.size() < n) {
+        int best = -1;
+        double bestCard = Double.POSITIVE_INFINITY;
+        for (int t = 0; t < n; t++) {
+          if ((subset & (1 << t)) == 0) {
+            double joinCard = join(card, cards[t], getSelectivity(subset, t));
+            if (best < 0 || joinCard < bestCard) {
+              best = t;
+              bestCard = joinCard;
+            }
+          }
+        }
+        order.add(args.get(best));
+        subset |= 1 << best;
+        card = bestCard;
       }
+      return order;
+    }
+
+    /**
+     * A pair of arguments is joined with the smaller one on the left, unless the pair is known to be
+     * empty, in which case the query's order is kept.
+     */
+    private boolean isLeftFirst(int i, int j, double pairCard) {
+      return pairCard == 0 || cards[i] < cards[j];
+    }
 
-      public double getCost() {
-        return cost;
+    private double getSelectivity(int subset, int t) throws Exception {
+      double min = Double.MAX_VALUE;
+      for (int i = 0; i < args.size(); i++) {
+        if ((subset & (1 << i)) != 0) {
+          min = Math.min(min, getPairSelectivity(i, t));
+        }
       }
+      return min;
+    }
 
-      public List<TupleExpr> getTePair() {
-        return tePair;
+    private double getPairSelectivity(int i, int j) throws Exception {
+      int lo = Math.min(i, j);
+      int hi = Math.max(i, j);
+      if (Double.isNaN(selectivities[lo][hi])) {
+        selectivities[lo][hi] = eval.getJoinSelect(config, args.get(lo), args.get(hi));
       }
+      return selectivities[lo][hi];
+    }
 
+    private Set<String> getVarNames(TupleExpr te) {
+      final Set<String> varNames = new HashSet<String>();
+      te.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+        @Override
+        public void meet(Var var) {
+          if (!var.hasValue()) {
+            varNames.add(var.getName());
+          }
+        }
+      });
+      return varNames;
     }
 
+    /**
+     * Estimates the cardinality of a join the same way
+     * {@link RdfCloudTripleStoreSelectivityEvaluationStatistics} does.
+     */
+    private double join(double leftCard, double rightCard, double selectivity) {
+      double card = leftCard + rightCard + leftCard * rightCard * selectivity;
+      return Double.isNaN(card) ? Double.POSITIVE_INFINITY : card;
+    }
   }
 }
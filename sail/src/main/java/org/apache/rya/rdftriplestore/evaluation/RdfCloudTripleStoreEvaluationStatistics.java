@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.domain.RangeValue;
 import org.apache.rya.api.persist.RdfEvalStatsDAO;
 import org.apache.rya.api.persist.RdfEvalStatsDAO.CARDINALITY_OF;
 import org.apache.rya.rdftriplestore.inference.DoNotExpandSP;
@@ -55,6 +56,12 @@ import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
  */
 public class RdfCloudTripleStoreEvaluationStatistics<C extends RdfCloudTripleStoreConfiguration> extends EvaluationStatistics {
 
+    /**
+     * The fraction of a statement pattern's matches that are assumed to fall
+     * within an object range, since the statistics only count exact values.
+     */
+    public static final double RANGE_SELECTIVITY = 1.0 / 3.0;
+
     private C conf;
     private RdfEvalStatsDAO<C> rdfEvalStatsDAO;
     protected boolean pushEmptyRdfTypeDown = true;
@@ -112,7 +119,15 @@ public class RdfCloudTripleStoreEvaluationStatistics<C extends RdfCloudTripleSto
             final Var predicateVar = sp.getPredicateVar();
             final IRI pred = (IRI) getConstantValue(predicateVar);
             final Var objectVar = sp.getObjectVar();
-            final Value obj = getConstantValue(objectVar);
+            Value obj = getConstantValue(objectVar);
+
+            // The statistics do not hold counts for ranges, so cost an object range as a fraction
+            // of the matches of the pattern without it.
+            double selectivity = 1.0;
+            if (obj instanceof RangeValue) {
+                obj = null;
+                selectivity = RANGE_SELECTIVITY;
+            }
             final Resource context = (Resource) getConstantValue(sp.getContextVar());
 
             // set rdf type to be a max value (as long as the object/subject aren't specified) to
@@ -228,7 +243,7 @@ public class RdfCloudTripleStoreEvaluationStatistics<C extends RdfCloudTripleSto
                 throw new RuntimeException(e);
             }
 
-            return cardinality;
+            return cardinality * selectivity;
         }
 
         @Override
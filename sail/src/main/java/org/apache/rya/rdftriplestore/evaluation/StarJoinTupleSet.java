@@ -0,0 +1,322 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.persist.RyaDAOException;
+import org.apache.rya.api.persist.query.StarJoinQueryEngine;
+import org.apache.rya.api.resolver.RdfToRyaConversions;
+import org.apache.rya.api.resolver.RyaToRdfConversions;
+import org.calrissian.mango.collect.CloseableIterable;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.ExternalSet;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * The join of statement patterns that share their subject, evaluated by a
+ * {@link StarJoinQueryEngine} instead of one pattern at a time. These tuple sets
+ * are placed by {@link StarJoinVisitor}.
+ * <p>
+ * When the subject is bound, only the bound subjects are checked. Binding sets
+ * that bind the subject and give the patterns' objects the same values are
+ * checked by one query, so a batch of binding sets from the left side of a
+ * join is one scan of the subjects' rows.
+ */
+public class StarJoinTupleSet<C extends RdfCloudTripleStoreConfiguration> extends ExternalSet implements ExternalBatchingIterator {
+
+    private final List<StatementPattern> patterns;
+    private final Var subjectVar;
+    private final StarJoinQueryEngine<C> queryEngine;
+    private final C conf;
+
+    /**
+     * @param patterns - Two or more patterns that share their subject. Each must have a
+     *   predicate value and no context. (not null)
+     * @param queryEngine - Evaluates the join. (not null)
+     * @param conf - The query configuration. (not null)
+     */
+    public StarJoinTupleSet(final List<StatementPattern> patterns, final StarJoinQueryEngine<C> queryEngine, final C conf) {
+        Preconditions.checkArgument(patterns.size() > 1, "A star join needs at least two patterns");
+        this.patterns = patterns;
+        this.subjectVar = patterns.get(0).getSubjectVar();
+        this.queryEngine = Preconditions.checkNotNull(queryEngine);
+        this.conf = Preconditions.checkNotNull(conf);
+    }
+
+    /**
+     * @return The patterns of the join.
+     */
+    public List<StatementPattern> getPatterns() {
+        return Collections.unmodifiableList(patterns);
+    }
+
+    @Override
+    public Set<String> getBindingNames() {
+        final Set<String> names = new HashSet<>();
+        for (final StatementPattern sp : patterns) {
+            names.addAll(sp.getBindingNames());
+        }
+        return names;
+    }
+
+    @Override
+    public Set<String> getAssuredBindingNames() {
+        final Set<String> names = new HashSet<>();
+        for (final StatementPattern sp : patterns) {
+            names.addAll(sp.getAssuredBindingNames());
+        }
+        return names;
+    }
+
+    @Override
+    public String getSignature() {
+        return "StarJoin (" + subjectVar.getName() + ") " + Joiner.on(", ").join(patterns).replaceAll("\\s+", " ");
+    }
+
+    @Override
+    public StarJoinTupleSet<C> clone() {
+        final List<StatementPattern> clones = new ArrayList<>(patterns.size());
+        for (final StatementPattern sp : patterns) {
+            clones.add(sp.clone());
+        }
+        return new StarJoinTupleSet<>(clones, queryEngine, conf);
+    }
+
+    @Override
+    public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final BindingSet bindings) throws QueryEvaluationException {
+        return evaluate(Collections.singleton(bindings));
+    }
+
+    @Override
+    public CloseableIteration<BindingSet, QueryEvaluationException> evaluate(final Collection<BindingSet> bindingSets)
+            throws QueryEvaluationException {
+        // the binding sets are grouped by the values they give the objects, and by subject if they bind it
+        final Map<List<Value>, ListMultimap<Resource, BindingSet>> bound = new LinkedHashMap<>();
+        final Map<List<Value>, List<BindingSet>> unbound = new LinkedHashMap<>();
+        for (final BindingSet bindings : bindingSets) {
+            final List<Value> objects = new ArrayList<>(patterns.size());
+            for (final StatementPattern sp : patterns) {
+                objects.add(getValue(sp.getObjectVar(), bindings));
+            }
+            final Value subject = getValue(subjectVar, bindings);
+            if (subject == null) {
+                List<BindingSet> group = unbound.get(objects);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    unbound.put(objects, group);
+                }
+                group.add(bindings);
+            } else if (subject instanceof Resource) {
+                ListMultimap<Resource, BindingSet> group = bound.get(objects);
+                if (group == null) {
+                    group = ArrayListMultimap.create();
+                    bound.put(objects, group);
+                }
+                group.put((Resource) subject, bindings);
+            }
+        }
+
+        final LinkedList<StarQuery> queries = new LinkedList<>();
+        for (final Map.Entry<List<Value>, ListMultimap<Resource, BindingSet>> group : bound.entrySet()) {
+            queries.add(new StarQuery(group.getKey(), group.getValue(), null));
+        }
+        for (final Map.Entry<List<Value>, List<BindingSet>> group : unbound.entrySet()) {
+            queries.add(new StarQuery(group.getKey(), null, group.getValue()));
+        }
+        return new StarJoinIteration(queries);
+    }
+
+    private static Value getValue(final Var var, final BindingSet bindings) {
+        return var.hasValue() ? var.getValue() : bindings.getValue(var.getName());
+    }
+
+    /**
+     * The star join evaluated for a group of binding sets.
+     */
+    private class StarQuery {
+        private final List<Value> objects;
+        private final ListMultimap<Resource, BindingSet> bySubject;
+        private final List<BindingSet> anySubject;
+
+        /**
+         * @param objects - The values of the patterns' objects, null where they are unbound.
+         * @param bySubject - The binding sets of each subject, if they bind the subject.
+         * @param anySubject - The binding sets that do not bind the subject.
+         */
+        private StarQuery(final List<Value> objects, final ListMultimap<Resource, BindingSet> bySubject, final List<BindingSet> anySubject) {
+            this.objects = objects;
+            this.bySubject = bySubject;
+            this.anySubject = anySubject;
+        }
+
+        private CloseableIterable<RyaStatement> query() throws RyaDAOException {
+            final List<RyaStatement> ryaPatterns = new ArrayList<>(patterns.size());
+            for (int i = 0; i < patterns.size(); i++) {
+                final IRI predicate = (IRI) patterns.get(i).getPredicateVar().getValue();
+                final Value object = objects.get(i);
+                ryaPatterns.add(new RyaStatement(null, RdfToRyaConversions.convertIRI(predicate),
+                        object == null ? null : RdfToRyaConversions.convertValue(object)));
+            }
+            final List<RyaIRI> subjects = new ArrayList<>();
+            if (bySubject != null) {
+                for (final Resource subject : bySubject.keySet()) {
+                    subjects.add(RdfToRyaConversions.convertResource(subject));
+                }
+            }
+            return queryEngine.queryStar(ryaPatterns, subjects, conf);
+        }
+
+        private List<BindingSet> getBindingSets(final Resource subject) {
+            return bySubject == null ? anySubject : bySubject.get(subject);
+        }
+    }
+
+    /**
+     * Runs the star queries one after the other and joins the statements of each
+     * subject with the binding sets the subject was checked for.
+     */
+    private class StarJoinIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+        private final LinkedList<StarQuery> queries;
+        private StarQuery query = null;
+        private CloseableIterable<RyaStatement> results = null;
+        private PeekingIterator<RyaStatement> statements = null;
+        private final LinkedList<BindingSet> joined = new LinkedList<>();
+
+        private StarJoinIteration(final LinkedList<StarQuery> queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        protected BindingSet getNextElement() throws QueryEvaluationException {
+            while (joined.isEmpty()) {
+                if (statements == null || !statements.hasNext()) {
+                    closeResults();
+                    if (queries.isEmpty()) {
+                        return null;
+                    }
+                    query = queries.removeFirst();
+                    try {
+                        results = query.query();
+                    } catch (final RyaDAOException e) {
+                        throw new QueryEvaluationException(e);
+                    }
+                    statements = Iterators.peekingIterator(results.iterator());
+                    continue;
+                }
+
+                // the statements of a subject are adjacent
+                final RyaIRI subject = statements.peek().getSubject();
+                final List<Statement> group = new ArrayList<>();
+                while (statements.hasNext() && statements.peek().getSubject().equals(subject)) {
+                    group.add(RyaToRdfConversions.convertStatement(statements.next()));
+                }
+                final Resource subjectValue = group.get(0).getSubject();
+                for (final BindingSet bindings : query.getBindingSets(subjectValue)) {
+                    final QueryBindingSet result = new QueryBindingSet(bindings);
+                    if (!subjectVar.hasValue() && !result.hasBinding(subjectVar.getName())) {
+                        result.addBinding(subjectVar.getName(), subjectValue);
+                    }
+                    join(0, group, result);
+                }
+            }
+            return joined.removeFirst();
+        }
+
+        /**
+         * Binds the objects of the patterns from the index on to each of the subject's
+         * statements they match, and keeps the results that bind every pattern.
+         */
+        private void join(final int index, final List<Statement> group, final QueryBindingSet result) {
+            if (index == patterns.size()) {
+                joined.add(new QueryBindingSet(result));
+                return;
+            }
+            final StatementPattern sp = patterns.get(index);
+            final Value predicate = sp.getPredicateVar().getValue();
+            final Var objectVar = sp.getObjectVar();
+            final Value object = getValue(objectVar, result);
+            for (final Statement statement : group) {
+                if (!predicate.equals(statement.getPredicate())) {
+                    continue;
+                }
+                if (object != null) {
+                    if (object.equals(statement.getObject())) {
+                        join(index + 1, group, result);
+                    }
+                } else {
+                    result.addBinding(objectVar.getName(), statement.getObject());
+                    join(index + 1, group, result);
+                    result.removeBinding(objectVar.getName());
+                }
+            }
+        }
+
+        private void closeResults() throws QueryEvaluationException {
+            statements = null;
+            if (results != null) {
+                try {
+                    results.close();
+                } catch (final Exception e) {
+                    throw new QueryEvaluationException(e);
+                } finally {
+                    results = null;
+                }
+            }
+        }
+
+        @Override
+        protected void handleClose() throws QueryEvaluationException {
+            try {
+                super.handleClose();
+            } finally {
+                queries.clear();
+                closeResults();
+            }
+        }
+    }
+}
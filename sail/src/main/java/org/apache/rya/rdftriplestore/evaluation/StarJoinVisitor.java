@@ -0,0 +1,114 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.persist.query.StarJoinQueryEngine;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Replaces the statement patterns of a join that share their subject with a
+ * {@link StarJoinTupleSet}, which is placed where the first of them was. The
+ * patterns must have a predicate value and no context, and must not be
+ * patterns that inference rewrote. This visitor must run after the joins have
+ * been ordered.
+ */
+public class StarJoinVisitor<C extends RdfCloudTripleStoreConfiguration> extends AbstractQueryModelVisitor<Exception> {
+
+    private final StarJoinQueryEngine<C> queryEngine;
+    private final C conf;
+
+    /**
+     * @param queryEngine - Evaluates the star joins. (not null)
+     * @param conf - The query configuration. (not null)
+     */
+    public StarJoinVisitor(final StarJoinQueryEngine<C> queryEngine, final C conf) {
+        this.queryEngine = Preconditions.checkNotNull(queryEngine);
+        this.conf = Preconditions.checkNotNull(conf);
+    }
+
+    @Override
+    public void meet(final Join node) throws Exception {
+        final List<TupleExpr> args = new ArrayList<>();
+        addJoinArgs(node, args);
+
+        final Map<String, List<StatementPattern>> stars = new LinkedHashMap<>();
+        for (final TupleExpr arg : args) {
+            if (isStarPattern(arg)) {
+                final StatementPattern sp = (StatementPattern) arg;
+                List<StatementPattern> star = stars.get(sp.getSubjectVar().getName());
+                if (star == null) {
+                    star = new ArrayList<>();
+                    stars.put(sp.getSubjectVar().getName(), star);
+                }
+                star.add(sp);
+            } else {
+                arg.visit(this);
+            }
+        }
+
+        boolean replaced = false;
+        final List<TupleExpr> newArgs = new ArrayList<>();
+        for (final TupleExpr arg : args) {
+            final List<StatementPattern> star = isStarPattern(arg) ? stars.get(((StatementPattern) arg).getSubjectVar().getName()) : null;
+            if (star == null || star.size() < 2) {
+                newArgs.add(arg);
+            } else if (star.get(0) == arg) {
+                newArgs.add(new StarJoinTupleSet<>(star, queryEngine, conf));
+                replaced = true;
+            }
+        }
+        if (replaced) {
+            TupleExpr join = newArgs.get(0);
+            for (int i = 1; i < newArgs.size(); i++) {
+                join = new Join(join, newArgs.get(i));
+            }
+            node.replaceWith(join);
+        }
+    }
+
+    private static void addJoinArgs(final TupleExpr expr, final List<TupleExpr> args) {
+        if (expr.getClass() == Join.class) {
+            addJoinArgs(((Join) expr).getLeftArg(), args);
+            addJoinArgs(((Join) expr).getRightArg(), args);
+        } else {
+            args.add(expr);
+        }
+    }
+
+    private static boolean isStarPattern(final TupleExpr expr) {
+        if (expr.getClass() != StatementPattern.class) {
+            return false;
+        }
+        final StatementPattern sp = (StatementPattern) expr;
+        return sp.getContextVar() == null && sp.getPredicateVar().hasValue()
+                && !sp.getSubjectVar().getName().equals(sp.getObjectVar().getName());
+    }
+}
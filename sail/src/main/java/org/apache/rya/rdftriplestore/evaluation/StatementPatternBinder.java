@@ -0,0 +1,125 @@
+package org.apache.rya.rdftriplestore.evaluation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+
+/**
+ * Binds the variables of a {@link StatementPattern} to the values of a statement
+ * that matched it. Which variables need to be bound, and from which position of
+ * the statement, is worked out once per pattern instead of once per result.
+ * <p>
+ * The results are new {@link QueryBindingSet}s because the operators that consume
+ * them, such as property path evaluation, add bindings to them.
+ */
+public class StatementPatternBinder {
+    private static final int SUBJECT = 0;
+    private static final int PREDICATE = 1;
+    private static final int OBJECT = 2;
+    private static final int CONTEXT = 3;
+
+    private final String[] names;
+    private final int[] positions;
+
+    /**
+     * @param sp - The statement pattern whose variables are bound.
+     */
+    public StatementPatternBinder(StatementPattern sp) {
+        final List<String> names = new ArrayList<>(4);
+        final List<Integer> positions = new ArrayList<>(4);
+        addVar(sp.getSubjectVar(), SUBJECT, names, positions);
+        addVar(sp.getPredicateVar(), PREDICATE, names, positions);
+        addVar(sp.getObjectVar(), OBJECT, names, positions);
+        addVar(sp.getContextVar(), CONTEXT, names, positions);
+        this.names = names.toArray(new String[names.size()]);
+        this.positions = new int[positions.size()];
+        for (int i = 0; i < this.positions.length; i++) {
+            this.positions[i] = positions.get(i);
+        }
+    }
+
+    private static void addVar(Var var, int position, List<String> names, List<Integer> positions) {
+        // a variable that appears more than once is bound from its first position
+        if (var != null && !var.isConstant() && !names.contains(var.getName())) {
+            names.add(var.getName());
+            positions.add(position);
+        }
+    }
+
+    /**
+     * Binds the pattern's variables that are not already bound by {@code bindings}
+     * to the values of {@code statement}.
+     *
+     * @param statement - A statement that matches the pattern.
+     * @param bindings - The binding set the pattern was evaluated with.
+     * @return A new binding set that holds {@code bindings} and the statement's values.
+     */
+    public QueryBindingSet bind(Statement statement, BindingSet bindings) {
+        // sized up front so that adding the statement's values never rehashes the copy
+        final QueryBindingSet result = new QueryBindingSet(bindings.size() + names.length);
+        result.addAll(bindings);
+        for (int i = 0; i < names.length; i++) {
+            if (!result.hasBinding(names[i])) {
+                final Value value = valueAt(statement, positions[i]);
+                if (value != null) {
+                    result.addBinding(names[i], value);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param statement - A statement that matches the pattern.
+     * @param bindings - The binding set the statement would be bound to.
+     * @return {@code true} if every variable of the pattern that {@code bindings}
+     *   already binds is bound to the statement's value; otherwise {@code false}.
+     */
+    public boolean isCompatible(Statement statement, BindingSet bindings) {
+        for (int i = 0; i < names.length; i++) {
+            final Value bound = bindings.getValue(names[i]);
+            if (bound != null && !bound.equals(valueAt(statement, positions[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Value valueAt(Statement statement, int position) {
+        switch (position) {
+            case SUBJECT:
+                return statement.getSubject();
+            case PREDICATE:
+                return statement.getPredicate();
+            case OBJECT:
+                return statement.getObject();
+            default:
+                return statement.getContext();
+        }
+    }
+}
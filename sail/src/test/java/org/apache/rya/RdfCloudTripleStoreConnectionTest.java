@@ -200,6 +200,31 @@ public class RdfCloudTripleStoreConnectionTest extends TestCase {
         assertEquals(cth.getCount(), 1);
     }
 
+    public void testEvaluateStarJoin() throws Exception {
+        store.getConf().setStarJoin(true);
+        RepositoryConnection conn = repository.getConnection();
+        IRI loadPerc = VF.createIRI(litdupsNS, "loadPerc");
+        IRI uri1 = VF.createIRI(litdupsNS, "uri1");
+        IRI pred2 = VF.createIRI(litdupsNS, "pred2");
+        IRI uri2 = VF.createIRI(litdupsNS, "uri2");
+        IRI gpu = VF.createIRI(litdupsNS, "gpu");
+        conn.add(cpu, loadPerc, uri1);
+        conn.add(cpu, pred2, uri2);
+        conn.add(cpu, pred2, uri1);
+        conn.add(gpu, loadPerc, uri1);
+        conn.commit();
+
+        String query = "select * where {" +
+                "?x <" + loadPerc.stringValue() + "> <" + uri1.stringValue() + ">." +
+                "?x <" + pred2.stringValue() + "> ?o2." +
+                "}";
+        TupleQuery tupleQuery = conn.prepareTupleQuery(QueryLanguage.SPARQL, query);
+        CountTupleHandler cth = new CountTupleHandler();
+        tupleQuery.evaluate(cth);
+        conn.close();
+        assertEquals(2, cth.getCount());
+    }
+
     public void testPOObjRange() throws Exception {
         RepositoryConnection conn = repository.getConnection();
         IRI loadPerc = VF.createIRI(litdupsNS, "loadPerc");
@@ -0,0 +1,195 @@
+package org.apache.rya.rdftriplestore.evaluation;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Instance;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.api.resolver.RyaTripleContext;
+import org.apache.rya.rdftriplestore.RdfCloudTripleStoreConnection.StoreTripleSource;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.JoinIterator;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MergeJoinIteratorTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private AccumuloRyaDAO dao;
+    private AccumuloRdfConfiguration conf;
+    private ParallelEvaluationStrategyImpl eval;
+    private RyaTripleContext context;
+
+    @Before
+    public void init() throws Exception {
+        conf = new AccumuloRdfConfiguration();
+        conf.set(RdfCloudTripleStoreConfiguration.CONF_TBL_PREFIX, "rya_");
+        conf.setMergeJoin(true);
+        final Instance mock = new MockInstance("instance");
+        final Connector conn = mock.getConnector("root", new PasswordToken(""));
+        dao = new AccumuloRyaDAO();
+        dao.setConnector(conn);
+        dao.setConf(conf);
+        dao.init();
+        eval = new ParallelEvaluationStrategyImpl(new StoreTripleSource<>(conf, dao), null, null, conf);
+        context = RyaTripleContext.getInstance(conf);
+
+        for (int i = 0; i < 20; i++) {
+            final RyaIRI person = new RyaIRI("uri:person" + i);
+            add(person, "uri:type", new RyaIRI("uri:Person"));
+            if (i % 3 == 0) {
+                add(person, "uri:livesIn", new RyaIRI("uri:Boston"));
+            }
+            if (i % 4 == 0) {
+                add(person, "uri:likes", new RyaIRI("uri:topic" + (i % 5)));
+                add(person, "uri:likes", new RyaType(XMLSchema.STRING, "topic" + (i % 7)));
+            }
+            add(person, "uri:talksAbout", new RyaIRI("uri:topic" + (i % 7)));
+            add(person, "uri:talksAbout", new RyaType(XMLSchema.STRING, "topic" + (i % 3)));
+        }
+    }
+
+    @After
+    public void close() throws Exception {
+        eval.shutdown();
+        dao.destroy();
+    }
+
+    private void add(final RyaIRI subject, final String predicate, final RyaType object) throws Exception {
+        dao.add(new RyaStatement(subject, new RyaIRI(predicate), object));
+    }
+
+    @Test
+    public void mergesOnSubject() throws Exception {
+        final Join join = parseJoin("select * where { ?s <uri:type> <uri:Person> . ?s <uri:livesIn> <uri:Boston> }");
+        final Set<BindingSet> merged = evaluateMerged(join, EmptyBindingSet.getInstance());
+        assertEquals(7, merged.size());
+        assertEquals(evaluateNestedLoop(join, EmptyBindingSet.getInstance()), merged);
+    }
+
+    @Test
+    public void mergesOnObject() throws Exception {
+        final Join join = parseJoin("select * where { ?a <uri:likes> ?o . ?b <uri:talksAbout> ?o }");
+        final Set<BindingSet> merged = evaluateMerged(join, EmptyBindingSet.getInstance());
+        assertFalse(merged.isEmpty());
+        assertEquals(evaluateNestedLoop(join, EmptyBindingSet.getInstance()), merged);
+    }
+
+    @Test
+    public void objectsAreNotSortedOnSubject() throws Exception {
+        final Join join = parseJoin("select * where { ?s <uri:type> ?t . ?s <uri:livesIn> ?c }");
+        assertFalse(isMergeable(join, EmptyBindingSet.getInstance()));
+    }
+
+    @Test
+    public void fallsBackWhenBindingsChangeTheOrder() throws Exception {
+        final Join join = parseJoin("select * where { ?a <uri:likes> ?o . ?b <uri:talksAbout> ?o }");
+        final QueryBindingSet bindings = new QueryBindingSet();
+        bindings.addBinding("o", VF.createIRI("uri:topic0"));
+        assertFalse(isMergeable(join, bindings));
+
+        final MergeJoin mergeJoin = new MergeJoin((StatementPattern) join.getLeftArg(), (StatementPattern) join.getRightArg());
+        assertEquals(evaluateNestedLoop(join, bindings), toSet(eval.evaluate(mergeJoin, bindings)));
+    }
+
+    @Test
+    public void visitorPlacesMergeJoins() throws Exception {
+        final TupleExpr tupleExpr = new SPARQLParser().parseQuery(
+                "select * where { ?s <uri:type> <uri:Person> . ?s <uri:livesIn> <uri:Boston> . ?s <uri:likes> ?o }", null).getTupleExpr();
+        tupleExpr.visit(new MergeJoinVisitor(null, context));
+
+        final List<Join> joins = new ArrayList<>();
+        tupleExpr.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meet(final Join node) {
+                super.meet(node);
+                joins.add(node);
+            }
+        });
+        assertEquals(2, joins.size());
+        assertTrue(joins.get(0) instanceof MergeJoin);
+        assertFalse(joins.get(1) instanceof MergeJoin);
+    }
+
+    private boolean isMergeable(final Join join, final BindingSet bindings) {
+        return MergeJoinIterator.isMergeable((StatementPattern) join.getLeftArg(), (StatementPattern) join.getRightArg(), bindings, context);
+    }
+
+    private Set<BindingSet> evaluateMerged(final Join join, final BindingSet bindings) throws QueryEvaluationException {
+        assertTrue(isMergeable(join, bindings));
+        final MergeJoin mergeJoin = new MergeJoin((StatementPattern) join.getLeftArg(), (StatementPattern) join.getRightArg());
+        final CloseableIteration<BindingSet, QueryEvaluationException> results = eval.evaluate(mergeJoin, bindings);
+        assertTrue(results instanceof MergeJoinIterator);
+        return toSet(results);
+    }
+
+    private Set<BindingSet> evaluateNestedLoop(final Join join, final BindingSet bindings) throws QueryEvaluationException {
+        return toSet(new JoinIterator(eval, join, bindings));
+    }
+
+    private static Set<BindingSet> toSet(final CloseableIteration<BindingSet, QueryEvaluationException> results) throws QueryEvaluationException {
+        final Set<BindingSet> set = new HashSet<>();
+        try {
+            while (results.hasNext()) {
+                final BindingSet result = results.next();
+                // the results are compared by their bindings, whatever their implementation
+                final QueryBindingSet copy = new QueryBindingSet();
+                copy.addAll(result);
+                assertTrue("duplicate result " + result, set.add(copy));
+            }
+        } finally {
+            results.close();
+        }
+        return set;
+    }
+
+    private static Join parseJoin(final String query) throws Exception {
+        final List<StatementPattern> patterns = StatementPatternCollector.process(new SPARQLParser().parseQuery(query, null).getTupleExpr());
+        return new Join(patterns.get(0), patterns.get(1));
+    }
+}
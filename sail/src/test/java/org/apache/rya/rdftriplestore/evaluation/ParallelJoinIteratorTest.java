@@ -0,0 +1,157 @@
+package org.apache.rya.rdftriplestore.evaluation;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.StrictEvaluationStrategy;
+import org.eclipse.rdf4j.query.algebra.evaluation.iterator.JoinIterator;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelJoinIteratorTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final IRI KNOWS = VF.createIRI("uri:knows");
+    private static final IRI LIKES = VF.createIRI("uri:likes");
+    private static final IRI BROKEN = VF.createIRI("uri:broken");
+
+    private final Model model = new LinkedHashModel();
+    private StrictEvaluationStrategy strategy;
+    private ExecutorService executor;
+
+    @Before
+    public void init() {
+        for (int i = 0; i < 50; i++) {
+            final IRI person = VF.createIRI("uri:person" + i);
+            model.add(VF.createIRI("uri:Alice"), KNOWS, person);
+            for (int j = 0; j < 20; j++) {
+                model.add(person, LIKES, VF.createIRI("uri:thing" + j));
+            }
+        }
+        strategy = new StrictEvaluationStrategy(new ModelTripleSource(), null);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void sameResultsAsJoinIterator() throws Exception {
+        final Join join = new Join(pattern("a", KNOWS, "b"), pattern("b", LIKES, "c"));
+
+        final List<BindingSet> expected = drain(new JoinIterator(strategy, join, new EmptyBindingSet()));
+        final List<BindingSet> results = drain(new ParallelJoinIterator(strategy, join, new EmptyBindingSet(), executor, 4, 2));
+
+        assertEquals(1000, expected.size());
+        assertEquals(expected, results);
+    }
+
+    @Test
+    public void failureIsThrownToCaller() throws Exception {
+        model.add(VF.createIRI("uri:person7"), BROKEN, VF.createIRI("uri:thing"));
+        final Join join = new Join(pattern("a", KNOWS, "b"), pattern("b", BROKEN, "c"));
+
+        final CloseableIteration<BindingSet, QueryEvaluationException> iter =
+                new ParallelJoinIterator(strategy, join, new EmptyBindingSet(), executor, 4, 2);
+        try {
+            drain(iter);
+            fail("The failure of the right side of the join should have been thrown.");
+        } catch (final QueryEvaluationException e) {
+            // expected
+        } finally {
+            iter.close();
+        }
+    }
+
+    @Test
+    public void closeCancelsOutstandingWork() throws Exception {
+        final Join join = new Join(pattern("a", KNOWS, "b"), pattern("b", LIKES, "c"));
+
+        final CloseableIteration<BindingSet, QueryEvaluationException> iter =
+                new ParallelJoinIterator(strategy, join, new EmptyBindingSet(), executor, 4, 1);
+        assertTrue(iter.hasNext());
+        iter.next();
+        iter.close();
+
+        // the workers waiting for room in their buffers must give up once the join is closed
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static StatementPattern pattern(final String subject, final IRI predicate, final String object) {
+        return new StatementPattern(new Var(subject), new Var("p_" + predicate.getLocalName(), predicate), new Var(object));
+    }
+
+    private static List<BindingSet> drain(final CloseableIteration<BindingSet, QueryEvaluationException> iter) throws QueryEvaluationException {
+        final List<BindingSet> results = new ArrayList<>();
+        while (iter.hasNext()) {
+            results.add(iter.next());
+        }
+        iter.close();
+        return results;
+    }
+
+    /**
+     * Reads statements from the test's model, and fails if the statements of the
+     * {@link #BROKEN} predicate are requested.
+     */
+    private class ModelTripleSource implements TripleSource {
+        @Override
+        public CloseableIteration<? extends Statement, QueryEvaluationException> getStatements(final Resource subj, final IRI pred,
+                final Value obj, final Resource... contexts) throws QueryEvaluationException {
+            if (BROKEN.equals(pred)) {
+                throw new QueryEvaluationException("Could not read " + subj);
+            }
+            return new CloseableIteratorIteration<Statement, QueryEvaluationException>(
+                    new ArrayList<>(model.filter(subj, pred, obj, contexts)).iterator());
+        }
+
+        @Override
+        public ValueFactory getValueFactory() {
+            return VF;
+        }
+    }
+}
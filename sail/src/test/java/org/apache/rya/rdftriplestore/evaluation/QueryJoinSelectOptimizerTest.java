@@ -19,8 +19,15 @@ package org.apache.rya.rdftriplestore.evaluation;
  * under the License.
  */
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -46,10 +53,13 @@ import org.apache.rya.accumulo.AccumuloRdfConfiguration;
 import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
 import org.apache.rya.api.layout.TablePrefixLayoutStrategy;
 import org.apache.rya.api.persist.RdfEvalStatsDAO;
+import org.apache.rya.api.persist.joinselect.SelectivityEvalDAO;
 import org.apache.rya.joinselect.AccumuloSelectivityEvalDAO;
 import org.apache.rya.prospector.service.ProspectorServiceEvalStatsDAO;
 import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.impl.EvaluationStatistics;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.FilterOptimizer;
 import org.eclipse.rdf4j.query.parser.ParsedQuery;
 import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
@@ -278,6 +288,9 @@ public class QueryJoinSelectOptimizerTest {
 
     System.out.println("*********************QUERY2********************");
 
+    // The expected plan is the greedy search's.
+    arc.setSelectivityDpLimit(0);
+
     RdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> res = new ProspectorServiceEvalStatsDAO(conn, arc);
     AccumuloSelectivityEvalDAO accc = new AccumuloSelectivityEvalDAO();
     accc.setConf(arc);
@@ -537,6 +550,9 @@ public class QueryJoinSelectOptimizerTest {
   @Test
   public void testOptimizeQ4() throws Exception {
 
+    // The expected plan is the greedy search's.
+    arc.setSelectivityDpLimit(0);
+
     RdfEvalStatsDAO<RdfCloudTripleStoreConfiguration> res = new ProspectorServiceEvalStatsDAO(conn, arc);
     AccumuloSelectivityEvalDAO accc = new AccumuloSelectivityEvalDAO();
     accc.setConf(arc);
@@ -980,6 +996,76 @@ public class QueryJoinSelectOptimizerTest {
   
   
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSearchOrders() throws Exception {
+    String chain = ""//
+        + "SELECT ?x ?w" //
+        + "{" //
+        + "  ?z <uri:c> ?w ."//
+        + "  ?x <uri:a> ?y ."//
+        + "  ?y <uri:b> ?z ."//
+        + "}";//
+
+    String searched = ""//
+        + "SELECT ?x ?w" //
+        + "{" //
+        + "  ?x <uri:a> ?y ."//
+        + "  ?y <uri:b> ?z ."//
+        + "  ?z <uri:c> ?w ."//
+        + "}";//
+
+    String greedy = ""//
+        + "SELECT ?x ?w" //
+        + "{" //
+        + "  ?y <uri:b> ?z ."//
+        + "  ?z <uri:c> ?w ."//
+        + "  ?x <uri:a> ?y ."//
+        + "}";//
+
+    // Joining b with c is the cheapest first step, but starting with a and b and then
+    // adding c keeps the total size of the intermediate results smaller.
+    final Map<String,Double> cards = new HashMap<String,Double>();
+    cards.put("uri:a", 2.0);
+    cards.put("uri:b", 3.0);
+    cards.put("uri:c", 4.0);
+    final Map<String,Double> selectivities = new HashMap<String,Double>();
+    selectivities.put("uri:a" + DELIM + "uri:b", 0.5);
+    selectivities.put("uri:b" + DELIM + "uri:c", 0.01);
+
+    EvaluationStatistics stats = new EvaluationStatistics() {
+      @Override
+      public double getCardinality(TupleExpr expr) {
+        return cards.get(getPredicate(expr));
+      }
+    };
+
+    SelectivityEvalDAO<RdfCloudTripleStoreConfiguration> eval = mock(SelectivityEvalDAO.class);
+    when(eval.getConf()).thenReturn(arc);
+    when(eval.getJoinSelect(any(RdfCloudTripleStoreConfiguration.class), any(TupleExpr.class), any(TupleExpr.class))).thenAnswer(invocation -> {
+      String pred1 = getPredicate((TupleExpr) invocation.getArguments()[1]);
+      String pred2 = getPredicate((TupleExpr) invocation.getArguments()[2]);
+      String pair = pred1.compareTo(pred2) < 0 ? pred1 + DELIM + pred2 : pred2 + DELIM + pred1;
+      return selectivities.containsKey(pair) ? selectivities.get(pair) : 1.0;
+    });
+
+    TupleExpr te = getTupleExpr(chain);
+    new QueryJoinSelectOptimizer(stats, eval).optimize(te, null, null);
+    Assert.assertEquals(getTupleExpr(searched), te);
+
+    // Each pair's selectivity is only looked up once.
+    verify(eval, times(3)).getJoinSelect(any(RdfCloudTripleStoreConfiguration.class), any(TupleExpr.class), any(TupleExpr.class));
+
+    arc.setSelectivityDpLimit(2);
+    te = getTupleExpr(chain);
+    new QueryJoinSelectOptimizer(stats, eval).optimize(te, null, null);
+    Assert.assertEquals(getTupleExpr(greedy), te);
+  }
+
+  private static String getPredicate(TupleExpr te) {
+    return ((StatementPattern) te).getPredicateVar().getValue().stringValue();
+  }
+
   private TupleExpr getTupleExpr(String query) throws MalformedQueryException {
 
     SPARQLParser sp = new SPARQLParser();
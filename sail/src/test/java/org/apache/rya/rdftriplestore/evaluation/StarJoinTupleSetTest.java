@@ -0,0 +1,202 @@
+package org.apache.rya.rdftriplestore.evaluation;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Instance;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.rya.accumulo.AccumuloRdfConfiguration;
+import org.apache.rya.accumulo.AccumuloRyaDAO;
+import org.apache.rya.api.RdfCloudTripleStoreConfiguration;
+import org.apache.rya.api.domain.RyaIRI;
+import org.apache.rya.api.domain.RyaStatement;
+import org.apache.rya.api.domain.RyaType;
+import org.apache.rya.rdftriplestore.RdfCloudTripleStoreConnection.StoreTripleSource;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.helpers.StatementPatternCollector;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.parser.sparql.SPARQLParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StarJoinTupleSetTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+    private AccumuloRyaDAO dao;
+    private AccumuloRdfConfiguration conf;
+    private ParallelEvaluationStrategyImpl eval;
+
+    @Before
+    public void init() throws Exception {
+        conf = new AccumuloRdfConfiguration();
+        conf.set(RdfCloudTripleStoreConfiguration.CONF_TBL_PREFIX, "rya_");
+        final Instance mock = new MockInstance("instance");
+        final Connector conn = mock.getConnector("root", new PasswordToken(""));
+        dao = new AccumuloRyaDAO();
+        dao.setConnector(conn);
+        dao.setConf(conf);
+        dao.init();
+        eval = new ParallelEvaluationStrategyImpl(new StoreTripleSource<>(conf, dao), null, null, conf);
+
+        for (int i = 0; i < 20; i++) {
+            final RyaIRI person = new RyaIRI("uri:person" + i);
+            add(person, "uri:type", new RyaIRI("uri:Person"));
+            if (i % 3 == 0) {
+                add(person, "uri:livesIn", new RyaIRI("uri:Boston"));
+            }
+            if (i % 4 == 0) {
+                add(person, "uri:likes", new RyaIRI("uri:topic" + (i % 5)));
+                add(person, "uri:likes", new RyaType(XMLSchema.STRING, "topic" + (i % 7)));
+            }
+            add(person, "uri:talksAbout", new RyaIRI("uri:topic" + (i % 7)));
+        }
+    }
+
+    @After
+    public void close() throws Exception {
+        eval.shutdown();
+        dao.destroy();
+    }
+
+    private void add(final RyaIRI subject, final String predicate, final RyaType object) throws Exception {
+        dao.add(new RyaStatement(subject, new RyaIRI(predicate), object));
+    }
+
+    @Test
+    public void joinsBoundObjects() throws Exception {
+        final String query = "select * where { ?s <uri:type> <uri:Person> . ?s <uri:livesIn> <uri:Boston> }";
+        final Set<BindingSet> star = evaluateStar(query, EmptyBindingSet.getInstance());
+        assertEquals(7, star.size());
+        assertEquals(evaluate(query, EmptyBindingSet.getInstance()), star);
+    }
+
+    @Test
+    public void joinsUnboundObjects() throws Exception {
+        final String query = "select * where { ?s <uri:livesIn> ?c . ?s <uri:likes> ?l . ?s <uri:talksAbout> ?t }";
+        final Set<BindingSet> star = evaluateStar(query, EmptyBindingSet.getInstance());
+        assertFalse(star.isEmpty());
+        assertEquals(evaluate(query, EmptyBindingSet.getInstance()), star);
+    }
+
+    @Test
+    public void joinsSharedObjects() throws Exception {
+        final String query = "select * where { ?s <uri:likes> ?o . ?s <uri:talksAbout> ?o }";
+        final Set<BindingSet> star = evaluateStar(query, EmptyBindingSet.getInstance());
+        assertFalse(star.isEmpty());
+        assertEquals(evaluate(query, EmptyBindingSet.getInstance()), star);
+    }
+
+    @Test
+    public void checksBoundSubjects() throws Exception {
+        final String query = "select * where { ?s <uri:type> <uri:Person> . ?s <uri:likes> ?l }";
+        final QueryBindingSet bindings = new QueryBindingSet();
+        bindings.addBinding("s", VF.createIRI("uri:person4"));
+        final Set<BindingSet> star = evaluateStar(query, bindings);
+        assertEquals(2, star.size());
+        assertEquals(evaluate(query, bindings), star);
+
+        final StarJoinTupleSet<AccumuloRdfConfiguration> tupleSet = new StarJoinTupleSet<>(getPatterns(query), dao.getQueryEngine(), conf);
+        final List<BindingSet> batch = new ArrayList<>();
+        final Set<BindingSet> expected = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            final QueryBindingSet subject = new QueryBindingSet();
+            subject.addBinding("s", VF.createIRI("uri:person" + i));
+            batch.add(subject);
+            expected.addAll(evaluate(query, subject));
+        }
+        assertEquals(expected, toSet(tupleSet.evaluate(batch)));
+    }
+
+    @Test
+    public void visitorPlacesStarJoins() throws Exception {
+        final TupleExpr tupleExpr = new SPARQLParser().parseQuery(
+                "select * where { ?s <uri:type> <uri:Person> . ?s <uri:likes> ?o . ?o <uri:type> ?t . ?s <uri:livesIn> ?c }", null).getTupleExpr();
+        tupleExpr.visit(new StarJoinVisitor<>(dao.getQueryEngine(), conf));
+
+        final List<StarJoinTupleSet<?>> stars = new ArrayList<>();
+        final List<StatementPattern> patterns = new ArrayList<>();
+        tupleExpr.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+            @Override
+            public void meetOther(final QueryModelNode node) {
+                if (node instanceof StarJoinTupleSet) {
+                    stars.add((StarJoinTupleSet<?>) node);
+                }
+                super.meetOther(node);
+            }
+
+            @Override
+            public void meet(final StatementPattern node) {
+                patterns.add(node);
+            }
+        });
+        assertEquals(1, stars.size());
+        assertEquals(3, stars.get(0).getPatterns().size());
+        assertEquals(1, patterns.size());
+        assertEquals("o", patterns.get(0).getSubjectVar().getName());
+    }
+
+    private Set<BindingSet> evaluateStar(final String query, final BindingSet bindings) throws Exception {
+        final StarJoinTupleSet<AccumuloRdfConfiguration> tupleSet = new StarJoinTupleSet<>(getPatterns(query), dao.getQueryEngine(), conf);
+        return toSet(eval.evaluate(tupleSet, bindings));
+    }
+
+    private Set<BindingSet> evaluate(final String query, final BindingSet bindings) throws Exception {
+        return toSet(eval.evaluate(new SPARQLParser().parseQuery(query, null).getTupleExpr(), bindings));
+    }
+
+    private static List<StatementPattern> getPatterns(final String query) throws Exception {
+        return StatementPatternCollector.process(new SPARQLParser().parseQuery(query, null).getTupleExpr());
+    }
+
+    private static Set<BindingSet> toSet(final CloseableIteration<BindingSet, QueryEvaluationException> results) throws QueryEvaluationException {
+        final Set<BindingSet> set = new HashSet<>();
+        try {
+            while (results.hasNext()) {
+                final BindingSet result = results.next();
+                // the results are compared by their bindings, whatever their implementation
+                final QueryBindingSet copy = new QueryBindingSet();
+                copy.addAll(result);
+                assertTrue("duplicate result " + result, set.add(copy));
+            }
+        } finally {
+            results.close();
+        }
+        return set;
+    }
+}
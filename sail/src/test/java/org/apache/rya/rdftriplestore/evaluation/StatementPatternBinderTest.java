@@ -0,0 +1,90 @@
+package org.apache.rya.rdftriplestore.evaluation;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Test;
+
+public class StatementPatternBinderTest {
+    private static final ValueFactory VF = SimpleValueFactory.getInstance();
+    private static final IRI TALKS_TO = VF.createIRI("uri:talksTo");
+
+    @Test
+    public void bindsUnboundVariables() {
+        final StatementPattern sp = new StatementPattern(new Var("x"), constant(TALKS_TO), new Var("y"), new Var("c"));
+        final Statement statement = VF.createStatement(VF.createIRI("uri:Joe"), TALKS_TO, VF.createIRI("uri:Bob"), VF.createIRI("uri:graph"));
+
+        final MapBindingSet bindings = new MapBindingSet();
+        bindings.addBinding("x", VF.createIRI("uri:Joe"));
+        bindings.addBinding("z", VF.createLiteral("other"));
+
+        final BindingSet result = new StatementPatternBinder(sp).bind(statement, bindings);
+
+        final QueryBindingSet expected = new QueryBindingSet(bindings);
+        expected.addBinding("y", VF.createIRI("uri:Bob"));
+        expected.addBinding("c", VF.createIRI("uri:graph"));
+        assertEquals(expected, result);
+        assertEquals(expected.hashCode(), result.hashCode());
+        assertEquals(expected.getBindingNames(), result.getBindingNames());
+        assertEquals(4, result.size());
+        assertNull(result.getValue(constant(TALKS_TO).getName()));
+    }
+
+    @Test
+    public void repeatedVariableIsBoundOnce() {
+        final StatementPattern sp = new StatementPattern(new Var("x"), constant(TALKS_TO), new Var("x"));
+        final Statement statement = VF.createStatement(VF.createIRI("uri:Joe"), TALKS_TO, VF.createIRI("uri:Joe"));
+
+        final BindingSet result = new StatementPatternBinder(sp).bind(statement, new MapBindingSet());
+
+        assertEquals(1, result.size());
+        assertEquals(VF.createIRI("uri:Joe"), result.getValue("x"));
+    }
+
+    @Test
+    public void nothingToBind() {
+        final StatementPattern sp = new StatementPattern(new Var("x"), constant(TALKS_TO), new Var("y"));
+        final Statement statement = VF.createStatement(VF.createIRI("uri:Joe"), TALKS_TO, VF.createIRI("uri:Bob"));
+
+        final MapBindingSet bindings = new MapBindingSet();
+        bindings.addBinding("x", VF.createIRI("uri:Joe"));
+        bindings.addBinding("y", VF.createIRI("uri:Bob"));
+
+        final BindingSet result = new StatementPatternBinder(sp).bind(statement, bindings);
+        assertEquals(bindings, result);
+        assertNotSame(bindings, result);
+    }
+
+    private static Var constant(final IRI value) {
+        final Var var = new Var("_const_" + value.getLocalName(), value);
+        var.setConstant(true);
+        return var;
+    }
+}